@@ -1245,6 +1245,49 @@ public class Calc {
 		return points;
 	}
 
+	/**
+	 * Copy the coordinates of an array of atoms into a flat buffer, with the
+	 * coordinates of atom i stored at indices 3*i, 3*i+1 and 3*i+2. Flat
+	 * buffers can be reused across calls and are accepted by the coordinate
+	 * array methods of {@link CalcPoint},
+	 * {@link org.biojava.nbio.structure.geometry.SuperPositions} and
+	 * {@link org.biojava.nbio.structure.geometry.SuperPositionQCP}.
+	 *
+	 * @param atoms
+	 *            array of atoms
+	 * @param coords
+	 *            buffer to fill. If null or shorter than
+	 *            <code>3*atoms.length</code> a new one is allocated
+	 * @return the filled buffer
+	 */
+	public static double[] atomsToCoordinates(Atom[] atoms, double[] coords) {
+		if (coords == null || coords.length < 3 * atoms.length)
+			coords = new double[3 * atoms.length];
+		for (int i = 0; i < atoms.length; i++) {
+			coords[3 * i] = atoms[i].getX();
+			coords[3 * i + 1] = atoms[i].getY();
+			coords[3 * i + 2] = atoms[i].getZ();
+		}
+		return coords;
+	}
+
+	/**
+	 * Write the coordinates of a flat buffer back to an array of atoms, the
+	 * inverse of {@link #atomsToCoordinates(Atom[], double[])}.
+	 *
+	 * @param coords
+	 *            interleaved x,y,z coordinates
+	 * @param atoms
+	 *            array of atoms whose coordinates will be set
+	 */
+	public static void coordinatesToAtoms(double[] coords, Atom[] atoms) {
+		for (int i = 0; i < atoms.length; i++) {
+			atoms[i].setX(coords[3 * i]);
+			atoms[i].setY(coords[3 * i + 1]);
+			atoms[i].setZ(coords[3 * i + 2]);
+		}
+	}
+
 	/**
 	 * Calculate the RMSD of two Atom arrays, already superposed.
 	 *
@@ -1347,4 +1390,63 @@ public class Calc {
 
 		return sum / Lnorm;
 	}
+
+	/**
+	 * Calculate the TM-Score for the superposition of two flat coordinate
+	 * buffers, see {@link #getTMScore(Atom[], Atom[], int, int, boolean)}.
+	 * Coordinates must be pre-rotated.
+	 *
+	 * @param coords1
+	 *            interleaved x,y,z coordinates of the aligned positions of
+	 *            structure 1
+	 * @param coords2
+	 *            interleaved x,y,z coordinates of the aligned positions of
+	 *            structure 2
+	 * @param n
+	 *            number of aligned positions
+	 * @param len1
+	 *            The full length of structure 1
+	 * @param len2
+	 *            The full length of structure 2
+	 * @param normalizeMin
+	 *            Whether to normalize by the <strong>minimum</strong>-length
+	 *            structure. If false, normalized by the maximum.
+	 * @return The TM-Score
+	 * @throws StructureException
+	 */
+	public static double getTMScore(double[] coords1, double[] coords2, int n, int len1,
+			int len2, boolean normalizeMin) throws StructureException {
+		if (coords1.length < 3 * n || coords2.length < 3 * n) {
+			throw new StructureException(
+					"The coordinate arrays are shorter than the alignment length!");
+		}
+		if (n > len1) {
+			throw new StructureException(
+					"len1 must be greater or equal to the alignment length!");
+		}
+		if (n > len2) {
+			throw new StructureException(
+					"len2 must be greater or equal to the alignment length!");
+		}
+
+		int Lnorm;
+		if (normalizeMin) {
+			Lnorm = Math.min(len1, len2);
+		} else {
+			Lnorm = Math.max(len1, len2);
+		}
+
+		double d0 = 1.24 * Math.cbrt(Lnorm - 15.) - 1.8;
+		double d0sq = d0 * d0;
+
+		double sum = 0;
+		for (int i = 0; i < 3 * n; i += 3) {
+			double dx = coords1[i] - coords2[i];
+			double dy = coords1[i + 1] - coords2[i + 1];
+			double dz = coords1[i + 2] - coords2[i + 2];
+			sum += 1. / (1 + (dx * dx + dy * dy + dz * dz) / d0sq);
+		}
+
+		return sum / Lnorm;
+	}
 }
@@ -0,0 +1,420 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.biojava.nbio.structure.align.util.AtomCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs an analysis over many structures in parallel: every structure is loaded
+ * through an {@link AtomCache}, passed to a {@link StructureFunction}, and the
+ * result is passed to a {@link ResultSink} as soon as it is computed.
+ * <p>
+ * Structures are scheduled as fork/join tasks, so that idle threads steal work
+ * from busy ones whatever the sizes of the structures. Calls to the sink are
+ * serialized: a slow sink holds the threads that finished a structure, so that
+ * no more than one structure per thread of the pool is in memory at a time.
+ * A structure that can not be loaded, or for which the function throws an
+ * exception, is reported to {@link ResultSink#failed(String, Exception)} and
+ * the run goes on with the others. If the sink itself fails, the run is
+ * aborted: structures that are not started yet are skipped, the sink is not
+ * called any more, and the failure is thrown once the structures being
+ * processed are finished.
+ * <p>
+ * Progress is reported to a {@link ProgressListener} at most once per
+ * {@link #setProgressInterval(long) interval}, and once at the end of the run.
+ * <p>
+ * Example:
+ *
+ * <pre>
+ * StructureBatchProcessor&lt;Integer&gt; processor = new StructureBatchProcessor&lt;&gt;(new AtomCache(),
+ * 		StructureTools::getNrAtoms);
+ * processor.setProgressListener(progress -&gt; System.err.println(progress));
+ * processor.process(Arrays.asList("1cdg", "1tim", "4hhb"),
+ * 		(name, atoms) -&gt; System.out.println(name + "\t" + atoms));
+ * </pre>
+ *
+ * @param <R> the type of the results
+ * @since 7.2.0
+ */
+public class StructureBatchProcessor<R> {
+
+	private static final Logger logger = LoggerFactory.getLogger(StructureBatchProcessor.class);
+
+	/** Default interval between progress reports, in milliseconds */
+	public static final long DEFAULT_PROGRESS_INTERVAL = 10000;
+
+	/**
+	 * The analysis of a single structure. It is called concurrently on
+	 * different structures, so it must be thread-safe.
+	 *
+	 * @param <R> the type of the results
+	 */
+	@FunctionalInterface
+	public interface StructureFunction<R> {
+		R apply(Structure structure) throws IOException, StructureException;
+	}
+
+	/**
+	 * Receives the results of a {@link StructureBatchProcessor}. Calls are
+	 * serialized by the processor, so implementations need not be thread-safe.
+	 *
+	 * @param <R> the type of the results
+	 */
+	@FunctionalInterface
+	public interface ResultSink<R> {
+		/**
+		 * @param name the identifier of the structure
+		 * @param result the result of the function for that structure
+		 * @throws IOException to abort the run
+		 */
+		void accept(String name, R result) throws IOException;
+
+		/**
+		 * Called for the structures that could not be loaded or processed. By
+		 * default, failures are only logged and counted.
+		 *
+		 * @param name the identifier of the structure
+		 * @param e the cause of the failure
+		 * @throws IOException to abort the run
+		 */
+		default void failed(String name, Exception e) throws IOException {
+		}
+	}
+
+	/**
+	 * Receives the progress of a {@link StructureBatchProcessor}. Calls are
+	 * serialized with the calls to the sink.
+	 */
+	@FunctionalInterface
+	public interface ProgressListener {
+		void progress(Progress progress);
+	}
+
+	/**
+	 * A snapshot of the progress of a run.
+	 */
+	public static class Progress {
+		private final int total;
+		private final int processed;
+		private final int failed;
+		private final long elapsedNanos;
+
+		Progress(int total, int processed, int failed, long elapsedNanos) {
+			this.total = total;
+			this.processed = processed;
+			this.failed = failed;
+			this.elapsedNanos = elapsedNanos;
+		}
+
+		/**
+		 * @return the number of structures of the run
+		 */
+		public int getTotal() {
+			return total;
+		}
+
+		/**
+		 * @return the number of structures whose result was passed to the sink
+		 */
+		public int getProcessed() {
+			return processed;
+		}
+
+		/**
+		 * @return the number of structures that could not be loaded or processed
+		 */
+		public int getFailed() {
+			return failed;
+		}
+
+		/**
+		 * @return the number of structures that are not finished yet
+		 */
+		public int getRemaining() {
+			return total - processed - failed;
+		}
+
+		/**
+		 * @return the time since the start of the run, in nanoseconds
+		 */
+		public long getElapsedNanos() {
+			return elapsedNanos;
+		}
+
+		/**
+		 * @return the number of structures finished per second, including failures
+		 */
+		public double getThroughput() {
+			return elapsedNanos == 0 ? 0 : (processed + failed) * 1e9 / elapsedNanos;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d of %d structures processed, %d failed, in %d s (%.1f structures/s)",
+					processed, total, failed, TimeUnit.NANOSECONDS.toSeconds(elapsedNanos), getThroughput());
+		}
+	}
+
+	private final AtomCache cache;
+	private final StructureFunction<R> function;
+	private ForkJoinPool pool;
+	private ProgressListener progressListener;
+	private long progressInterval = DEFAULT_PROGRESS_INTERVAL;
+
+	// the last started run
+	private volatile Run lastRun;
+
+	/**
+	 * @param cache
+	 *            used to load the structures
+	 * @param function
+	 *            the analysis of each structure
+	 */
+	public StructureBatchProcessor(AtomCache cache, StructureFunction<R> function) {
+		this.cache = cache;
+		this.function = function;
+	}
+
+	/**
+	 * Processes each of the structures once, in parallel. Returns when all
+	 * structures are finished. Runs of the same processor may overlap: each
+	 * call has its own sink and progress.
+	 *
+	 * @param names
+	 *            structure identifiers, as understood by
+	 *            {@link AtomCache#getStructure(String)}
+	 * @param sink
+	 *            receives each result as it is computed
+	 * @return the final progress of the run
+	 * @throws IOException
+	 *             if the sink fails, which aborts the run. It is thrown once
+	 *             all the tasks of the run are finished.
+	 */
+	public Progress process(Collection<String> names, ResultSink<R> sink) throws IOException {
+		List<String> unique = new ArrayList<>(new LinkedHashSet<>(names));
+		Run run;
+		synchronized (this) {
+			run = new Run(sink, unique.size(), progressListener, progressInterval);
+		}
+		lastRun = run;
+		ForkJoinPool p = pool != null ? pool : ForkJoinPool.commonPool();
+		// tasks do not throw sink failures, so this returns once the whole task tree is finished
+		p.invoke(new ProcessTask(run, unique, 0, unique.size()));
+
+		Exception failure = run.getSinkFailure();
+		if (failure instanceof IOException)
+			throw (IOException) failure;
+		if (failure != null)
+			throw (RuntimeException) failure;
+		Progress progress = run.finish();
+		if (progress.getFailed() > 0)
+			logger.warn("{} of {} structures failed", progress.getFailed(), progress.getTotal());
+		return progress;
+	}
+
+	/**
+	 * Processes a range of structures, splitting the range in halves so that
+	 * single structures can be stolen by idle threads.
+	 */
+	private class ProcessTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Run run;
+		private final List<String> names;
+		private final int start;
+		private final int end;
+
+		ProcessTask(Run run, List<String> names, int start, int end) {
+			this.run = run;
+			this.names = names;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (run.aborted)
+				return;
+			if (end - start > 1) {
+				int mid = (start + end) >>> 1;
+				invokeAll(new ProcessTask(run, names, start, mid), new ProcessTask(run, names, mid, end));
+				return;
+			}
+			if (end == start)
+				return;
+			String name = names.get(start);
+			R result;
+			try {
+				result = function.apply(cache.getStructure(name));
+			} catch (IOException | StructureException | RuntimeException e) {
+				logger.error("Could not process structure {}: {}", name, e.getMessage());
+				run.deliverFailure(name, e);
+				return;
+			}
+			run.deliver(name, result);
+		}
+	}
+
+	/**
+	 * The state of a call to {@link StructureBatchProcessor#process(Collection, ResultSink)}.
+	 * The calls to its sink and progress listener are serialized by synchronizing on the run.
+	 */
+	private class Run {
+		private final ResultSink<R> sink;
+		private final int total;
+		private final ProgressListener progressListener;
+		private final long progressInterval;
+		private final long start = System.nanoTime();
+		private final AtomicInteger processed = new AtomicInteger();
+		private final AtomicInteger failed = new AtomicInteger();
+		// guarded by this
+		private long lastProgress = start;
+		private Exception sinkFailure;
+		private volatile boolean aborted;
+
+		Run(ResultSink<R> sink, int total, ProgressListener progressListener, long progressInterval) {
+			this.sink = sink;
+			this.total = total;
+			this.progressListener = progressListener;
+			this.progressInterval = progressInterval;
+		}
+
+		synchronized void deliver(String name, R result) {
+			if (aborted)
+				return;
+			try {
+				sink.accept(name, result);
+				processed.incrementAndGet();
+				reportProgress();
+			} catch (IOException | RuntimeException e) {
+				abort(e);
+			}
+		}
+
+		synchronized void deliverFailure(String name, Exception e) {
+			if (aborted)
+				return;
+			failed.incrementAndGet();
+			try {
+				sink.failed(name, e);
+				reportProgress();
+			} catch (IOException | RuntimeException sinkException) {
+				abort(sinkException);
+			}
+		}
+
+		/**
+		 * Stops the run after a failure of the sink: the remaining tasks return
+		 * without loading their structures.
+		 */
+		private void abort(Exception e) {
+			logger.error("Aborting run after failure of the result sink: {}", e.getMessage());
+			sinkFailure = e;
+			aborted = true;
+		}
+
+		synchronized Exception getSinkFailure() {
+			return sinkFailure;
+		}
+
+		private void reportProgress() {
+			if (progressListener == null)
+				return;
+			long now = System.nanoTime();
+			if (now - lastProgress >= TimeUnit.MILLISECONDS.toNanos(progressInterval)) {
+				lastProgress = now;
+				progressListener.progress(getProgress());
+			}
+		}
+
+		/**
+		 * Reports the final progress.
+		 */
+		synchronized Progress finish() {
+			Progress progress = getProgress();
+			if (progressListener != null)
+				progressListener.progress(progress);
+			return progress;
+		}
+
+		Progress getProgress() {
+			return new Progress(total, processed.get(), failed.get(), System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * @return the progress of the last started run
+	 */
+	public Progress getProgress() {
+		Run run = lastRun;
+		return run == null ? new Progress(0, 0, 0, 0) : run.getProgress();
+	}
+
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * @param pool
+	 *            the pool to run the structures in, or null (the default) for
+	 *            the {@link ForkJoinPool#commonPool() common pool}
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	public synchronized ProgressListener getProgressListener() {
+		return progressListener;
+	}
+
+	/**
+	 * @param progressListener
+	 *            receives the progress of the runs, or null
+	 */
+	public synchronized void setProgressListener(ProgressListener progressListener) {
+		this.progressListener = progressListener;
+	}
+
+	public synchronized long getProgressInterval() {
+		return progressInterval;
+	}
+
+	/**
+	 * @param progressInterval
+	 *            the minimum time between progress reports, in milliseconds.
+	 *            Default {@value #DEFAULT_PROGRESS_INTERVAL}
+	 */
+	public synchronized void setProgressInterval(long progressInterval) {
+		this.progressInterval = progressInterval;
+	}
+}
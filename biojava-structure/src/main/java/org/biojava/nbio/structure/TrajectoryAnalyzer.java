@@ -0,0 +1,248 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.biojava.nbio.structure.asa.AsaCalculator;
+import org.biojava.nbio.structure.contact.ContactVisitor;
+import org.biojava.nbio.structure.contact.Grid;
+import org.biojava.nbio.structure.geometry.SuperPositionQCP;
+import org.biojava.nbio.structure.io.PDBFrameReader;
+import org.biojava.nbio.structure.secstruc.SecStrucCalc;
+import org.biojava.nbio.structure.secstruc.SecStrucState;
+
+/**
+ * Analyzes successive coordinate frames of the same atoms, such as the models
+ * of an NMR ensemble or the conformations of a simulation trajectory.
+ * <p>
+ * The topology (which atoms there are, the groups they belong to, the
+ * backbone of the secondary structure, the atom radii of the ASA) is resolved
+ * once from the first model of a structure. A frame is then given as the
+ * coordinates of all the atoms of that model, in the order of
+ * {@link #getAtoms()}, and the analyses of the current frame are:
+ * <ul>
+ * <li>the secondary structure, see {@link SecStrucCalc}</li>
+ * <li>the accessible surface areas, see {@link AsaCalculator}</li>
+ * <li>the RMSD to a reference frame, after superposition</li>
+ * <li>the atom contacts within a cutoff, see {@link Grid}</li>
+ * </ul>
+ * Setting a frame writes its coordinates to the atoms of the topology.
+ * <p>
+ * Frames can be streamed from a multi-model PDB file with a
+ * {@link PDBFrameReader}, so that only one frame is in memory at a time:
+ * <pre>
+ * try (PDBFrameReader reader = new PDBFrameReader(inStream)) {
+ *     TrajectoryAnalyzer analyzer = new TrajectoryAnalyzer(reader.getTopology());
+ *     double[] coords = new double[3 * analyzer.getAtoms().length];
+ *     while (reader.nextFrame(coords)) {
+ *         analyzer.setFrame(coords);
+ *         double rmsd = analyzer.getRmsd();
+ *         List&lt;SecStrucState&gt; ss = analyzer.getSecondaryStructure();
+ *     }
+ * }
+ * </pre>
+ * An analyzer is not thread-safe.
+ *
+ * @since 7.2.0
+ */
+public class TrajectoryAnalyzer {
+
+	private final Structure topology;
+	private final Atom[] atoms;
+	private final double[] frame;
+
+	// the representative atoms of the RMSD, as indices in atoms
+	private final int[] rmsdIndices;
+	private final double[] reference;
+	private final double[] rmsdCoords;
+	private final SuperPositionQCP qcp = new SuperPositionQCP(false);
+
+	private SecStrucCalc secStrucCalc;
+
+	private Atom[] asaAtoms;
+	private int[] asaIndices;
+	private double[] asaCoords;
+	private AsaCalculator asaCalculator;
+
+	private int frames;
+
+	/**
+	 * Resolves the topology of the first model of a structure. Its
+	 * coordinates are the first frame and the reference of the RMSD.
+	 * @param topology the structure
+	 */
+	public TrajectoryAnalyzer(Structure topology) {
+		this.topology = topology;
+		atoms = StructureTools.getAllAtomArray(topology, 0);
+		frame = Calc.atomsToCoordinates(atoms, null);
+
+		Atom[] representatives = StructureTools.getRepresentativeAtomArray(topology);
+		rmsdIndices = representatives.length > 0 ? getIndices(representatives) : getIndices(atoms);
+		reference = new double[3 * rmsdIndices.length];
+		rmsdCoords = new double[3 * rmsdIndices.length];
+		gather(frame, rmsdIndices, reference);
+	}
+
+	/**
+	 * @return the structure the topology was resolved from
+	 */
+	public Structure getTopology() {
+		return topology;
+	}
+
+	/**
+	 * @return the atoms of the frames
+	 */
+	public Atom[] getAtoms() {
+		return atoms;
+	}
+
+	/**
+	 * @return the number of frames set with {@link #setFrame(double[])}
+	 */
+	public int getFrameCount() {
+		return frames;
+	}
+
+	/**
+	 * Sets the current frame and writes its coordinates to the atoms of the
+	 * topology.
+	 * @param coords the coordinates of the atoms, with the coordinates of atom
+	 *            i at indices 3*i, 3*i+1 and 3*i+2
+	 */
+	public void setFrame(double[] coords) {
+		checkLength(coords);
+		System.arraycopy(coords, 0, frame, 0, frame.length);
+		Calc.coordinatesToAtoms(frame, atoms);
+		frames++;
+	}
+
+	/**
+	 * Sets the frame that {@link #getRmsd()} compares to. By default this is
+	 * the first frame.
+	 * @param coords the coordinates of the atoms, in the order of
+	 *            {@link #getAtoms()}
+	 */
+	public void setReference(double[] coords) {
+		checkLength(coords);
+		gather(coords, rmsdIndices, reference);
+	}
+
+	/**
+	 * Calculates the RMSD of the current frame to the reference frame, after
+	 * superposition. The RMSD is calculated over the representative atoms (CA
+	 * or P, see {@link StructureTools#getRepresentativeAtomArray(Structure)}),
+	 * or over all atoms if there are none.
+	 * @return the minimum RMSD
+	 */
+	public double getRmsd() {
+		gather(frame, rmsdIndices, rmsdCoords);
+		return qcp.getRmsd(reference, rmsdCoords, rmsdIndices.length);
+	}
+
+	/**
+	 * Predicts the secondary structure of the current frame. The groups of the
+	 * topology are not assigned the prediction.
+	 * @return a List of SS annotation objects, one per amino acid with a
+	 *         complete backbone
+	 * @throws StructureException if there are less than 5 amino acids
+	 */
+	public List<SecStrucState> getSecondaryStructure() throws StructureException {
+		if (secStrucCalc == null) {
+			secStrucCalc = new SecStrucCalc();
+			secStrucCalc.initFrames(topology, 0);
+		}
+		return secStrucCalc.calculateFrame();
+	}
+
+	/**
+	 * Calculates the accessible surface areas of the non-hydrogen atoms of
+	 * the current frame, excluding waters and HET groups, with the default
+	 * probe size and number of sphere points of {@link AsaCalculator}.
+	 * @return the ASAs of the atoms of {@link #getAsaAtoms()}
+	 */
+	public double[] getAsas() {
+		if (asaCalculator == null) {
+			Atom[] asaAtoms = getAsaAtoms();
+			asaIndices = getIndices(asaAtoms);
+			asaCoords = new double[3 * asaIndices.length];
+			asaCalculator = new AsaCalculator(asaAtoms, AsaCalculator.DEFAULT_PROBE_SIZE,
+					AsaCalculator.DEFAULT_N_SPHERE_POINTS, AsaCalculator.DEFAULT_NTHREADS);
+		}
+		gather(frame, asaIndices, asaCoords);
+		asaCalculator.setCoordinates(asaCoords);
+		return asaCalculator.calculateAsas();
+	}
+
+	/**
+	 * @return the atoms that {@link #getAsas()} calculates the ASAs of
+	 */
+	public Atom[] getAsaAtoms() {
+		if (asaAtoms == null) {
+			asaAtoms = StructureTools.getAllNonHAtomArray(topology, false, 0);
+		}
+		return asaAtoms;
+	}
+
+	/**
+	 * Finds the pairs of atoms of the current frame that are within a
+	 * distance cutoff.
+	 * @param cutoff the distance cutoff
+	 * @param visitor receives every contact once, with the indices of the
+	 *            atoms in {@link #getAtoms()}
+	 */
+	public void visitContacts(double cutoff, ContactVisitor visitor) {
+		Grid grid = new Grid(cutoff);
+		grid.addAtoms(atoms);
+		grid.visitContacts(visitor);
+	}
+
+	private void checkLength(double[] coords) {
+		if (coords.length < frame.length) {
+			throw new IllegalArgumentException("Expected coordinates of " + atoms.length + " atoms, got "
+					+ coords.length + " values");
+		}
+	}
+
+	private int[] getIndices(Atom[] subset) {
+		Map<Atom, Integer> indices = new IdentityHashMap<>(atoms.length);
+		for (int i = 0; i < atoms.length; i++) {
+			indices.put(atoms[i], i);
+		}
+		int[] result = new int[subset.length];
+		for (int k = 0; k < subset.length; k++) {
+			result[k] = indices.get(subset[k]);
+		}
+		return result;
+	}
+
+	private static void gather(double[] coords, int[] indices, double[] result) {
+		for (int k = 0; k < indices.length; k++) {
+			int i = indices[k];
+			result[3 * k] = coords[3 * i];
+			result[3 * k + 1] = coords[3 * i + 1];
+			result[3 * k + 2] = coords[3 * i + 2];
+		}
+	}
+}
@@ -0,0 +1,437 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.StructureException;
+import org.biojava.nbio.structure.StructureTools;
+import org.biojava.nbio.structure.align.ce.ConfigStrucAligParams;
+import org.biojava.nbio.structure.align.model.AFPChain;
+import org.biojava.nbio.structure.align.util.AtomCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs many pairwise structure alignments in parallel, either all-to-all
+ * within a set of structures or one query against a set of targets.
+ * <p>
+ * The representative atoms of each structure are loaded only once through the
+ * {@link AtomCache} and shared by all alignments involving that structure.
+ * Alignments are scheduled as fork/join tasks, so that idle threads steal work
+ * from busy ones regardless of how unequal the alignment sizes are. Results
+ * are passed to an {@link AlignmentSink} as soon as each alignment finishes.
+ * <p>
+ * If a checkpoint file is set, a line in the
+ * {@link AFPChain#toDBSearchResult() DB search format} is appended to it for
+ * every finished alignment. Running again with the same checkpoint file skips
+ * the pairs that were already aligned, so interrupted runs can be resumed.
+ * <p>
+ * Example:
+ *
+ * <pre>
+ * AllToAllAligner aligner = new AllToAllAligner(new AtomCache(), CeMain.algorithmName);
+ * aligner.setCheckpointFile(new File("results.tsv"));
+ * aligner.alignAllToAll(Arrays.asList("1cdg.A", "1tim.A", "4hhb.A"),
+ * 		afpChain -&gt; System.out.println(afpChain.toDBSearchResult()));
+ * </pre>
+ *
+ * @since 7.2.0
+ */
+public class AllToAllAligner {
+
+	private static final Logger logger = LoggerFactory.getLogger(AllToAllAligner.class);
+
+	/**
+	 * Receives the alignments computed by an {@link AllToAllAligner}. Calls are
+	 * serialized by the aligner, so implementations need not be thread-safe.
+	 */
+	@FunctionalInterface
+	public interface AlignmentSink {
+		void accept(AFPChain afpChain) throws IOException;
+	}
+
+	private final AtomCache cache;
+	private final String algorithmName;
+	private ConfigStrucAligParams parameters;
+	private ForkJoinPool pool;
+	private File checkpointFile;
+
+	// guarded by this
+	private Writer checkpoint;
+	private AlignmentSink sink;
+
+	private final AtomicInteger failed = new AtomicInteger();
+
+	/**
+	 * @param cache
+	 *            used to load the structures
+	 * @param algorithmName
+	 *            the name of a pairwise algorithm known to the
+	 *            {@link StructureAlignmentFactory}
+	 */
+	public AllToAllAligner(AtomCache cache, String algorithmName) {
+		this.cache = cache;
+		this.algorithmName = algorithmName;
+	}
+
+	/**
+	 * Aligns every pair of distinct structures (each unordered pair once,
+	 * the first identifier in list order as name1).
+	 *
+	 * @param names
+	 *            structure identifiers, as understood by
+	 *            {@link AtomCache#getRepresentativeAtoms(String)}
+	 * @param sink
+	 *            receives each alignment as it finishes
+	 * @return the number of alignments computed in this run, excluding pairs
+	 *         skipped because of the checkpoint file or failures
+	 * @throws IOException
+	 *             if the checkpoint file can not be read or written, or the
+	 *             sink fails
+	 * @throws StructureException
+	 *             if the algorithm is unknown
+	 */
+	public int alignAllToAll(List<String> names, AlignmentSink sink) throws IOException, StructureException {
+		List<String> unique = new ArrayList<>(new LinkedHashSet<>(names));
+		List<String[]> pairs = new ArrayList<>();
+		for (int i = 0; i < unique.size(); i++) {
+			for (int j = i + 1; j < unique.size(); j++) {
+				pairs.add(new String[] { unique.get(i), unique.get(j) });
+			}
+		}
+		return run(unique, pairs, sink);
+	}
+
+	/**
+	 * Aligns a query structure against each of the targets.
+	 *
+	 * @param query
+	 *            the query identifier, always name1 of the alignments
+	 * @param targets
+	 *            target identifiers
+	 * @param sink
+	 *            receives each alignment as it finishes
+	 * @return the number of alignments computed in this run
+	 * @throws IOException
+	 *             if the checkpoint file can not be read or written, or the
+	 *             sink fails
+	 * @throws StructureException
+	 *             if the algorithm is unknown
+	 * @see #alignAllToAll(List, AlignmentSink)
+	 */
+	public int alignOneToAll(String query, List<String> targets, AlignmentSink sink)
+			throws IOException, StructureException {
+		Set<String> names = new LinkedHashSet<>();
+		names.add(query);
+		List<String[]> pairs = new ArrayList<>();
+		for (String target : new LinkedHashSet<>(targets)) {
+			if (!target.equals(query)) {
+				names.add(target);
+				pairs.add(new String[] { query, target });
+			}
+		}
+		return run(new ArrayList<>(names), pairs, sink);
+	}
+
+	private int run(List<String> names, List<String[]> pairs, AlignmentSink sink)
+			throws IOException, StructureException {
+		// fail early on unknown algorithms rather than once per pair
+		StructureAlignmentFactory.getAlgorithm(algorithmName);
+
+		Set<String> done = checkpointFile == null ? new HashSet<>() : readCheckpoint(checkpointFile);
+		List<String[]> todo = new ArrayList<>(pairs.size());
+		for (String[] pair : pairs) {
+			if (!done.contains(pairKey(pair[0], pair[1])))
+				todo.add(pair);
+		}
+		if (todo.size() < pairs.size())
+			logger.info("Skipping {} of {} pairs found in checkpoint file {}", pairs.size() - todo.size(),
+					pairs.size(), checkpointFile);
+		if (todo.isEmpty())
+			return 0;
+
+		// only load the structures that still take part in an alignment
+		Set<String> needed = new HashSet<>();
+		for (String[] pair : todo) {
+			needed.add(pair[0]);
+			needed.add(pair[1]);
+		}
+		List<String> toLoad = new ArrayList<>(names);
+		toLoad.retainAll(needed);
+
+		ForkJoinPool p = pool != null ? pool : ForkJoinPool.commonPool();
+		Map<String, Atom[]> atoms = new ConcurrentHashMap<>();
+		p.invoke(new LoadTask(toLoad, 0, toLoad.size(), atoms));
+
+		AtomicInteger count = new AtomicInteger();
+		failed.set(0);
+		synchronized (this) {
+			this.sink = sink;
+			if (checkpointFile != null)
+				checkpoint = new BufferedWriter(new OutputStreamWriter(
+						new FileOutputStream(checkpointFile, true), StandardCharsets.UTF_8));
+		}
+		try {
+			p.invoke(new PairTask(todo, 0, todo.size(), atoms, count));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} finally {
+			synchronized (this) {
+				this.sink = null;
+				if (checkpoint != null) {
+					checkpoint.close();
+					checkpoint = null;
+				}
+			}
+		}
+		if (failed.get() > 0)
+			logger.warn("{} of {} alignments failed", failed.get(), todo.size());
+		return count.get();
+	}
+
+	/**
+	 * Loads the representative atoms of a range of structures, splitting the
+	 * range in halves.
+	 */
+	private class LoadTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final List<String> names;
+		private final int start;
+		private final int end;
+		private final Map<String, Atom[]> atoms;
+
+		LoadTask(List<String> names, int start, int end, Map<String, Atom[]> atoms) {
+			this.names = names;
+			this.start = start;
+			this.end = end;
+			this.atoms = atoms;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start > 1) {
+				int mid = (start + end) >>> 1;
+				invokeAll(new LoadTask(names, start, mid, atoms), new LoadTask(names, mid, end, atoms));
+				return;
+			}
+			if (end == start)
+				return;
+			String name = names.get(start);
+			try {
+				atoms.put(name, cache.getRepresentativeAtoms(name));
+			} catch (IOException | StructureException e) {
+				logger.error("Could not load structure {}, skipping its alignments: {}", name, e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Aligns a range of pairs, splitting the range in halves so that single
+	 * alignments can be stolen by idle threads.
+	 */
+	private class PairTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final List<String[]> pairs;
+		private final int start;
+		private final int end;
+		private final Map<String, Atom[]> atoms;
+		private final AtomicInteger count;
+
+		PairTask(List<String[]> pairs, int start, int end, Map<String, Atom[]> atoms, AtomicInteger count) {
+			this.pairs = pairs;
+			this.start = start;
+			this.end = end;
+			this.atoms = atoms;
+			this.count = count;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start > 1) {
+				int mid = (start + end) >>> 1;
+				invokeAll(new PairTask(pairs, start, mid, atoms, count), new PairTask(pairs, mid, end, atoms, count));
+				return;
+			}
+			if (end == start)
+				return;
+			String[] pair = pairs.get(start);
+			Atom[] ca1 = atoms.get(pair[0]);
+			Atom[] ca2 = atoms.get(pair[1]);
+			if (ca1 == null || ca2 == null) {
+				failed.incrementAndGet();
+				return;
+			}
+			AFPChain afpChain;
+			try {
+				afpChain = align(ca1, ca2);
+			} catch (StructureException | RuntimeException e) {
+				logger.error("Could not align {} and {}", pair[0], pair[1], e);
+				failed.incrementAndGet();
+				return;
+			}
+			afpChain.setName1(pair[0]);
+			afpChain.setName2(pair[1]);
+			try {
+				deliver(afpChain);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			count.incrementAndGet();
+		}
+	}
+
+	private AFPChain align(Atom[] ca1, Atom[] ca2) throws StructureException {
+		// a new instance per alignment, since the aligners are not thread-safe
+		StructureAlignment algorithm = StructureAlignmentFactory.getAlgorithm(algorithmName);
+		if (parameters != null)
+			algorithm.setParameters(parameters);
+		// the shared arrays are not modified: aligners may change their input
+		return algorithm.align(StructureTools.cloneAtomArray(ca1), StructureTools.cloneAtomArray(ca2));
+	}
+
+	private synchronized void deliver(AFPChain afpChain) throws IOException {
+		sink.accept(afpChain);
+		if (checkpoint != null) {
+			checkpoint.write(afpChain.toDBSearchResult());
+			checkpoint.flush();
+		}
+	}
+
+	private static Set<String> readCheckpoint(File checkpointFile) throws IOException {
+		Set<String> done = new LinkedHashSet<>();
+		if (!checkpointFile.exists())
+			return done;
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(new FileInputStream(checkpointFile), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] fields = line.split("\t", 3);
+				// the last line may be truncated if the previous run was killed
+				if (fields.length < 3)
+					continue;
+				done.add(pairKey(fields[0], fields[1]));
+			}
+		}
+		return done;
+	}
+
+	private static String pairKey(String name1, String name2) {
+		return name1 + "\t" + name2;
+	}
+
+	/**
+	 * Reads the names of the aligned pairs from a checkpoint file.
+	 *
+	 * @param checkpointFile
+	 *            a file written by an {@link AllToAllAligner}
+	 * @return a map from name1 to the list of name2 aligned with it, in file
+	 *         order
+	 * @throws IOException
+	 */
+	public static Map<String, List<String>> readAlignedPairs(File checkpointFile) throws IOException {
+		Map<String, List<String>> pairs = new LinkedHashMap<>();
+		for (String key : readCheckpoint(checkpointFile)) {
+			String[] names = key.split("\t");
+			pairs.computeIfAbsent(names[0], k -> new ArrayList<>()).add(names[1]);
+		}
+		return pairs;
+	}
+
+	public String getAlgorithmName() {
+		return algorithmName;
+	}
+
+	public ConfigStrucAligParams getParameters() {
+		return parameters;
+	}
+
+	/**
+	 * @param parameters
+	 *            the parameters of the algorithm, or null for the defaults
+	 */
+	public void setParameters(ConfigStrucAligParams parameters) {
+		this.parameters = parameters;
+	}
+
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * @param pool
+	 *            the pool to run the alignments in, or null (the default) for
+	 *            the {@link ForkJoinPool#commonPool() common pool}
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	public File getCheckpointFile() {
+		return checkpointFile;
+	}
+
+	/**
+	 * @param checkpointFile
+	 *            file to append finished alignments to and to read already
+	 *            finished alignments from, or null for no checkpointing
+	 */
+	public void setCheckpointFile(File checkpointFile) {
+		this.checkpointFile = checkpointFile;
+	}
+
+	/**
+	 * @return the number of pairs of the last run that could not be aligned,
+	 *         because a structure could not be loaded or the alignment failed
+	 */
+	public int getFailedCount() {
+		return failed.get();
+	}
+
+	@Override
+	public String toString() {
+		return "AllToAllAligner [algorithmName=" + algorithmName + ", checkpointFile=" + checkpointFile + "]";
+	}
+}
@@ -66,9 +66,20 @@ public class CECalculator {
 
 	int[] f1;
 	int[] f2;
-	double[][]dist1;
-	double[][]dist2;
-	protected double[][]mat;
+	// row-major intramolecular distance matrices, usually buffers of the workspace
+	double[] dist1;
+	double[] dist2;
+	int nDist1;
+	int nDist2;
+	// row-major matRows x matCols score matrix, usually a buffer of the workspace
+	protected double[] mat;
+	private int matRows;
+	private int matCols;
+	// copies of dist1 and dist2 returned by getDist1() and getDist2()
+	private double[][] dist1Matrix;
+	private double[][] dist2Matrix;
+	// whether the workspace was used by another alignment since extractFragments
+	private boolean released;
 	protected int[] bestTrace1;
 	protected int[] bestTrace2;
 	protected int[][] bestTraces1;
@@ -111,13 +122,34 @@ public class CECalculator {
 
 	List<MatrixListener> matrixListeners;
 
+	private final CEWorkspace workspace;
 
 
+
+	/**
+	 * Creates a calculator that uses the workspace of the calling thread, see
+	 * {@link CEWorkspace#forCurrentThread()}.
+	 *
+	 * @param params
+	 */
 	public CECalculator(CeParameters params){
+		this(params, CEWorkspace.forCurrentThread());
+	}
+
+	/**
+	 * Creates a calculator that keeps its coordinates and distance matrices in
+	 * the buffers of a workspace, which may be reused for later alignments.
+	 *
+	 * @param params
+	 * @param workspace must not be used by any other calculator at the same time
+	 * @since 7.2.0
+	 */
+	public CECalculator(CeParameters params, CEWorkspace workspace){
 		timeStart = System.currentTimeMillis();
-		dist1= new double[0][0];
-		dist2= new double[0][0];
+		dist1= new double[0];
+		dist2= new double[0];
 		this.params = params;
+		this.workspace = workspace;
 		matrixListeners = new ArrayList<>();
 
 	}
@@ -144,8 +176,15 @@ public class CECalculator {
 		f1 = new int[nse1];
 		f2 = new int[nse2];
 
-		dist1 = initIntraDistmatrix(ca1, nse1);
-		dist2 = initIntraDistmatrix(ca2, nse2);
+		workspace.claim(this);
+		workspace.initIntraDistances(ca1, ca2, params.getScoringStrategy());
+		dist1 = workspace.dist1;
+		dist2 = workspace.dist2;
+		nDist1 = nse1;
+		nDist2 = nse2;
+		dist1Matrix = null;
+		dist2Matrix = null;
+		released = false;
 
 
 		if ( debug )
@@ -177,7 +216,10 @@ public class CECalculator {
 
 		// verified: a[] is set correctly.
 
-		mat = initSumOfDistances(nse1, nse2, winSize, winSizeComb1, ca1, ca2);
+		mat = workspace.growMat(nse1 * nse2);
+		matRows = nse1;
+		matCols = nse2;
+		sumOfDistances(mat, nse1, nse2, winSize, winSizeComb1);
 
 
 
@@ -261,137 +303,32 @@ public class CECalculator {
 	 * scoring strategy. Lower distances are better alignments.
 	 * @throws StructureException
 	 */
-	private double getDistanceWithSidechain(Atom ca1, Atom ca2) throws StructureException {
-
-		if ( params.getScoringStrategy() == CeParameters.ScoringStrategy.CA_SCORING) {
-
-			return Calc.getDistance(ca1,ca2);
-
-		}
-
-		double dist;
-		Group g1 = ca1.getGroup();
-		Atom cb1 = null;
-		if ( g1.hasAtom(StructureTools.CB_ATOM_NAME)) {
-			cb1 = g1.getAtom(StructureTools.CB_ATOM_NAME);
-		}
-		//
-		Group g2 = ca2.getGroup();
-		Atom cb2 = null;
-		if ( g2.hasAtom(StructureTools.CB_ATOM_NAME)) {
-			cb2 = g2.getAtom(StructureTools.CB_ATOM_NAME);
-		}
-
-
-		if ( params.getScoringStrategy() == CeParameters.ScoringStrategy.SIDE_CHAIN_SCORING) {
-
-
-			// here we are using side chain orientation for scoring...
-
-
-			// score type 1    consider side chain distances
-			if ( cb1 != null && cb2 != null) {
-				// CB distance
-				dist = Calc.getDistance(cb1,cb2);
-				//dist = dist / 2.;
-			} else {
-				dist = Calc.getDistance(ca1,ca2);
-			}
-
-			return dist;
-		}
-
-		else if ( params.getScoringStrategy() == CeParameters.ScoringStrategy.SIDE_CHAIN_ANGLE_SCORING){
-
-			// score type 2 add angle info
-
-
-			if ( cb1 != null && cb2 != null) {
-				// If the CA were overlaid, what is the distance between the CB?
-				// Recall c^2 = a^2 + b^2 -2ab*cos(theta), so this is a function of angle
-				Atom c1 = Calc.subtract(cb1, ca1);
-				Atom c2 = Calc.subtract(cb2, ca2);
-				Atom newA = Calc.subtract(c2, c1);
-				dist = Calc.amount(newA);
-			}  else {
-				//dist += Calc.getDistance(ca1,ca2);
-				dist = 0;
-			}
-
-			return dist;
-
-		}
-		else if ( params.getScoringStrategy() == CeParameters.ScoringStrategy.CA_AND_SIDE_CHAIN_ANGLE_SCORING){
-
-			// score type 3
-			// CA distance + cos(angle)
-			dist = 0;
-			if ( cb1 != null && cb2 != null) {
-				Atom cacb1 = Calc.subtract(cb1, ca1);
-				Atom cacb2 = Calc.subtract(cb2, ca2);
-				Atom newA = Calc.subtract(cacb2, cacb1);
-				//System.out.format("CACB 1: %s\nCACB 2: %s\ndiff: %s\nd: %f\n",cacb1.toString(),cacb2.toString(),newA.toString(),Calc.amount(newA));
-				dist += Calc.amount(newA);
-			}
-			dist += Calc.getDistance(ca1,ca2);
-
-			return dist;
-
-		} else if ( params.getScoringStrategy() == CeParameters.ScoringStrategy.SEQUENCE_CONSERVATION){
-			if ( cb1 != null && cb2 != null) {
-				// CB distance
-				dist = Calc.getDistance(cb1,cb2);
-				//dist = dist / 2.;
-			} else {
-				dist = Calc.getDistance(ca1,ca2);
-			}
-			return dist;
-
-
-		}
-		else {
-			// unsupported scoring scheme
-			return Calc.getDistance(ca1,ca2);
-		}
+	private double getDistanceWithSidechain(Atom ca1, Atom ca2) {
+		return workspace.distance(params.getScoringStrategy(), ca1, ca2);
 	}
 
-	/** build up intramolecular distance matrix dist1 & dist2
-	 *
-	 * @param ca
-	 * @param nse
-	 * @return
-	 * @throws StructureException
-	 */
-	private double[][] initIntraDistmatrix(Atom[] ca, int nse) throws StructureException
-	{
-
-
-		double[][] intraDist = new double[nse][nse];
-
-		//
-		for(int ise1=0; ise1<nse; ise1++)  {
-
-			for(int ise2=0; ise2<nse; ise2++)  {
-				intraDist[ise1][ise2] = getDistanceWithSidechain(ca[ise1], ca[ise2]);
-
-			}
-		}
-		return intraDist;
+	public double[][] initSumOfDistances(int nse1, int nse2, int winSize, int  winSizeComb1, Atom[] ca1, Atom[] ca2) {
+		double[] sums = new double[nse1 * nse2];
+		sumOfDistances(sums, nse1, nse2, winSize, winSizeComb1);
+		return CEWorkspace.toMatrix(sums, nse1, nse2);
 	}
 
-
-	public double[][] initSumOfDistances(int nse1, int nse2, int winSize, int  winSizeComb1, Atom[] ca1, Atom[] ca2) {
+	/**
+	 * Fills a row-major nse1 x nse2 matrix with the average differences of
+	 * the intramolecular distances of the fragments starting at each pair of
+	 * positions, or -1 if a fragment does not fit.
+	 */
+	private void sumOfDistances(double[] mat, int nse1, int nse2, int winSize, int winSizeComb1) {
 
 		double d;
 
-		double[][] mat   = new double[nse1][nse2];
 
 		// init the initial mat[] array.
 		// at this stage mat contains the sum of the distances of fragments of the matrices dist1, dist
 		for(int ise1=0; ise1<nse1; ise1++) {
 			for(int ise2=0; ise2<nse2; ise2++) {
 
-				mat[ise1][ise2]=-1.0;
+				mat[ise1*nse2+ise2]=-1.0;
 
 				if(ise1>nse1-winSize || ise2>nse2-winSize) continue;
 
@@ -401,9 +338,9 @@ public class CECalculator {
 					for(int is2=is1+2; is2<winSize; is2++) {
 						//System.out.println("pos1 :" +  (ise1+is1) + " " + (ise1+is2) +  " " + (ise2+is1) + " " + (ise2+is2));
 						// is this abs or floor? check!
-						d+=Math.abs(dist1[ise1+is1][ise1+is2]-dist2[ise2+is1][ise2+is2]);
+						d+=Math.abs(dist1[(ise1+is1)*nDist1+ise1+is2]-dist2[(ise2+is1)*nDist2+ise2+is2]);
 					}
-				mat[ise1][ise2]=d/winSizeComb1;
+				mat[ise1*nse2+ise2]=d/winSizeComb1;
 
 				//System.out.println("mat ["+ise1+"]["+ise2+"]="+mat[ise1][ise2]);
 			}
@@ -412,7 +349,6 @@ public class CECalculator {
 
 		// verified: mat[][] probably ok.
 
-		return mat;
 	}
 
 
@@ -424,6 +360,8 @@ public class CECalculator {
 	public void traceFragmentMatrix( AFPChain afpChain,
 			Atom[] ca1, Atom[] ca2) {
 
+		checkWorkspace();
+
 		double rmsdThr = params.getRmsdThr();
 
 
@@ -566,16 +504,16 @@ public class CECalculator {
 								if(iter==0 && (ise1>nse1-winSize*(nBestTrace-1) ||
 										ise2>nse2-winSize*(nBestTrace-1))) continue ise2Loop;
 
-								if(mat[ise1][ise2]<0.0) continue ise2Loop;
-								if(mat[ise1][ise2]>rmsdThr) continue ise2Loop;
-								if (mat[ise1][ise2]>userRMSDMax) continue ise2Loop;
+								if(mat[ise1*matCols+ise2]<0.0) continue ise2Loop;
+								if(mat[ise1*matCols+ise2]>rmsdThr) continue ise2Loop;
+								if (mat[ise1*matCols+ise2]>userRMSDMax) continue ise2Loop;
 								nTrace=0;
 								trace1[nTrace]=ise1;
 								trace2[nTrace]=ise2;
 								traceIndex[nTrace]=0;
 								traceIterLevel[nTrace]=0;
 
-								score0=mat[ise1][ise2];
+								score0=mat[ise1*matCols+ise2];
 
 
 								nTrace++;
@@ -593,7 +531,7 @@ public class CECalculator {
 										while(true) {
 											if(kse1>nse1-winSize-1) break;
 											if(kse2>nse2-winSize-1) break;
-											if(mat[kse1][kse2]>=0.0) break;
+											if(mat[kse1*matCols+kse2]>=0.0) break;
 											kse1++;
 											kse2++;
 										}
@@ -627,9 +565,9 @@ public class CECalculator {
 													if(mse1>nse1-winSize-1) continue itLoop;
 													if(mse2>nse2-winSize-1) continue itLoop;
 
-													if(mat[mse1][mse2]<0.0)     continue itLoop;
-													if(mat[mse1][mse2]>rmsdThr) continue itLoop;
-													if(mat[mse1][mse2]>userRMSDMax) continue itLoop;
+													if(mat[mse1*matCols+mse2]<0.0)     continue itLoop;
+													if(mat[mse1*matCols+mse2]>rmsdThr) continue itLoop;
+													if(mat[mse1*matCols+mse2]>userRMSDMax) continue itLoop;
 
 													nTraces++;
 													if(nTraces>tracesLimit) {
@@ -695,7 +633,7 @@ public class CECalculator {
 											if(iter==0){
 
 												score1=(traceScore[nTrace-1][traceIndex_]*winSizeComb2*nTrace+
-														mat[jse1][jse2]*winSizeComb1)/(winSizeComb2*nTrace+
+														mat[jse1*matCols+jse2]*winSizeComb1)/(winSizeComb2*nTrace+
 																winSizeComb1);
 
 												score2 = getScore2(jse1, jse2, traceScore, traceIndex_, traceIndex, winSizeComb1, winSizeComb2, score0, score1);
@@ -894,16 +832,17 @@ nBestTrace=nTrace;
 		// reduce sign. values to C code.. 6 digits..
 
 		for(int itrace=0; itrace<nTrace; itrace++) {
-			score+=  Math.abs(dist1[trace1[itrace]][mse1]-
-					dist2[trace2[itrace]][mse2]);
+			int row1 = trace1[itrace]*nDist1;
+			int row2 = trace2[itrace]*nDist2;
+			score+=  Math.abs(dist1[row1+mse1]-
+					dist2[row2+mse2]);
 
-			score+=  Math.abs(dist1[trace1[itrace]+winSize-1]
-			                        [mse1+winSize-1]-
-			                        dist2[trace2[itrace]+winSize-1][mse2+winSize-1]);
+			score+=  Math.abs(dist1[row1+(winSize-1)*nDist1+mse1+winSize-1]-
+					dist2[row2+(winSize-1)*nDist2+mse2+winSize-1]);
 
 			for(int id=1; id<winSize-1; id++)
-				score+=  Math.abs(dist1[trace1[itrace]+id][mse1+winSize-1-id]-
-						dist2[trace2[itrace]+id][mse2+winSize-1-id]);
+				score+=  Math.abs(dist1[row1+id*nDist1+mse1+winSize-1-id]-
+						dist2[row2+id*nDist2+mse2+winSize-1-id]);
 
 		}
 
@@ -913,6 +852,8 @@ nBestTrace=nTrace;
 	public void nextStep( AFPChain afpChain,
 			Atom[] ca1, Atom[] ca2) throws StructureException{
 
+		checkWorkspace();
+
 
 		if(nBestTrace>0) {
 			checkBestTraces(afpChain,ca1,ca2);
@@ -1380,6 +1321,8 @@ nBestTrace=nTrace;
 			oRmsdThr += distanceIncrement;
 
 			rot_mol(ca2, ca3, nse2, r,t);
+			CeParameters.ScoringStrategy strategy = params.getScoringStrategy();
+			workspace.initCoordinates(ca1, ca3, strategy);
 
 			for(int ise1=0; ise1<nse1; ise1++) {
 				for(int ise2=0; ise2<nse2; ise2++) {
@@ -1389,8 +1332,8 @@ nBestTrace=nTrace;
 					// this needs to be a parameter...
 
 
-					double dist = getDistanceWithSidechain(ca1[ise1], ca3[ise2]);
-					mat[ise1][ise2] = oRmsdThr - dist;
+					double dist = CEWorkspace.distance(strategy, workspace.ca1, workspace.cb1, ise1, workspace.ca2, workspace.cb2, ise2);
+					mat[ise1*matCols+ise2] = oRmsdThr - dist;
 
 					//double distold = Calc.getDistance(ca1[ise1],ca3[ise2]);
 					//double scoreOld  = oRmsdThr - distold ;
@@ -1407,10 +1350,11 @@ nBestTrace=nTrace;
 			}
 
 			if ( params.getScoringStrategy() == CeParameters.ScoringStrategy.SEQUENCE_CONSERVATION){
-				mat = updateMatrixWithSequenceConservation(mat,ca1,ca2, params);
+				CEWorkspace.copy(updateMatrixWithSequenceConservation(CEWorkspace.toMatrix(mat, nse1, nse2), ca1, ca2, params), mat);
 			}
 
-			mat = notifyMatrixListener(mat);
+			if (!matrixListeners.isEmpty())
+				CEWorkspace.copy(notifyMatrixListener(CEWorkspace.toMatrix(mat, nse1, nse2)), mat);
 
 			double gapOpen = params.getGapOpen();
 			double gapExtension = params.getGapExtension();
@@ -1595,8 +1539,8 @@ nBestTrace=nTrace;
 	 * On output, mat[i][j] gives the maximum score possible for aligning 1..i
 	 * of protein 1 with 1..j of protein 2.
 	 *
-	 * @param nSeq1 The length of protein 1 (mat.length)
-	 * @param nSeq2 The length of protein 2 (mat[0].length)
+	 * @param nSeq1 The length of protein 1 (the rows of mat)
+	 * @param nSeq2 The length of protein 2 (the columns of mat)
 	 * @param gapI gap initiation penalty
 	 * @param gapE gap extension penalty
 	 * @param isGlobal1 The alignment is global for protein 1
@@ -1637,7 +1581,7 @@ nBestTrace=nTrace;
 					brk_flg[i][j]=false;
 					if(j<nSeq2-1 && i<nSeq1-1)
 					{
-						sum=mat[i+1][j+1];
+						sum=mat[(i+1)*matCols+j+1];
 					}
 					else
 					{
@@ -1648,16 +1592,16 @@ nBestTrace=nTrace;
 					if(j+1<nSeq2)
 						for(k=i+2; k<nSeq1; k++)
 						{
-							if(mat[k][j+1]-gapI>sum)
-								sum=mat[k][j+1]-gapI;
+							if(mat[k*matCols+j+1]-gapI>sum)
+								sum=mat[k*matCols+j+1]-gapI;
 						}
 					if(i+1<nSeq1)
 						for(k=j+2; k<nSeq2; k++)
 						{
-							if(mat[i+1][k]-gapI>sum)
-								sum=mat[i+1][k]-gapI;
+							if(mat[(i+1)*matCols+k]-gapI>sum)
+								sum=mat[(i+1)*matCols+k]-gapI;
 						}
-					sum+=mat[i][j];
+					sum+=mat[i*matCols+j];
 					sum_brk=(isGlobal1?-gapI:0.0)+(isGlobal2?-gapI:0.0);
 					if(sum<sum_brk)
 					{
@@ -1665,7 +1609,7 @@ nBestTrace=nTrace;
 						brk_flg[i][j]=true;
 						//System.out.println("break at: " + i + " " + j);
 					}
-					mat[i][j]=sum;
+					mat[i*matCols+j]=sum;
 				}
 		}
 		else
@@ -1676,7 +1620,7 @@ nBestTrace=nTrace;
 					brk_flg[i][j]=false;
 					if(j<nSeq2-1 && i<nSeq1-1)
 					{
-						sum=mat[i+1][j+1];
+						sum=mat[(i+1)*matCols+j+1];
 					}
 					else
 					{
@@ -1686,20 +1630,20 @@ nBestTrace=nTrace;
 					}
 					if(j+1<nSeq2)
 						for(k=i+2; k<nSeq1; k++)
-							if(mat[k][j+1]-gapI-gapE*(k-i-1)>sum)
-								sum=mat[k][j+1]-gapI-gapE*(k-i-1);
+							if(mat[k*matCols+j+1]-gapI-gapE*(k-i-1)>sum)
+								sum=mat[k*matCols+j+1]-gapI-gapE*(k-i-1);
 					if(i+1<nSeq1)
 						for(k=j+2; k<nSeq2; k++)
-							if(mat[i+1][k]-gapI-gapE*(k-j-1)>sum)
-								sum=mat[i+1][k]-gapI-gapE*(k-j-1);
-					sum+=mat[i][j];
+							if(mat[(i+1)*matCols+k]-gapI-gapE*(k-j-1)>sum)
+								sum=mat[(i+1)*matCols+k]-gapI-gapE*(k-j-1);
+					sum+=mat[i*matCols+j];
 					sum_brk=(isGlobal1?(-gapI-gapE*(nSeq1-1-i)):0.0)+(isGlobal2?(-gapI-gapE*(nSeq2-1-j)):0.0);
 					if(sum<sum_brk)
 					{
 						sum=sum_brk;
 						brk_flg[i][j]=true;
 					}
-					mat[i][j]=sum;
+					mat[i*matCols+j]=sum;
 				}
 		}
 
@@ -1748,14 +1692,14 @@ nBestTrace=nTrace;
 
 		is=0; js=0; lcmp=0;
 		// no nc-end penalty - begin
-		sum_ret=mat[0][0];
+		sum_ret=mat[0];
 
 		// look for the highest score in mat[i][j]
 		for(i=0; i<nSeq1; i++)
 			for(j=0; j<nSeq2; j++)
 			{
 				if(i==0 && j==0) continue;
-				sum=mat[i][j];
+				sum=mat[i*matCols+j];
 				if(isGlobal1) sum+=-gapI-gapE*i;
 				if(isGlobal2) sum+=-gapI-gapE*j;
 				if(sum>sum_ret)
@@ -1773,39 +1717,39 @@ nBestTrace=nTrace;
 		for(i=is, j=js; i<nSeq1 && j<nSeq2; i++, j++)
 		{
 			iMax=i; jMax=j;
-			sum=mat[i][j];
+			sum=mat[i*matCols+j];
 			if(!ge)
 			{
 				for(k=i+1; k<nSeq1; k++)
-					if(mat[k][j]-gapI>sum)
+					if(mat[k*matCols+j]-gapI>sum)
 					{
 						iMax=k; jMax=j;
-						sum=mat[k][j]-gapI;
+						sum=mat[k*matCols+j]-gapI;
 					}
 
 				for(k=j+1; k<nSeq2; k++)
-					if(mat[i][k]-gapI>sum)
+					if(mat[i*matCols+k]-gapI>sum)
 					{
 						iMax=i; jMax=k;
-						sum=mat[i][k]-gapI;
+						sum=mat[i*matCols+k]-gapI;
 					}
 			}
 			else
 			{
 				for(k=i+1; k<nSeq1; k++)
-					if(mat[k][j]-gapI-gapE*(k-i)>sum)
+					if(mat[k*matCols+j]-gapI-gapE*(k-i)>sum)
 					{
 						//System.out.println("gap1 " + k + " " + j + " " + sum + "<" +(mat[k][j]-gapI-gapE*(k-i)));
 						iMax=k; jMax=j;
-						sum=mat[k][j]-gapI-gapE*(k-i);
+						sum=mat[k*matCols+j]-gapI-gapE*(k-i);
 					}
 
 				for(k=j+1; k<nSeq2; k++)
-					if(mat[i][k]-gapI-gapE*(k-j)>sum)
+					if(mat[i*matCols+k]-gapI-gapE*(k-j)>sum)
 					{
 						//System.out.println("gap2 " + i + " " + k + " " + sum + "<"+ (mat[i][k]-gapI-gapE*(k-j)));
 						iMax=i; jMax=k;
-						sum=mat[i][k]-gapI-gapE*(k-j);
+						sum=mat[i*matCols+k]-gapI-gapE*(k-j);
 					}
 			}
 
@@ -2143,12 +2087,12 @@ nBestTrace=nTrace;
 		 int nse2 = ca2.length;
 		 //System.out.println("dist1 :" + dist1.length + " " + dist2.length);
 
-		 if ( nse1 > 0 && dist1.length > 0 )
-			 afpChain.setDisTable1(new Matrix(dist1));
+		 if ( nse1 > 0 && nDist1 > 0 && params.isStoreDistanceMatrices())
+			 afpChain.setDisTable1(new Matrix(getDist1()));
 		 else
 			 afpChain.setDisTable1 (Matrix.identity(3, 3));
-		 if ( nse2 > 0 && dist2.length > 0 )
-			 afpChain.setDisTable2(new Matrix(dist2));
+		 if ( nse2 > 0 && nDist2 > 0 && params.isStoreDistanceMatrices())
+			 afpChain.setDisTable2(new Matrix(getDist2()));
 		 else
 			 afpChain.setDisTable2(Matrix.identity(3, 3));
 
@@ -2277,14 +2221,24 @@ nBestTrace=nTrace;
 	  * points in the alignment algorithm. After
 	  * {@link #initSumOfDistances(int, int, int, int, Atom[], Atom[]) initSumOfDistances}
 	  * is run, this will hold the distance matrix between AFPs.
-	  * @return mat
+	  * @return a copy of mat, or null if it was not computed
+	  * @throws IllegalStateException if the workspace was used by another alignment since
+	  *         {@link #extractFragments(AFPChain, Atom[], Atom[]) extractFragments}
 	  */
 	 public double[][] getMatMatrix() {
-		 return mat;
+		 if (mat == null && !released)
+		 	return null;
+		 checkWorkspace();
+		 return CEWorkspace.toMatrix(mat, matRows, matCols);
 	 }
 
+	 /**
+	  * @param matrix the score matrix, which is copied
+	  */
 	 public void setMatMatrix(double[][] matrix){
-		 mat = matrix;
+		 mat = CEWorkspace.toArray(matrix);
+		 matRows = matrix.length;
+		 matCols = matrix.length == 0 ? 0 : matrix[0].length;
 	 }
 
 	 /**
@@ -2305,20 +2259,75 @@ nBestTrace=nTrace;
 		 return t;
 	 }
 
+	/**
+	 * @return a copy of the intramolecular distance matrix of the first
+	 *         structure, which is made once and returned until the distances
+	 *         change. Use {@link #setDist1(double[][])} to change them.
+	 * @throws IllegalStateException if the workspace was used by another alignment
+	 *         before the first call since {@link #extractFragments(AFPChain, Atom[], Atom[]) extractFragments}
+	 */
 	public double[][] getDist1() {
-		return dist1;
+		if (dist1Matrix == null) {
+			checkWorkspace();
+			dist1Matrix = CEWorkspace.toMatrix(dist1, nDist1, nDist1);
+		}
+		return dist1Matrix;
 	}
 
+	/**
+	 * @param dist1 the intramolecular distance matrix of the first structure, which is copied
+	 */
 	public void setDist1(double[][] dist1) {
-		this.dist1 = dist1;
+		this.nDist1 = dist1.length;
+		this.dist1 = CEWorkspace.toArray(dist1);
+		this.dist1Matrix = null;
 	}
 
+	/**
+	 * @return a copy of the intramolecular distance matrix of the second
+	 *         structure, see {@link #getDist1()}
+	 * @throws IllegalStateException if the workspace was used by another alignment
+	 *         before the first call since {@link #extractFragments(AFPChain, Atom[], Atom[]) extractFragments}
+	 */
 	public double[][] getDist2() {
-		return dist2;
+		if (dist2Matrix == null) {
+			checkWorkspace();
+			dist2Matrix = CEWorkspace.toMatrix(dist2, nDist2, nDist2);
+		}
+		return dist2Matrix;
 	}
 
+	/**
+	 * @param dist2 the intramolecular distance matrix of the second structure, which is copied
+	 */
 	public void setDist2(double[][] dist2) {
-		this.dist2 = dist2;
+		this.nDist2 = dist2.length;
+		this.dist2 = CEWorkspace.toArray(dist2);
+		this.dist2Matrix = null;
+	}
+
+	/**
+	 * Called by the workspace when another alignment takes over its buffers.
+	 * The matrices that were set by the setters are kept.
+	 */
+	void releaseWorkspace() {
+		if (dist1 == workspace.dist1) {
+			dist1 = null;
+			released = true;
+		}
+		if (dist2 == workspace.dist2) {
+			dist2 = null;
+			released = true;
+		}
+		if (mat == workspace.mat) {
+			mat = null;
+			released = true;
+		}
+	}
+
+	private void checkWorkspace() {
+		if (released && (dist1 == null || dist2 == null || mat == null))
+			throw new IllegalStateException("The matrices of this calculator were overwritten by a later alignment using the same CEWorkspace");
 	}
 
 
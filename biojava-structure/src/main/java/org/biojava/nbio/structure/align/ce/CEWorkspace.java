@@ -0,0 +1,282 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align.ce;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.StructureTools;
+import org.biojava.nbio.structure.align.ce.CeParameters.ScoringStrategy;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * Reusable buffers for the {@link CECalculator}: the coordinates of the
+ * aligned residues, the intramolecular distance matrices and the score matrix,
+ * stored as flat arrays that only grow. Reusing a workspace for many
+ * alignments avoids allocating three new O(n<sup>2</sup>) matrices for each of
+ * them.
+ * <p>
+ * A workspace must only be used by one calculator at a time. The matrices of a
+ * calculator ({@link CECalculator#getDist1()}, {@link CECalculator#getDist2()}
+ * and {@link CECalculator#getMatMatrix()}) are read from the buffers of its
+ * workspace, so they are only valid until the workspace is used for another
+ * alignment; reading them afterwards throws an {@link IllegalStateException}.
+ * The {@link org.biojava.nbio.structure.align.model.AFPChain} results do not
+ * depend on the workspace. By default, calculators and {@link CeMain} use the
+ * workspace of the calling thread.
+ *
+ * @since 7.2.0
+ */
+public class CEWorkspace {
+
+	private static final ThreadLocal<CEWorkspace> threadWorkspace = ThreadLocal.withInitial(CEWorkspace::new);
+
+	// xyz of the CA atoms and of the CB atoms (NaN if there is no CB)
+	double[] ca1 = new double[0];
+	double[] cb1 = new double[0];
+	double[] ca2 = new double[0];
+	double[] cb2 = new double[0];
+
+	// row-major intramolecular distance matrices
+	double[] dist1 = new double[0];
+	double[] dist2 = new double[0];
+
+	// row-major score matrix of the calculators
+	double[] mat = new double[0];
+
+	// the CECalculator or CeCalculatorEnhanced whose matrices are in the buffers
+	private WeakReference<Object> owner;
+
+	// scratch space for single pairs of atoms
+	private final double[] pairCa = new double[6];
+	private final double[] pairCb = new double[6];
+
+	/**
+	 * Returns a workspace shared by all the callers on the calling thread. It
+	 * suits loops that create a calculator per alignment and only keep the
+	 * {@link org.biojava.nbio.structure.align.model.AFPChain} results: the distance matrices of a calculator using it
+	 * are overwritten by the next alignment on the thread.
+	 *
+	 * @return the workspace of the calling thread
+	 */
+	public static CEWorkspace forCurrentThread() {
+		return threadWorkspace.get();
+	}
+
+	/**
+	 * Releases the buffers, e.g. after aligning very large structures.
+	 */
+	public void clear() {
+		release();
+		ca1 = cb1 = ca2 = cb2 = new double[0];
+		dist1 = dist2 = mat = new double[0];
+	}
+
+	/**
+	 * @return the number of bytes held by the buffers
+	 */
+	public long getBufferSize() {
+		return 8L * (ca1.length + cb1.length + ca2.length + cb2.length + dist1.length + dist2.length + mat.length);
+	}
+
+	/**
+	 * Hands the matrix buffers to a calculator, invalidating the matrices of
+	 * the previous one.
+	 */
+	void claim(Object calculator) {
+		release();
+		owner = new WeakReference<>(calculator);
+	}
+
+	private void release() {
+		Object previous = owner == null ? null : owner.get();
+		if (previous instanceof CECalculator)
+			((CECalculator) previous).releaseWorkspace();
+		else if (previous instanceof CeCalculatorEnhanced)
+			((CeCalculatorEnhanced) previous).releaseWorkspace();
+		owner = null;
+	}
+
+	/**
+	 * @return the score matrix buffer, with room for the given number of entries
+	 */
+	double[] growMat(int size) {
+		mat = grow(mat, size);
+		return mat;
+	}
+
+	/**
+	 * Computes the intramolecular distance matrices of both structures into
+	 * {@link #dist1} and {@link #dist2}.
+	 */
+	void initIntraDistances(Atom[] atoms1, Atom[] atoms2, ScoringStrategy strategy) {
+		initCoordinates(atoms1, atoms2, strategy);
+		dist1 = grow(dist1, atoms1.length * atoms1.length);
+		dist2 = grow(dist2, atoms2.length * atoms2.length);
+		fillIntraDistances(strategy, ca1, cb1, atoms1.length, dist1);
+		fillIntraDistances(strategy, ca2, cb2, atoms2.length, dist2);
+	}
+
+	/**
+	 * Copies the CA coordinates, and the CB coordinates if needed by the
+	 * scoring strategy, of both structures into {@link #ca1}, {@link #cb1},
+	 * {@link #ca2} and {@link #cb2}.
+	 */
+	void initCoordinates(Atom[] atoms1, Atom[] atoms2, ScoringStrategy strategy) {
+		boolean sideChains = strategy != ScoringStrategy.CA_SCORING;
+		ca1 = grow(ca1, 3 * atoms1.length);
+		ca2 = grow(ca2, 3 * atoms2.length);
+		if (sideChains) {
+			cb1 = grow(cb1, 3 * atoms1.length);
+			cb2 = grow(cb2, 3 * atoms2.length);
+		}
+		extract(atoms1, ca1, sideChains ? cb1 : null);
+		extract(atoms2, ca2, sideChains ? cb2 : null);
+	}
+
+	/**
+	 * Distance between two atoms according to the scoring strategy, see
+	 * {@link #distance(ScoringStrategy, double[], double[], int, double[], double[], int)}.
+	 */
+	double distance(ScoringStrategy strategy, Atom a1, Atom a2) {
+		pairCa[0] = a1.getX();
+		pairCa[1] = a1.getY();
+		pairCa[2] = a1.getZ();
+		pairCa[3] = a2.getX();
+		pairCa[4] = a2.getY();
+		pairCa[5] = a2.getZ();
+		if (strategy != ScoringStrategy.CA_SCORING) {
+			setCb(a1, pairCb, 0);
+			setCb(a2, pairCb, 1);
+		}
+		return distance(strategy, pairCa, pairCb, 0, pairCa, pairCb, 1);
+	}
+
+	private static void fillIntraDistances(ScoringStrategy strategy, double[] ca, double[] cb, int n, double[] dist) {
+		// all scoring strategies are symmetric
+		for (int i = 0; i < n; i++) {
+			dist[i * n + i] = distance(strategy, ca, cb, i, ca, cb, i);
+			for (int j = i + 1; j < n; j++) {
+				double d = distance(strategy, ca, cb, i, ca, cb, j);
+				dist[i * n + j] = d;
+				dist[j * n + i] = d;
+			}
+		}
+	}
+
+	/**
+	 * Evaluates the distance between two residues according to the
+	 * {@link ScoringStrategy}, given the coordinates of their CA and CB atoms.
+	 * Lower distances are better alignments.
+	 */
+	static double distance(ScoringStrategy strategy, double[] ca1, double[] cb1, int i, double[] ca2,
+			double[] cb2, int j) {
+		int a = 3 * i;
+		int b = 3 * j;
+		switch (strategy) {
+		case SIDE_CHAIN_SCORING:
+		case SEQUENCE_CONSERVATION:
+			if (!Double.isNaN(cb1[a]) && !Double.isNaN(cb2[b]))
+				return distance(cb1, a, cb2, b);
+			return distance(ca1, a, ca2, b);
+		case SIDE_CHAIN_ANGLE_SCORING:
+			// If the CA were overlaid, what is the distance between the CB?
+			if (!Double.isNaN(cb1[a]) && !Double.isNaN(cb2[b]))
+				return sideChainDistance(ca1, cb1, a, ca2, cb2, b);
+			return 0;
+		case CA_AND_SIDE_CHAIN_ANGLE_SCORING:
+			double dist = 0;
+			if (!Double.isNaN(cb1[a]) && !Double.isNaN(cb2[b]))
+				dist += sideChainDistance(ca1, cb1, a, ca2, cb2, b);
+			return dist + distance(ca1, a, ca2, b);
+		default:
+			return distance(ca1, a, ca2, b);
+		}
+	}
+
+	private static double distance(double[] c1, int a, double[] c2, int b) {
+		double x = c1[a] - c2[b];
+		double y = c1[a + 1] - c2[b + 1];
+		double z = c1[a + 2] - c2[b + 2];
+		return Math.sqrt(x * x + y * y + z * z);
+	}
+
+	private static double sideChainDistance(double[] ca1, double[] cb1, int a, double[] ca2, double[] cb2, int b) {
+		double x = (cb2[b] - ca2[b]) - (cb1[a] - ca1[a]);
+		double y = (cb2[b + 1] - ca2[b + 1]) - (cb1[a + 1] - ca1[a + 1]);
+		double z = (cb2[b + 2] - ca2[b + 2]) - (cb1[a + 2] - ca1[a + 2]);
+		return Math.sqrt(x * x + y * y + z * z);
+	}
+
+	private static void extract(Atom[] atoms, double[] ca, double[] cb) {
+		for (int i = 0; i < atoms.length; i++) {
+			ca[3 * i] = atoms[i].getX();
+			ca[3 * i + 1] = atoms[i].getY();
+			ca[3 * i + 2] = atoms[i].getZ();
+			if (cb != null)
+				setCb(atoms[i], cb, i);
+		}
+	}
+
+	private static void setCb(Atom ca, double[] cb, int i) {
+		Group g = ca.getGroup();
+		Atom atom = g == null ? null : g.getAtom(StructureTools.CB_ATOM_NAME);
+		if (atom == null) {
+			cb[3 * i] = Double.NaN;
+			return;
+		}
+		cb[3 * i] = atom.getX();
+		cb[3 * i + 1] = atom.getY();
+		cb[3 * i + 2] = atom.getZ();
+	}
+
+	/**
+	 * @return a copy of a row-major rows x cols matrix
+	 */
+	static double[][] toMatrix(double[] dist, int rows, int cols) {
+		double[][] m = new double[rows][cols];
+		for (int i = 0; i < rows; i++)
+			System.arraycopy(dist, i * cols, m[i], 0, cols);
+		return m;
+	}
+
+	/**
+	 * Copies a matrix into a row-major array.
+	 */
+	static void copy(double[][] m, double[] dist) {
+		int cols = m.length == 0 ? 0 : m[0].length;
+		for (int i = 0; i < m.length; i++)
+			System.arraycopy(m[i], 0, dist, i * cols, cols);
+	}
+
+	/**
+	 * @return a row-major copy of a matrix
+	 */
+	static double[] toArray(double[][] m) {
+		double[] dist = new double[m.length == 0 ? 0 : m.length * m[0].length];
+		copy(m, dist);
+		return dist;
+	}
+
+	private static double[] grow(double[] buffer, int size) {
+		return buffer.length >= size ? buffer : new double[size];
+	}
+}
@@ -63,9 +63,20 @@ public class CeCalculatorEnhanced {
 
 	int[] f1;
 	int[] f2;
-	double[][]dist1;
-	double[][]dist2;
-	protected double[][]mat;
+	// row-major intramolecular distance matrices, usually buffers of the workspace
+	double[] dist1;
+	double[] dist2;
+	int nDist1;
+	int nDist2;
+	// row-major matRows x matCols score matrix, usually a buffer of the workspace
+	protected double[] mat;
+	private int matRows;
+	private int matCols;
+	// copies of dist1 and dist2 returned by getDist1() and getDist2()
+	private double[][] dist1Matrix;
+	private double[][] dist2Matrix;
+	// whether the workspace was used by another alignment since extractFragments
+	private boolean released;
 	protected int[] bestTrace1;
 	protected int[] bestTrace2;
 	protected int[][] bestTraces1;
@@ -108,14 +119,35 @@ public class CeCalculatorEnhanced {
 
 	List<MatrixListener> matrixListeners;
 
+	private final CEWorkspace workspace;
+
 	public static final boolean GLOBAL_ALIGN1 = false;
 	public static final boolean GLOBAL_ALIGN2 = false;
 
+	/**
+	 * Creates a calculator that uses the workspace of the calling thread, see
+	 * {@link CEWorkspace#forCurrentThread()}.
+	 *
+	 * @param params
+	 */
 	public CeCalculatorEnhanced(CeParameters params){
+		this(params, CEWorkspace.forCurrentThread());
+	}
+
+	/**
+	 * Creates a calculator that keeps its coordinates and distance matrices in
+	 * the buffers of a workspace, which may be reused for later alignments.
+	 *
+	 * @param params
+	 * @param workspace must not be used by any other calculator at the same time
+	 * @since 7.2.0
+	 */
+	public CeCalculatorEnhanced(CeParameters params, CEWorkspace workspace){
 		timeStart = System.currentTimeMillis();
-		dist1= new double[0][0];
-		dist2= new double[0][0];
+		dist1= new double[0];
+		dist2= new double[0];
 		this.params = params;
+		this.workspace = workspace;
 		matrixListeners = new ArrayList<>();
 
 	}
@@ -142,8 +174,15 @@ public class CeCalculatorEnhanced {
 		f1 = new int[nse1];
 		f2 = new int[nse2];
 
-		dist1 = initIntraDistmatrix(ca1, nse1);
-		dist2 = initIntraDistmatrix(ca2, nse2);
+		workspace.claim(this);
+		workspace.initIntraDistances(ca1, ca2, params.getScoringStrategy());
+		dist1 = workspace.dist1;
+		dist2 = workspace.dist2;
+		nDist1 = nse1;
+		nDist2 = nse2;
+		dist1Matrix = null;
+		dist2Matrix = null;
+		released = false;
 
 
 		if ( debug )
@@ -175,7 +214,10 @@ public class CeCalculatorEnhanced {
 
 		// verified: a[] is set correctly.
 
-		mat = initSumOfDistances(nse1, nse2, winSize, winSizeComb1, ca1, ca2);
+		mat = workspace.growMat(nse1 * nse2);
+		matRows = nse1;
+		matCols = nse2;
+		sumOfDistances(mat, nse1, nse2, winSize, winSizeComb1);
 
 
 
@@ -259,137 +301,32 @@ public class CeCalculatorEnhanced {
 	 * scoring strategy. Lower distances are better alignments.
 	 * @throws StructureException
 	 */
-	private double getDistanceWithSidechain(Atom ca1, Atom ca2) throws StructureException {
-
-		if ( params.getScoringStrategy() == CeParameters.ScoringStrategy.CA_SCORING) {
-
-			return Calc.getDistance(ca1,ca2);
-
-		}
-
-		double dist;
-		Group g1 = ca1.getGroup();
-		Atom cb1 = null;
-		if ( g1.hasAtom(StructureTools.CB_ATOM_NAME)) {
-			cb1 = g1.getAtom(StructureTools.CB_ATOM_NAME);
-		}
-		//
-		Group g2 = ca2.getGroup();
-		Atom cb2 = null;
-		if ( g2.hasAtom(StructureTools.CB_ATOM_NAME)) {
-			cb2 = g2.getAtom(StructureTools.CB_ATOM_NAME);
-		}
-
-
-		if ( params.getScoringStrategy() == CeParameters.ScoringStrategy.SIDE_CHAIN_SCORING) {
-
-
-			// here we are using side chain orientation for scoring...
-
-
-			// score type 1    consider side chain distances
-			if ( cb1 != null && cb2 != null) {
-				// CB distance
-				dist = Calc.getDistance(cb1,cb2);
-				//dist = dist / 2.;
-			} else {
-				dist = Calc.getDistance(ca1,ca2);
-			}
-
-			return dist;
-		}
-
-		else if ( params.getScoringStrategy() == CeParameters.ScoringStrategy.SIDE_CHAIN_ANGLE_SCORING){
-
-			// score type 2 add angle info
-
-
-			if ( cb1 != null && cb2 != null) {
-				// If the CA were overlaid, what is the distance between the CB?
-				// Recall c^2 = a^2 + b^2 -2ab*cos(theta), so this is a function of angle
-				Atom c1 = Calc.subtract(cb1, ca1);
-				Atom c2 = Calc.subtract(cb2, ca2);
-				Atom newA = Calc.subtract(c2, c1);
-				dist = Calc.amount(newA);
-			}  else {
-				//dist += Calc.getDistance(ca1,ca2);
-				dist = 0;
-			}
-
-			return dist;
-
-		}
-		else if ( params.getScoringStrategy() == CeParameters.ScoringStrategy.CA_AND_SIDE_CHAIN_ANGLE_SCORING){
-
-			// score type 3
-			// CA distance + cos(angle)
-			dist = 0;
-			if ( cb1 != null && cb2 != null) {
-				Atom cacb1 = Calc.subtract(cb1, ca1);
-				Atom cacb2 = Calc.subtract(cb2, ca2);
-				Atom newA = Calc.subtract(cacb2, cacb1);
-				//System.out.format("CACB 1: %s\nCACB 2: %s\ndiff: %s\nd: %f\n",cacb1.toString(),cacb2.toString(),newA.toString(),Calc.amount(newA));
-				dist += Calc.amount(newA);
-			}
-			dist += Calc.getDistance(ca1,ca2);
-
-			return dist;
-
-		} else if ( params.getScoringStrategy() == CeParameters.ScoringStrategy.SEQUENCE_CONSERVATION){
-			if ( cb1 != null && cb2 != null) {
-				// CB distance
-				dist = Calc.getDistance(cb1,cb2);
-				//dist = dist / 2.;
-			} else {
-				dist = Calc.getDistance(ca1,ca2);
-			}
-			return dist;
-
-
-		}
-		else {
-			// unsupported scoring scheme
-			return Calc.getDistance(ca1,ca2);
-		}
+	private double getDistanceWithSidechain(Atom ca1, Atom ca2) {
+		return workspace.distance(params.getScoringStrategy(), ca1, ca2);
 	}
 
-	/** build up intramolecular distance matrix dist1 & dist2
-	 *
-	 * @param ca
-	 * @param nse
-	 * @return
-	 * @throws StructureException
-	 */
-	private double[][] initIntraDistmatrix(Atom[] ca, int nse) throws StructureException
-	{
-
-
-		double[][] intraDist = new double[nse][nse];
-
-		//
-		for(int ise1=0; ise1<nse; ise1++)  {
-
-			for(int ise2=0; ise2<nse; ise2++)  {
-				intraDist[ise1][ise2] = getDistanceWithSidechain(ca[ise1], ca[ise2]);
-
-			}
-		}
-		return intraDist;
+	public double[][] initSumOfDistances(int nse1, int nse2, int winSize, int  winSizeComb1, Atom[] ca1, Atom[] ca2) {
+		double[] sums = new double[nse1 * nse2];
+		sumOfDistances(sums, nse1, nse2, winSize, winSizeComb1);
+		return CEWorkspace.toMatrix(sums, nse1, nse2);
 	}
 
-
-	public double[][] initSumOfDistances(int nse1, int nse2, int winSize, int  winSizeComb1, Atom[] ca1, Atom[] ca2) {
+	/**
+	 * Fills a row-major nse1 x nse2 matrix with the average differences of
+	 * the intramolecular distances of the fragments starting at each pair of
+	 * positions, or -1 if a fragment does not fit.
+	 */
+	private void sumOfDistances(double[] mat, int nse1, int nse2, int winSize, int winSizeComb1) {
 
 		double d;
 
-		double[][] mat   = new double[nse1][nse2];
 
 		// init the initial mat[] array.
 		// at this stage mat contains the sum of the distances of fragments of the matrices dist1, dist
 		for(int ise1=0; ise1<nse1; ise1++) {
 			for(int ise2=0; ise2<nse2; ise2++) {
 
-				mat[ise1][ise2]=-1.0;
+				mat[ise1*nse2+ise2]=-1.0;
 
 				if(ise1>nse1-winSize || ise2>nse2-winSize) continue;
 
@@ -399,9 +336,9 @@ public class CeCalculatorEnhanced {
 					for(int is2=is1+2; is2<winSize; is2++) {
 						//System.out.println("pos1 :" +  (ise1+is1) + " " + (ise1+is2) +  " " + (ise2+is1) + " " + (ise2+is2));
 						// is this abs or floor? check!
-						d+=Math.abs(dist1[ise1+is1][ise1+is2]-dist2[ise2+is1][ise2+is2]);
+						d+=Math.abs(dist1[(ise1+is1)*nDist1+ise1+is2]-dist2[(ise2+is1)*nDist2+ise2+is2]);
 					}
-				mat[ise1][ise2]=d/winSizeComb1;
+				mat[ise1*nse2+ise2]=d/winSizeComb1;
 
 				//System.out.println("mat ["+ise1+"]["+ise2+"]="+mat[ise1][ise2]);
 			}
@@ -410,7 +347,6 @@ public class CeCalculatorEnhanced {
 
 		// verified: mat[][] probably ok.
 
-		return mat;
 	}
 
 
@@ -422,6 +358,8 @@ public class CeCalculatorEnhanced {
 	public void traceFragmentMatrix( AFPChain afpChain,
 			Atom[] ca1, Atom[] ca2) {
 
+		checkWorkspace();
+
 		double rmsdThr = params.getRmsdThr();
 
 
@@ -564,16 +502,16 @@ public class CeCalculatorEnhanced {
 								if(iter==0 && (ise1>nse1-winSize*(nBestTrace-1) ||
 										ise2>nse2-winSize*(nBestTrace-1))) continue ise2Loop;
 
-								if(mat[ise1][ise2]<0.0) continue ise2Loop;
-								if(mat[ise1][ise2]>rmsdThr) continue ise2Loop;
-								if (mat[ise1][ise2]>userRMSDMax) continue ise2Loop;
+								if(mat[ise1*matCols+ise2]<0.0) continue ise2Loop;
+								if(mat[ise1*matCols+ise2]>rmsdThr) continue ise2Loop;
+								if (mat[ise1*matCols+ise2]>userRMSDMax) continue ise2Loop;
 								nTrace=0;
 								trace1[nTrace]=ise1;
 								trace2[nTrace]=ise2;
 								traceIndex[nTrace]=0;
 								traceIterLevel[nTrace]=0;
 
-								score0=mat[ise1][ise2];
+								score0=mat[ise1*matCols+ise2];
 
 
 								nTrace++;
@@ -591,7 +529,7 @@ public class CeCalculatorEnhanced {
 										while(true) {
 											if(kse1>nse1-winSize-1) break;
 											if(kse2>nse2-winSize-1) break;
-											if(mat[kse1][kse2]>=0.0) break;
+											if(mat[kse1*matCols+kse2]>=0.0) break;
 											kse1++;
 											kse2++;
 										}
@@ -625,9 +563,9 @@ public class CeCalculatorEnhanced {
 													if(mse1>nse1-winSize-1) continue itLoop;
 													if(mse2>nse2-winSize-1) continue itLoop;
 
-													if(mat[mse1][mse2]<0.0)     continue itLoop;
-													if(mat[mse1][mse2]>rmsdThr) continue itLoop;
-													if(mat[mse1][mse2]>userRMSDMax) continue itLoop;
+													if(mat[mse1*matCols+mse2]<0.0)     continue itLoop;
+													if(mat[mse1*matCols+mse2]>rmsdThr) continue itLoop;
+													if(mat[mse1*matCols+mse2]>userRMSDMax) continue itLoop;
 
 													nTraces++;
 													if(nTraces>tracesLimit) {
@@ -693,7 +631,7 @@ public class CeCalculatorEnhanced {
 											if(iter==0){
 
 												score1=(traceScore[nTrace-1][traceIndex_]*winSizeComb2*nTrace+
-														mat[jse1][jse2]*winSizeComb1)/(winSizeComb2*nTrace+
+														mat[jse1*matCols+jse2]*winSizeComb1)/(winSizeComb2*nTrace+
 																winSizeComb1);
 
 												score2 = getScore2(jse1, jse2, traceScore, traceIndex_, traceIndex, winSizeComb1, winSizeComb2, score0, score1);
@@ -892,16 +830,17 @@ nBestTrace=nTrace;
 		// reduce sign. values to C code.. 6 digits..
 
 		for(int itrace=0; itrace<nTrace; itrace++) {
-			score+=  Math.abs(dist1[trace1[itrace]][mse1]-
-					dist2[trace2[itrace]][mse2]);
+			int row1 = trace1[itrace]*nDist1;
+			int row2 = trace2[itrace]*nDist2;
+			score+=  Math.abs(dist1[row1+mse1]-
+					dist2[row2+mse2]);
 
-			score+=  Math.abs(dist1[trace1[itrace]+winSize-1]
-					[mse1+winSize-1]-
-					dist2[trace2[itrace]+winSize-1][mse2+winSize-1]);
+			score+=  Math.abs(dist1[row1+(winSize-1)*nDist1+mse1+winSize-1]-
+					dist2[row2+(winSize-1)*nDist2+mse2+winSize-1]);
 
 			for(int id=1; id<winSize-1; id++)
-				score+=  Math.abs(dist1[trace1[itrace]+id][mse1+winSize-1-id]-
-						dist2[trace2[itrace]+id][mse2+winSize-1-id]);
+				score+=  Math.abs(dist1[row1+id*nDist1+mse1+winSize-1-id]-
+						dist2[row2+id*nDist2+mse2+winSize-1-id]);
 
 		}
 
@@ -911,6 +850,8 @@ nBestTrace=nTrace;
 	public void nextStep( AFPChain afpChain,
 			Atom[] ca1, Atom[] ca2) throws StructureException{
 
+		checkWorkspace();
+
 
 		if(nBestTrace>0) {
 			checkBestTraces(afpChain,ca1,ca2);
@@ -1372,6 +1313,8 @@ nBestTrace=nTrace;
 			oRmsdThr += distanceIncrement;
 
 			rot_mol(ca2, ca3, nse2, r,t);
+			CeParameters.ScoringStrategy strategy = params.getScoringStrategy();
+			workspace.initCoordinates(ca1, ca3, strategy);
 
 			for(int ise1=0; ise1<nse1; ise1++) {
 				for(int ise2=0; ise2<nse2; ise2++) {
@@ -1381,8 +1324,8 @@ nBestTrace=nTrace;
 					// this needs to be a parameter...
 
 
-					double dist = getDistanceWithSidechain(ca1[ise1], ca3[ise2]);
-					mat[ise1][ise2] = oRmsdThr - dist;
+					double dist = CEWorkspace.distance(strategy, workspace.ca1, workspace.cb1, ise1, workspace.ca2, workspace.cb2, ise2);
+					mat[ise1*matCols+ise2] = oRmsdThr - dist;
 
 					//double distold = Calc.getDistance(ca1[ise1],ca3[ise2]);
 					//double scoreOld  = oRmsdThr - distold ;
@@ -1398,10 +1341,11 @@ nBestTrace=nTrace;
 				}
 			}
 
-			mat = notifyMatrixListener(mat);
+			if (!matrixListeners.isEmpty())
+				CEWorkspace.copy(notifyMatrixListener(CEWorkspace.toMatrix(mat, nse1, nse2)), mat);
 
 			if ( params.getScoringStrategy() == CeParameters.ScoringStrategy.SEQUENCE_CONSERVATION){
-				mat = updateMatrixWithSequenceConservation(mat,ca1,ca2, params);
+				CEWorkspace.copy(updateMatrixWithSequenceConservation(CEWorkspace.toMatrix(mat, nse1, nse2), ca1, ca2, params), mat);
 			}
 
 			double gapOpen = params.getGapOpen();
@@ -1654,7 +1598,7 @@ nBestTrace=nTrace;
 					brk_flg[i][j]=false;
 					if(j<nSeq2-1 && i<nSeq1-1)
 					{
-						sum=mat[i+1][j+1];
+						sum=mat[(i+1)*matCols+j+1];
 					}
 					else
 					{
@@ -1665,16 +1609,16 @@ nBestTrace=nTrace;
 					if(j+1<nSeq2)
 						for(k=i+2; k<nSeq1; k++)
 						{
-							if(mat[k][j+1]-gapI>sum)
-								sum=mat[k][j+1]-gapI;
+							if(mat[k*matCols+j+1]-gapI>sum)
+								sum=mat[k*matCols+j+1]-gapI;
 						}
 					if(i+1<nSeq1)
 						for(k=j+2; k<nSeq2; k++)
 						{
-							if(mat[i+1][k]-gapI>sum)
-								sum=mat[i+1][k]-gapI;
+							if(mat[(i+1)*matCols+k]-gapI>sum)
+								sum=mat[(i+1)*matCols+k]-gapI;
 						}
-					sum+=mat[i][j];
+					sum+=mat[i*matCols+j];
 					sum_brk=(isGlobal1?-gapI:0.0)+(isGlobal2?-gapI:0.0);
 					if(sum<sum_brk)
 					{
@@ -1682,7 +1626,7 @@ nBestTrace=nTrace;
 						brk_flg[i][j]=true;
 						//System.out.println("break at: " + i + " " + j);
 					}
-					mat[i][j]=sum;
+					mat[i*matCols+j]=sum;
 				}
 		}
 		else
@@ -1695,7 +1639,7 @@ nBestTrace=nTrace;
 					if(j<nSeq2-1 && i<nSeq1-1)
 					{
 						// any row/column which is not the last
-						maxSum=mat[i+1][j+1];
+						maxSum=mat[(i+1)*matCols+j+1];
 						tracebackMatrix1[i][j] = i+1;
 						tracebackMatrix2[i][j] = j+1;
 					}
@@ -1713,8 +1657,8 @@ nBestTrace=nTrace;
 					// do only for rows/columns which are not the last:
 					if(j+1<nSeq2)
 						for(k=i+2; k<nSeq1; k++) {
-							if(mat[k][j+1]-gapI-gapE*(k-i-1)>maxSum) {
-								maxSum=mat[k][j+1]-gapI-gapE*(k-i-1);
+							if(mat[k*matCols+j+1]-gapI-gapE*(k-i-1)>maxSum) {
+								maxSum=mat[k*matCols+j+1]-gapI-gapE*(k-i-1);
 								tracebackMatrix1[i][j] = k;
 								tracebackMatrix2[i][j] = j+1;
 
@@ -1722,15 +1666,15 @@ nBestTrace=nTrace;
 						}
 					if(i+1<nSeq1)
 						for(k=j+2; k<nSeq2; k++) {
-							if(mat[i+1][k]-gapI-gapE*(k-j-1)>maxSum) {
-								maxSum=mat[i+1][k]-gapI-gapE*(k-j-1);
+							if(mat[(i+1)*matCols+k]-gapI-gapE*(k-j-1)>maxSum) {
+								maxSum=mat[(i+1)*matCols+k]-gapI-gapE*(k-j-1);
 								tracebackMatrix1[i][j] = i+1;
 								tracebackMatrix2[i][j] = k;
 
 							}
 						}
 
-					maxSum+= mat[i][j];
+					maxSum+= mat[i*matCols+j];
 
 
 					sum_brk=(isGlobal1?(-gapI-gapE*(nSeq1-1-i)):0.0)+(isGlobal2?(-gapI-gapE*(nSeq2-1-j)):0.0);
@@ -1739,7 +1683,7 @@ nBestTrace=nTrace;
 						maxSum=sum_brk;
 						brk_flg[i][j]=true;
 					}
-					mat[i][j]=maxSum;
+					mat[i*matCols+j]=maxSum;
 				}
 		}
 
@@ -1748,7 +1692,7 @@ nBestTrace=nTrace;
 
 		iStart=0; jStart=0; alignmentPositionOrLength=0;
 		// no nc-end penalty - begin
-		sum_ret=mat[0][0];
+		sum_ret=mat[0];
 
 		// look for the highest score in mat[i][j]
 		// TODO: move this up ??
@@ -1757,7 +1701,7 @@ nBestTrace=nTrace;
 			for(j=0; j<nSeq2; j++)
 			{
 				if(i==0 && j==0) continue;
-				double sum=mat[i][j];
+				double sum=mat[i*matCols+j];
 				if(isGlobal1) sum+=-gapI-gapE*i;
 				if(isGlobal2) sum+=-gapI-gapE*j;
 				if(sum>sum_ret)
@@ -1779,39 +1723,39 @@ nBestTrace=nTrace;
 		for(i=iStart, j=jStart; i<nSeq1 && j<nSeq2; i++, j++)
 		{
 			iMax=i; jMax=j;
-			double localMaxScore=mat[i][j];
+			double localMaxScore=mat[i*matCols+j];
 			if(!hasGapExtensionPenalty)
 			{
 				for(k=i+1; k<nSeq1; k++)
-					if(mat[k][j]-gapI>localMaxScore)
+					if(mat[k*matCols+j]-gapI>localMaxScore)
 					{
 						iMax=k; jMax=j;
-						localMaxScore=mat[k][j]-gapI;
+						localMaxScore=mat[k*matCols+j]-gapI;
 					}
 
 				for(k=j+1; k<nSeq2; k++)
-					if(mat[i][k]-gapI>localMaxScore)
+					if(mat[i*matCols+k]-gapI>localMaxScore)
 					{
 						iMax=i; jMax=k;
-						localMaxScore=mat[i][k]-gapI;
+						localMaxScore=mat[i*matCols+k]-gapI;
 					}
 			}
 			else
 			{
 				for(k=i+1; k<nSeq1; k++) {
-					if(mat[k][j]-gapI-gapE*(k-i)>localMaxScore)
+					if(mat[k*matCols+j]-gapI-gapE*(k-i)>localMaxScore)
 					{
-						System.out.println("     gap1 " + alignmentPositionOrLength + " " + k + " " + j + " " + localMaxScore + "<" +(mat[k][j]-gapI-gapE*(k-i)));
+						System.out.println("     gap1 " + alignmentPositionOrLength + " " + k + " " + j + " " + localMaxScore + "<" +(mat[k*matCols+j]-gapI-gapE*(k-i)));
 						iMax=k; jMax=j;
-						localMaxScore=mat[k][j]-gapI-gapE*(k-i);
+						localMaxScore=mat[k*matCols+j]-gapI-gapE*(k-i);
 					}
 				}
 				for(k=j+1; k<nSeq2; k++) {
-					if(mat[i][k]-gapI-gapE*(k-j)>localMaxScore)
+					if(mat[i*matCols+k]-gapI-gapE*(k-j)>localMaxScore)
 					{
-						System.out.println("     gap2 " + alignmentPositionOrLength + " " + k + " " + i + " " + localMaxScore + "<"+ (mat[i][k]-gapI-gapE*(k-j)));
+						System.out.println("     gap2 " + alignmentPositionOrLength + " " + k + " " + i + " " + localMaxScore + "<"+ (mat[i*matCols+k]-gapI-gapE*(k-j)));
 						iMax=i; jMax=k;
-						localMaxScore=mat[i][k]-gapI-gapE*(k-j);
+						localMaxScore=mat[i*matCols+k]-gapI-gapE*(k-j);
 					}
 				}
 			}
@@ -1832,7 +1776,7 @@ nBestTrace=nTrace;
 				}
 				if ( prevGapEnd == alignmentPositionOrLength -1){
 					// double gap!
-					System.out.println( "  !! FOUND DOUBLE GAP AT: "+  alignmentPositionOrLength + " | "+ i+ " " + iMax + " " + j + " " + jMax + " " + String.format("%f", mat[i][j]) + " " +   getTraceBack(tracebackMatrix1,tracebackMatrix2,i,j));
+					System.out.println( "  !! FOUND DOUBLE GAP AT: "+  alignmentPositionOrLength + " | "+ i+ " " + iMax + " " + j + " " + jMax + " " + String.format("%f", mat[i*matCols+j]) + " " +   getTraceBack(tracebackMatrix1,tracebackMatrix2,i,j));
 					//doubleGap = true;
 
 					//										if ( i != iMax){
@@ -1856,7 +1800,7 @@ nBestTrace=nTrace;
 			//System.out.println(" iMax " + iMax + " jMax " +  jMax);
 			// set the gap positions:
 			//lcmp:53 i:41 j:173 imax:70 jmax:173
-			System.out.println(String.format("  lcmp:%d i:%d j:%d imax:%d jmax:%d score: %.2f",alignmentPositionOrLength,i,j, iMax, jMax, mat[iMax][jMax]));
+			System.out.println(String.format("  lcmp:%d i:%d j:%d imax:%d jmax:%d score: %.2f",alignmentPositionOrLength,i,j, iMax, jMax, mat[iMax*matCols+jMax]));
 
 
 			for(k=i; k<iMax; k++, i++) {
@@ -2233,12 +2177,12 @@ nBestTrace=nTrace;
 		int nse2 = ca2.length;
 		//System.out.println("dist1 :" + dist1.length + " " + dist2.length);
 
-		if ( nse1 > 0 && dist1.length > 0 )
-			afpChain.setDisTable1(new Matrix(dist1));
+		if ( nse1 > 0 && nDist1 > 0 && params.isStoreDistanceMatrices())
+			afpChain.setDisTable1(new Matrix(getDist1()));
 		else
 			afpChain.setDisTable1 (Matrix.identity(3, 3));
-		if ( nse2 > 0 && dist2.length > 0 )
-			afpChain.setDisTable2(new Matrix(dist2));
+		if ( nse2 > 0 && nDist2 > 0 && params.isStoreDistanceMatrices())
+			afpChain.setDisTable2(new Matrix(getDist2()));
 		else
 			afpChain.setDisTable2(Matrix.identity(3, 3));
 
@@ -2367,14 +2311,24 @@ nBestTrace=nTrace;
 	 * points in the alignment algorithm. After
 	 * {@link #initSumOfDistances(int, int, int, int, Atom[], Atom[]) initSumOfDistances}
 	 * is run, this will hold the distance matrix between AFPs.
-	 * @return mat
+	 * @return a copy of mat, or null if it was not computed
+	 * @throws IllegalStateException if the workspace was used by another alignment since
+	 *         {@link #extractFragments(AFPChain, Atom[], Atom[]) extractFragments}
 	 */
 	public double[][] getMatMatrix() {
-		return mat;
+		if (mat == null && !released)
+			return null;
+		checkWorkspace();
+		return CEWorkspace.toMatrix(mat, matRows, matCols);
 	}
 
+	/**
+	 * @param matrix the score matrix, which is copied
+	 */
 	public void setMatMatrix(double[][] matrix){
-		mat = matrix;
+		mat = CEWorkspace.toArray(matrix);
+		matRows = matrix.length;
+		matCols = matrix.length == 0 ? 0 : matrix[0].length;
 	}
 
 	/**
@@ -2395,20 +2349,75 @@ nBestTrace=nTrace;
 		return t;
 	}
 
+	/**
+	 * @return a copy of the intramolecular distance matrix of the first
+	 *         structure, which is made once and returned until the distances
+	 *         change. Use {@link #setDist1(double[][])} to change them.
+	 * @throws IllegalStateException if the workspace was used by another alignment
+	 *         before the first call since {@link #extractFragments(AFPChain, Atom[], Atom[]) extractFragments}
+	 */
 	public double[][] getDist1() {
-		return dist1;
+		if (dist1Matrix == null) {
+			checkWorkspace();
+			dist1Matrix = CEWorkspace.toMatrix(dist1, nDist1, nDist1);
+		}
+		return dist1Matrix;
 	}
 
+	/**
+	 * @param dist1 the intramolecular distance matrix of the first structure, which is copied
+	 */
 	public void setDist1(double[][] dist1) {
-		this.dist1 = dist1;
+		this.nDist1 = dist1.length;
+		this.dist1 = CEWorkspace.toArray(dist1);
+		this.dist1Matrix = null;
 	}
 
+	/**
+	 * @return a copy of the intramolecular distance matrix of the second
+	 *         structure, see {@link #getDist1()}
+	 * @throws IllegalStateException if the workspace was used by another alignment
+	 *         before the first call since {@link #extractFragments(AFPChain, Atom[], Atom[]) extractFragments}
+	 */
 	public double[][] getDist2() {
-		return dist2;
+		if (dist2Matrix == null) {
+			checkWorkspace();
+			dist2Matrix = CEWorkspace.toMatrix(dist2, nDist2, nDist2);
+		}
+		return dist2Matrix;
 	}
 
+	/**
+	 * @param dist2 the intramolecular distance matrix of the second structure, which is copied
+	 */
 	public void setDist2(double[][] dist2) {
-		this.dist2 = dist2;
+		this.nDist2 = dist2.length;
+		this.dist2 = CEWorkspace.toArray(dist2);
+		this.dist2Matrix = null;
+	}
+
+	/**
+	 * Called by the workspace when another alignment takes over its buffers.
+	 * The matrices that were set by the setters are kept.
+	 */
+	void releaseWorkspace() {
+		if (dist1 == workspace.dist1) {
+			dist1 = null;
+			released = true;
+		}
+		if (dist2 == workspace.dist2) {
+			dist2 = null;
+			released = true;
+		}
+		if (mat == workspace.mat) {
+			mat = null;
+			released = true;
+		}
+	}
+
+	private void checkWorkspace() {
+		if (released && (dist1 == null || dist2 == null || mat == null))
+			throw new IllegalStateException("The matrices of this calculator were overwritten by a later alignment using the same CEWorkspace");
 	}
 
 
@@ -102,6 +102,7 @@ public class CeMain extends AbstractStructureAlignment implements StructureAlign
 			pos++;
 		}
 
+		// reuse the buffers of the previous alignment on this thread
 		calculator = new CECalculator(params);
 
 		//Build alignment ca1 to ca2-ca2
@@ -125,11 +126,12 @@ public class CeMain extends AbstractStructureAlignment implements StructureAlign
 		   return afpChain;
 
 		// Set the distance matrix
-
-		int winSize = params.getWinSize();
-		int winSizeComb1 = (winSize-1)*(winSize-2)/2;
-		double[][] m = calculator.initSumOfDistances(ca1.length, ca2.length, winSize, winSizeComb1, ca1, ca2clone);
-		afpChain.setDistanceMatrix(new Matrix(m));
+		if ( params.isStoreDistanceMatrices()) {
+			int winSize = params.getWinSize();
+			int winSizeComb1 = (winSize-1)*(winSize-2)/2;
+			double[][] m = calculator.initSumOfDistances(ca1.length, ca2.length, winSize, winSizeComb1, ca1, ca2clone);
+			afpChain.setDistanceMatrix(new Matrix(m));
+		}
 		afpChain.setSequentialAlignment(true);
 
 		return afpChain;
@@ -172,6 +174,11 @@ public class CeMain extends AbstractStructureAlignment implements StructureAlign
 		return CeMain.version;
 	}
 
+	/**
+	 * @return the calculator of the last alignment. Its matrices are only
+	 *         valid until the next CE alignment on the same thread, see
+	 *         {@link CEWorkspace}.
+	 */
 	public CECalculator getCECalculator() {
 		return calculator;
 	}
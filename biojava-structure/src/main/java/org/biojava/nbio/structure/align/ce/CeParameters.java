@@ -78,6 +78,13 @@ public class CeParameters implements ConfigStrucAligParams  {
 	 */
 	private boolean optimizeAlignment;
 
+	/**
+	 * Whether the distance matrices used for display (the AFP distance matrix
+	 * and the intramolecular distance tables) are stored in the AFPChain.
+	 * Database searches can turn this off to save time and memory.
+	 */
+	private boolean storeDistanceMatrices;
+
 	protected static final double DEFAULT_GAP_OPEN = 5.0;
 	protected static final double DEFAULT_GAP_EXTENSION = 0.5;
 	protected static final double DISTANCE_INCREMENT = 0.5;
@@ -130,6 +137,7 @@ public class CeParameters implements ConfigStrucAligParams  {
 		maxNrIterationsForOptimization = Integer.MAX_VALUE;
 		seqWeight = 0;
 		optimizeAlignment = true;
+		storeDistanceMatrices = true;
 	}
 
 	/** The window size to look at
@@ -275,6 +283,27 @@ public class CeParameters implements ConfigStrucAligParams  {
 		this.showAFPRanges = showAFPRanges;
 	}
 
+	/**
+	 * @return whether the distance matrices are stored in the resulting AFPChain
+	 * @since 7.2.0
+	 */
+	public boolean isStoreDistanceMatrices() {
+		return storeDistanceMatrices;
+	}
+
+	/**
+	 * Whether to store the AFP distance matrix and the intramolecular distance
+	 * tables in the resulting AFPChain (default: true). They are only needed
+	 * for display, so database searches can set this to false to avoid
+	 * computing and keeping O(n<sup>2</sup>) matrices for each alignment.
+	 *
+	 * @param storeDistanceMatrices
+	 * @since 7.2.0
+	 */
+	public void setStoreDistanceMatrices(boolean storeDistanceMatrices) {
+		this.storeDistanceMatrices = storeDistanceMatrices;
+	}
+
 
 
 
@@ -47,6 +47,7 @@ import org.biojava.nbio.structure.align.multiple.MultipleAlignment;
 import org.biojava.nbio.structure.align.multiple.MultipleAlignmentEnsemble;
 import org.biojava.nbio.structure.align.multiple.MultipleAlignmentEnsembleImpl;
 import org.biojava.nbio.structure.align.multiple.MultipleAlignmentImpl;
+import org.biojava.nbio.structure.align.multiple.util.MultipleAlignmentScorer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -320,6 +321,63 @@ public class MultipleMcMain implements MultipleStructureAligner {
 		return seed;
 	}
 
+	/**
+	 * Runs the MC optimization of the seed alignment. If more than one
+	 * trajectory is requested, they are run in parallel with consecutive
+	 * random seeds, starting at the one in the parameters, and the alignment
+	 * with the highest MC score is returned. Ties are resolved in favour of
+	 * the first trajectory, so the result is reproducible.
+	 *
+	 * @param seed MultipleAlignment seed
+	 * @return the optimized MultipleAlignment
+	 * @throws StructureException
+	 */
+	private MultipleAlignment optimize(MultipleAlignment seed)
+			throws StructureException {
+
+		int trajectories = params.getNrTrajectories();
+		if (trajectories <= 1) {
+			MultipleMcOptimizer optimizer = new MultipleMcOptimizer(
+					seed, params, reference);
+			return optimizer.optimize();
+		}
+
+		//Every optimizer clones the seed, do it before running them
+		List<MultipleMcOptimizer> optimizers = new ArrayList<>(trajectories);
+		for (int i=0; i<trajectories; i++){
+			optimizers.add(new MultipleMcOptimizer(seed, params, reference,
+					(long) params.getRandomSeed() + i));
+		}
+
+		int threads = Math.max(1, Math.min(params.getNrThreads(), trajectories));
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<MultipleAlignment>> msaFuture =
+					executor.invokeAll(optimizers);
+
+			//Take the one with the best result (best MC-Score)
+			MultipleAlignment best = null;
+			for (Future<MultipleAlignment> future : msaFuture){
+				MultipleAlignment align = future.get();
+				if (best == null
+						|| align.getScore(MultipleAlignmentScorer.MC_SCORE)
+						> best.getScore(MultipleAlignmentScorer.MC_SCORE)){
+					best = align;
+				}
+			}
+			return best;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new StructureException("MC optimization interrupted.", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof StructureException)
+				throw (StructureException) e.getCause();
+			throw new StructureException("MC optimization failed.", e.getCause());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
 	@Override
 	public MultipleAlignment align(List<Atom[]> atomArrays, Object parameters)
 			throws StructureException {
@@ -341,49 +399,10 @@ public class MultipleMcMain implements MultipleStructureAligner {
 			logger.warn("Seed generation failed.",e);
 		}
 
-		//Repeat the optimization in parallel - DISALLOWED
-		/*int threads = params.getNrThreads();
-			ExecutorService executor = Executors.newFixedThreadPool(threads);
-			List<Future<MultipleAlignment>> msaFuture =
-					new ArrayList<Future<MultipleAlignment>>();
-
-			for (int i=0; i<params.getNrThreads(); i++){
-				//Change the random seed for each parallelization
-				MultipleMcParameters paramsMC = (MultipleMcParameters) params;
-				paramsMC.setRandomSeed(paramsMC.getRandomSeed()+i);
-
-				Callable<MultipleAlignment> worker =
-						new MultipleMcOptimizer(
-								result, paramsMC, reference);
-
-	  			Future<MultipleAlignment> submit = executor.submit(worker);
-	  			msaFuture.add(submit);
-			}
-
-			double maxScore = Double.NEGATIVE_INFINITY;
-			//Take the one with the best result (best MC-Score)
-			for (int i=0; i<msaFuture.size(); i++){
-				MultipleAlignment align = msaFuture.get(i).get();
-				double s = align.getScore(MultipleAlignmentScorer.MC_SCORE);
-				if (s > maxScore){
-					result = align;
-					maxScore = s;
-				}
-			}
-			Long runtime = System.currentTimeMillis()-ensemble.getIoTime();
-			ensemble.setCalculationTime(runtime);
-
-			result.setEnsemble(ensemble);
-			ensemble.addMultipleAlignment(result);
-			executor.shutdown();*/
-
-		MultipleMcOptimizer optimizer = new MultipleMcOptimizer(
-				result, params, reference);
-
 		Long runtime = System.currentTimeMillis()-ensemble.getIoTime();
 		ensemble.setCalculationTime(runtime);
 
-		result = optimizer.optimize();
+		result = optimize(result);
 		result.setEnsemble(ensemble);
 		ensemble.addMultipleAlignment(result);
 
@@ -112,13 +112,33 @@ public class MultipleMcOptimizer implements Callable<MultipleAlignment> {
 	 */
 	public MultipleMcOptimizer(MultipleAlignment seedAln,
 			MultipleMcParameters params, int reference) {
+		this(seedAln, params, reference, params.getRandomSeed());
+	}
+
+	/**
+	 * Constructor with an explicit random seed, to run several independent
+	 * trajectories of the optimization from the same seed alignment and
+	 * parameters.
+	 *
+	 * @param seedAln
+	 *            MultipleAlignment to be optimized.
+	 * @param params
+	 *            the parameter beam
+	 * @param reference
+	 *            the index of the most similar structure to all others
+	 * @param randomSeed
+	 *            the seed of the random moves, instead of the one in params
+	 * @since 7.2.0
+	 */
+	public MultipleMcOptimizer(MultipleAlignment seedAln,
+			MultipleMcParameters params, int reference, long randomSeed) {
 
 		MultipleAlignmentEnsemble e = seedAln.getEnsemble().clone();
 		msa = e.getMultipleAlignment(0);
 		atomArrays = msa.getAtomArrays();
 		size = seedAln.size();
 
-		rnd = new Random(params.getRandomSeed());
+		rnd = new Random(randomSeed);
 		Gopen = params.getGapOpen();
 		Gextend = params.getGapExtension();
 		dCutoff = params.getDistanceCutoff();
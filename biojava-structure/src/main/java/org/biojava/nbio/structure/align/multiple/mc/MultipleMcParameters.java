@@ -43,6 +43,7 @@ public class MultipleMcParameters implements ConfigStrucAligParams {
 	private double distanceCutoff;
 	private int convergenceSteps;
 	private int nrThreads;
+	private int nrTrajectories;
 
 	/**
 	 * Constructor with DEFAULT values of the parameters.
@@ -63,6 +64,7 @@ public class MultipleMcParameters implements ConfigStrucAligParams {
 		params.add("DistanceCutoff");
 		params.add("ConvergenceSteps");
 		params.add("NrThreads");
+		params.add("NrTrajectories");
 		return params;
 	}
 
@@ -78,6 +80,7 @@ public class MultipleMcParameters implements ConfigStrucAligParams {
 		params.add("Distance Cutoff");
 		params.add("Steps to Convergence");
 		params.add("Number of Threads");
+		params.add("Number of Trajectories");
 		return params;
 	}
 
@@ -94,6 +97,7 @@ public class MultipleMcParameters implements ConfigStrucAligParams {
 		params.add(Double.class);
 		params.add(Integer.class);
 		params.add(Integer.class);
+		params.add(Integer.class);
 		return params;
 	}
 
@@ -123,6 +127,10 @@ public class MultipleMcParameters implements ConfigStrucAligParams {
 		String nrThreads =
 				"Number of threads to be used for the seed calculation (all-"
 				+ "to-all pairwise alignments) and the MC optimization.";
+		String nrTrajectories =
+				"Number of independent MC optimizations, with consecutive "
+				+ "random seeds starting at the random seed. The best "
+				+ "scoring alignment is kept.";
 
 		params.add(randomSeed);
 		params.add(minBlockLen);
@@ -132,6 +140,7 @@ public class MultipleMcParameters implements ConfigStrucAligParams {
 		params.add(dCutoff);
 		params.add(convergenceSteps);
 		params.add(nrThreads);
+		params.add(nrTrajectories);
 		return params;
 	}
 
@@ -142,7 +151,8 @@ public class MultipleMcParameters implements ConfigStrucAligParams {
 				+ minAlignedStructures + ", gapOpen=" + gapOpen
 				+ ", gapExtension=" + gapExtension + ", distanceCutoff="
 				+ distanceCutoff + ", convergenceSteps=" + convergenceSteps
-				+ ", nrThreads=" + nrThreads + "]";
+				+ ", nrThreads=" + nrThreads + ", nrTrajectories="
+				+ nrTrajectories + "]";
 	}
 
 	@Override
@@ -156,6 +166,7 @@ public class MultipleMcParameters implements ConfigStrucAligParams {
 		distanceCutoff = 7.0;
 		convergenceSteps = 0;
 		nrThreads = Runtime.getRuntime().availableProcessors();
+		nrTrajectories = 1;
 	}
 
 	public int getRandomSeed() {
@@ -214,6 +225,24 @@ public class MultipleMcParameters implements ConfigStrucAligParams {
 		this.nrThreads = nrThreads;
 	}
 
+	/**
+	 * @return the number of independent MC optimization trajectories
+	 * @since 7.2.0
+	 */
+	public int getNrTrajectories() {
+		return nrTrajectories;
+	}
+
+	/**
+	 * @param nrTrajectories the number of independent MC optimization
+	 *            trajectories. Trajectory k uses the random seed plus k
+	 *            and the best scoring alignment is kept.
+	 * @since 7.2.0
+	 */
+	public void setNrTrajectories(Integer nrTrajectories) {
+		this.nrTrajectories = nrTrajectories;
+	}
+
 	public double getDistanceCutoff() {
 		return distanceCutoff;
 	}
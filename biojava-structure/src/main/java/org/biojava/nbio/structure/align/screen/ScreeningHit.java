@@ -0,0 +1,78 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align.screen;
+
+/**
+ * The estimated similarity of a target to the query of a
+ * {@link StructureScreener}.
+ *
+ * @since 7.2.0
+ */
+public class ScreeningHit {
+
+	private final String name;
+	private final double lengthRatio;
+	private final double score;
+	private final boolean accepted;
+
+	ScreeningHit(String name, double lengthRatio, double score, boolean accepted) {
+		this.name = name;
+		this.lengthRatio = lengthRatio;
+		this.score = score;
+		this.accepted = accepted;
+	}
+
+	/**
+	 * @return the identifier of the target
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the ratio of the shorter to the longer length, or NaN if the
+	 *         target could not be loaded
+	 */
+	public double getLengthRatio() {
+		return lengthRatio;
+	}
+
+	/**
+	 * @return the estimated similarity between 0 and 1, or NaN if the target
+	 *         was rejected by length or could not be loaded
+	 */
+	public double getScore() {
+		return score;
+	}
+
+	/**
+	 * @return true if the target passed the screen and should be aligned
+	 */
+	public boolean isAccepted() {
+		return accepted;
+	}
+
+	@Override
+	public String toString() {
+		return "ScreeningHit [name=" + name + ", lengthRatio=" + lengthRatio + ", score=" + score + ", accepted="
+				+ accepted + "]";
+	}
+}
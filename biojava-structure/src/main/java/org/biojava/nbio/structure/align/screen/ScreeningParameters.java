@@ -0,0 +1,196 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align.screen;
+
+/**
+ * Parameters of a {@link StructureScreener}.
+ *
+ * @since 7.2.0
+ */
+public class ScreeningParameters {
+
+	public static final double DEFAULT_MIN_LENGTH_RATIO = 0.5;
+	public static final double DEFAULT_HISTOGRAM_BIN_WIDTH = 2.0;
+	public static final double DEFAULT_HISTOGRAM_MAX_DISTANCE = 60.0;
+
+	private double minLengthRatio;
+	private double minScore;
+	private int maxTargets;
+
+	private double lengthWeight;
+	private double secStrucWeight;
+	private double histogramWeight;
+
+	private double histogramBinWidth;
+	private double histogramMaxDistance;
+
+	private double validationFraction;
+	private long seed;
+
+	public ScreeningParameters() {
+		reset();
+	}
+
+	/**
+	 * Sets all parameters to their defaults.
+	 */
+	public void reset() {
+		minLengthRatio = DEFAULT_MIN_LENGTH_RATIO;
+		minScore = 0;
+		maxTargets = 0;
+		lengthWeight = 1;
+		secStrucWeight = 1;
+		histogramWeight = 1;
+		histogramBinWidth = DEFAULT_HISTOGRAM_BIN_WIDTH;
+		histogramMaxDistance = DEFAULT_HISTOGRAM_MAX_DISTANCE;
+		validationFraction = 0;
+		seed = 0;
+	}
+
+	public double getMinLengthRatio() {
+		return minLengthRatio;
+	}
+
+	/**
+	 * Targets whose length ratio to the query (shorter over longer) is below
+	 * this value are rejected without computing the other terms (default
+	 * {@value #DEFAULT_MIN_LENGTH_RATIO}). Use 0 to disable.
+	 *
+	 * @param minLengthRatio
+	 */
+	public void setMinLengthRatio(double minLengthRatio) {
+		this.minLengthRatio = minLengthRatio;
+	}
+
+	public double getMinScore() {
+		return minScore;
+	}
+
+	/**
+	 * Targets with a lower estimated similarity are rejected (default 0).
+	 *
+	 * @param minScore
+	 *            a value between 0 and 1
+	 */
+	public void setMinScore(double minScore) {
+		this.minScore = minScore;
+	}
+
+	public int getMaxTargets() {
+		return maxTargets;
+	}
+
+	/**
+	 * Only the given number of best scoring targets are accepted (default 0,
+	 * no limit).
+	 *
+	 * @param maxTargets
+	 */
+	public void setMaxTargets(int maxTargets) {
+		this.maxTargets = maxTargets;
+	}
+
+	public double getLengthWeight() {
+		return lengthWeight;
+	}
+
+	public void setLengthWeight(double lengthWeight) {
+		this.lengthWeight = lengthWeight;
+	}
+
+	public double getSecStrucWeight() {
+		return secStrucWeight;
+	}
+
+	public void setSecStrucWeight(double secStrucWeight) {
+		this.secStrucWeight = secStrucWeight;
+	}
+
+	public double getHistogramWeight() {
+		return histogramWeight;
+	}
+
+	public void setHistogramWeight(double histogramWeight) {
+		this.histogramWeight = histogramWeight;
+	}
+
+	public double getHistogramBinWidth() {
+		return histogramBinWidth;
+	}
+
+	/**
+	 * @param histogramBinWidth
+	 *            width of the distance histogram bins in Angstrom (default
+	 *            {@value #DEFAULT_HISTOGRAM_BIN_WIDTH})
+	 */
+	public void setHistogramBinWidth(double histogramBinWidth) {
+		this.histogramBinWidth = histogramBinWidth;
+	}
+
+	public double getHistogramMaxDistance() {
+		return histogramMaxDistance;
+	}
+
+	/**
+	 * @param histogramMaxDistance
+	 *            distances above this value share the last histogram bin
+	 *            (default {@value #DEFAULT_HISTOGRAM_MAX_DISTANCE})
+	 */
+	public void setHistogramMaxDistance(double histogramMaxDistance) {
+		this.histogramMaxDistance = histogramMaxDistance;
+	}
+
+	public double getValidationFraction() {
+		return validationFraction;
+	}
+
+	/**
+	 * The fraction of the rejected targets that is aligned anyway to estimate
+	 * the recall of the screen (default 0, no estimate).
+	 *
+	 * @param validationFraction
+	 *            a value between 0 and 1
+	 */
+	public void setValidationFraction(double validationFraction) {
+		this.validationFraction = validationFraction;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * @param seed
+	 *            seed for the random choice of validation targets
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	@Override
+	public String toString() {
+		return "ScreeningParameters [minLengthRatio=" + minLengthRatio + ", minScore=" + minScore + ", maxTargets="
+				+ maxTargets + ", lengthWeight=" + lengthWeight + ", secStrucWeight=" + secStrucWeight
+				+ ", histogramWeight=" + histogramWeight + ", histogramBinWidth=" + histogramBinWidth
+				+ ", histogramMaxDistance=" + histogramMaxDistance + ", validationFraction=" + validationFraction
+				+ ", seed=" + seed + "]";
+	}
+}
@@ -0,0 +1,146 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align.screen;
+
+import java.util.List;
+
+/**
+ * The outcome of a screened search, see
+ * {@link StructureScreener#search(String, List, org.biojava.nbio.structure.align.AllToAllAligner, java.util.function.Predicate, org.biojava.nbio.structure.align.AllToAllAligner.AlignmentSink)}.
+ * <p>
+ * The recall of the screen is estimated from a random sample of the rejected
+ * targets that was aligned as well: the number of hits among the rejected
+ * targets is extrapolated from the number of hits in the sample.
+ *
+ * @since 7.2.0
+ */
+public class ScreeningResult {
+
+	private final List<ScreeningHit> hits;
+	private final int accepted;
+	private final int rejected;
+	private final int validated;
+	private final int aligned;
+	private final int acceptedHits;
+	private final int validationHits;
+
+	ScreeningResult(List<ScreeningHit> hits, int accepted, int rejected, int validated, int aligned, int acceptedHits,
+			int validationHits) {
+		this.hits = hits;
+		this.accepted = accepted;
+		this.rejected = rejected;
+		this.validated = validated;
+		this.aligned = aligned;
+		this.acceptedHits = acceptedHits;
+		this.validationHits = validationHits;
+	}
+
+	/**
+	 * @return the screening results of all targets, best first
+	 */
+	public List<ScreeningHit> getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return the number of screened targets
+	 */
+	public int getTargetCount() {
+		return hits.size();
+	}
+
+	/**
+	 * @return the number of targets that passed the screen
+	 */
+	public int getAcceptedCount() {
+		return accepted;
+	}
+
+	/**
+	 * @return the number of targets that were screened and rejected, not
+	 *         including those that could not be loaded
+	 */
+	public int getRejectedCount() {
+		return rejected;
+	}
+
+	/**
+	 * @return the number of targets that could not be loaded
+	 */
+	public int getFailedCount() {
+		return hits.size() - accepted - rejected;
+	}
+
+	/**
+	 * @return the number of rejected targets aligned to estimate the recall
+	 */
+	public int getValidationCount() {
+		return validated;
+	}
+
+	/**
+	 * @return the number of alignments computed
+	 */
+	public int getAlignedCount() {
+		return aligned;
+	}
+
+	/**
+	 * @return the number of accepted targets whose alignment is a hit
+	 */
+	public int getAcceptedHitCount() {
+		return acceptedHits;
+	}
+
+	/**
+	 * @return the number of validation targets whose alignment is a hit
+	 */
+	public int getValidationHitCount() {
+		return validationHits;
+	}
+
+	/**
+	 * @return the fraction of the targets that did not need to be aligned
+	 */
+	public double getSavedFraction() {
+		return hits.isEmpty() ? 0 : 1 - (double) (accepted + validated) / hits.size();
+	}
+
+	/**
+	 * @return the estimated fraction of all hits that passed the screen, or
+	 *         NaN if no rejected targets were validated or no hits were found
+	 */
+	public double getEstimatedRecall() {
+		if (validated == 0)
+			return Double.NaN;
+		double missed = (double) validationHits * getRejectedCount() / validated;
+		double total = acceptedHits + missed;
+		return total == 0 ? Double.NaN : acceptedHits / total;
+	}
+
+	@Override
+	public String toString() {
+		return "ScreeningResult [targets=" + hits.size() + ", accepted=" + accepted + ", rejected=" + rejected
+				+ ", validated=" + validated
+				+ ", aligned=" + aligned + ", acceptedHits=" + acceptedHits + ", validationHits=" + validationHits
+				+ ", estimatedRecall=" + getEstimatedRecall() + "]";
+	}
+}
@@ -0,0 +1,303 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align.screen;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Calc;
+import org.biojava.nbio.structure.Chain;
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.ResidueNumber;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureException;
+import org.biojava.nbio.structure.secstruc.SecStrucCalc;
+import org.biojava.nbio.structure.secstruc.SecStrucInfo;
+import org.biojava.nbio.structure.secstruc.SecStrucState;
+import org.biojava.nbio.structure.secstruc.SecStrucType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A small, alignment-free summary of a structure used to estimate the
+ * similarity of two structures before aligning them: the number of residues,
+ * the secondary structure composition and a normalized histogram of the
+ * intramolecular distances of the representative atoms.
+ *
+ * @see StructureScreener
+ * @since 7.2.0
+ */
+public class StructureDescriptor implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final Logger logger = LoggerFactory.getLogger(StructureDescriptor.class);
+
+	/** Index of the helix fraction in {@link #getSecStrucComposition()} */
+	public static final int HELIX = 0;
+	/** Index of the strand fraction in {@link #getSecStrucComposition()} */
+	public static final int STRAND = 1;
+	/** Index of the coil fraction in {@link #getSecStrucComposition()} */
+	public static final int COIL = 2;
+
+	private final int length;
+	private final double[] secStrucComposition;
+	private final double binWidth;
+	private final double[] distanceHistogram;
+
+	/**
+	 * @param length
+	 *            number of residues
+	 * @param secStrucComposition
+	 *            fractions of helix, strand and coil residues, or null if
+	 *            unknown
+	 * @param binWidth
+	 *            width of the histogram bins, in Angstrom
+	 * @param distanceHistogram
+	 *            fraction of residue pairs in each distance bin
+	 */
+	public StructureDescriptor(int length, double[] secStrucComposition, double binWidth, double[] distanceHistogram) {
+		this.length = length;
+		this.secStrucComposition = secStrucComposition;
+		this.binWidth = binWidth;
+		this.distanceHistogram = distanceHistogram;
+	}
+
+	/**
+	 * Computes the descriptor of a set of representative atoms.
+	 * <p>
+	 * The secondary structure is taken from the {@link Group#SEC_STRUC}
+	 * property of the groups if it is set. Otherwise it is calculated with
+	 * {@link SecStrucCalc} on the structure the atoms belong to, without
+	 * modifying its groups, which may be shared with other threads. If that is
+	 * not possible, e.g. for CA-only structures, the composition is left
+	 * unknown.
+	 *
+	 * @param ca
+	 *            representative atoms, e.g. from
+	 *            {@link org.biojava.nbio.structure.StructureTools#getRepresentativeAtomArray(Structure)}
+	 * @param params
+	 *            defines the histogram bins
+	 * @return the descriptor
+	 */
+	public static StructureDescriptor compute(Atom[] ca, ScreeningParameters params) {
+		double binWidth = params.getHistogramBinWidth();
+		return new StructureDescriptor(ca.length, calcSecStrucComposition(ca), binWidth,
+				calcDistanceHistogram(ca, binWidth, params.getHistogramMaxDistance()));
+	}
+
+	private static double[] calcDistanceHistogram(Atom[] ca, double binWidth, double maxDistance) {
+		int nBins = (int) Math.ceil(maxDistance / binWidth) + 1;
+		double[] hist = new double[nBins];
+		int n = ca.length;
+		if (n < 2)
+			return hist;
+
+		double[] xyz = Calc.atomsToCoordinates(ca, null);
+		// the last bin collects all longer distances
+		double maxSq = (nBins - 1) * binWidth;
+		maxSq *= maxSq;
+		for (int i = 0; i < n; i++) {
+			double x = xyz[3 * i];
+			double y = xyz[3 * i + 1];
+			double z = xyz[3 * i + 2];
+			for (int j = i + 1; j < n; j++) {
+				double dx = x - xyz[3 * j];
+				double dy = y - xyz[3 * j + 1];
+				double dz = z - xyz[3 * j + 2];
+				double dsq = dx * dx + dy * dy + dz * dz;
+				if (dsq >= maxSq)
+					hist[nBins - 1]++;
+				else
+					hist[(int) (Math.sqrt(dsq) / binWidth)]++;
+			}
+		}
+		double pairs = n * (n - 1) / 2.0;
+		for (int b = 0; b < nBins; b++)
+			hist[b] /= pairs;
+		return hist;
+	}
+
+	private static double[] calcSecStrucComposition(Atom[] ca) {
+		if (ca.length == 0)
+			return null;
+		// calculated types by residue, if the groups have no assignment
+		Map<ResidueNumber, SecStrucType> calculated = null;
+		if (!hasSecStruc(ca)) {
+			Structure s = getStructure(ca);
+			if (s == null)
+				return null;
+			try {
+				calculated = new HashMap<>();
+				for (SecStrucState state : new SecStrucCalc().calculate(s, false)) {
+					// the first model wins for structures with several models
+					calculated.putIfAbsent(state.getGroup().getResidueNumber(), state.getType());
+				}
+			} catch (StructureException e) {
+				logger.debug("Could not calculate the secondary structure of {}: {}", s.getName(), e.getMessage());
+				return null;
+			}
+		}
+		double[] composition = new double[3];
+		int known = 0;
+		for (Atom a : ca) {
+			SecStrucType type;
+			if (calculated != null) {
+				type = calculated.get(a.getGroup().getResidueNumber());
+			} else {
+				Object ss = a.getGroup().getProperty(Group.SEC_STRUC);
+				type = ss instanceof SecStrucInfo ? ((SecStrucInfo) ss).getType() : null;
+			}
+			if (type == null)
+				continue;
+			known++;
+			if (type.isHelixType())
+				composition[HELIX]++;
+			else if (type.isBetaStrand())
+				composition[STRAND]++;
+			else
+				composition[COIL]++;
+		}
+		if (known == 0)
+			return null;
+		for (int i = 0; i < composition.length; i++)
+			composition[i] /= known;
+		return composition;
+	}
+
+	private static boolean hasSecStruc(Atom[] ca) {
+		for (Atom a : ca) {
+			if (a.getGroup() != null && a.getGroup().getProperty(Group.SEC_STRUC) != null)
+				return true;
+		}
+		return false;
+	}
+
+	private static Structure getStructure(Atom[] ca) {
+		Group g = ca[0].getGroup();
+		if (g == null)
+			return null;
+		Chain c = g.getChain();
+		return c == null ? null : c.getStructure();
+	}
+
+	/**
+	 * @return the number of residues
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * @return the fractions of helix, strand and coil residues, indexed by
+	 *         {@link #HELIX}, {@link #STRAND} and {@link #COIL}, or null if
+	 *         unknown
+	 */
+	public double[] getSecStrucComposition() {
+		return secStrucComposition;
+	}
+
+	/**
+	 * @return the width of the histogram bins, in Angstrom
+	 */
+	public double getHistogramBinWidth() {
+		return binWidth;
+	}
+
+	/**
+	 * @return the fraction of residue pairs per distance bin. The last bin
+	 *         holds all pairs at larger distances.
+	 */
+	public double[] getDistanceHistogram() {
+		return distanceHistogram;
+	}
+
+	/**
+	 * @param other
+	 * @return the ratio of the shorter to the longer length, between 0 and 1
+	 */
+	public double getLengthRatio(StructureDescriptor other) {
+		int max = Math.max(length, other.length);
+		return max == 0 ? 0 : (double) Math.min(length, other.length) / max;
+	}
+
+	/**
+	 * @param other
+	 * @return one minus half the L1 distance of the compositions, between 0
+	 *         and 1, or NaN if either composition is unknown
+	 */
+	public double getSecStrucSimilarity(StructureDescriptor other) {
+		if (secStrucComposition == null || other.secStrucComposition == null)
+			return Double.NaN;
+		double d = 0;
+		for (int i = 0; i < secStrucComposition.length; i++)
+			d += Math.abs(secStrucComposition[i] - other.secStrucComposition[i]);
+		return 1 - d / 2;
+	}
+
+	/**
+	 * @param other
+	 *            a descriptor computed with the same bins
+	 * @return the intersection of the histograms, between 0 and 1
+	 */
+	public double getHistogramSimilarity(StructureDescriptor other) {
+		if (binWidth != other.binWidth || distanceHistogram.length != other.distanceHistogram.length)
+			throw new IllegalArgumentException("Descriptors were computed with different histogram bins");
+		double s = 0;
+		for (int b = 0; b < distanceHistogram.length; b++)
+			s += Math.min(distanceHistogram[b], other.distanceHistogram[b]);
+		return s;
+	}
+
+	/**
+	 * Estimates the similarity of two structures as the weighted mean of the
+	 * length ratio, the secondary structure similarity and the histogram
+	 * similarity. Terms that are unknown are left out.
+	 *
+	 * @param other
+	 * @param params
+	 *            the weights of the terms
+	 * @return a score between 0 (dissimilar) and 1
+	 */
+	public double getSimilarity(StructureDescriptor other, ScreeningParameters params) {
+		double sum = params.getLengthWeight() * getLengthRatio(other);
+		double weights = params.getLengthWeight();
+
+		double sse = getSecStrucSimilarity(other);
+		if (!Double.isNaN(sse)) {
+			sum += params.getSecStrucWeight() * sse;
+			weights += params.getSecStrucWeight();
+		}
+		sum += params.getHistogramWeight() * getHistogramSimilarity(other);
+		weights += params.getHistogramWeight();
+
+		return weights == 0 ? 0 : sum / weights;
+	}
+
+	@Override
+	public String toString() {
+		return "StructureDescriptor [length=" + length + ", secStrucComposition="
+				+ Arrays.toString(secStrucComposition) + "]";
+	}
+}
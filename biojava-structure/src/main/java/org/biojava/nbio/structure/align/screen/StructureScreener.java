@@ -0,0 +1,325 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align.screen;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.StructureException;
+import org.biojava.nbio.structure.align.AllToAllAligner;
+import org.biojava.nbio.structure.align.AllToAllAligner.AlignmentSink;
+import org.biojava.nbio.structure.align.model.AFPChain;
+import org.biojava.nbio.structure.align.util.AtomCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Selects the targets of a structure database search that are worth a full
+ * pairwise alignment, using cheap {@link StructureDescriptor descriptors}.
+ * <p>
+ * Targets are first rejected if their length differs too much from the
+ * query. The others are ranked by the estimated similarity of their
+ * descriptors, and the best ones (above a minimum score, up to a maximum
+ * number) are accepted. Descriptors are kept in memory, so that screening
+ * many queries against the same targets computes each of them only once.
+ * <p>
+ * Since the screen may reject true hits, {@link #search} can align a random
+ * sample of the rejected targets as well and reports the estimated recall.
+ * <p>
+ * Example:
+ *
+ * <pre>
+ * ScreeningParameters params = new ScreeningParameters();
+ * params.setMaxTargets(100);
+ * params.setValidationFraction(0.01);
+ * StructureScreener screener = new StructureScreener(cache, params);
+ * AllToAllAligner aligner = new AllToAllAligner(cache, CeMain.algorithmName);
+ * ScreeningResult result = screener.search(query, targets, aligner,
+ * 		afpChain -&gt; afpChain.getProbability() &gt;= 3.5, afpChain -&gt; out.println(afpChain.toDBSearchResult()));
+ * logger.info("Estimated recall: {}", result.getEstimatedRecall());
+ * </pre>
+ *
+ * @since 7.2.0
+ */
+public class StructureScreener {
+
+	private static final Logger logger = LoggerFactory.getLogger(StructureScreener.class);
+
+	private final AtomCache cache;
+	private final ScreeningParameters params;
+	private final Map<String, StructureDescriptor> descriptors = new ConcurrentHashMap<>();
+	private ForkJoinPool pool;
+
+	/**
+	 * @param cache
+	 *            used to load the structures
+	 * @param params
+	 *            the parameters of the screen
+	 */
+	public StructureScreener(AtomCache cache, ScreeningParameters params) {
+		this.cache = cache;
+		this.params = params;
+	}
+
+	/**
+	 * Returns the descriptor of a structure, computing it from its
+	 * representative atoms if it is not known yet.
+	 *
+	 * @param name
+	 *            a structure identifier
+	 * @return the descriptor
+	 * @throws IOException
+	 * @throws StructureException
+	 */
+	public StructureDescriptor getDescriptor(String name) throws IOException, StructureException {
+		StructureDescriptor descriptor = descriptors.get(name);
+		if (descriptor == null) {
+			Atom[] ca = cache.getRepresentativeAtoms(name);
+			descriptor = StructureDescriptor.compute(ca, params);
+			descriptors.put(name, descriptor);
+		}
+		return descriptor;
+	}
+
+	/**
+	 * Adds a precomputed descriptor, e.g. one that was stored with the
+	 * target database.
+	 *
+	 * @param name
+	 *            a structure identifier
+	 * @param descriptor
+	 *            its descriptor, computed with the same histogram bins
+	 */
+	public void putDescriptor(String name, StructureDescriptor descriptor) {
+		descriptors.put(name, descriptor);
+	}
+
+	/**
+	 * Computes the descriptors of the query and the targets and decides which
+	 * targets pass the screen. Targets that can not be loaded are rejected.
+	 *
+	 * @param query
+	 *            the query identifier
+	 * @param targets
+	 *            target identifiers. Repeated identifiers are screened once.
+	 * @return the screening results of all targets, best first. Rejected
+	 *         targets follow the accepted ones.
+	 * @throws IOException
+	 *             if the query can not be loaded
+	 * @throws StructureException
+	 *             if the query can not be loaded
+	 */
+	public List<ScreeningHit> screen(String query, List<String> targets) throws IOException, StructureException {
+		StructureDescriptor q = getDescriptor(query);
+		computeDescriptors(targets);
+
+		// each target is screened once, in the order of its first occurrence
+		Set<String> unique = new LinkedHashSet<>(targets);
+		List<ScreeningHit> candidates = new ArrayList<>();
+		List<ScreeningHit> rejected = new ArrayList<>();
+		for (String target : unique) {
+			StructureDescriptor t = descriptors.get(target);
+			if (t == null) {
+				rejected.add(new ScreeningHit(target, Double.NaN, Double.NaN, false));
+				continue;
+			}
+			double lengthRatio = q.getLengthRatio(t);
+			if (lengthRatio < params.getMinLengthRatio()) {
+				rejected.add(new ScreeningHit(target, lengthRatio, Double.NaN, false));
+				continue;
+			}
+			double score = q.getSimilarity(t, params);
+			candidates.add(new ScreeningHit(target, lengthRatio, score, score >= params.getMinScore()));
+		}
+		// stable, so that ties keep the input order
+		candidates.sort(Comparator.comparingDouble(ScreeningHit::getScore).reversed());
+
+		List<ScreeningHit> hits = new ArrayList<>(unique.size());
+		List<ScreeningHit> below = new ArrayList<>();
+		int maxTargets = params.getMaxTargets() > 0 ? params.getMaxTargets() : Integer.MAX_VALUE;
+		int accepted = 0;
+		for (ScreeningHit hit : candidates) {
+			if (hit.isAccepted() && accepted < maxTargets) {
+				hits.add(hit);
+				accepted++;
+			} else {
+				below.add(new ScreeningHit(hit.getName(), hit.getLengthRatio(), hit.getScore(), false));
+			}
+		}
+		hits.addAll(below);
+		hits.addAll(rejected);
+		logger.debug("{} of {} targets passed the screen for {}", accepted, unique.size(), query);
+		return hits;
+	}
+
+	private void computeDescriptors(List<String> names) throws IOException {
+		List<Callable<Void>> tasks = new ArrayList<>();
+		for (String name : new HashSet<>(names)) {
+			if (descriptors.containsKey(name))
+				continue;
+			tasks.add(() -> {
+				try {
+					getDescriptor(name);
+				} catch (IOException | StructureException e) {
+					logger.error("Could not load structure {}, rejecting it: {}", name, e.getMessage());
+				}
+				return null;
+			});
+		}
+		if (tasks.isEmpty())
+			return;
+		ForkJoinPool p = pool != null ? pool : ForkJoinPool.commonPool();
+		try {
+			for (Future<Void> f : p.invokeAll(tasks))
+				f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while computing descriptors", e);
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause());
+		}
+	}
+
+	/**
+	 * Screens the targets and aligns the query to the accepted ones, and to a
+	 * random sample of the rejected ones if
+	 * {@link ScreeningParameters#getValidationFraction()} is set. All
+	 * alignments are passed to the sink.
+	 * <p>
+	 * Pairs skipped because of the checkpoint file of the aligner are not
+	 * counted in the result.
+	 *
+	 * @param query
+	 *            the query identifier
+	 * @param targets
+	 *            target identifiers
+	 * @param aligner
+	 *            computes the alignments
+	 * @param isHit
+	 *            decides whether an alignment is a significant hit, e.g. by
+	 *            its TM-score or probability
+	 * @param sink
+	 *            receives the alignments
+	 * @return the statistics of the search
+	 * @throws IOException
+	 * @throws StructureException
+	 */
+	public ScreeningResult search(String query, List<String> targets, AllToAllAligner aligner,
+			Predicate<AFPChain> isHit, AlignmentSink sink) throws IOException, StructureException {
+		List<ScreeningHit> hits = screen(query, targets);
+
+		Set<String> accepted = new HashSet<>();
+		List<String> rejected = new ArrayList<>();
+		List<String> toAlign = new ArrayList<>();
+		for (ScreeningHit hit : hits) {
+			if (hit.isAccepted()) {
+				accepted.add(hit.getName());
+				toAlign.add(hit.getName());
+			} else if (!Double.isNaN(hit.getLengthRatio())) {
+				rejected.add(hit.getName());
+			}
+		}
+
+		int nValidation = (int) Math.ceil(params.getValidationFraction() * rejected.size());
+		if (nValidation > 0) {
+			Collections.shuffle(rejected, new Random(params.getSeed()));
+			toAlign.addAll(rejected.subList(0, Math.min(nValidation, rejected.size())));
+		}
+
+		int[] counts = new int[3]; // aligned, accepted hits, validation hits
+		aligner.alignOneToAll(query, toAlign, afpChain -> {
+			counts[0]++;
+			if (isHit.test(afpChain)) {
+				if (accepted.contains(afpChain.getName2()))
+					counts[1]++;
+				else
+					counts[2]++;
+			}
+			sink.accept(afpChain);
+		});
+		ScreeningResult result = new ScreeningResult(hits, accepted.size(), rejected.size(), toAlign.size() - accepted.size(),
+				counts[0], counts[1], counts[2]);
+		logger.info("Screened search of {}: {}", query, result);
+		return result;
+	}
+
+	/**
+	 * Computes the recall of a screen on a benchmark with known hits.
+	 *
+	 * @param hits
+	 *            the result of {@link #screen(String, List)}
+	 * @param knownHits
+	 *            the identifiers of the targets that are true hits
+	 * @return the fraction of the known hits that passed the screen, or NaN
+	 *         if there are no known hits
+	 */
+	public static double getRecall(List<ScreeningHit> hits, Collection<String> knownHits) {
+		if (knownHits.isEmpty())
+			return Double.NaN;
+		Set<String> known = new HashSet<>(knownHits);
+		int found = 0;
+		for (ScreeningHit hit : hits) {
+			if (hit.isAccepted() && known.contains(hit.getName()))
+				found++;
+		}
+		return (double) found / known.size();
+	}
+
+	public ScreeningParameters getParameters() {
+		return params;
+	}
+
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * @param pool
+	 *            the pool to compute descriptors in, or null (the default)
+	 *            for the {@link ForkJoinPool#commonPool() common pool}
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Removes all descriptors from memory.
+	 */
+	public void clear() {
+		descriptors.clear();
+	}
+}
@@ -20,12 +20,15 @@
  */
 package org.biojava.nbio.structure.align.util;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
-import java.util.TreeSet;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.UnaryOperator;
 
 import org.biojava.nbio.core.util.InputStreamProvider;
 import org.biojava.nbio.structure.*;
@@ -33,9 +36,12 @@ import org.biojava.nbio.structure.align.client.StructureName;
 import org.biojava.nbio.structure.cath.CathDatabase;
 import org.biojava.nbio.structure.cath.CathDomain;
 import org.biojava.nbio.structure.cath.CathFactory;
+import org.biojava.nbio.structure.compact.CompactCifConverter;
+import org.biojava.nbio.structure.compact.CompactStructure;
 import org.biojava.nbio.structure.io.BcifFileReader;
 import org.biojava.nbio.structure.io.CifFileReader;
 import org.biojava.nbio.structure.io.FileParsingParameters;
+import org.biojava.nbio.structure.io.LocalPDBDirectory;
 import org.biojava.nbio.structure.io.LocalPDBDirectory.FetchBehavior;
 import org.biojava.nbio.structure.io.LocalPDBDirectory.ObsoleteBehavior;
 import org.biojava.nbio.structure.io.PDBFileReader;
@@ -43,6 +49,7 @@ import org.biojava.nbio.core.util.FileDownloadUtils;
 import org.biojava.nbio.structure.io.StructureFiletype;
 import org.biojava.nbio.structure.quaternary.BiologicalAssemblyBuilder;
 import org.biojava.nbio.structure.quaternary.BiologicalAssemblyTransformation;
+import org.biojava.nbio.structure.quaternary.BiologicalAssemblyView;
 import org.biojava.nbio.structure.scop.ScopDatabase;
 import org.biojava.nbio.structure.scop.ScopDescription;
 import org.biojava.nbio.structure.scop.ScopDomain;
@@ -52,9 +59,9 @@ import org.slf4j.LoggerFactory;
 
 /**
  * A utility class that provides easy access to Structure objects. If you are running a script that is frequently
- * re-using the same PDB structures, the AtomCache keeps an in-memory cache of the files for quicker access. The cache
- * is a soft-cache, this means it won't cause out of memory exceptions, but garbage collects the data if the Java
- * virtual machine needs to free up space. The AtomCache is thread-safe.
+ * re-using the same PDB structures, set a {@link StructureCache} with {@link #setStructureCache(StructureCache)} to
+ * keep the parsed structures in memory for quicker access. The cache is bounded by number of entries and estimated
+ * heap size, evicting the least recently used structures. The AtomCache is thread-safe.
  *
  * @author Andreas Prlic
  * @author Spencer Bliven
@@ -82,8 +89,11 @@ public class AtomCache {
 	private ObsoleteBehavior obsoleteBehavior;
 	private String cachePath;
 
-	// make sure IDs are loaded uniquely
-	private final Collection<String> currentlyLoading = Collections.synchronizedCollection(new TreeSet<>());
+	// make sure IDs are loaded uniquely: completed with the result of the thread loading the ID
+	private final Map<String, CompletableFuture<Object>> currentlyLoading = new ConcurrentHashMap<>();
+
+	// optional in-memory cache of parsed structures
+	private StructureCache structureCache;
 
 	private String path;
 	private StructureFiletype filetype = StructureFiletype.BCIF;
@@ -252,6 +262,68 @@ public class AtomCache {
 	 */
 	public Structure getBiologicalAssembly(PdbId pdbId, int bioAssemblyId, boolean multiModel)
 			throws StructureException, IOException {
+		AssemblySource source = loadAssemblySource(pdbId, bioAssemblyId);
+
+		if (source.transformations == null) {
+			// 0 ... asym unit
+			if (bioAssemblyId == 0) {
+				logger.info("Requested biological assembly 0 for PDB id {}, returning asymmetric unit", pdbId);
+			} else {
+				logger.info("No bioassembly information found for {}, returning asymmetric unit as biological assembly", pdbId);
+			}
+			return source.asymUnit;
+		}
+
+		BiologicalAssemblyBuilder builder = new BiologicalAssemblyBuilder();
+		return builder.rebuildQuaternaryStructure(source.asymUnit, source.transformations, source.useAsymIds, multiModel);
+	}
+
+	/**
+	 * Returns a view of the biological assembly for a given PDB ID and bioAssemblyId, in which each
+	 * chain copy is a chain of the asymmetric unit with its transformation. Contacts and symmetry
+	 * of large assemblies can be calculated on the view without copying any chain.
+	 *
+	 * @param pdbId
+	 *            the PDB ID
+	 * @param bioAssemblyId
+	 *            the 1-based index of the biological assembly
+	 * @return the view of the assembly
+	 * @throws IOException
+	 * @throws StructureException if the biological assembly is not available or other problems while loading structure
+	 * @see BiologicalAssemblyBuilder#buildAssemblyView(Structure, List, boolean)
+	 * @since 7.2.0
+	 */
+	public BiologicalAssemblyView getBiologicalAssemblyView(String pdbId, int bioAssemblyId)
+			throws StructureException, IOException {
+		AssemblySource source = loadAssemblySource(new PdbId(pdbId), bioAssemblyId);
+		if (source.transformations == null) {
+			throw new StructureException("No biological assembly available for biological assembly id " + bioAssemblyId + " of " + pdbId);
+		}
+		return new BiologicalAssemblyBuilder().buildAssemblyView(source.asymUnit, source.transformations, source.useAsymIds);
+	}
+
+	/**
+	 * The asymmetric unit of an entry and the transformations of one of its biological assemblies
+	 */
+	private static class AssemblySource {
+		private final Structure asymUnit;
+		// null for the asymmetric unit, or if there is no bioassembly information
+		private final List<BiologicalAssemblyTransformation> transformations;
+		private final boolean useAsymIds;
+
+		private AssemblySource(Structure asymUnit, List<BiologicalAssemblyTransformation> transformations, boolean useAsymIds) {
+			this.asymUnit = asymUnit;
+			this.transformations = transformations;
+			this.useAsymIds = useAsymIds;
+		}
+	}
+
+	/**
+	 * Loads the asymmetric unit with its bioassembly information, and the transformations of a
+	 * biological assembly.
+	 * @throws StructureException if bioAssemblyId is negative, or the assembly is annotated without transformations
+	 */
+	private AssemblySource loadAssemblySource(PdbId pdbId, int bioAssemblyId) throws StructureException, IOException {
 		if (bioAssemblyId < 0) {
 			throw new StructureException("bioAssemblyID must be nonnegative: " + pdbId + " bioAssemblyId "
 					+ bioAssemblyId);
@@ -267,15 +339,14 @@ public class AtomCache {
 
 		getFileParsingParams().setParseBioAssembly(prevIsParseBioAssembly);
 
-		if (asymUnit.getPDBHeader() == null || asymUnit.getPDBHeader().getBioAssemblies() == null) {
-			logger.info("No bioassembly information found for {}, returning asymmetric unit as biological assembly", pdbId);
-			return asymUnit;
+		// if we use mmcif or mmtf, then we need to pass useAsymIds=true
+		boolean useAsymIds = false;
+		if (filetype == StructureFiletype.CIF || filetype == StructureFiletype.BCIF || filetype == StructureFiletype.MMTF) {
+			useAsymIds = true;
 		}
 
-		// 0 ... asym unit
-		if (bioAssemblyId == 0) {
-			logger.info("Requested biological assembly 0 for PDB id {}, returning asymmetric unit", pdbId);
-			return asymUnit;
+		if (asymUnit.getPDBHeader() == null || asymUnit.getPDBHeader().getBioAssemblies() == null || bioAssemblyId == 0) {
+			return new AssemblySource(asymUnit, null, useAsymIds);
 		}
 		// does it exist?
 		if (!asymUnit.getPDBHeader().getBioAssemblies().containsKey(bioAssemblyId)) {
@@ -285,19 +356,10 @@ public class AtomCache {
 		List<BiologicalAssemblyTransformation> transformations =
 				asymUnit.getPDBHeader().getBioAssemblies().get(bioAssemblyId).getTransforms();
 
-
 		if (transformations == null || transformations.size() == 0) {
 			throw new StructureException("Could not load transformations to recreate biological assembly id " + bioAssemblyId + " of " + pdbId);
 		}
-
-		BiologicalAssemblyBuilder builder = new BiologicalAssemblyBuilder();
-
-		// if we use mmcif or mmtf, then we need to pass useAsymIds=true
-		boolean useAsymIds = false;
-		if (filetype == StructureFiletype.CIF || filetype == StructureFiletype.BCIF || filetype == StructureFiletype.MMTF) {
-			useAsymIds = true;
-		}
-		return builder.rebuildQuaternaryStructure(asymUnit, transformations, useAsymIds, multiModel);
+		return new AssemblySource(asymUnit, transformations, useAsymIds);
 	}
 
 	/**
@@ -741,8 +803,89 @@ public class AtomCache {
 		this.filetype = filetype;
 	}
 
-	private boolean checkLoading(PdbId pdbId) {
-		return currentlyLoading.contains(pdbId.getId());
+	/**
+	 * Returns the in-memory structure cache used by
+	 * {@link #getStructureForPdbId(PdbId)}.
+	 * @return the cache, or null if structures are parsed on every request (the default)
+	 * @since 7.2.0
+	 */
+	public StructureCache getStructureCache() {
+		return structureCache;
+	}
+
+	/**
+	 * Sets an in-memory cache of parsed structures, so that repeated requests
+	 * for the same PDB ID (with the same file type and parsing parameters) do
+	 * not parse the file again, and concurrent requests are served by a single
+	 * parse.
+	 * @param structureCache the cache, or null to disable in-memory caching
+	 * @since 7.2.0
+	 */
+	public void setStructureCache(StructureCache structureCache) {
+		this.structureCache = structureCache;
+	}
+
+	/**
+	 * Loads an object of a PDB ID.
+	 */
+	@FunctionalInterface
+	private interface PdbIdLoader<T> {
+		T load() throws IOException;
+	}
+
+	/**
+	 * Loads the given PDB ID, unless another thread is already loading it. The
+	 * first thread to register its future loads the ID and completes the
+	 * future with the result; the others wait for it and get a copy of that
+	 * result. When the other thread loaded another kind of object, for instance
+	 * a {@link CompactStructure} instead of a {@link Structure}, the waiting
+	 * thread loads the ID again, from the now local file.
+	 *
+	 * @param type the kind of object loaded
+	 * @param loader loads the object
+	 * @param copy copies a result loaded by another thread
+	 * @throws IOException if loading fails, also for waiting threads
+	 */
+	private <T> T loadOnce(PdbId pdbId, Class<T> type, PdbIdLoader<T> loader, UnaryOperator<T> copy)
+			throws IOException {
+		String id = pdbId.getId();
+		while (true) {
+			CompletableFuture<Object> future = new CompletableFuture<>();
+			CompletableFuture<Object> pending = currentlyLoading.putIfAbsent(id, future);
+			if (pending == null) {
+				try {
+					T result = loader.load();
+					future.complete(result);
+					return result;
+				} catch (IOException | RuntimeException e) {
+					future.completeExceptionally(e);
+					throw e;
+				} finally {
+					currentlyLoading.remove(id, future);
+				}
+			}
+
+			logger.debug("Waiting for concurrent loading of {}", pdbId);
+			Object result;
+			try {
+				result = pending.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while waiting for " + pdbId + " to load", e);
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof IOException) {
+					throw new IOException(cause.getMessage(), cause);
+				}
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				throw new IOException(cause);
+			}
+			if (type.isInstance(result)) {
+				return copy.apply(type.cast(result));
+			}
+		}
 	}
 
 	/**
@@ -778,15 +921,28 @@ public class AtomCache {
 		return n;
 	}
 
+	/**
+	 * Makes other threads wait until {@link #flagLoadingFinished(PdbId)} before
+	 * loading the given PDB ID.
+	 *
+	 * @deprecated the loading of {@link #getStructureForPdbId(PdbId)} is
+	 *             coalesced without flagging
+	 */
+	@Deprecated
 	protected void flagLoading(PdbId pdbId) {
-		String id = pdbId.getId();
-		if (!currentlyLoading.contains(id)) {
-			currentlyLoading.add(id);
-		}
+		currentlyLoading.putIfAbsent(pdbId.getId(), new CompletableFuture<>());
 	}
 
+	/**
+	 * @deprecated the loading of {@link #getStructureForPdbId(PdbId)} is
+	 *             coalesced without flagging
+	 */
+	@Deprecated
 	protected void flagLoadingFinished(PdbId pdbId) {
-		currentlyLoading.remove(pdbId.getId());
+		CompletableFuture<Object> loading = currentlyLoading.remove(pdbId.getId());
+		if (loading != null) {
+			loading.complete(null);
+		}
 	}
 
 	/**
@@ -811,16 +967,58 @@ public class AtomCache {
 	public Structure getStructureForPdbId(PdbId pdbId) throws IOException {
 		if (pdbId == null)
 			return null;
-		
-		while (checkLoading(pdbId)) {
-			// waiting for loading to be finished...
-			try {
-				Thread.sleep(100);
-			} catch (InterruptedException e) {
-				logger.error(e.getMessage());
-			}
+
+		StructureCache cache = structureCache;
+		if (cache != null) {
+			return cache.get(pdbId, filetype, params, () -> loadStructureByPdbId(pdbId));
 		}
+		return loadStructureByPdbId(pdbId);
+	}
 
+	/**
+	 * Loads a structure by PDB ID into the columns of a {@link CompactStructure}.
+	 * <p>
+	 * mmCIF and BinaryCIF files are read directly into the columns by
+	 * {@link CompactCifConverter}, without creating the atoms and groups of a
+	 * {@link Structure}. PDB files are parsed into a {@link Structure} first.
+	 * The {@link StructureCache} is not used.
+	 *
+	 * @param pdbId the PDB ID
+	 * @return the compact structure
+	 * @throws IOException if the file cannot be fetched or read
+	 * @since 7.2.0
+	 */
+	public CompactStructure getCompactStructure(PdbId pdbId) throws IOException {
+		LocalPDBDirectory reader;
+		switch (filetype) {
+			case CIF:
+				reader = new CifFileReader(path);
+				break;
+			case BCIF:
+				reader = new BcifFileReader(path);
+				break;
+			case PDB: default:
+				return new CompactStructure(getStructureForPdbId(pdbId));
+		}
+
+		return loadOnce(pdbId, CompactStructure.class, () -> {
+			logger.debug("Loading compact structure {} from {} file {}.", pdbId, filetype, path);
+			reader.setFetchBehavior(fetchBehavior);
+			reader.setObsoleteBehavior(obsoleteBehavior);
+			reader.prefetchStructure(pdbId.getId());
+			File file = reader.getLocalFile(pdbId);
+			if (file == null) {
+				throw new IOException("Structure " + pdbId + " not found");
+			}
+			return CompactCifConverter.fromPath(file.toPath(), params);
+		}, cs -> cs);
+	}
+
+	private Structure loadStructureByPdbId(PdbId pdbId) throws IOException {
+		return loadOnce(pdbId, Structure.class, () -> loadStructureByFiletype(pdbId), Structure::clone);
+	}
+
+	private Structure loadStructureByFiletype(PdbId pdbId) throws IOException {
 		switch (filetype) {
 			case CIF:
 				logger.debug("loading from mmcif");
@@ -840,19 +1038,11 @@ public class AtomCache {
 	
 	protected Structure loadStructureFromCifByPdbId(PdbId pdbId) throws IOException {
 		logger.debug("Loading structure {} from mmCIF file {}.", pdbId, path);
-		Structure s;
-		flagLoading(pdbId);
-		try {
-			CifFileReader reader = new CifFileReader(path);
-			reader.setFetchBehavior(fetchBehavior);
-			reader.setObsoleteBehavior(obsoleteBehavior);
-			reader.setFileParsingParameters(params);
-			s = reader.getStructureById(pdbId);
-		} finally {
-			flagLoadingFinished(pdbId);
-		}
-
-		return s;
+		CifFileReader reader = new CifFileReader(path);
+		reader.setFetchBehavior(fetchBehavior);
+		reader.setObsoleteBehavior(obsoleteBehavior);
+		reader.setFileParsingParameters(params);
+		return reader.getStructureById(pdbId);
 	}
 
 	protected Structure loadStructureFromBcifByPdbId(String pdbId) throws IOException {
@@ -860,19 +1050,11 @@ public class AtomCache {
 	}
 	protected Structure loadStructureFromBcifByPdbId(PdbId pdbId) throws IOException {
 		logger.debug("Loading structure {} from BinaryCIF file {}.", pdbId, path);
-		Structure s;
-		flagLoading(pdbId);
-		try {
-			BcifFileReader reader = new BcifFileReader(path);
-			reader.setFetchBehavior(fetchBehavior);
-			reader.setObsoleteBehavior(obsoleteBehavior);
-			reader.setFileParsingParameters(params);
-			s = reader.getStructureById(pdbId);
-		} finally {
-			flagLoadingFinished(pdbId);
-		}
-
-		return s;
+		BcifFileReader reader = new BcifFileReader(path);
+		reader.setFetchBehavior(fetchBehavior);
+		reader.setObsoleteBehavior(obsoleteBehavior);
+		reader.setFileParsingParameters(params);
+		return reader.getStructureById(pdbId);
 	}
 
 	protected Structure loadStructureFromPdbByPdbId(String pdbId) throws IOException {
@@ -881,20 +1063,12 @@ public class AtomCache {
 
 	protected Structure loadStructureFromPdbByPdbId(PdbId pdbId) throws IOException {
 		logger.debug("Loading structure {} from PDB file {}.", pdbId, path);
-		Structure s;
-		flagLoading(pdbId);
-		try {
-			PDBFileReader reader = new PDBFileReader(path);
-			reader.setFetchBehavior(fetchBehavior);
-			reader.setObsoleteBehavior(obsoleteBehavior);
-
-			reader.setFileParsingParameters(params);
+		PDBFileReader reader = new PDBFileReader(path);
+		reader.setFetchBehavior(fetchBehavior);
+		reader.setObsoleteBehavior(obsoleteBehavior);
 
-			s = reader.getStructureById(pdbId);
-		} finally {
-			flagLoadingFinished(pdbId);
-		}
+		reader.setFileParsingParameters(params);
 
-		return s;
+		return reader.getStructureById(pdbId);
 	}
 }
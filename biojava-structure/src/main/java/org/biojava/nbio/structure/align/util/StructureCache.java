@@ -0,0 +1,416 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.biojava.nbio.structure.Chain;
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.PdbId;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.io.FileParsingParameters;
+import org.biojava.nbio.structure.io.StructureFiletype;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An in-memory cache of parsed {@link Structure} objects, used by
+ * {@link AtomCache#getStructureForPdbId(PdbId)} when set with
+ * {@link AtomCache#setStructureCache(StructureCache)}.
+ * <p>
+ * Entries are keyed by PDB ID, file type and {@link FileParsingParameters}, so
+ * the same entry parsed with different parameters is cached separately. The
+ * cache is bounded by a maximum number of entries and optionally by an
+ * estimated heap size (see {@link #estimateSize(Structure)}); when a bound is
+ * exceeded the least recently used entries are evicted.
+ * <p>
+ * Concurrent requests for the same key are coalesced: only one thread parses
+ * the file, the others wait for its result.
+ * <p>
+ * Structures are mutable, and many callers modify them (e.g. by transforming
+ * coordinates or reducing them to a substructure). By default the cache
+ * therefore hands out a {@link Structure#clone() copy} on each hit, which is
+ * still much cheaper than parsing. Callers that only read structures can
+ * disable this with {@link #setCopyOnRead(boolean)}.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @since 7.2.0
+ */
+public class StructureCache {
+
+	private static final Logger logger = LoggerFactory.getLogger(StructureCache.class);
+
+	/** Default maximum number of cached structures */
+	public static final int DEFAULT_MAX_ENTRIES = 200;
+
+	/** Rough heap cost of an atom of the object model (AtomImpl, Point3d, name and bond list) */
+	private static final long BYTES_PER_ATOM = 200;
+	/** Rough heap cost of a group of the object model (group, residue number, atom list and lookup map) */
+	private static final long BYTES_PER_GROUP = 300;
+	/** Rough heap cost of a structure without atoms (header, entities, chains) */
+	private static final long BYTES_PER_STRUCTURE = 10000;
+
+	/**
+	 * Loads a structure on a cache miss.
+	 */
+	@FunctionalInterface
+	public interface StructureLoader {
+		Structure load() throws IOException;
+	}
+
+	private final int maxEntries;
+	private final long maxBytes;
+	private volatile boolean copyOnRead;
+
+	// guarded by itself, in access order for LRU eviction
+	private final LinkedHashMap<Key, CachedStructure> entries;
+	private long currentBytes;
+
+	private final Map<Key, CompletableFuture<Structure>> loading = new ConcurrentHashMap<>();
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong coalesced = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * Creates a cache holding up to {@value #DEFAULT_MAX_ENTRIES} structures.
+	 */
+	public StructureCache() {
+		this(DEFAULT_MAX_ENTRIES, Long.MAX_VALUE);
+	}
+
+	/**
+	 * @param maxEntries
+	 *            maximum number of cached structures
+	 * @param maxBytes
+	 *            maximum estimated heap size of all cached structures, in
+	 *            bytes. Use {@link Long#MAX_VALUE} for no limit.
+	 */
+	public StructureCache(int maxEntries, long maxBytes) {
+		if (maxEntries < 1)
+			throw new IllegalArgumentException("The cache must hold at least one entry");
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+		this.copyOnRead = true;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true);
+	}
+
+	/**
+	 * Returns the cached structure for the given key, loading it with the
+	 * loader if it is not cached. If another thread is already loading the
+	 * same key, waits for its result instead.
+	 *
+	 * @param pdbId
+	 *            the PDB ID
+	 * @param filetype
+	 *            the file type the structure is parsed from
+	 * @param params
+	 *            the parsing parameters. A copy is used as key, so later
+	 *            changes to the parameters do not affect cached entries.
+	 * @param loader
+	 *            the method to load the structure on a miss
+	 * @return the structure, or a copy of it if {@link #isCopyOnRead()}
+	 * @throws IOException
+	 *             if loading fails, also for waiting callers
+	 */
+	public Structure get(PdbId pdbId, StructureFiletype filetype, FileParsingParameters params,
+			StructureLoader loader) throws IOException {
+		Key key = new Key(pdbId, filetype, params);
+
+		Structure s = lookup(key);
+		if (s != null) {
+			hits.incrementAndGet();
+			return copy(s);
+		}
+
+		CompletableFuture<Structure> future = new CompletableFuture<>();
+		CompletableFuture<Structure> pending = loading.putIfAbsent(key, future);
+		if (pending != null) {
+			coalesced.incrementAndGet();
+			logger.debug("Waiting for concurrent loading of {}", pdbId);
+			return copy(await(pending));
+		}
+
+		try {
+			// another thread may have finished loading between the lookup and putIfAbsent
+			s = lookup(key);
+			if (s != null) {
+				hits.incrementAndGet();
+				future.complete(s);
+				return copy(s);
+			}
+
+			misses.incrementAndGet();
+			s = loader.load();
+			if (s != null) {
+				Structure cached = copyOnRead ? s.clone() : s;
+				put(key, cached);
+				future.complete(cached);
+			} else {
+				future.complete(null);
+			}
+			return s;
+		} catch (IOException | RuntimeException e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			loading.remove(key);
+		}
+	}
+
+	private Structure lookup(Key key) {
+		synchronized (entries) {
+			CachedStructure cached = entries.get(key);
+			return cached == null ? null : cached.structure;
+		}
+	}
+
+	private void put(Key key, Structure s) {
+		long size = estimateSize(s);
+		synchronized (entries) {
+			CachedStructure old = entries.put(key, new CachedStructure(s, size));
+			if (old != null)
+				currentBytes -= old.size;
+			currentBytes += size;
+
+			Iterator<CachedStructure> it = entries.values().iterator();
+			// always keep the entry that was just added
+			while ((entries.size() > maxEntries || currentBytes > maxBytes) && entries.size() > 1) {
+				CachedStructure eldest = it.next();
+				currentBytes -= eldest.size;
+				it.remove();
+				evictions.incrementAndGet();
+			}
+		}
+	}
+
+	private Structure copy(Structure s) {
+		if (s == null || !copyOnRead)
+			return s;
+		return s.clone();
+	}
+
+	private static Structure await(CompletableFuture<Structure> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for structure to load");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			throw new IOException(cause);
+		}
+	}
+
+	/**
+	 * Estimates the heap size of a structure from its number of atoms and
+	 * groups. This is a rough approximation meant for bounding the cache, not
+	 * an exact measurement.
+	 *
+	 * @param s
+	 *            a structure
+	 * @return estimated size in bytes
+	 */
+	public static long estimateSize(Structure s) {
+		long atoms = 0;
+		long groups = 0;
+		for (int m = 0; m < s.nrModels(); m++) {
+			for (Chain c : s.getModel(m)) {
+				for (Group g : c.getAtomGroups()) {
+					groups++;
+					atoms += g.size();
+				}
+				groups += c.getSeqResGroups().size();
+			}
+		}
+		return BYTES_PER_STRUCTURE + atoms * BYTES_PER_ATOM + groups * BYTES_PER_GROUP;
+	}
+
+	/**
+	 * Removes all cached structures for a PDB ID, for all file types and
+	 * parsing parameters.
+	 *
+	 * @param pdbId
+	 *            the PDB ID
+	 */
+	public void invalidate(PdbId pdbId) {
+		synchronized (entries) {
+			Iterator<Map.Entry<Key, CachedStructure>> it = entries.entrySet().iterator();
+			while (it.hasNext()) {
+				Map.Entry<Key, CachedStructure> e = it.next();
+				if (e.getKey().pdbId.equals(pdbId)) {
+					currentBytes -= e.getValue().size;
+					it.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes all cached structures. Statistics are not reset.
+	 */
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+			currentBytes = 0;
+		}
+	}
+
+	/**
+	 * @return the number of cached structures
+	 */
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	/**
+	 * @return the estimated heap size of all cached structures, in bytes
+	 */
+	public long getEstimatedBytes() {
+		synchronized (entries) {
+			return currentBytes;
+		}
+	}
+
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * @return the number of requests served from the cache
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of requests that required loading the structure
+	 */
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	/**
+	 * @return the number of requests that waited for a concurrent load of the
+	 *         same structure
+	 */
+	public long getCoalescedCount() {
+		return coalesced.get();
+	}
+
+	/**
+	 * @return the number of structures evicted to respect the size bounds
+	 */
+	public long getEvictionCount() {
+		return evictions.get();
+	}
+
+	/**
+	 * @return the fraction of requests that did not require loading, 0 if
+	 *         there were no requests
+	 */
+	public double getHitRate() {
+		long h = hits.get() + coalesced.get();
+		long total = h + misses.get();
+		return total == 0 ? 0 : (double) h / total;
+	}
+
+	/**
+	 * @return true if copies of the cached structures are returned
+	 */
+	public boolean isCopyOnRead() {
+		return copyOnRead;
+	}
+
+	/**
+	 * Whether to return copies of the cached structures (the default). If
+	 * false, all callers share the same instance and must not modify it.
+	 *
+	 * @param copyOnRead
+	 */
+	public void setCopyOnRead(boolean copyOnRead) {
+		this.copyOnRead = copyOnRead;
+	}
+
+	@Override
+	public String toString() {
+		return "StructureCache [size=" + size() + ", estimatedBytes=" + getEstimatedBytes() + ", hits=" + hits
+				+ ", misses=" + misses + ", coalesced=" + coalesced + ", evictions=" + evictions + "]";
+	}
+
+	private static class CachedStructure {
+		private final Structure structure;
+		private final long size;
+
+		private CachedStructure(Structure structure, long size) {
+			this.structure = structure;
+			this.size = size;
+		}
+	}
+
+	private static class Key {
+		private final PdbId pdbId;
+		private final StructureFiletype filetype;
+		private final FileParsingParameters params;
+
+		private Key(PdbId pdbId, StructureFiletype filetype, FileParsingParameters params) {
+			this.pdbId = pdbId;
+			this.filetype = filetype;
+			this.params = new FileParsingParameters(params);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(pdbId, filetype, params);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof Key))
+				return false;
+			Key other = (Key) obj;
+			return pdbId.equals(other.pdbId) && filetype == other.filetype && params.equals(other.params);
+		}
+	}
+}
@@ -21,16 +21,16 @@
 package org.biojava.nbio.structure.asa;
 
 import org.biojava.nbio.structure.*;
-import org.biojava.nbio.structure.contact.Contact;
+import org.biojava.nbio.structure.contact.ContactVisitor;
 import org.biojava.nbio.structure.contact.Grid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.vecmath.Point3d;
-import javax.vecmath.Vector3d;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 
 /**
@@ -85,43 +85,132 @@ public class AsaCalculator {
 
 
 
-	private class AsaCalcWorker implements Runnable {
+	static class IndexAndDistance {
+		final int index;
+		final double dist;
+		IndexAndDistance(int index, double dist) {
+			this.index = index;
+			this.dist = dist;
+		}
+	}
+
+	/**
+	 * Unit sphere points (flat xyz arrays) per number of points, shared by all calculators
+	 */
+	private static final Map<Integer, double[]> SPHERE_POINTS_CACHE = new ConcurrentHashMap<>();
+
+	/**
+	 * Minimum number of atoms per parallel task
+	 */
+	private static final int MIN_ATOMS_PER_TASK = 64;
+
+	/**
+	 * Neighbor lists in compressed row format: the neighbors of the k-th atom of the calculation
+	 * are nbIndices[nbStarts[k]] to nbIndices[nbStarts[k+1]-1], sorted by increasing distance.
+	 */
+	private static class NeighborList {
+		final int[] nbStarts;
+		final int[] nbIndices;
+		final double[] nbDists;
+		final int maxNeighbors;
+
+		NeighborList(int[] nbStarts, int[] nbIndices, double[] nbDists) {
+			this.nbStarts = nbStarts;
+			this.nbIndices = nbIndices;
+			this.nbDists = nbDists;
+			int max = 0;
+			for (int k=0;k<nbStarts.length-1;k++) {
+				max = Math.max(max, nbStarts[k+1]-nbStarts[k]);
+			}
+			this.maxNeighbors = max;
+		}
+	}
 
-		private final int i;
+	/**
+	 * Calculates the ASAs of a range of atoms, splitting the range in halves until it is small enough.
+	 */
+	private class AsaTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int[] indices;
+		private final NeighborList nbs;
 		private final double[] asas;
+		private final int from;
+		private final int to;
 
-		private AsaCalcWorker(int i, double[] asas) {
-			this.i = i;
+		private AsaTask(int[] indices, NeighborList nbs, double[] asas, int from, int to) {
+			this.indices = indices;
+			this.nbs = nbs;
 			this.asas = asas;
+			this.from = from;
+			this.to = to;
 		}
 
 		@Override
-		public void run() {
-			asas[i] = calcSingleAsa(i);
+		protected void compute() {
+			if (to - from <= MIN_ATOMS_PER_TASK) {
+				calcAsas(indices, nbs, asas, from, to);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new AsaTask(indices, nbs, asas, from, mid), new AsaTask(indices, nbs, asas, mid, to));
 		}
 	}
 
-	static class IndexAndDistance {
-		final int index;
-		final double dist;
-		IndexAndDistance(int index, double dist) {
-			this.index = index;
-			this.dist = dist;
+
+	/**
+	 * Collects the contacts from the grid that can occlude sphere points, counting the neighbors of each atom.
+	 */
+	private class NeighborContacts implements ContactVisitor {
+
+		private final int[] indices;
+		private final int[] nbCounts;
+		private int[] contactI = new int[1024];
+		private int[] contactJ = new int[1024];
+		private double[] contactDists = new double[1024];
+		private int size = 0;
+
+		/**
+		 * @param indices the indices of the atoms in the i coordinates of the grid, or null for all atoms
+		 * @param nbCounts the neighbor counts of atom k are added to nbCounts[k+1]
+		 */
+		private NeighborContacts(int[] indices, int[] nbCounts) {
+			this.indices = indices;
+			this.nbCounts = nbCounts;
 		}
-	}
 
+		@Override
+		public void visit(int l, int j, double dist) {
+			// for a single set contacts are given 1-way only, with j>i
+			int i = indices == null ? l : indices[l];
+			if (i == j || dist >= radii[i] + probe + probe + radii[j]) return;
+
+			if (size == contactI.length) {
+				contactI = Arrays.copyOf(contactI, 2*size);
+				contactJ = Arrays.copyOf(contactJ, 2*size);
+				contactDists = Arrays.copyOf(contactDists, 2*size);
+			}
+			contactI[size] = l;
+			contactJ[size] = j;
+			contactDists[size++] = dist;
+			nbCounts[l+1]++;
+			if (indices == null) nbCounts[j+1]++;
+		}
+	}
 
 	private final Point3d[] atomCoords;
 	private final Atom[] atoms;
 	private final double[] radii;
 	private final double probe;
 	private final int nThreads;
-	private Vector3d[] spherePoints;
-	private double cons;
-	private IndexAndDistance[][] neighborIndices;
+	private final double[] spherePoints;
+	private final double cons;
 
 	private boolean useSpatialHashingForNeighbors;
 
+	private ForkJoinPool pool;
+
 	/**
 	 * Constructs a new AsaCalculator. Subsequently call {@link #calculateAsas()}
 	 * or {@link #getGroupAsas()} to calculate the ASAs
@@ -130,7 +219,8 @@ public class AsaCalculator {
 	 * @param probe the probe size
 	 * @param nSpherePoints the number of points to be used in generating the spherical
 	 *                         dot-density, the more points the more accurate (and slower) calculation
-	 * @param nThreads the number of parallel threads to use for the calculation
+	 * @param nThreads the number of parallel threads to use for the calculation, any value larger than 1
+	 * runs the calculation in parallel, see {@link #setPool(ForkJoinPool)}
 	 * @param hetAtoms if true HET residues are considered, if false they aren't, equivalent to
 	 * NACCESS' -h option
 	 */
@@ -148,7 +238,9 @@ public class AsaCalculator {
 			radii[i] = getRadius(atoms[i]);
 		}
 
-		initSpherePoints(nSpherePoints);
+		logger.debug("Will use {} sphere points", nSpherePoints);
+		spherePoints = getSpherePoints(nSpherePoints);
+		cons = 4.0 * Math.PI / nSpherePoints;
 	}
 
 	/**
@@ -158,7 +250,8 @@ public class AsaCalculator {
 	 * @param probe the probe size
 	 * @param nSpherePoints the number of points to be used in generating the spherical
 	 * dot-density, the more points the more accurate (and slower) calculation
-	 * @param nThreads the number of parallel threads to use for the calculation
+	 * @param nThreads the number of parallel threads to use for the calculation, any value larger than 1
+	 * runs the calculation in parallel, see {@link #setPool(ForkJoinPool)}
 	 * @throws IllegalArgumentException if any atom in the array is a Hydrogen atom
 	 */
 	public AsaCalculator(Atom[] atoms, double probe, int nSpherePoints, int nThreads) {
@@ -180,11 +273,13 @@ public class AsaCalculator {
 			radii[i] = getRadius(atoms[i]);
 		}
 
-		initSpherePoints(nSpherePoints);
+		logger.debug("Will use {} sphere points", nSpherePoints);
+		spherePoints = getSpherePoints(nSpherePoints);
+		cons = 4.0 * Math.PI / nSpherePoints;
 	}
 
 	/**
-	 * Constructs a new AsaCalculator. Subsequently call {@link #calcSingleAsa(int)}
+	 * Constructs a new AsaCalculator. Subsequently call {@link #calculateAsas()}
 	 * to calculate the atom ASAs. The given radius parameter will be taken as the radius for
 	 * all points given. No ASA calculation per group will be possible with this constructor, so
 	 * usage of {@link #getGroupAsas()} will result in a NullPointerException.
@@ -196,7 +291,8 @@ public class AsaCalculator {
 	 * 				the number of points to be used in generating the spherical
 	 * 				dot-density, the more points the more accurate (and slower) calculation
 	 * @param nThreads
-	 * 				the number of parallel threads to use for the calculation
+	 * 				the number of parallel threads to use for the calculation, any value larger than 1
+	 * 				runs the calculation in parallel, see {@link #setPool(ForkJoinPool)}
 	 * @param radius
 	 * 				the radius that will be assign to all given coordinates
 	 */
@@ -214,17 +310,45 @@ public class AsaCalculator {
 			radii[i] = radius;
 		}
 
-		initSpherePoints(nSpherePoints);
+		logger.debug("Will use {} sphere points", nSpherePoints);
+		spherePoints = getSpherePoints(nSpherePoints);
+		cons = 4.0 * Math.PI / nSpherePoints;
 	}
 
-	private void initSpherePoints(int nSpherePoints) {
+	/**
+	 * Sets the pool that runs the calculation when more than 1 thread was requested.
+	 * By default (or if null) the common pool is used. Pools can be shared between calculators.
+	 * @param pool the pool
+	 * @since 7.2.0
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
 
-		logger.debug("Will use {} sphere points", nSpherePoints);
+	/**
+	 * @return the pool set with {@link #setPool(ForkJoinPool)}, or null if the common pool is used
+	 * @since 7.2.0
+	 */
+	public ForkJoinPool getPool() {
+		return pool;
+	}
 
-		// initialising the sphere points to sample
-		spherePoints = generateSpherePoints(nSpherePoints);
+	/**
+	 * Sets the coordinates of the atoms, to calculate the ASAs of another conformation of the
+	 * same atoms without looking up their radii again. When constructed from points, the given
+	 * points are modified.
+	 * @param coords the coordinates of the atoms in the order given in constructor, with the
+	 * coordinates of atom i at indices 3*i, 3*i+1 and 3*i+2
+	 * @throws IllegalArgumentException if the length of the coordinates doesn't match the number of atoms
+	 * @since 7.2.0
+	 */
+	public void setCoordinates(double[] coords) {
+		if (coords.length != 3*atomCoords.length)
+			throw new IllegalArgumentException("Expected coordinates of "+atomCoords.length+" atoms, got "+coords.length+" values");
 
-		cons = 4.0 * Math.PI / nSpherePoints;
+		for (int i=0;i<atomCoords.length;i++) {
+			atomCoords[i].set(coords[3*i], coords[3*i+1], coords[3*i+2]);
+		}
 	}
 
 	/**
@@ -257,52 +381,120 @@ public class AsaCalculator {
 
 	/**
 	 * Calculates the Accessible Surface Areas for the atoms given in constructor and with parameters given.
-	 * Beware that the parallel implementation is quite memory hungry. It scales well as long as there is
-	 * enough memory available.
 	 * @return an array with asa values corresponding to each atom of the input array
 	 */
 	public double[] calculateAsas() {
+		return calculateAsas(null);
+	}
 
-		double[] asas = new double[atomCoords.length];
+	/**
+	 * Calculates the Accessible Surface Areas of a subset of the atoms given in constructor. All atoms
+	 * are considered as possible neighbors of the subset.
+	 * @param indices the indices of the atoms to calculate, or null for all atoms
+	 * @return an array with asa values corresponding to each of the given indices
+	 * @since 7.2.0
+	 */
+	public double[] calculateAsas(int[] indices) {
+
+		int n = indices == null ? atomCoords.length : indices.length;
+		double[] asas = new double[n];
 
 		long start = System.currentTimeMillis();
+		NeighborList nbs;
 		if (useSpatialHashingForNeighbors) {
 			logger.debug("Will use spatial hashing to find neighbors");
-			neighborIndices = findNeighborIndicesSpatialHashing();
+			nbs = calcNeighborsSpatialHashing(indices);
 		} else {
 			logger.debug("Will not use spatial hashing to find neighbors");
-			neighborIndices = findNeighborIndices();
+			nbs = toNeighborList(findNeighborIndices(indices));
 		}
 		long end = System.currentTimeMillis();
 		logger.debug("Took {} s to find neighbors", (end-start)/1000.0);
 
 		start = System.currentTimeMillis();
-		if (nThreads<=1) { // (i.e. it will also be 1 thread if 0 or negative number specified)
+		if (nThreads<=1 || n<=MIN_ATOMS_PER_TASK) { // (i.e. it will also be 1 thread if 0 or negative number specified)
 			logger.debug("Will use 1 thread for ASA calculation");
-			for (int i=0;i<atomCoords.length;i++) {
-				asas[i] = calcSingleAsa(i);
-			}
-
+			calcAsas(indices, nbs, asas, 0, n);
 		} else {
-			logger.debug("Will use {} threads for ASA calculation", nThreads);
+			ForkJoinPool p = pool == null ? ForkJoinPool.commonPool() : pool;
+			logger.debug("Will use a pool with parallelism {} for ASA calculation", p.getParallelism());
+			p.invoke(new AsaTask(indices, nbs, asas, 0, n));
+		}
+		end = System.currentTimeMillis();
+		logger.debug("Took {} s to calculate {} atoms ASAs (excluding neighbors calculation)", (end-start)/1000.0, n);
 
-			ExecutorService threadPool = Executors.newFixedThreadPool(nThreads);
+		return asas;
+	}
 
-			for (int i=0;i<atomCoords.length;i++) {
-				threadPool.submit(new AsaCalcWorker(i,asas));
-			}
+	/**
+	 * Calculates the Accessible Surface Areas of a complex of two molecules, given the ASAs of the
+	 * separate molecules. The atoms given in constructor must be the atoms of the first molecule
+	 * followed by the atoms of the second one, with the same coordinates that were used to calculate
+	 * the ASAs of the separate molecules.
+	 * <p>
+	 * Only the atoms that are close enough to be occluded by the other molecule are calculated,
+	 * for all others the ASA of the separate molecule is used. For large molecules with small
+	 * interfaces this is much faster than calculating all atoms.
+	 * @param asas1 the ASAs of the atoms of the first molecule
+	 * @param asas2 the ASAs of the atoms of the second molecule
+	 * @return an array with asa values corresponding to each atom of the complex
+	 * @throws IllegalArgumentException if the number of ASAs does not match the number of atoms
+	 * @since 7.2.0
+	 */
+	public double[] calculateComplexAsas(double[] asas1, double[] asas2) {
+		if (asas1.length + asas2.length != atomCoords.length)
+			throw new IllegalArgumentException("The size of ASAs of complex doesn't match that of ASAs 1 + ASAs 2");
 
-			threadPool.shutdown();
+		double[] asas = new double[atomCoords.length];
+		System.arraycopy(asas1, 0, asas, 0, asas1.length);
+		System.arraycopy(asas2, 0, asas, asas1.length, asas2.length);
 
-			while (!threadPool.isTerminated());
+		int[] indices = findInterfaceIndices(asas1.length);
+		logger.debug("Will recalculate ASA for {} of {} atoms in complex", indices.length, atomCoords.length);
+		if (indices.length == 0)
+			return asas;
 
+		double[] interfaceAsas = calculateAsas(indices);
+		for (int k=0;k<indices.length;k++) {
+			asas[indices[k]] = interfaceAsas[k];
 		}
-		end = System.currentTimeMillis();
-		logger.debug("Took {} s to calculate all {} atoms ASAs (excluding neighbors calculation)", (end-start)/1000.0, atomCoords.length);
-
 		return asas;
 	}
 
+	/**
+	 * Finds the atoms of each of two molecules whose sphere points can be occluded by atoms of the
+	 * other molecule.
+	 * @param n1 the number of atoms of the first molecule
+	 * @return the indices of the atoms, in increasing order
+	 */
+	int[] findInterfaceIndices(int n1) {
+		int n2 = atomCoords.length - n1;
+		if (n1 == 0 || n2 == 0)
+			return new int[0];
+
+		Grid grid = new Grid(getNeighborCutoff());
+		grid.addCoords(Arrays.copyOfRange(atomCoords, 0, n1), Arrays.copyOfRange(atomCoords, n1, atomCoords.length));
+
+		boolean[] inInterface = new boolean[atomCoords.length];
+		grid.visitContacts((i, j, distance) -> {
+			if (distance < radii[i] + radii[j + n1] + probe + probe) {
+				inInterface[i] = true;
+				inInterface[j + n1] = true;
+			}
+		});
+
+		int count = 0;
+		for (boolean b : inInterface) {
+			if (b) count++;
+		}
+		int[] indices = new int[count];
+		count = 0;
+		for (int i=0;i<inInterface.length;i++) {
+			if (inInterface[i]) indices[count++] = i;
+		}
+		return indices;
+	}
+
 	/**
 	 * Set the useSpatialHashingForNeighbors flag to use spatial hashing to calculate neighbors (true) or all-to-all
 	 * distance calculation (false). Default is {@value DEFAULT_USE_SPATIAL_HASHING}.
@@ -314,20 +506,27 @@ public class AsaCalculator {
 	}
 
 	/**
-	 * Returns list of 3d coordinates of points on a unit sphere using the
-	 * Golden Section Spiral algorithm.
+	 * Returns the coordinates of points on a unit sphere generated with the Golden Section Spiral
+	 * algorithm. The points are generated once for each number of points and then shared:
+	 * the returned array must not be modified.
 	 * @param nSpherePoints the number of points to be used in generating the spherical dot-density
-	 * @return the array of points as Vector3d objects
+	 * @return the x,y,z coordinates of the points in a flat array of size 3*nSpherePoints
 	 */
-	private Vector3d[] generateSpherePoints(int nSpherePoints) {
-		Vector3d[] points = new Vector3d[nSpherePoints];
+	static double[] getSpherePoints(int nSpherePoints) {
+		return SPHERE_POINTS_CACHE.computeIfAbsent(nSpherePoints, AsaCalculator::generateSpherePoints);
+	}
+
+	private static double[] generateSpherePoints(int nSpherePoints) {
+		double[] points = new double[3*nSpherePoints];
 		double inc = Math.PI * (3.0 - Math.sqrt(5.0));
 		double offset = 2.0 / nSpherePoints;
 		for (int k=0;k<nSpherePoints;k++) {
 			double y = k * offset - 1.0 + (offset / 2.0);
 			double r = Math.sqrt(1.0 - y*y);
 			double phi = k * inc;
-			points[k] = new Vector3d(Math.cos(phi)*r, y, Math.sin(phi)*r);
+			points[3*k] = Math.cos(phi)*r;
+			points[3*k+1] = y;
+			points[3*k+2] = Math.sin(phi)*r;
 		}
 		return points;
 	}
@@ -337,13 +536,24 @@ public class AsaCalculator {
 	 * @return 2-dimensional array of size: n_atoms x n_neighbors_per_atom
 	 */
 	IndexAndDistance[][] findNeighborIndices() {
+		return findNeighborIndices(null);
+	}
+
+	/**
+	 * Returns the neighbor indices for the given atoms, using all to all distance calculation.
+	 * @param indices the indices of the atoms, or null for all atoms
+	 * @return 2-dimensional array of size: n_indices x n_neighbors_per_atom
+	 */
+	private IndexAndDistance[][] findNeighborIndices(int[] indices) {
 
 		// looking at a typical protein case, number of neighbours are from ~10 to ~50, with an average of ~30
 		int initialCapacity = 60;
 
-		IndexAndDistance[][] nbsIndices = new IndexAndDistance[atomCoords.length][];
+		int n = indices == null ? atomCoords.length : indices.length;
+		IndexAndDistance[][] nbsIndices = new IndexAndDistance[n][];
 
-		for (int k=0; k<atomCoords.length; k++) {
+		for (int l=0; l<n; l++) {
+			int k = indices == null ? l : indices[l];
 			double radius = radii[k] + probe + probe;
 
 			List<IndexAndDistance> thisNbIndices = new ArrayList<>(initialCapacity);
@@ -359,7 +569,7 @@ public class AsaCalculator {
 			}
 
 			IndexAndDistance[] indicesArray = thisNbIndices.toArray(new IndexAndDistance[0]);
-			nbsIndices[k] = indicesArray;
+			nbsIndices[l] = indicesArray;
 		}
 		return nbsIndices;
 	}
@@ -370,110 +580,161 @@ public class AsaCalculator {
 	 * @return 2-dimensional array of size: n_atoms x n_neighbors_per_atom
 	 */
 	IndexAndDistance[][] findNeighborIndicesSpatialHashing() {
+		NeighborList nbs = calcNeighborsSpatialHashing(null);
+		IndexAndDistance[][] nbsIndices = new IndexAndDistance[atomCoords.length][];
+		for (int k=0;k<atomCoords.length;k++) {
+			nbsIndices[k] = new IndexAndDistance[nbs.nbStarts[k+1]-nbs.nbStarts[k]];
+			for (int m=nbs.nbStarts[k];m<nbs.nbStarts[k+1];m++) {
+				nbsIndices[k][m-nbs.nbStarts[k]] = new IndexAndDistance(nbs.nbIndices[m], nbs.nbDists[m]);
+			}
+		}
+		return nbsIndices;
+	}
 
-		// looking at a typical protein case, number of neighbours are from ~10 to ~50, with an average of ~30
-		int initialCapacity = 60;
+	/**
+	 * Finds the neighbors of the given atoms using spatial hashing to avoid all to all distance calculation.
+	 * @param indices the indices of the atoms, or null for all atoms
+	 */
+	private NeighborList calcNeighborsSpatialHashing(int[] indices) {
+		int n = indices == null ? atomCoords.length : indices.length;
+		int[] nbStarts = new int[n+1];
+		if (atomCoords.length == 0)
+			return new NeighborList(nbStarts, new int[0], new double[0]);
 
-		List<Contact> contactList = calcContacts();
-		Map<Integer, List<IndexAndDistance>> indices = new HashMap<>(atomCoords.length);
-		for (Contact contact : contactList) {
-			// note contacts are stored 1-way only, with j>i
-			int i = contact.getI();
-			int j = contact.getJ();
-
-			List<IndexAndDistance> iIndices;
-			List<IndexAndDistance> jIndices;
-			if (!indices.containsKey(i)) {
-				iIndices = new ArrayList<>(initialCapacity);
-				indices.put(i, iIndices);
-			} else {
-				iIndices = indices.get(i);
-			}
-			if (!indices.containsKey(j)) {
-				jIndices = new ArrayList<>(initialCapacity);
-				indices.put(j, jIndices);
-			} else {
-				jIndices = indices.get(j);
+		// keep only the contacts that can occlude sphere points, count the neighbors of each atom
+		NeighborContacts contacts = new NeighborContacts(indices, nbStarts);
+		Grid grid = new Grid(getNeighborCutoff());
+		if (indices == null) {
+			grid.addCoords(atomCoords);
+		} else {
+			Point3d[] coords = new Point3d[n];
+			for (int l=0;l<n;l++) {
+				coords[l] = atomCoords[indices[l]];
 			}
+			grid.addCoords(coords, atomCoords);
+		}
+		grid.visitContacts(contacts);
+		int[] contactI = contacts.contactI;
+		int[] contactJ = contacts.contactJ;
+		double[] contactDists = contacts.contactDists;
+		int nContacts = contacts.size;
+
+		for (int l=0;l<n;l++) {
+			nbStarts[l+1] += nbStarts[l];
+		}
 
-			double radius = radii[i] + probe + probe;
-			double dist = contact.getDistance();
-			if (dist < radius + radii[j]) {
-				iIndices.add(new IndexAndDistance(j, dist));
-				jIndices.add(new IndexAndDistance(i, dist));
+		int[] nbIndices = new int[nbStarts[n]];
+		double[] nbDists = new double[nbStarts[n]];
+		int[] fill = Arrays.copyOf(nbStarts, n);
+		for (int c=0;c<nContacts;c++) {
+			int l = contactI[c];
+			int j = contactJ[c];
+			nbIndices[fill[l]] = j;
+			nbDists[fill[l]++] = contactDists[c];
+			if (indices == null) {
+				nbIndices[fill[j]] = l;
+				nbDists[fill[j]++] = contactDists[c];
 			}
 		}
+		sortByDistance(nbStarts, nbIndices, nbDists);
+		return new NeighborList(nbStarts, nbIndices, nbDists);
+	}
 
-		// convert map to array for fast access
-		IndexAndDistance[][] nbsIndices = new IndexAndDistance[atomCoords.length][];
-		for (Map.Entry<Integer, List<IndexAndDistance>> entry : indices.entrySet()) {
-			List<IndexAndDistance> list = entry.getValue();
-			IndexAndDistance[] indexAndDistances = list.toArray(new IndexAndDistance[0]);
-			nbsIndices[entry.getKey()] = indexAndDistances;
+	private static NeighborList toNeighborList(IndexAndDistance[][] nbsIndices) {
+		int[] nbStarts = new int[nbsIndices.length+1];
+		for (int k=0;k<nbsIndices.length;k++) {
+			nbStarts[k+1] = nbStarts[k] + nbsIndices[k].length;
 		}
-
-		// important: some atoms might have no neighbors at all: we need to initialise to empty arrays
-		for (int i=0; i<nbsIndices.length; i++) {
-			if (nbsIndices[i] == null) {
-				nbsIndices[i] = new IndexAndDistance[0];
+		int[] nbIndices = new int[nbStarts[nbsIndices.length]];
+		double[] nbDists = new double[nbIndices.length];
+		for (int k=0;k<nbsIndices.length;k++) {
+			for (int m=0;m<nbsIndices[k].length;m++) {
+				nbIndices[nbStarts[k]+m] = nbsIndices[k][m].index;
+				nbDists[nbStarts[k]+m] = nbsIndices[k][m].dist;
 			}
 		}
+		sortByDistance(nbStarts, nbIndices, nbDists);
+		return new NeighborList(nbStarts, nbIndices, nbDists);
+	}
 
-		return nbsIndices;
+	/**
+	 * Sorts each neighbor list by closest to farthest away neighbors (insertion sort, the lists are short).
+	 * This achieves faster runtimes when checking for occluded sphere sample points, following the ideas exposed in
+	 * Eisenhaber et al, J Comp Chemistry 1994 (https://onlinelibrary.wiley.com/doi/epdf/10.1002/jcc.540160303)
+	 */
+	private static void sortByDistance(int[] nbStarts, int[] nbIndices, double[] nbDists) {
+		for (int k=0;k<nbStarts.length-1;k++) {
+			for (int m=nbStarts[k]+1;m<nbStarts[k+1];m++) {
+				int index = nbIndices[m];
+				double dist = nbDists[m];
+				int p = m - 1;
+				while (p >= nbStarts[k] && nbDists[p] > dist) {
+					nbIndices[p+1] = nbIndices[p];
+					nbDists[p+1] = nbDists[p];
+					p--;
+				}
+				nbIndices[p+1] = index;
+				nbDists[p+1] = dist;
+			}
+		}
 	}
 
 	Point3d[] getAtomCoords() {
 		return atomCoords;
 	}
 
-	private List<Contact> calcContacts() {
-		if (atomCoords.length == 0)
-			return new ArrayList<>();
+	/**
+	 * @return the largest distance at which two atoms can occlude each other's sphere points
+	 */
+	private double getNeighborCutoff() {
 		double maxRadius = 0;
-		OptionalDouble optionalDouble = Arrays.stream(radii).max();
-		if (optionalDouble.isPresent())
-			maxRadius = optionalDouble.getAsDouble();
+		for (double radius : radii) {
+			maxRadius = Math.max(maxRadius, radius);
+		}
 		double cutoff = maxRadius + maxRadius + probe + probe;
 		logger.debug("Max radius is {}, cutoff is {}", maxRadius, cutoff);
-		Grid grid = new Grid(cutoff);
-		grid.addCoords(atomCoords);
-		return grid.getIndicesContacts();
+		return cutoff;
+	}
+
+	/**
+	 * Calculates the ASAs of the atoms from (inclusive) to to (exclusive) of the neighbor list.
+	 */
+	private void calcAsas(int[] indices, NeighborList nbs, double[] asas, int from, int to) {
+		// per-neighbor terms of equation 3 in Eisenhaber 1994, reused for all atoms of the range
+		int capacity = nbs.maxNeighbors;
+		double[] sqRadii = new double[capacity];
+		double[] ajMinusAi = new double[3*capacity];
+		for (int k=from;k<to;k++) {
+			asas[k] = calcSingleAsa(indices == null ? k : indices[k], nbs, k, sqRadii, ajMinusAi);
+		}
 	}
 
-	private double calcSingleAsa(int i) {
+	private double calcSingleAsa(int i, NeighborList nbs, int k, double[] sqRadii, double[] ajMinusAi) {
 		Point3d atom_i = atomCoords[i];
 
-		int n_neighbor = neighborIndices[i].length;
-		IndexAndDistance[] neighbor_indices = neighborIndices[i];
-		// Sorting by closest to farthest away neighbors achieves faster runtimes when checking for occluded
-		// sphere sample points below. This follows the ideas exposed in
-		// Eisenhaber et al, J Comp Chemistry 1994 (https://onlinelibrary.wiley.com/doi/epdf/10.1002/jcc.540160303)
-		// This is essential for performance. In my tests this brings down the number of occlusion checks in loop below to
-		// an average of n_sphere_points/10 per atom i, producing ~ x4 performance gain overall
-		Arrays.sort(neighbor_indices, Comparator.comparingDouble(o -> o.dist));
+		int start = nbs.nbStarts[k];
+		int n_neighbor = nbs.nbStarts[k+1] - start;
 
 		double radius_i = probe + radii[i];
 
-		int n_accessible_point = 0;
-		// purely for debugging
-		int[] numDistsCalced = null;
-		if (logger.isDebugEnabled()) numDistsCalced = new int[n_neighbor];
-
 		// now we precalculate anything depending only on i,j in equation 3 in Eisenhaber 1994
-		double[] sqRadii = new double[n_neighbor];
-		Vector3d[] aj_minus_ais = new Vector3d[n_neighbor];
 		for (int nbArrayInd =0; nbArrayInd<n_neighbor; nbArrayInd++) {
-			int j = neighbor_indices[nbArrayInd].index;
-			double dist = neighbor_indices[nbArrayInd].dist;
+			int j = nbs.nbIndices[start+nbArrayInd];
+			double dist = nbs.nbDists[start+nbArrayInd];
 			double radius_j = radii[j] + probe;
 			// see equation 3 in Eisenhaber 1994
 			sqRadii[nbArrayInd] = (dist*dist + radius_i*radius_i - radius_j*radius_j)/(2*radius_i);
-			Vector3d aj_minus_ai = new Vector3d(atomCoords[j]);
-			aj_minus_ai.sub(atom_i);
-			aj_minus_ais[nbArrayInd] = aj_minus_ai;
+			ajMinusAi[3*nbArrayInd] = atomCoords[j].x - atom_i.x;
+			ajMinusAi[3*nbArrayInd+1] = atomCoords[j].y - atom_i.y;
+			ajMinusAi[3*nbArrayInd+2] = atomCoords[j].z - atom_i.z;
 		}
 
-		for (Vector3d point: spherePoints){
+		int n_accessible_point = 0;
+
+		for (int p=0; p<spherePoints.length; p+=3) {
+			double px = spherePoints[p];
+			double py = spherePoints[p+1];
+			double pz = spherePoints[p+2];
 			boolean is_accessible = true;
 
 			// note that the neighbors are sorted by distance, achieving optimal performance in this inner loop
@@ -482,11 +743,8 @@ public class AsaCalculator {
 			for (int nbArrayInd =0; nbArrayInd<n_neighbor; nbArrayInd++) {
 
 				// see equation 3 in Eisenhaber 1994. This is slightly more efficient than
-				// calculating distances to the actual sphere points on atom_i (which would be obtained with:
-				// Point3d test_point = new Point3d(point.x*radius + atom_i.x,point.y*radius + atom_i.y,point.z*radius + atom_i.z))
-				double dotProd = aj_minus_ais[nbArrayInd].dot(point);
-
-				if (numDistsCalced!=null) numDistsCalced[nbArrayInd]++;
+				// calculating distances to the actual sphere points on atom_i
+				double dotProd = ajMinusAi[3*nbArrayInd]*px + ajMinusAi[3*nbArrayInd+1]*py + ajMinusAi[3*nbArrayInd+2]*pz;
 
 				if (dotProd > sqRadii[nbArrayInd]) {
 					is_accessible = false;
@@ -498,13 +756,6 @@ public class AsaCalculator {
 			}
 		}
 
-		// purely for debugging
-		if (numDistsCalced!=null) {
-			int sum = 0;
-			for (int numDistCalcedForJ : numDistsCalced) sum += numDistCalcedForJ;
-			logger.debug("Number of sample points distances calculated for neighbors of i={} : average {}, all {}", i, (double) sum / (double) n_neighbor, numDistsCalced);
-		}
-
 		return cons*n_accessible_point*radius_i*radius_i;
 	}
 
@@ -0,0 +1,525 @@
+package org.biojava.nbio.structure.chem;
+
+import org.biojava.nbio.structure.align.util.UserConfiguration;
+import org.biojava.nbio.structure.io.MappedIndexFormat;
+import org.biojava.nbio.structure.io.cif.ChemCompConverter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link ChemCompProvider} reading from a compact binary version of the
+ * whole Chemical Component Dictionary, which is memory-mapped and decoded one
+ * component at a time on request.
+ * <p>
+ * The binary file is created once from components.cif.gz with
+ * {@link #convert(Path, Path)}. Opening it costs no parsing, so unlike
+ * {@link AllChemCompProvider} the provider is ready immediately and uses
+ * little heap; and since the file is mapped, all JVMs on a machine reading it
+ * share the same pages of the operating system's file cache.
+ * <p>
+ * The file contains a table of all distinct strings (atom names, flags, types
+ * and so on are stored once), an index of the component IDs sorted for binary
+ * search and one record per component with variable length integers referring
+ * to the strings. Decoded strings are shared by all components read from the
+ * same provider.
+ * <p>
+ * Components that are not in the dictionary are returned as an
+ * {@link ChemComp#getEmptyChemComp() empty} ChemComp, as with the
+ * {@link ReducedChemCompProvider}.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @since 7.2.0
+ */
+public class BinaryChemCompProvider implements ChemCompProvider {
+    private static final Logger logger = LoggerFactory.getLogger(BinaryChemCompProvider.class);
+
+    /** File name of the binary dictionary in the chem comp cache directory */
+    public static final String DEFAULT_FILE_NAME = "components.bjcc";
+
+    private static final int MAGIC = 0x424a4343; // "BJCC"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+
+    // doubles with at most this many decimals are stored as variable length integers
+    private static final double DOUBLE_SCALE = 10000;
+
+    private final Path file;
+    private final ByteBuffer buffer;
+    private final int componentCount;
+    private final int stringTablePos;
+    private final int indexPos;
+    // decoded strings, filled lazily. Racing threads may decode a string twice, which is harmless.
+    private final String[] strings;
+
+    /**
+     * Opens the binary dictionary {@value #DEFAULT_FILE_NAME} in the chemcomp
+     * directory of the {@link UserConfiguration#getCacheFilePath() cache path}.
+     * If it does not exist, it is converted from components.cif.gz, which is
+     * downloaded first if needed.
+     *
+     * @throws IOException if the file can not be read or created
+     */
+    public BinaryChemCompProvider() throws IOException {
+        this(ensureDefaultFile());
+    }
+
+    /**
+     * Opens a binary dictionary created with {@link #convert(Path, Path)}.
+     *
+     * @param file the binary dictionary
+     * @throws IOException if the file can not be read or is not a binary dictionary
+     */
+    public BinaryChemCompProvider(Path file) throws IOException {
+        this.file = file;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Binary chem comp dictionary " + file + " is larger than 2 GB");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            this.buffer = mapped;
+        }
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException(file + " is not a binary chem comp dictionary");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported version " + version + " of binary chem comp dictionary " + file);
+        }
+        componentCount = buffer.getInt(8);
+        stringTablePos = buffer.getInt(16);
+        indexPos = buffer.getInt(20);
+        strings = new String[MappedIndexFormat.getStringCount(buffer, stringTablePos)];
+        logger.debug("Opened binary chem comp dictionary {} with {} components", file, componentCount);
+    }
+
+    private static Path ensureDefaultFile() throws IOException {
+        File dir = new File(new UserConfiguration().getCacheFilePath(), DownloadChemCompProvider.CHEM_COMP_CACHE_DIRECTORY);
+        Path binary = new File(dir, DEFAULT_FILE_NAME).toPath();
+        if (Files.exists(binary)) {
+            return binary;
+        }
+        Path cif = new File(dir, "components.cif.gz").toPath();
+        if (!Files.exists(cif)) {
+            AllChemCompProvider.downloadFile();
+        }
+        convert(cif, binary);
+        return binary;
+    }
+
+    /**
+     * Converts a Chemical Component Dictionary file, e.g. components.cif.gz,
+     * to the binary format read by this provider.
+     *
+     * @param cifFile the dictionary in mmCIF format, optionally gzipped
+     * @param binaryFile the binary file to write
+     * @throws IOException if reading or writing fails
+     */
+    public static void convert(Path cifFile, Path binaryFile) throws IOException {
+        long start = System.currentTimeMillis();
+        ChemicalComponentDictionary dictionary = ChemCompConverter.fromPath(cifFile);
+        write(dictionary.getChemComps(), binaryFile);
+        logger.info("Converted {} chemical components from {} to {} in {} s", dictionary.size(), cifFile,
+                binaryFile, (System.currentTimeMillis() - start) / 1000);
+    }
+
+    /**
+     * Writes chemical components to a binary dictionary. The file is written
+     * to a temporary file first and then moved, so readers never see a
+     * partially written dictionary.
+     *
+     * @param chemComps the components, with unique IDs
+     * @param binaryFile the binary file to write
+     * @throws IOException if writing fails
+     */
+    public static void write(Collection<ChemComp> chemComps, Path binaryFile) throws IOException {
+        List<ChemComp> sorted = new ArrayList<>(chemComps);
+        sorted.sort((c1, c2) -> c1.getId().compareTo(c2.getId()));
+
+        Encoder encoder = new Encoder();
+        int[] idRefs = new int[sorted.size()];
+        int[] recordOffsets = new int[sorted.size()];
+        for (int i = 0; i < sorted.size(); i++) {
+            ChemComp cc = sorted.get(i);
+            if (i > 0 && cc.getId().equals(sorted.get(i - 1).getId())) {
+                throw new IllegalArgumentException("Duplicate chem comp " + cc.getId());
+            }
+            idRefs[i] = encoder.intern(cc.getId());
+            recordOffsets[i] = encoder.records.size();
+            encoder.writeChemComp(cc);
+        }
+
+        byte[] stringTable;
+        try {
+            stringTable = MappedIndexFormat.toStringTable(encoder.strings);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Binary chem comp dictionary would be larger than 2 GB", e);
+        }
+        long stringTablePos = HEADER_SIZE;
+        long indexPos = stringTablePos + stringTable.length;
+        long recordsPos = indexPos + 8L * sorted.size();
+        long size = recordsPos + encoder.records.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Binary chem comp dictionary would be larger than 2 GB");
+        }
+
+        MappedIndexFormat.writeAtomically(binaryFile, out -> {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(sorted.size());
+            out.writeInt(encoder.strings.size());
+            out.writeInt((int) stringTablePos);
+            out.writeInt((int) indexPos);
+            out.writeInt((int) recordsPos);
+            out.writeInt(0);
+
+            out.write(stringTable);
+            for (int i = 0; i < sorted.size(); i++) {
+                out.writeInt(idRefs[i]);
+                out.writeInt((int) recordsPos + recordOffsets[i]);
+            }
+            encoder.records.writeTo(out);
+        });
+    }
+
+    /**
+     * Decodes the component with the given ID from the binary dictionary.
+     *
+     * @param recordName the component ID
+     * @return the component, or an empty ChemComp if it is not in the dictionary
+     */
+    @Override
+    public ChemComp getChemComp(String recordName) {
+        String id = recordName.toUpperCase().trim();
+        int record = findRecord(id);
+        if (record < 0) {
+            logger.debug("Chem comp {} not in binary dictionary {}, using an empty chem comp", id, file);
+            ChemComp cc = ChemComp.getEmptyChemComp();
+            cc.setId(id);
+            return cc;
+        }
+        return new Decoder(record).readChemComp();
+    }
+
+    /**
+     * @param recordName the component ID
+     * @return true if the dictionary contains the component
+     */
+    public boolean contains(String recordName) {
+        return findRecord(recordName.toUpperCase().trim()) >= 0;
+    }
+
+    /**
+     * @return the number of components in the dictionary
+     */
+    public int size() {
+        return componentCount;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    private int findRecord(String id) {
+        int low = 0;
+        int high = componentCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int entry = indexPos + 8 * mid;
+            int cmp = getString(buffer.getInt(entry)).compareTo(id);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return buffer.getInt(entry + 4);
+            }
+        }
+        return -1;
+    }
+
+    private String getString(int ref) {
+        String s = strings[ref];
+        if (s == null) {
+            s = MappedIndexFormat.getString(buffer, stringTablePos, ref);
+            strings[ref] = s;
+        }
+        return s;
+    }
+
+    /**
+     * Writes the records, collecting the distinct strings.
+     */
+    private static class Encoder {
+        private final Map<String, Integer> stringRefs = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+        private final ByteArrayOutputStream records = new ByteArrayOutputStream(1 << 20);
+
+        private int intern(String s) {
+            return stringRefs.computeIfAbsent(s, k -> {
+                strings.add(k);
+                return strings.size() - 1;
+            });
+        }
+
+        private void writeChemComp(ChemComp cc) {
+            // in the order of the setters in ChemCompConsumerImpl, which derive the residue type and standard flag
+            writeString(cc.getId());
+            writeString(cc.getName());
+            writeString(cc.getType());
+            writeString(cc.getPdbxType());
+            writeString(cc.getFormula());
+            writeString(cc.getMonNstdParentCompId());
+            writeString(cc.getPdbxSynonyms());
+            writeInt(cc.getPdbxFormalCharge());
+            writeString(cc.getPdbxInitialDate());
+            writeString(cc.getPdbxModifiedDate());
+            writeString(cc.getPdbxAmbiguousFlag());
+            writeString(cc.getPdbxReleaseStatus());
+            writeString(cc.getPdbxReplacedBy());
+            writeString(cc.getPdbxReplaces());
+            writeDouble(cc.getFormulaWeight());
+            writeString(cc.getOneLetterCode());
+            writeString(cc.getThreeLetterCode());
+            writeString(cc.getPdbxModelCoordinatesDetails());
+            writeString(cc.getPdbxModelCoordinatesMissingFlag());
+            writeString(cc.getPdbxIdealCoordinatesDetails());
+            writeString(cc.getPdbxIdealCoordinatesMissingFlag());
+            writeString(cc.getPdbxModelCoordinatesDbCode());
+            writeString(cc.getPdbxSubcomponentList());
+            writeString(cc.getPdbxProcessingSite());
+            writeString(cc.getMonNstdFlag());
+            writeInt(cc.getResidueType() == null ? -1 : cc.getResidueType().ordinal());
+            writeInt(cc.getPolymerType() == null ? -1 : cc.getPolymerType().ordinal());
+
+            writeInt(cc.getDescriptors().size());
+            for (ChemCompDescriptor d : cc.getDescriptors()) {
+                writeString(d.getCompId());
+                writeString(d.getType());
+                writeString(d.getProgram());
+                writeString(d.getProgramVersion());
+                writeString(d.getDescriptor());
+            }
+
+            writeInt(cc.getAtoms().size());
+            for (ChemCompAtom a : cc.getAtoms()) {
+                writeString(a.getCompId());
+                writeString(a.getAtomId());
+                writeString(a.getAltAtomId());
+                writeString(a.getTypeSymbol());
+                writeInt(a.getCharge());
+                writeInt(a.getPdbxAlign());
+                writeString(a.getPdbxAromaticFlag());
+                writeString(a.getPdbxLeavingAtomFlag());
+                writeString(a.getPdbxStereoConfig());
+                writeDouble(a.getModelCartnX());
+                writeDouble(a.getModelCartnY());
+                writeDouble(a.getModelCartnZ());
+                writeDouble(a.getPdbxModelCartnXIdeal());
+                writeDouble(a.getPdbxModelCartnYIdeal());
+                writeDouble(a.getPdbxModelCartnZIdeal());
+                writeString(a.getPdbxComponentCompId());
+                writeString(a.getPdbxResidueNumbering());
+                writeString(a.getPdbxComponentAtomId());
+                writeString(a.getPdbxPolymerType());
+                writeString(a.getPdbxRefId());
+                writeString(a.getPdbxComponentId());
+                writeInt(a.getPdbxOrdinal());
+            }
+
+            writeInt(cc.getBonds().size());
+            for (ChemCompBond b : cc.getBonds()) {
+                writeString(b.getCompId());
+                writeString(b.getAtomId1());
+                writeString(b.getAtomId2());
+                writeString(b.getValueOrder());
+                writeString(b.getPdbxAromaticFlag());
+                writeString(b.getPdbxStereoConfig());
+                writeInt(b.getPdbxOrdinal());
+            }
+        }
+
+        private void writeString(String s) {
+            // 0 for null
+            writeVarLong(s == null ? 0 : intern(s) + 1L);
+        }
+
+        private void writeInt(int i) {
+            writeVarLong((i << 1) ^ (i >> 31));
+        }
+
+        private void writeDouble(double d) {
+            // the lowest bit tells whether the value is a scaled integer or follows as raw bits
+            long scaled = Math.round(d * DOUBLE_SCALE);
+            if (Math.abs(scaled) < (1L << 52) && scaled / DOUBLE_SCALE == d
+                    && Double.doubleToRawLongBits(d) != Double.doubleToRawLongBits(-0.0)) {
+                writeVarLong(((scaled << 1) ^ (scaled >> 63)) << 1);
+            } else {
+                writeVarLong(1);
+                long bits = Double.doubleToRawLongBits(d);
+                for (int shift = 56; shift >= 0; shift -= 8) {
+                    records.write((int) (bits >>> shift));
+                }
+            }
+        }
+
+        private void writeVarLong(long v) {
+            while ((v & ~0x7FL) != 0) {
+                records.write((int) ((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            records.write((int) v);
+        }
+    }
+
+    /**
+     * Reads one record from the mapped file.
+     */
+    private class Decoder {
+        private int pos;
+
+        private Decoder(int pos) {
+            this.pos = pos;
+        }
+
+        private ChemComp readChemComp() {
+            ChemComp cc = new ChemComp();
+            cc.setId(readString());
+            cc.setName(readString());
+            cc.setType(readString());
+            cc.setPdbxType(readString());
+            cc.setFormula(readString());
+            cc.setMonNstdParentCompId(readString());
+            cc.setPdbxSynonyms(readString());
+            cc.setPdbxFormalCharge(readInt());
+            cc.setPdbxInitialDate(readString());
+            cc.setPdbxModifiedDate(readString());
+            cc.setPdbxAmbiguousFlag(readString());
+            cc.setPdbxReleaseStatus(readString());
+            cc.setPdbxReplacedBy(readString());
+            cc.setPdbxReplaces(readString());
+            cc.setFormulaWeight(readDouble());
+            cc.setOneLetterCode(readString());
+            cc.setThreeLetterCode(readString());
+            cc.setPdbxModelCoordinatesDetails(readString());
+            cc.setPdbxModelCoordinatesMissingFlag(readString());
+            cc.setPdbxIdealCoordinatesDetails(readString());
+            cc.setPdbxIdealCoordinatesMissingFlag(readString());
+            cc.setPdbxModelCoordinatesDbCode(readString());
+            cc.setPdbxSubcomponentList(readString());
+            cc.setPdbxProcessingSite(readString());
+            cc.setMonNstdFlag(readString());
+            int residueType = readInt();
+            cc.setResidueType(residueType < 0 ? null : ResidueType.values()[residueType]);
+            int polymerType = readInt();
+            cc.setPolymerType(polymerType < 0 ? null : PolymerType.values()[polymerType]);
+
+            int n = readInt();
+            List<ChemCompDescriptor> descriptors = cc.getDescriptors();
+            for (int i = 0; i < n; i++) {
+                ChemCompDescriptor d = new ChemCompDescriptor();
+                d.setCompId(readString());
+                d.setType(readString());
+                d.setProgram(readString());
+                d.setProgramVersion(readString());
+                d.setDescriptor(readString());
+                descriptors.add(d);
+            }
+
+            n = readInt();
+            List<ChemCompAtom> atoms = cc.getAtoms();
+            for (int i = 0; i < n; i++) {
+                ChemCompAtom a = new ChemCompAtom();
+                a.setCompId(readString());
+                a.setAtomId(readString());
+                a.setAltAtomId(readString());
+                a.setTypeSymbol(readString());
+                a.setCharge(readInt());
+                a.setPdbxAlign(readInt());
+                a.setPdbxAromaticFlag(readString());
+                a.setPdbxLeavingAtomFlag(readString());
+                a.setPdbxStereoConfig(readString());
+                a.setModelCartnX(readDouble());
+                a.setModelCartnY(readDouble());
+                a.setModelCartnZ(readDouble());
+                a.setPdbxModelCartnXIdeal(readDouble());
+                a.setPdbxModelCartnYIdeal(readDouble());
+                a.setPdbxModelCartnZIdeal(readDouble());
+                a.setPdbxComponentCompId(readString());
+                a.setPdbxResidueNumbering(readString());
+                a.setPdbxComponentAtomId(readString());
+                a.setPdbxPolymerType(readString());
+                a.setPdbxRefId(readString());
+                a.setPdbxComponentId(readString());
+                a.setPdbxOrdinal(readInt());
+                atoms.add(a);
+            }
+
+            n = readInt();
+            List<ChemCompBond> bonds = cc.getBonds();
+            for (int i = 0; i < n; i++) {
+                ChemCompBond b = new ChemCompBond();
+                b.setCompId(readString());
+                b.setAtomId1(readString());
+                b.setAtomId2(readString());
+                b.setValueOrder(readString());
+                b.setPdbxAromaticFlag(readString());
+                b.setPdbxStereoConfig(readString());
+                b.setPdbxOrdinal(readInt());
+                bonds.add(b);
+            }
+            return cc;
+        }
+
+        private String readString() {
+            long ref = readVarLong();
+            return ref == 0 ? null : getString((int) ref - 1);
+        }
+
+        private int readInt() {
+            int v = (int) readVarLong();
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        private double readDouble() {
+            long v = readVarLong();
+            if ((v & 1) == 0) {
+                long zigzag = v >>> 1;
+                return ((zigzag >>> 1) ^ -(zigzag & 1)) / DOUBLE_SCALE;
+            }
+            long bits = 0;
+            for (int i = 0; i < 8; i++) {
+                bits = (bits << 8) | (buffer.get(pos++) & 0xFF);
+            }
+            return Double.longBitsToDouble(bits);
+        }
+
+        private long readVarLong() {
+            long v = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get(pos++);
+                v |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return v;
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package org.biojava.nbio.structure.chem;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, thread-safe in-memory cache of {@link ChemComp} definitions, used
+ * by {@link ChemCompGroupFactory} in front of the {@link ChemCompProvider}.
+ * <p>
+ * Lookups of cached components do not lock, so many threads parsing
+ * structures concurrently do not contend on the cache. Concurrent requests for
+ * a component that is not cached yet are coalesced: only one thread asks the
+ * provider, the others wait for its result. Missing components (for which the
+ * provider returns null) are cached too.
+ * <p>
+ * When the maximum number of entries is exceeded, entries are evicted with the
+ * CLOCK (second chance) approximation of least recently used: entries that
+ * were read since the last pass are skipped once.
+ * <p>
+ * The cache can be {@link #prewarm(Collection, ChemCompProvider) pre-warmed}
+ * with the {@link #getCommonChemCompIds() most common components}, so that
+ * batch jobs do not pay for their loading while parsing.
+ *
+ * @since 7.2.0
+ */
+public class ChemCompCache {
+    private static final Logger logger = LoggerFactory.getLogger(ChemCompCache.class);
+
+    /** Default maximum number of cached components */
+    public static final int DEFAULT_MAX_ENTRIES = 5000;
+
+    /** Class path resource listing the most common chemical components, one per line */
+    public static final String COMMON_CHEM_COMPS_RESOURCE = "/org/biojava/nbio/structure/chem/common_chem_comps.txt";
+
+    private final int maxEntries;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // insertion order of the keys, rotated by the eviction clock hand
+    private final Queue<String> clock = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates a cache holding up to {@value #DEFAULT_MAX_ENTRIES} components.
+     */
+    public ChemCompCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param maxEntries maximum number of cached components
+     */
+    public ChemCompCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("The cache must hold at least one entry");
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns the cached component with the given ID, loading it from the
+     * provider if it is not cached. If another thread is already loading the
+     * same component, waits for its result instead.
+     *
+     * @param id the upper case component ID
+     * @param provider the provider to load the component with on a miss
+     * @return the component, or null if the provider does not know it
+     */
+    public ChemComp get(String id, ChemCompProvider provider) {
+        Entry entry = entries.get(id);
+        if (entry != null && entry.future.isDone()) {
+            entry.referenced = true;
+            hits.incrementAndGet();
+            return entry.future.join();
+        }
+
+        if (entry == null) {
+            Entry created = new Entry();
+            entry = entries.putIfAbsent(id, created);
+            if (entry == null) {
+                return load(id, created, provider);
+            }
+        }
+
+        coalesced.incrementAndGet();
+        logger.debug("Waiting for concurrent loading of chem comp {}", id);
+        entry.referenced = true;
+        try {
+            return entry.future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+    }
+
+    private ChemComp load(String id, Entry entry, ChemCompProvider provider) {
+        misses.incrementAndGet();
+        logger.debug("Chem comp {} read from provider {}", id, provider.getClass().getCanonicalName());
+        ChemComp cc;
+        try {
+            cc = provider.getChemComp(id);
+        } catch (RuntimeException e) {
+            // do not cache failures, the next request tries again
+            entries.remove(id, entry);
+            entry.future.completeExceptionally(e);
+            throw e;
+        }
+        entry.future.complete(cc);
+        clock.add(id);
+        evict();
+        return cc;
+    }
+
+    private void evict() {
+        // after a full turn of the clock hand all entries are unreferenced, so
+        // two turns bound the work if other threads keep reading entries
+        int budget = 2 * clock.size() + 1;
+        while (entries.size() > maxEntries && budget-- > 0) {
+            String id = clock.poll();
+            if (id == null) {
+                return;
+            }
+            Entry entry = entries.get(id);
+            if (entry == null) {
+                // removed by clear
+                continue;
+            }
+            if (entry.referenced) {
+                entry.referenced = false;
+                clock.add(id);
+            } else if (entries.remove(id, entry)) {
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Loads the given components into the cache, in parallel in the common
+     * fork/join pool. Components that are already cached are not loaded again.
+     *
+     * @param ids the upper case component IDs
+     * @param provider the provider to load the components with
+     */
+    public void prewarm(Collection<String> ids, ChemCompProvider provider) {
+        long start = System.currentTimeMillis();
+        ids.parallelStream().forEach(id -> get(id, provider));
+        logger.debug("Pre-warmed chem comp cache with {} components in {} ms", ids.size(),
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Returns the IDs of the chemical components occurring most often in the
+     * PDB: the standard and common modified residues, ions, solvents,
+     * cryoprotectants, buffers, sugars and cofactors. The list is read from
+     * {@value #COMMON_CHEM_COMPS_RESOURCE}.
+     *
+     * @return an unmodifiable list of component IDs
+     */
+    public static List<String> getCommonChemCompIds() {
+        List<String> ids = new ArrayList<>();
+        try (InputStream is = ChemCompCache.class.getResourceAsStream(COMMON_CHEM_COMPS_RESOURCE)) {
+            if (is == null) {
+                throw new IOException("Resource " + COMMON_CHEM_COMPS_RESOURCE + " not found");
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.US_ASCII));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    ids.add(line);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Collections.unmodifiableList(ids);
+    }
+
+    /**
+     * @param id the upper case component ID
+     * @return true if the component is cached (also if it is cached as missing)
+     */
+    public boolean contains(String id) {
+        Entry entry = entries.get(id);
+        return entry != null && entry.future.isDone();
+    }
+
+    /**
+     * Removes all cached components. Statistics are not reset.
+     */
+    public void clear() {
+        entries.clear();
+        clock.clear();
+    }
+
+    /**
+     * @return the number of cached components, including those being loaded
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * @return the number of requests served from the cache
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of requests that required loading the component
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of requests that waited for a concurrent load of the
+     *         same component
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    /**
+     * @return the number of components evicted to respect the size bound
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * @return the fraction of requests that did not require loading, 0 if
+     *         there were no requests
+     */
+    public double getHitRate() {
+        long h = hits.get() + coalesced.get();
+        long total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    @Override
+    public String toString() {
+        return "ChemCompCache [size=" + size() + ", hits=" + hits + ", misses=" + misses + ", coalesced="
+                + coalesced + ", evictions=" + evictions + "]";
+    }
+
+    private static class Entry {
+        private final CompletableFuture<ChemComp> future = new CompletableFuture<>();
+        private volatile boolean referenced;
+    }
+}
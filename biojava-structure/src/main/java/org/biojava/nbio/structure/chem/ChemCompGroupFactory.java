@@ -1,6 +1,5 @@
 package org.biojava.nbio.structure.chem;
 
-import org.biojava.nbio.core.util.SoftHashMap;
 import org.biojava.nbio.structure.AminoAcid;
 import org.biojava.nbio.structure.AminoAcidImpl;
 import org.biojava.nbio.structure.Group;
@@ -11,26 +10,15 @@ import org.slf4j.LoggerFactory;
 
 public class ChemCompGroupFactory {
     private static final Logger logger = LoggerFactory.getLogger(ChemCompGroupFactory.class);
-    private static ChemCompProvider chemCompProvider = new DownloadChemCompProvider();
-    private static final SoftHashMap<String, ChemComp> cache = new SoftHashMap<>(0);
+    private static volatile ChemCompProvider chemCompProvider = new DownloadChemCompProvider();
+    private static volatile ChemCompCache cache = new ChemCompCache();
 
     public static ChemComp getChemComp(String recordName) {
         recordName = recordName.toUpperCase().trim();
 
         // we are using the cache, to avoid hitting the file system too often.
-        ChemComp cc = cache.get(recordName);
-        if (cc != null) {
-            logger.debug("Chem comp {} read from cache", cc.getThreeLetterCode());
-            return cc;
-        }
-
-        // not cached, get the chem comp from the provider
-        logger.debug("Chem comp {} read from provider {}", recordName, chemCompProvider.getClass().getCanonicalName());
-        cc = chemCompProvider.getChemComp(recordName);
-
         // Note that this also caches null or empty responses
-        cache.put(recordName, cc);
-        return cc;
+        return cache.get(recordName, chemCompProvider);
     }
 
     /**
@@ -48,7 +36,7 @@ public class ChemCompGroupFactory {
         logger.debug("Setting new chem comp provider to {}", provider.getClass().getCanonicalName());
         chemCompProvider = provider;
         // clear cache
-        cache.clear();
+        clearCache();
     }
 
     public static ChemCompProvider getChemCompProvider(){
@@ -64,6 +52,42 @@ public class ChemCompGroupFactory {
         cache.clear();
     }
 
+    /**
+     * Returns the in-memory cache of chemical components, e.g. to inspect its
+     * hit rate.
+     *
+     * @return the cache
+     * @since 7.2.0
+     */
+    public static ChemCompCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Replaces the in-memory cache of chemical components, e.g. with one of a
+     * different size.
+     *
+     * @param cache the new cache
+     * @since 7.2.0
+     */
+    public static void setCache(ChemCompCache cache) {
+        if (cache == null) {
+            throw new IllegalArgumentException("The chem comp cache must not be null");
+        }
+        ChemCompGroupFactory.cache = cache;
+    }
+
+    /**
+     * Loads the {@link ChemCompCache#getCommonChemCompIds() most common}
+     * chemical components into the cache with the current provider, so that
+     * they are not loaded while parsing structures.
+     *
+     * @since 7.2.0
+     */
+    public static void prewarmCache() {
+        cache.prewarm(ChemCompCache.getCommonChemCompIds(), chemCompProvider);
+    }
+
     public static Group getGroupFromChemCompDictionary(String recordName) {
         // make sure we work with upper case records
         recordName = recordName.toUpperCase().trim();
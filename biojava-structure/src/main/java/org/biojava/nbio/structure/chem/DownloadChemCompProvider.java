@@ -24,7 +24,6 @@ import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.zip.GZIPOutputStream;
@@ -63,8 +62,9 @@ public class DownloadChemCompProvider implements ChemCompProvider {
     static final Pattern CCD_ID_TEMPLATE_REGEX = Pattern.compile("\\{ccd_id(?::(\\d+_\\d+|[-+]?\\d+))?}");
 
 
-    // flags to make sure there is only one thread running that is loading the dictionary
-    static AtomicBoolean loading = new AtomicBoolean(false);
+    // makes sure there is only one thread running that is loading the dictionary,
+    // the others wait for it to finish
+    private static final Object installLock = new Object();
 
     static final List<String> protectedIDs = new ArrayList<>();
     static {
@@ -74,7 +74,7 @@ public class DownloadChemCompProvider implements ChemCompProvider {
         protectedIDs.add("NUL");
     }
 
-    private static ChemCompProvider fallback = null; // Fallback provider if the download fails
+    private static volatile ChemCompProvider fallback = null; // Fallback provider if the download fails
 
     /**
      * by default we will download only some of the files. User has to request that all files should be downloaded...
@@ -147,19 +147,23 @@ public class DownloadChemCompProvider implements ChemCompProvider {
         File dir = new File(getPath(), CHEM_COMP_CACHE_DIRECTORY);
         File f = new File(dir, "components.cif.gz");
 
-        if (!f.exists()) {
-            downloadAllDefinitions();
-        } else {
-            // file exists.. did it get extracted?
-            FilenameFilter filter = (dir1, file) -> file.endsWith(".cif.gz");
-            String[] files = dir.list(filter);
-            if (files.length < 500) {
-                // not all did get unpacked
-                try {
-                    split();
-                } catch (IOException e) {
-                    logger.error("Could not split file {} into individual chemical component files. Error: {}",
-                            f.toString(), e.getMessage());
+        // only one thread installs the definitions, the others wait for it and
+        // then find the files in place
+        synchronized (installLock) {
+            if (!f.exists()) {
+                downloadAllDefinitions();
+            } else {
+                // file exists.. did it get extracted?
+                FilenameFilter filter = (dir1, file) -> file.endsWith(".cif.gz");
+                String[] files = dir.list(filter);
+                if (files.length < 500) {
+                    // not all did get unpacked
+                    try {
+                        split();
+                    } catch (IOException e) {
+                        logger.error("Could not split file {} into individual chemical component files. Error: {}",
+                                f.toString(), e.getMessage());
+                    }
                 }
             }
         }
@@ -272,12 +276,15 @@ public class DownloadChemCompProvider implements ChemCompProvider {
 
         // see https://github.com/biojava/biojava/issues/315
         // probably a network error happened. Try to use the ReducedChemCOmpProvider
-        if (fallback == null) {
-            fallback = new ReducedChemCompProvider();
+        ChemCompProvider reduced = fallback;
+        if (reduced == null) {
+            // the provider is stateless, so racing threads may each create one
+            reduced = new ReducedChemCompProvider();
+            fallback = reduced;
         }
 
         logger.warn("Falling back to ReducedChemCompProvider for {}. This could indicate a network error.", recordName);
-        return fallback.getChemComp(recordName);
+        return reduced.getChemComp(recordName);
     }
 
     /**
@@ -423,26 +430,6 @@ public class DownloadChemCompProvider implements ChemCompProvider {
     }
 
     private void downloadAllDefinitions() {
-        if (loading.get()) {
-            logger.info("Waiting for other thread to install chemical components...");
-        }
-
-        while (loading.get()) {
-            // another thread is already downloading the components definitions
-            // wait for the other thread to finish...
-            try {
-                // wait half a second
-                Thread.sleep(500);
-            } catch (InterruptedException e) {
-                //e.printStackTrace();
-                logger.error("Thread interrupted "+e.getMessage());
-            }
-
-            logger.info("Another thread installed the chemical components.");
-            return;
-        }
-
-        loading.set(true);
         long timeS = System.currentTimeMillis();
 
         logger.info("Performing first installation of chemical components.");
@@ -454,7 +441,6 @@ public class DownloadChemCompProvider implements ChemCompProvider {
             logger.error("Could not download the all chemical components file. Error: {}. "
                     + "Chemical components information won't be available", e.getMessage());
             // no point in trying to split if the file could not be downloaded
-            loading.set(false);
             return;
         }
         try {
@@ -463,12 +449,10 @@ public class DownloadChemCompProvider implements ChemCompProvider {
             logger.error("Could not split all chem comp file into individual chemical component files. Error: {}",
                     e.getMessage());
             // no point in reporting time
-            loading.set(false);
             return;
         }
         long timeE = System.currentTimeMillis();
         logger.info("time to install chem comp dictionary: " + (timeE - timeS) / 1000 + " sec.");
-        loading.set(false);
     }
 
     /**
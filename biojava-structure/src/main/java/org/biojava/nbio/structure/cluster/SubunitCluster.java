@@ -398,11 +398,56 @@ public class SubunitCluster {
 								 SubstitutionMatrix<AminoAcidCompound> subsMatrix)
 			throws CompoundNotFoundException {
 
+		return mergeSequence(other, params, alignSequences(this.subunits.get(this.representative),
+				other.subunits.get(other.representative), params, alignerType, gapPenalty, subsMatrix));
+	}
+
+	/**
+	 * Merges the other SubunitCluster into this one given the sequence alignment
+	 * of their representatives.
+	 *
+	 * @param alignment
+	 *            the result of {@link #alignSequences} for the representatives
+	 *            of this and the other cluster, null if they are not similar
+	 * @return true if the SubunitClusters were merged, false otherwise
+	 */
+	boolean mergeSequence(SubunitCluster other, SubunitClustererParameters params,
+						  RepresentativeAlignment alignment) {
+
+		if (alignment == null)
+			return false;
+
+		logger.info(String.format("SubunitClusters %s-%s are similar in sequence "
+						+ "with %.2f sequence identity and %.2f coverage",
+				this.subunits.get(this.representative).getName(),
+				other.subunits.get(other.representative).getName(),
+				alignment.score, alignment.coverage));
+
+		mergeAligned(other, alignment);
+
+		this.method = SubunitClustererMethod.SEQUENCE;
+		pseudoStoichiometric = !params.isHighConfidenceScores(alignment.score, alignment.coverage);
+
+		return true;
+	}
+
+	/**
+	 * Aligns the sequences of two Subunits with the given aligner parameters
+	 * and checks the sequence identity and coverage thresholds in params. The
+	 * result only depends on the sequences of the Subunits, not on the
+	 * clusters that contain them.
+	 *
+	 * @return the aligned residues, or null if the sequences are not similar
+	 * @throws CompoundNotFoundException
+	 */
+	static RepresentativeAlignment alignSequences(Subunit thisSubunit, Subunit otherSubunit,
+			SubunitClustererParameters params, PairwiseSequenceAlignerType alignerType,
+			GapPenalty gapPenalty, SubstitutionMatrix<AminoAcidCompound> subsMatrix)
+			throws CompoundNotFoundException {
+
 		// Extract the protein sequences as BioJava alignment objects
-		ProteinSequence thisSequence = this.subunits.get(this.representative)
-				.getProteinSequence();
-		ProteinSequence otherSequence = other.subunits
-				.get(other.representative).getProteinSequence();
+		ProteinSequence thisSequence = thisSubunit.getProteinSequence();
+		ProteinSequence otherSequence = otherSubunit.getProteinSequence();
 
 		// Perform the alignment with provided parameters
 		PairwiseSequenceAligner<ProteinSequence, AminoAcidCompound> aligner = Alignments
@@ -417,7 +462,7 @@ public class SubunitCluster {
 		}
 
 		if (sequenceIdentity < params.getSequenceIdentityThreshold())
-			return false;
+			return null;
 
 		double sequenceCoverage = 0;
 		if(params.isUseSequenceCoverage()) {
@@ -433,16 +478,9 @@ public class SubunitCluster {
 					/ Math.max(lengthThis, lengthOther);
 
 			if (sequenceCoverage < params.getSequenceCoverageThreshold())
-				return false;
+				return null;
 		}
 
-		logger.info(String.format("SubunitClusters %s-%s are similar in sequence "
-						+ "with %.2f sequence identity and %.2f coverage",
-				this.subunits.get(this.representative).getName(),
-				other.subunits.get(other.representative).getName(),
-				sequenceIdentity, sequenceCoverage));
-
-		// If coverage and sequence identity sufficient, merge other and this
 		List<Integer> thisAligned = new ArrayList<>();
 		List<Integer> otherAligned = new ArrayList<>();
 
@@ -455,23 +493,11 @@ public class SubunitCluster {
 			if (aligner.getPair().getAlignedSequence(2).isGap(p))
 				continue;
 
-			int thisIndex = aligner.getPair().getIndexInQueryAt(p) - 1;
-			int otherIndex = aligner.getPair().getIndexInTargetAt(p) - 1;
-
-			// Only consider residues that are part of the SubunitCluster
-			if (this.subunitEQR.get(this.representative).contains(thisIndex)
-					&& other.subunitEQR.get(other.representative).contains(otherIndex)) {
-				thisAligned.add(thisIndex);
-				otherAligned.add(otherIndex);
-			}
+			thisAligned.add(aligner.getPair().getIndexInQueryAt(p) - 1);
+			otherAligned.add(aligner.getPair().getIndexInTargetAt(p) - 1);
 		}
 
-		updateEquivResidues(other, thisAligned, otherAligned);
-
-		this.method = SubunitClustererMethod.SEQUENCE;
-		pseudoStoichiometric = !params.isHighConfidenceScores(sequenceIdentity,sequenceCoverage);
-
-		return true;
+		return new RepresentativeAlignment(thisAligned, otherAligned, sequenceIdentity, sequenceCoverage);
 	}
 
 	/**
@@ -489,6 +515,47 @@ public class SubunitCluster {
 	 */
 
 	public boolean mergeStructure(SubunitCluster other, SubunitClustererParameters params) throws StructureException {
+		return mergeStructure(other, alignStructures(this.subunits.get(this.representative),
+				other.subunits.get(other.representative), params));
+	}
+
+	/**
+	 * Merges the other SubunitCluster into this one given the structural
+	 * alignment of their representatives.
+	 *
+	 * @param alignment
+	 *            the result of {@link #alignStructures} for the representatives
+	 *            of this and the other cluster, null if they are not similar
+	 * @return true if the SubunitClusters were merged, false otherwise
+	 */
+	boolean mergeStructure(SubunitCluster other, RepresentativeAlignment alignment) {
+
+		if (alignment == null)
+			return false;
+
+		logger.info(String.format("SubunitClusters are structurally similar with "
+				+ "%.2f RMSD %.2f coverage", alignment.score, alignment.coverage));
+
+		mergeAligned(other, alignment);
+
+		this.method = SubunitClustererMethod.STRUCTURE;
+		pseudoStoichiometric = true;
+
+		return true;
+	}
+
+	/**
+	 * Aligns the representative Atoms of two Subunits with the algorithm in
+	 * params and checks the RMSD, TM-score and structure coverage thresholds.
+	 * The result only depends on the Subunits, not on the clusters that
+	 * contain them.
+	 *
+	 * @return the aligned residues, or null if the structures are not similar
+	 * @throws StructureException
+	 *             if the alignment failed
+	 */
+	static RepresentativeAlignment alignStructures(Subunit thisSubunit, Subunit otherSubunit,
+			SubunitClustererParameters params) throws StructureException {
 
 		StructureAlignment aligner = StructureAlignmentFactory.getAlgorithm(params.getSuperpositionAlgorithm());
 		ConfigStrucAligParams aligner_params = aligner.getParameters();
@@ -507,10 +574,8 @@ public class SubunitCluster {
 			}
 		}
 
-		AFPChain afp = aligner.align(this.subunits.get(this.representative)
-				.getRepresentativeAtoms(),
-				other.subunits.get(other.representative)
-						.getRepresentativeAtoms());
+		AFPChain afp = aligner.align(thisSubunit.getRepresentativeAtoms(),
+				otherSubunit.getRepresentativeAtoms());
 
 		if (afp.getOptLength() < 1) {
 			// alignment failed (eg if chains were too short)
@@ -521,32 +586,27 @@ public class SubunitCluster {
 		// Convert AFPChain to MultipleAlignment for convenience
 		MultipleAlignment msa = new MultipleAlignmentEnsembleImpl(
 				afp,
-				this.subunits.get(this.representative).getRepresentativeAtoms(),
-				other.subunits.get(other.representative)
-						.getRepresentativeAtoms(), false)
+				thisSubunit.getRepresentativeAtoms(),
+				otherSubunit.getRepresentativeAtoms(), false)
 				.getMultipleAlignment(0);
 
 		double structureCoverage = Math.min(msa.getCoverages().get(0), msa
 				.getCoverages().get(1));
 
 		if(params.isUseStructureCoverage() && structureCoverage < params.getStructureCoverageThreshold()) {
-			return false;
+			return null;
 		}
 
 		double rmsd = afp.getTotalRmsdOpt();
 		if (params.isUseRMSD() && rmsd > params.getRMSDThreshold()) {
-			return false;
+			return null;
 		}
 
 		double tmScore = afp.getTMScore();
 		if (params.isUseTMScore() && tmScore < params.getTMThreshold()) {
-			return false;
+			return null;
 		}
 
-		logger.info(String.format("SubunitClusters are structurally similar with "
-				+ "%.2f RMSD %.2f coverage", rmsd, structureCoverage));
-
-		// Merge clusters
 		List<List<Integer>> alignedRes = msa.getBlock(0).getAlignRes();
 		List<Integer> thisAligned = new ArrayList<>();
 		List<Integer> otherAligned = new ArrayList<>();
@@ -560,27 +620,42 @@ public class SubunitCluster {
 			if (alignedRes.get(1).get(p) == null)
 				continue;
 
-			int thisIndex = alignedRes.get(0).get(p);
-			int otherIndex = alignedRes.get(1).get(p);
+			thisAligned.add(alignedRes.get(0).get(p));
+			otherAligned.add(alignedRes.get(1).get(p));
+		}
+
+		return new RepresentativeAlignment(thisAligned, otherAligned, rmsd, structureCoverage);
+	}
+
+	/**
+	 * Merges the other cluster into this one, keeping only the aligned
+	 * residues that are part of both clusters.
+	 */
+	private void mergeAligned(SubunitCluster other, RepresentativeAlignment alignment) {
+
+		Set<Integer> thisEQR = new HashSet<>(this.subunitEQR.get(this.representative));
+		Set<Integer> otherEQR = new HashSet<>(other.subunitEQR.get(other.representative));
+
+		List<Integer> thisAligned = new ArrayList<>();
+		List<Integer> otherAligned = new ArrayList<>();
+		for (int p = 0; p < alignment.thisAligned.size(); p++) {
+			int thisIndex = alignment.thisAligned.get(p);
+			int otherIndex = alignment.otherAligned.get(p);
 
 			// Only consider residues that are part of the SubunitCluster
-			if (this.subunitEQR.get(this.representative).contains(thisIndex)
-					&& other.subunitEQR.get(other.representative).contains(
-							otherIndex)) {
+			if (thisEQR.contains(thisIndex) && otherEQR.contains(otherIndex)) {
 				thisAligned.add(thisIndex);
 				otherAligned.add(otherIndex);
 			}
 		}
 
 		updateEquivResidues(other, thisAligned, otherAligned);
-
-		this.method = SubunitClustererMethod.STRUCTURE;
-		pseudoStoichiometric = true;
-
-		return true;
 	}
 
-	private void updateEquivResidues(SubunitCluster other, List<Integer> thisAligned, List<Integer> otherAligned) {
+	private void updateEquivResidues(SubunitCluster other, List<Integer> thisAlignedList, List<Integer> otherAlignedList) {
+		Set<Integer> thisAligned = new HashSet<>(thisAlignedList);
+		Set<Integer> otherAligned = new HashSet<>(otherAlignedList);
+
 		// Do a List intersection to find out which EQR columns to remove
 		List<Integer> thisRemove = new ArrayList<>();
 		List<Integer> otherRemove = new ArrayList<>();
@@ -851,4 +926,31 @@ public class SubunitCluster {
 		return pseudoStoichiometric;
 	}
 
+	/**
+	 * @return the representative Subunit of the cluster, the longest one
+	 */
+	Subunit getRepresentativeSubunit() {
+		return subunits.get(representative);
+	}
+
+	/**
+	 * The aligned residue indices of two Subunits that are similar enough to
+	 * be clustered, with the scores of their alignment: the sequence identity
+	 * or the RMSD, and the coverage.
+	 */
+	static final class RepresentativeAlignment {
+
+		private final List<Integer> thisAligned;
+		private final List<Integer> otherAligned;
+		private final double score;
+		private final double coverage;
+
+		RepresentativeAlignment(List<Integer> thisAligned, List<Integer> otherAligned,
+				double score, double coverage) {
+			this.thisAligned = thisAligned;
+			this.otherAligned = otherAligned;
+			this.score = score;
+			this.coverage = coverage;
+		}
+	}
 }
@@ -21,9 +21,20 @@
 package org.biojava.nbio.structure.cluster;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
+import org.biojava.nbio.alignment.Alignments.PairwiseSequenceAlignerType;
+import org.biojava.nbio.alignment.SimpleGapPenalty;
+import org.biojava.nbio.core.alignment.matrices.SubstitutionMatrixHelper;
+import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
 import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
+import org.biojava.nbio.core.sequence.compound.AminoAcidCompound;
 import org.biojava.nbio.structure.Structure;
 import org.biojava.nbio.structure.StructureException;
 import org.biojava.nbio.structure.symmetry.core.Stoichiometry;
@@ -57,10 +68,40 @@ public class SubunitClusterer {
 	}
 
 	public static Stoichiometry cluster(List<Subunit> subunits, SubunitClustererParameters params) {
+		return cluster(subunits, params, null);
+	}
+
+	/**
+	 * Clusters the subunits by sequence and/or structure, as specified in
+	 * params.
+	 * <p>
+	 * Clusters are merged greedily in the order of the subunits, always
+	 * comparing their representatives, so the result does not depend on the
+	 * number of threads. The alignments needed to compare a cluster against
+	 * all the following ones are calculated in parallel before merging.
+	 * Sequence alignments are calculated once per pair of distinct sequences,
+	 * so identical subunits do not need to be aligned again even without
+	 * {@link SubunitClustererParameters#isUseEntityIdForSeqIdentityDetermination()
+	 * entity ids}.
+	 *
+	 * @param subunits
+	 *            the subunits to cluster
+	 * @param params
+	 *            the clustering parameters
+	 * @param pool
+	 *            the pool to calculate alignments in, or null to use the
+	 *            {@link ForkJoinPool#commonPool() common pool}
+	 * @return the clusters of subunits
+	 * @since 7.2.0
+	 */
+	public static Stoichiometry cluster(List<Subunit> subunits, SubunitClustererParameters params, ForkJoinPool pool) {
 		List<SubunitCluster> clusters = new ArrayList<>();
 		if (subunits.size() == 0)
 			return new Stoichiometry(clusters);
 
+		if (pool == null)
+			pool = ForkJoinPool.commonPool();
+
 		// First generate a new cluster for each Subunit
 		for (Subunit s : subunits)
 			clusters.add(new SubunitCluster(s));
@@ -68,42 +109,13 @@ public class SubunitClusterer {
 		if (params.getClustererMethod() == SubunitClustererMethod.SEQUENCE ||
 				params.getClustererMethod() == SubunitClustererMethod.SEQUENCE_STRUCTURE) {
 			// Now merge clusters by SEQUENCE
-			for (int c1 = 0; c1 < clusters.size(); c1++) {
-				for (int c2 = clusters.size() - 1; c2 > c1; c2--) {
-					try {
-						if (params.isUseEntityIdForSeqIdentityDetermination() &&
-								clusters.get(c1).mergeIdenticalByEntityId(clusters.get(c2))) {
-							// This we will only do if the switch is for entity id comparison is on.
-							// In some cases it can save enormous amounts of time, e.g. for clustering full
-							// chains of deposited PDB entries. For instance for 6NHJ: with pure alignments it
-							// takes ~ 6 hours, with entity id comparisons it takes 2 minutes.
-							clusters.remove(c2);
-						} else if (clusters.get(c1).mergeSequence(clusters.get(c2), params)) {
-							clusters.remove(c2);
-						}
-
-					} catch (CompoundNotFoundException e) {
-						logger.warn("Could not merge by Sequence. {}",
-								e.getMessage());
-					}
-				}
-			}
+			mergeClusters(clusters, new SequenceMerger(subunits, params), pool);
 		}
 
 		if (params.getClustererMethod() == SubunitClustererMethod.STRUCTURE ||
 				params.getClustererMethod() == SubunitClustererMethod.SEQUENCE_STRUCTURE) {
 			// Now merge clusters by STRUCTURE
-			for (int c1 = 0; c1 < clusters.size(); c1++) {
-				for (int c2 = clusters.size() - 1; c2 > c1; c2--) {
-					try {
-						if (clusters.get(c1).mergeStructure(clusters.get(c2), params)) {
-							clusters.remove(c2);
-						}
-					} catch (StructureException e) {
-						logger.warn("Could not merge by Structure. {}", e.getMessage());
-					}
-				}
-			}
+			mergeClusters(clusters, new StructureMerger(params), pool);
 		}
 
 		if (params.isInternalSymmetry()) {
@@ -119,19 +131,272 @@ public class SubunitClusterer {
 
 			// After internal symmetry merge again by structural similarity
 			// Use case: C8 propeller with 3 chains with 3+3+2 repeats each
-			for (int c1 = 0; c1 < clusters.size(); c1++) {
-				for (int c2 = clusters.size() - 1; c2 > c1; c2--) {
-					try {
-						if (clusters.get(c1).mergeStructure(clusters.get(c2), params))
-							clusters.remove(c2);
-					} catch (StructureException e) {
-						logger.warn("Could not merge by Structure. {}",
-								e.getMessage());
+			mergeClusters(clusters, new StructureMerger(params), pool);
+		}
+
+		return new Stoichiometry(clusters);
+	}
+
+	/**
+	 * Merges each cluster with all the following clusters that are similar to
+	 * it, in place.
+	 */
+	private static void mergeClusters(List<SubunitCluster> clusters, Merger merger, ForkJoinPool pool) {
+		Map<PairKey, AlignmentOutcome> alignments = new HashMap<>();
+		for (int c1 = 0; c1 < clusters.size(); c1++) {
+			prefetchAlignments(clusters, c1, merger, alignments, pool);
+			for (int c2 = clusters.size() - 1; c2 > c1; c2--) {
+				SubunitCluster cluster1 = clusters.get(c1);
+				SubunitCluster cluster2 = clusters.get(c2);
+				try {
+					if (merger.mergeWithoutAlignment(cluster1, cluster2)) {
+						clusters.remove(c2);
+						continue;
+					}
+					Subunit s1 = cluster1.getRepresentativeSubunit();
+					Subunit s2 = cluster2.getRepresentativeSubunit();
+					// the representative can change after merging, then the alignment is not available yet
+					AlignmentOutcome outcome = alignments.computeIfAbsent(merger.getKey(s1, s2),
+							k -> new AlignmentOutcome(merger, s1, s2));
+					if (merger.merge(cluster1, cluster2, outcome.getAlignment())) {
+						clusters.remove(c2);
 					}
+				} catch (CompoundNotFoundException | StructureException e) {
+					logger.warn("Could not merge by {}. {}", merger.getName(), e.getMessage());
 				}
 			}
 		}
+	}
 
-		return new Stoichiometry(clusters);
+	/**
+	 * Calculates in parallel the missing alignments between the representative
+	 * of cluster c1 and the representatives of all the following clusters.
+	 */
+	private static void prefetchAlignments(List<SubunitCluster> clusters, int c1, Merger merger,
+			Map<PairKey, AlignmentOutcome> alignments, ForkJoinPool pool) {
+		Subunit s1 = clusters.get(c1).getRepresentativeSubunit();
+		Map<PairKey, Subunit> missing = new LinkedHashMap<>();
+		for (int c2 = c1 + 1; c2 < clusters.size(); c2++) {
+			Subunit s2 = clusters.get(c2).getRepresentativeSubunit();
+			PairKey key = merger.getKey(s1, s2);
+			if (!alignments.containsKey(key))
+				missing.putIfAbsent(key, s2);
+		}
+		// a single alignment is not worth a task
+		if (missing.size() < 2)
+			return;
+
+		PairKey[] keys = missing.keySet().toArray(new PairKey[0]);
+		Subunit[] others = missing.values().toArray(new Subunit[0]);
+		AlignmentOutcome[] outcomes = new AlignmentOutcome[keys.length];
+		pool.invoke(new AlignmentTask(merger, s1, others, outcomes, 0, others.length));
+		for (int i = 0; i < keys.length; i++)
+			alignments.put(keys[i], outcomes[i]);
+	}
+
+	/**
+	 * Identifies a pair of representatives, such that pairs with equal keys
+	 * have the same alignment.
+	 */
+	private static final class PairKey {
+
+		private final Object first;
+		private final Object second;
+
+		PairKey(Object first, Object second) {
+			this.first = first;
+			this.second = second;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * first.hashCode() + second.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof PairKey))
+				return false;
+			PairKey other = (PairKey) obj;
+			return first.equals(other.first) && second.equals(other.second);
+		}
+	}
+
+	/**
+	 * The alignment of two representatives, or the exception thrown while
+	 * aligning them.
+	 */
+	private static final class AlignmentOutcome {
+
+		private SubunitCluster.RepresentativeAlignment alignment;
+		private Exception exception;
+
+		AlignmentOutcome(Merger merger, Subunit s1, Subunit s2) {
+			try {
+				alignment = merger.align(s1, s2);
+			} catch (CompoundNotFoundException | StructureException e) {
+				exception = e;
+			}
+		}
+
+		SubunitCluster.RepresentativeAlignment getAlignment() throws CompoundNotFoundException, StructureException {
+			if (exception instanceof CompoundNotFoundException)
+				throw (CompoundNotFoundException) exception;
+			if (exception instanceof StructureException)
+				throw (StructureException) exception;
+			return alignment;
+		}
+	}
+
+	/**
+	 * Aligns one representative against a range of others, splitting the range
+	 * in halves.
+	 */
+	private static class AlignmentTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Merger merger;
+		private final Subunit s1;
+		private final Subunit[] others;
+		private final AlignmentOutcome[] outcomes;
+		private final int from;
+		private final int to;
+
+		AlignmentTask(Merger merger, Subunit s1, Subunit[] others, AlignmentOutcome[] outcomes, int from, int to) {
+			this.merger = merger;
+			this.s1 = s1;
+			this.others = others;
+			this.outcomes = outcomes;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				outcomes[from] = new AlignmentOutcome(merger, s1, others[from]);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new AlignmentTask(merger, s1, others, outcomes, from, mid),
+					new AlignmentTask(merger, s1, others, outcomes, mid, to));
+		}
+	}
+
+	/**
+	 * One way of comparing and merging clusters.
+	 */
+	private interface Merger {
+
+		String getName();
+
+		PairKey getKey(Subunit s1, Subunit s2);
+
+		SubunitCluster.RepresentativeAlignment align(Subunit s1, Subunit s2)
+				throws CompoundNotFoundException, StructureException;
+
+		boolean mergeWithoutAlignment(SubunitCluster c1, SubunitCluster c2);
+
+		boolean merge(SubunitCluster c1, SubunitCluster c2, SubunitCluster.RepresentativeAlignment alignment);
+	}
+
+	/**
+	 * Merges by sequence alignment. Subunits with identical sequences share
+	 * their alignments.
+	 */
+	private static class SequenceMerger implements Merger {
+
+		private final SubunitClustererParameters params;
+		private final PairwiseSequenceAlignerType alignerType;
+		// loaded here because SubstitutionMatrixHelper is not thread safe
+		private final SubstitutionMatrix<AminoAcidCompound> subsMatrix = SubstitutionMatrixHelper.getBlosum62();
+		private final Map<Subunit, Integer> sequenceIds = new IdentityHashMap<>();
+
+		SequenceMerger(List<Subunit> subunits, SubunitClustererParameters params) {
+			this.params = params;
+			this.alignerType = params.isUseGlobalMetrics() ? PairwiseSequenceAlignerType.GLOBAL
+					: PairwiseSequenceAlignerType.LOCAL;
+			Map<String, Integer> distinctSequences = new HashMap<>();
+			for (Subunit s : subunits) {
+				Integer id = distinctSequences.computeIfAbsent(s.getProteinSequenceString(),
+						k -> distinctSequences.size());
+				sequenceIds.put(s, id);
+				try {
+					// the sequence is created lazily, do it before aligning in parallel
+					s.getProteinSequence();
+				} catch (CompoundNotFoundException e) {
+					// reported when aligning
+				}
+			}
+			logger.debug("Found {} distinct sequences in {} subunits", distinctSequences.size(), subunits.size());
+		}
+
+		@Override
+		public String getName() {
+			return "Sequence";
+		}
+
+		@Override
+		public PairKey getKey(Subunit s1, Subunit s2) {
+			return new PairKey(sequenceIds.get(s1), sequenceIds.get(s2));
+		}
+
+		@Override
+		public SubunitCluster.RepresentativeAlignment align(Subunit s1, Subunit s2) throws CompoundNotFoundException {
+			return SubunitCluster.alignSequences(s1, s2, params, alignerType, new SimpleGapPenalty(), subsMatrix);
+		}
+
+		@Override
+		public boolean mergeWithoutAlignment(SubunitCluster c1, SubunitCluster c2) {
+			// This we will only do if the switch is for entity id comparison is on.
+			// In some cases it can save enormous amounts of time, e.g. for clustering full
+			// chains of deposited PDB entries. For instance for 6NHJ: with pure alignments it
+			// takes ~ 6 hours, with entity id comparisons it takes 2 minutes.
+			return params.isUseEntityIdForSeqIdentityDetermination() && c1.mergeIdenticalByEntityId(c2);
+		}
+
+		@Override
+		public boolean merge(SubunitCluster c1, SubunitCluster c2, SubunitCluster.RepresentativeAlignment alignment) {
+			return c1.mergeSequence(c2, params, alignment);
+		}
+	}
+
+	/**
+	 * Merges by structural alignment of the representative atoms.
+	 */
+	private static class StructureMerger implements Merger {
+
+		private final SubunitClustererParameters params;
+
+		StructureMerger(SubunitClustererParameters params) {
+			this.params = params;
+		}
+
+		@Override
+		public String getName() {
+			return "Structure";
+		}
+
+		@Override
+		public PairKey getKey(Subunit s1, Subunit s2) {
+			// Subunits are compared by identity
+			return new PairKey(s1, s2);
+		}
+
+		@Override
+		public SubunitCluster.RepresentativeAlignment align(Subunit s1, Subunit s2) throws StructureException {
+			return SubunitCluster.alignStructures(s1, s2, params);
+		}
+
+		@Override
+		public boolean mergeWithoutAlignment(SubunitCluster c1, SubunitCluster c2) {
+			return false;
+		}
+
+		@Override
+		public boolean merge(SubunitCluster c1, SubunitCluster c2, SubunitCluster.RepresentativeAlignment alignment) {
+			return c1.mergeStructure(c2, alignment);
+		}
 	}
 }
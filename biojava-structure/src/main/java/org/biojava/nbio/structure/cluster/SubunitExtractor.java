@@ -21,6 +21,7 @@
 package org.biojava.nbio.structure.cluster;
 
 import org.biojava.nbio.structure.*;
+import org.biojava.nbio.structure.quaternary.BiologicalAssemblyView;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -79,6 +80,55 @@ public class SubunitExtractor {
 			}
 		}
 
+		removeShortSubunits(subunits, absMinLen, fraction, minLen);
+		return subunits;
+	}
+
+	/**
+	 * Extract the information of each protein chain copy of a biological
+	 * assembly and converts them into a List of Subunit, as
+	 * {@link #extractSubunits(Structure, int, double, int)}. The
+	 * representative atoms of the Subunits are
+	 * {@link BiologicalAssemblyView#getRepresentativeAtoms(int) views} of the
+	 * atoms of the asymmetric unit, so no atom is copied. The name of the
+	 * Subunits is set to {@link BiologicalAssemblyView#getChainId(int)}.
+	 *
+	 * @param assembly
+	 *            view of a biological assembly
+	 * @param absMinLen
+	 *            {@link SubunitClustererParameters#getAbsoluteMinimumSequenceLength()}
+	 * @param fraction
+	 *            {@link SubunitClustererParameters#getMinimumSequenceLengthFraction()}
+	 * @param minLen
+	 *            {@link SubunitClustererParameters#getMinimumSequenceLength()}
+	 * @return List of Subunits
+	 * @since 7.2.0
+	 */
+	public static List<Subunit> extractSubunits(BiologicalAssemblyView assembly,
+			int absMinLen, double fraction, int minLen) {
+
+		List<Subunit> subunits = new ArrayList<>();
+
+		for (int i = 0; i < assembly.getChainCount(); i++) {
+			Chain c = assembly.getOriginalChain(i);
+			// Only take protein chains of polymers, chains without entity are
+			// considered polymers as in Structure#getPolyChains()
+			EntityType type = c.getEntityType();
+			if ((type == null || type == EntityType.POLYMER) && c.isProtein()) {
+				Atom[] ca = assembly.getRepresentativeAtoms(i);
+				if (ca.length==0)
+					continue;
+				subunits.add(new Subunit(ca, assembly.getChainId(i), null, assembly.getAsymUnit()));
+			}
+		}
+
+		removeShortSubunits(subunits, absMinLen, fraction, minLen);
+		return subunits;
+	}
+
+	private static void removeShortSubunits(List<Subunit> subunits,
+			int absMinLen, double fraction, int minLen) {
+
 		// Calculate the minimum length of a Subunit
 		int adjustedMinLen = calcAdjustedMinimumSequenceLength(subunits,
 				absMinLen, fraction, minLen);
@@ -89,8 +139,6 @@ public class SubunitExtractor {
 			if (subunits.get(s).size() < adjustedMinLen)
 				subunits.remove(s);
 		}
-
-		return subunits;
 	}
 
 	/**
@@ -0,0 +1,282 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.compact;
+
+import java.util.List;
+
+import javax.vecmath.Point3d;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.AtomImpl;
+import org.biojava.nbio.structure.Bond;
+import org.biojava.nbio.structure.Element;
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.io.FileConvert;
+
+/**
+ * A flyweight {@link Atom} that reads and writes its data from the columns of
+ * a {@link CompactModel}. The only per-atom state is a reference to the model,
+ * the atom index and the parent group.
+ * <p>
+ * Coordinates are not cached: {@link #getCoordsAsPoint3d()} returns a new
+ * Point3d on each call, and modifications to it are not written back. Use the
+ * setters to change coordinates. Bonds are not stored in the compact
+ * representation, so {@link #getBonds()} always returns null and adding bonds
+ * is not supported.
+ *
+ * @since 7.2.0
+ */
+public class CompactAtom implements Atom {
+
+	private static final long serialVersionUID = -6281926536117049283L;
+
+	private final CompactModel model;
+	private final int index;
+	private Group parent;
+
+	/**
+	 * @param model
+	 *            the model holding the atom columns
+	 * @param index
+	 *            the atom index within the model
+	 */
+	public CompactAtom(CompactModel model, int index) {
+		this.model = model;
+		this.index = index;
+	}
+
+	/**
+	 * @return the model backing this atom
+	 */
+	public CompactModel getModel() {
+		return model;
+	}
+
+	/**
+	 * @return the index of this atom within its model
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * Atom names are interned in the parent structure, so renaming is not
+	 * supported.
+	 *
+	 * @throws UnsupportedOperationException
+	 *             always
+	 */
+	@Override
+	public void setName(String s) {
+		throw new UnsupportedOperationException("Atom names of compact structures can not be changed");
+	}
+
+	@Override
+	public String getName() {
+		return model.getAtomName(index);
+	}
+
+	@Override
+	public void setElement(Element e) {
+		model.setElement(index, e);
+	}
+
+	@Override
+	public Element getElement() {
+		return model.getElement(index);
+	}
+
+	@Override
+	public void setPDBserial(int i) {
+		model.setPDBserial(index, i);
+	}
+
+	@Override
+	public int getPDBserial() {
+		return model.getPDBserial(index);
+	}
+
+	@Override
+	public void setCoords(double[] c) {
+		model.setCoords(index, c[0], c[1], c[2]);
+	}
+
+	@Override
+	public double[] getCoords() {
+		return new double[] { getX(), getY(), getZ() };
+	}
+
+	@Override
+	public Point3d getCoordsAsPoint3d() {
+		return model.getCoordsAsPoint3d(index);
+	}
+
+	@Override
+	public void setX(double x) {
+		model.coords[3 * index] = x;
+	}
+
+	@Override
+	public void setY(double y) {
+		model.coords[3 * index + 1] = y;
+	}
+
+	@Override
+	public void setZ(double z) {
+		model.coords[3 * index + 2] = z;
+	}
+
+	@Override
+	public double getX() {
+		return model.getX(index);
+	}
+
+	@Override
+	public double getY() {
+		return model.getY(index);
+	}
+
+	@Override
+	public double getZ() {
+		return model.getZ(index);
+	}
+
+	@Override
+	public void setAltLoc(Character c) {
+		model.setAltLoc(index, c == null ? 0 : c);
+	}
+
+	@Override
+	public Character getAltLoc() {
+		char c = model.getAltLoc(index);
+		if (c == 0)
+			return null;
+		return c;
+	}
+
+	@Override
+	public void setOccupancy(float occupancy) {
+		model.setOccupancy(index, occupancy);
+	}
+
+	@Override
+	public float getOccupancy() {
+		return model.getOccupancy(index);
+	}
+
+	@Override
+	public void setTempFactor(float temp) {
+		model.setTempFactor(index, temp);
+	}
+
+	@Override
+	public float getTempFactor() {
+		return model.getTempFactor(index);
+	}
+
+	/**
+	 * Returns a detached copy of this atom as an {@link AtomImpl}.
+	 */
+	@Override
+	public Object clone() {
+		AtomImpl n = new AtomImpl();
+		n.setOccupancy(getOccupancy());
+		n.setTempFactor(getTempFactor());
+		n.setAltLoc(getAltLoc());
+		n.setCharge(getCharge());
+		n.setX(getX());
+		n.setY(getY());
+		n.setZ(getZ());
+		n.setPDBserial(getPDBserial());
+		n.setName(getName());
+		n.setElement(getElement());
+		return n;
+	}
+
+	@Override
+	public void setGroup(Group parent) {
+		this.parent = parent;
+	}
+
+	@Override
+	public Group getGroup() {
+		return parent;
+	}
+
+	/**
+	 * Bonds are not stored in compact structures.
+	 *
+	 * @throws UnsupportedOperationException
+	 *             always
+	 */
+	@Override
+	public void addBond(Bond bond) {
+		throw new UnsupportedOperationException("Bonds are not supported by compact structures");
+	}
+
+	@Override
+	public List<Bond> getBonds() {
+		return null;
+	}
+
+	/**
+	 * Bonds are not stored in compact structures. Setting null is accepted
+	 * and ignored.
+	 *
+	 * @throws UnsupportedOperationException
+	 *             if bonds is not null
+	 */
+	@Override
+	public void setBonds(List<Bond> bonds) {
+		if (bonds != null)
+			throw new UnsupportedOperationException("Bonds are not supported by compact structures");
+	}
+
+	@Override
+	public boolean hasBond(Atom other) {
+		return false;
+	}
+
+	@Override
+	public short getCharge() {
+		return model.getCharge(index);
+	}
+
+	@Override
+	public void setCharge(short charge) {
+		model.setCharge(index, charge);
+	}
+
+	@Override
+	public String toPDB() {
+		return FileConvert.toPDB(this);
+	}
+
+	@Override
+	public void toPDB(StringBuffer buf) {
+		FileConvert.toPDB(this, buf);
+	}
+
+	@Override
+	public String toString() {
+		return getName() + " " + getElement() + " " + getPDBserial() + " " + getX() + " " + getY() + " " + getZ();
+	}
+}
@@ -0,0 +1,589 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.compact;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.biojava.nbio.structure.Element;
+import org.biojava.nbio.structure.EntityInfo;
+import org.biojava.nbio.structure.EntityType;
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.GroupType;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureTools;
+import org.biojava.nbio.structure.chem.ChemComp;
+import org.biojava.nbio.structure.chem.ChemCompAtom;
+import org.biojava.nbio.structure.chem.ChemCompGroupFactory;
+import org.biojava.nbio.structure.io.FileParsingParameters;
+import org.biojava.nbio.structure.io.cif.CifStructureConverter;
+import org.rcsb.cif.CifIO;
+import org.rcsb.cif.model.CifFile;
+import org.rcsb.cif.model.FloatColumn;
+import org.rcsb.cif.model.IntColumn;
+import org.rcsb.cif.model.StrColumn;
+import org.rcsb.cif.model.ValueKind;
+import org.rcsb.cif.schema.StandardSchemata;
+import org.rcsb.cif.schema.mm.AtomSite;
+import org.rcsb.cif.schema.mm.MmCifBlock;
+import org.rcsb.cif.schema.mm.StructAsym;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads mmCIF and BinaryCIF files into a {@link CompactStructure}, filling the
+ * columns directly from the <code>atom_site</code> category instead of
+ * creating an {@link org.biojava.nbio.structure.Atom} and
+ * {@link org.biojava.nbio.structure.Group} object per row.
+ * <p>
+ * The result is the same as
+ * <code>new CompactStructure(CifStructureConverter.fromCifFile(cifFile, parameters))</code>:
+ * the groups, their principal alternate location atoms and the chain order
+ * follow {@link org.biojava.nbio.structure.io.cif.CifStructureConsumerImpl},
+ * and the header and entities are parsed by it in
+ * {@link FileParsingParameters#setHeaderOnly(boolean) header only} mode.
+ * Files without entity or <code>struct_asym</code> information, for which the
+ * consumer derives the entities from the atoms, and header only or category
+ * filtering parameters are converted through the full object model.
+ *
+ * @since 7.2.0
+ */
+public class CompactCifConverter {
+
+	private static final Logger logger = LoggerFactory.getLogger(CompactCifConverter.class);
+
+	private CompactCifConverter() {
+	}
+
+	/**
+	 * Reads a file, which can be gzipped, text or binary.
+	 *
+	 * @param path the file
+	 * @param parameters parameters for parsing
+	 * @return the compact structure
+	 * @throws IOException if the file cannot be read
+	 */
+	public static CompactStructure fromPath(Path path, FileParsingParameters parameters) throws IOException {
+		try (InputStream inputStream = Files.newInputStream(path)) {
+			return fromInputStream(inputStream, parameters);
+		}
+	}
+
+	/**
+	 * Reads a stream, which can be gzipped, text or binary.
+	 *
+	 * @param inputStream the stream, which is not closed
+	 * @param parameters parameters for parsing
+	 * @return the compact structure
+	 * @throws IOException if the stream cannot be read
+	 */
+	public static CompactStructure fromInputStream(InputStream inputStream, FileParsingParameters parameters)
+			throws IOException {
+		return fromCifFile(CifIO.readFromInputStream(inputStream), parameters);
+	}
+
+	/**
+	 * Converts a parsed file.
+	 *
+	 * @param cifFile the file
+	 * @param parameters parameters for parsing
+	 * @return the compact structure
+	 */
+	public static CompactStructure fromCifFile(CifFile cifFile, FileParsingParameters parameters) {
+		if (parameters.isHeaderOnly() || parameters.getCifCategories() != null) {
+			return new CompactStructure(CifStructureConverter.fromCifFile(cifFile, parameters));
+		}
+
+		FileParsingParameters headerParameters = new FileParsingParameters(parameters);
+		headerParameters.setHeaderOnly(true);
+		Structure header = CifStructureConverter.fromCifFile(cifFile, headerParameters);
+
+		MmCifBlock block = cifFile.as(StandardSchemata.MMCIF).getFirstBlock();
+		Map<String, EntityInfo> entities = getEntities(block.getStructAsym(), header);
+		if (entities == null) {
+			logger.debug("No complete entity information in {}, converting the full structure", header.getPdbId());
+			return new CompactStructure(CifStructureConverter.fromCifFile(cifFile, parameters));
+		}
+
+		return new AtomSiteReader(block.getAtomSite(), parameters, header, entities).read();
+	}
+
+	/**
+	 * @return the entity of each asym id, or null if some are missing
+	 */
+	private static Map<String, EntityInfo> getEntities(StructAsym structAsym, Structure header) {
+		if (!structAsym.isDefined() || structAsym.getRowCount() == 0 || header.getEntityInfos().isEmpty()) {
+			return null;
+		}
+		Map<String, EntityInfo> entities = new HashMap<>();
+		for (int row = 0; row < structAsym.getRowCount(); row++) {
+			EntityInfo entity;
+			try {
+				entity = header.getEntityById(Integer.parseInt(structAsym.getEntityId().get(row)));
+			} catch (NumberFormatException e) {
+				return null;
+			}
+			if (entity == null) {
+				return null;
+			}
+			entities.put(structAsym.getId().get(row), entity);
+		}
+		return entities;
+	}
+
+	/**
+	 * The atom_site rows of a group that are atoms of its principal alternate
+	 * location, see {@link org.biojava.nbio.structure.Group#getAtoms()}.
+	 */
+	private static class GroupRows {
+		final String compId;
+		final String chainName;
+		final int resNum;
+		final Character insCode;
+		final GroupType type;
+		final boolean hetAtomInFile;
+		int[] rows = new int[16];
+		String[] names = new String[16];
+		int size;
+		// the alternate location groups, each as its PDB name and the alt locs of its atoms
+		List<String> altLocNames;
+		List<StringBuilder> altLocs;
+
+		GroupRows(String compId, String chainName, int resNum, Character insCode, GroupType type, boolean hetAtomInFile) {
+			this.compId = compId;
+			this.chainName = chainName;
+			this.resNum = resNum;
+			this.insCode = insCode;
+			this.type = type;
+			this.hetAtomInFile = hetAtomInFile;
+		}
+
+		void add(int row, String name) {
+			if (size == rows.length) {
+				rows = Arrays.copyOf(rows, 2 * size);
+				names = Arrays.copyOf(names, 2 * size);
+			}
+			rows[size] = row;
+			names[size] = name;
+			size++;
+		}
+
+		boolean hasAtom(String name) {
+			for (int i = 0; i < size; i++) {
+				if (names[i].equals(name))
+					return true;
+			}
+			return false;
+		}
+
+		boolean isResidue(String chainName, int resNum, Character insCode) {
+			return this.resNum == resNum && this.chainName.equals(chainName)
+					&& (this.insCode == null ? insCode == null : this.insCode.equals(insCode));
+		}
+	}
+
+	private static class ChainRows {
+		final String asymId;
+		final String authId;
+		final List<GroupRows> groups = new ArrayList<>();
+
+		ChainRows(String asymId, String authId) {
+			this.asymId = asymId;
+			this.authId = authId;
+		}
+	}
+
+	/**
+	 * Groups the atom_site rows like
+	 * {@link org.biojava.nbio.structure.io.cif.CifStructureConsumerImpl#consumeAtomSite(AtomSite)}
+	 * and copies them to the columns.
+	 */
+	private static class AtomSiteReader {
+		private final AtomSite atomSite;
+		private final FileParsingParameters params;
+		private final Structure header;
+		private final Map<String, EntityInfo> entities;
+
+		private final Map<String, GroupType> groupTypes = new HashMap<>();
+		private final Map<String, Element> elements = new HashMap<>();
+
+		private final List<List<ChainRows>> models = new ArrayList<>();
+		private List<ChainRows> currentModel = new ArrayList<>();
+		private ChainRows currentChain;
+		private GroupRows currentGroup;
+
+		AtomSiteReader(AtomSite atomSite, FileParsingParameters params, Structure header, Map<String, EntityInfo> entities) {
+			this.atomSite = atomSite;
+			this.params = params;
+			this.header = header;
+			this.entities = entities;
+		}
+
+		CompactStructure read() {
+			groupRows();
+			return toColumns();
+		}
+
+		private void groupRows() {
+			StrColumn labelAsymId = atomSite.getLabelAsymId();
+			StrColumn authAsymId = atomSite.getAuthAsymId();
+			StrColumn groupPDB = atomSite.getGroupPDB();
+			IntColumn authSeqId = atomSite.getAuthSeqId();
+			StrColumn labelCompId = atomSite.getLabelCompId();
+			StrColumn labelAtomId = atomSite.getLabelAtomId();
+			StrColumn labelAltId = atomSite.getLabelAltId();
+			StrColumn typeSymbol = atomSite.getTypeSymbol();
+			StrColumn pdbxPDBInsCode = atomSite.getPdbxPDBInsCode();
+			IntColumn labelSeqId = atomSite.getLabelSeqId();
+			IntColumn modelNum = atomSite.getPdbxPDBModelNum();
+
+			Set<String> acceptedAtomNames = params.getAcceptedAtomNames() == null ? null :
+					new HashSet<>(Arrays.asList(params.getAcceptedAtomNames()));
+			int rowCount = atomSite.getRowCount();
+			int firstModelNumber = rowCount > 0 ? modelNum.get(0) : 0;
+			String currentModelNumber = null;
+
+			for (int row = 0; row < rowCount; row++) {
+				if (params.isParseFirstModelOnly() && modelNum.get(row) != firstModelNumber) {
+					break;
+				}
+				if (params.isParsePolymerOnly() && labelSeqId.getValueKind(row) != ValueKind.PRESENT) {
+					continue;
+				}
+				String atomName = labelAtomId.get(row);
+				if (acceptedAtomNames != null && !acceptedAtomNames.contains(atomName)) {
+					continue;
+				}
+
+				String record = groupPDB.get(row);
+				String insCodeString = pdbxPDBInsCode.isDefined() ? pdbxPDBInsCode.get(row) : null;
+				Character insCode = null;
+				if (insCodeString != null && !insCodeString.isEmpty() && !"?".equals(insCodeString)) {
+					insCode = insCodeString.charAt(0);
+				}
+
+				String modelNumber = modelNum.getStringData(row);
+				if (currentModelNumber == null) {
+					currentModelNumber = modelNumber;
+				}
+				if (!currentModelNumber.equals(modelNumber)) {
+					currentModelNumber = modelNumber;
+					if (currentChain != null) {
+						currentChain.groups.add(currentGroup);
+					}
+					models.add(currentModel);
+					currentModel = new ArrayList<>();
+					currentChain = null;
+					currentGroup = null;
+				}
+
+				String asymId = labelAsymId.get(row);
+				String authId = authAsymId.isDefined() ? authAsymId.get(row) : asymId;
+				boolean startOfNewChain = false;
+				if (currentChain == null) {
+					currentChain = new ChainRows(asymId, authId);
+					currentModel.add(currentChain);
+					startOfNewChain = true;
+				}
+				if (!asymId.equals(currentChain.asymId)) {
+					startOfNewChain = true;
+					currentChain.groups.add(currentGroup);
+					ChainRows chain = null;
+					for (ChainRows c : currentModel) {
+						if (c.asymId.equals(asymId)) {
+							chain = c;
+							break;
+						}
+					}
+					if (chain == null) {
+						chain = new ChainRows(asymId, authId);
+						currentModel.add(chain);
+					}
+					currentChain = chain;
+				}
+
+				int resNum = authSeqId.isDefined() ? authSeqId.get(row) : labelSeqId.get(row);
+				String compId = labelCompId.get(row);
+				String altLocation = labelAltId.isDefined() ? labelAltId.get(row) : null;
+
+				// the index of the alternate location group of the atom, -1 for the principal group
+				int altGroup = -1;
+				if (startOfNewChain || currentGroup == null) {
+					currentGroup = newGroup(record, compId, authId, resNum, insCode);
+				} else if (!currentGroup.isResidue(authId, resNum, insCode)) {
+					currentChain.groups.add(currentGroup);
+					currentGroup = newGroup(record, compId, authId, resNum, insCode);
+				} else if (altLocation != null && !altLocation.isEmpty() && !".".equals(altLocation)) {
+					altGroup = getAltLocGroup(altLocation.charAt(0), compId);
+				}
+
+				if (params.isParseCAOnly() && !atomName.equals(StructureTools.CA_ATOM_NAME)
+						&& "C".equals(typeSymbol.get(row))) {
+					continue;
+				}
+
+				char altLoc = altLocation == null || altLocation.isEmpty() || ".".equals(altLocation) ? ' '
+						: altLocation.charAt(0);
+				if (altGroup < 0) {
+					currentGroup.add(row, atomName);
+				} else {
+					currentGroup.altLocs.get(altGroup).append(altLoc);
+					// atoms of alternate locations that are missing from the principal group are added to it
+					if (!currentGroup.hasAtom(atomName) && currentGroup.compId.equals(currentGroup.altLocNames.get(altGroup))
+							&& !hasNonDeuteratedEquiv(atomName, getElement(typeSymbol.get(row)))) {
+						currentGroup.add(row, atomName);
+					}
+				}
+			}
+
+			if (currentChain != null) {
+				currentChain.groups.add(currentGroup);
+			}
+			models.add(currentModel);
+		}
+
+		/**
+		 * @return the index of the alternate location group, or -1 for the principal group
+		 */
+		private int getAltLocGroup(char altLoc, String compId) {
+			GroupRows group = currentGroup;
+			if (group.size > 0 && getAltLoc(group.rows[0]) == altLoc) {
+				return -1;
+			}
+			if (group.altLocs == null) {
+				group.altLocNames = new ArrayList<>();
+				group.altLocs = new ArrayList<>();
+			}
+			for (int i = 0; i < group.altLocs.size(); i++) {
+				if (group.altLocs.get(i).indexOf(String.valueOf(altLoc)) >= 0) {
+					return i;
+				}
+			}
+			if (compId.equals(group.compId) && group.size == 0) {
+				return -1;
+			}
+			group.altLocNames.add(compId);
+			group.altLocs.add(new StringBuilder(1));
+			return group.altLocs.size() - 1;
+		}
+
+		private char getAltLoc(int row) {
+			StrColumn labelAltId = atomSite.getLabelAltId();
+			String altLocation = labelAltId.isDefined() ? labelAltId.get(row) : null;
+			return altLocation == null || altLocation.isEmpty() || ".".equals(altLocation) ? ' ' : altLocation.charAt(0);
+		}
+
+		private boolean hasNonDeuteratedEquiv(String atomName, Element element) {
+			// see StructureTools.hasNonDeuteratedEquiv
+			return element == Element.D && atomName.charAt(0) == 'D'
+					&& currentGroup.hasAtom('H' + atomName.substring(1));
+		}
+
+		private GroupRows newGroup(String record, String compId, String chainName, int resNum, Character insCode) {
+			GroupType type = groupTypes.computeIfAbsent(record + ' ' + compId, k -> getGroupType(record, compId));
+			return new GroupRows(compId, chainName, resNum, insCode, type, !"ATOM".equals(record));
+		}
+
+		/**
+		 * @return the type of the groups created by
+		 *         {@link org.biojava.nbio.structure.io.cif.CifStructureConsumerImpl}
+		 */
+		private static GroupType getGroupType(String record, String compId) {
+			Group group = ChemCompGroupFactory.getGroupFromChemCompDictionary(compId);
+			if (group != null && !group.getChemComp().isEmpty()) {
+				return group.getType();
+			}
+			if (StructureTools.isNucleotide(compId)) {
+				return GroupType.NUCLEOTIDE;
+			}
+			Character oneLetterCode = StructureTools.get1LetterCodeAmino(compId);
+			if ("ATOM".equals(record)) {
+				return oneLetterCode == null || oneLetterCode == StructureTools.UNKNOWN_GROUP_LABEL ? GroupType.HETATM
+						: GroupType.AMINOACID;
+			}
+			return oneLetterCode == null || oneLetterCode.equals(StructureTools.UNKNOWN_GROUP_LABEL) ? GroupType.HETATM
+					: GroupType.AMINOACID;
+		}
+
+		private Element getElement(String typeSymbol) {
+			return elements.computeIfAbsent(typeSymbol, ts -> {
+				try {
+					return Element.valueOfIgnoreCase(ts);
+				} catch (IllegalArgumentException e) {
+					logger.info("Element {} was not recognised as a BioJava-known element, the element will be "
+							+ "represented as the generic element {}", ts, Element.R.name());
+					return Element.R;
+				}
+			});
+		}
+
+		/**
+		 * @return the chains of a model in the order of {@link Structure#getModel(int)}:
+		 *         polymers, non-polymers and waters
+		 */
+		private List<ChainRows> sortChains(List<ChainRows> chains) {
+			List<ChainRows> poly = new ArrayList<>();
+			List<ChainRows> nonPoly = new ArrayList<>();
+			List<ChainRows> water = new ArrayList<>();
+			for (ChainRows chain : chains) {
+				EntityInfo entity = entities.get(chain.asymId);
+				EntityType type = entity == null ? null : entity.getType();
+				if (type == null || type == EntityType.POLYMER) {
+					poly.add(chain);
+				} else if (type == EntityType.NONPOLYMER || type == EntityType.MACROLIDE || type == EntityType.BRANCHED) {
+					nonPoly.add(chain);
+				} else if (type == EntityType.WATER) {
+					water.add(chain);
+				} else {
+					logger.warn("Chain with asym id {} (author id {}) has unsupported entity type '{}'. Will not add it to the Structure.",
+							chain.asymId, chain.authId, type);
+				}
+			}
+			poly.addAll(nonPoly);
+			poly.addAll(water);
+			return poly;
+		}
+
+		private CompactStructure toColumns() {
+			List<List<ChainRows>> sortedModels = new ArrayList<>(models.size());
+			Map<String, Integer> atomNameIndex = new HashMap<>();
+			List<String> atomNameList = new ArrayList<>();
+			Map<String, Integer> groupNameIndex = new HashMap<>();
+			List<String> groupNameList = new ArrayList<>();
+			List<ChemComp> chemCompList = new ArrayList<>();
+			for (List<ChainRows> model : models) {
+				List<ChainRows> chains = sortChains(model);
+				sortedModels.add(chains);
+				for (ChainRows chain : chains) {
+					for (GroupRows group : chain.groups) {
+						if (!groupNameIndex.containsKey(group.compId)) {
+							groupNameIndex.put(group.compId, groupNameList.size());
+							groupNameList.add(group.compId);
+							chemCompList.add(ChemCompGroupFactory.getChemComp(group.compId));
+						}
+						for (int i = 0; i < group.size; i++) {
+							if (!atomNameIndex.containsKey(group.names[i])) {
+								atomNameIndex.put(group.names[i], atomNameList.size());
+								atomNameList.add(group.names[i]);
+							}
+						}
+					}
+				}
+			}
+
+			CompactStructure structure = new CompactStructure(header, atomNameList, groupNameList, chemCompList);
+			Map<EntityInfo, Integer> entityIndex = new IdentityHashMap<>();
+			List<EntityInfo> headerEntities = header.getEntityInfos();
+			for (int i = 0; i < headerEntities.size(); i++) {
+				entityIndex.put(headerEntities.get(i), i);
+			}
+
+			IntColumn id = atomSite.getId();
+			FloatColumn cartnX = atomSite.getCartnX();
+			FloatColumn cartnY = atomSite.getCartnY();
+			FloatColumn cartnZ = atomSite.getCartnZ();
+			FloatColumn occupancy = atomSite.getOccupancy();
+			FloatColumn bIsoOrEquiv = atomSite.getBIsoOrEquiv();
+			StrColumn typeSymbol = atomSite.getTypeSymbol();
+
+			for (List<ChainRows> chains : sortedModels) {
+				int nGroups = 0;
+				int nAtoms = 0;
+				for (ChainRows chain : chains) {
+					nGroups += chain.groups.size();
+					for (GroupRows group : chain.groups) {
+						nAtoms += group.size;
+					}
+				}
+
+				CompactModel model = new CompactModel(structure, nAtoms, nGroups, chains.size());
+				int atom = 0;
+				int g = 0;
+				for (int c = 0; c < chains.size(); c++) {
+					ChainRows chain = chains.get(c);
+					model.chainGroupStart[c] = g;
+					model.asymId[c] = chain.asymId;
+					model.authId[c] = chain.authId;
+					Integer entity = entityIndex.get(entities.get(chain.asymId));
+					model.chainEntity[c] = entity == null ? -1 : entity;
+
+					for (GroupRows group : chain.groups) {
+						model.groupAtomStart[g] = atom;
+						model.groupName[g] = groupNameIndex.get(group.compId);
+						model.resNum[g] = group.resNum;
+						model.insCode[g] = group.insCode == null ? 0 : group.insCode;
+						model.groupType[g] = (byte) group.type.ordinal();
+						model.hetAtomInFile[g] = group.hetAtomInFile;
+						Map<String, Short> charges = params.shouldCreateAtomCharges() ? getCharges(group.compId) : null;
+
+						for (int i = 0; i < group.size; i++) {
+							int row = group.rows[i];
+							model.atomName[atom] = atomNameIndex.get(group.names[i]);
+							model.setCoords(atom, cartnX.get(row), cartnY.get(row), cartnZ.get(row));
+							model.setElement(atom, getElement(typeSymbol.get(row)));
+							model.occupancy[atom] = (float) occupancy.get(row);
+							model.tempFactor[atom] = (float) bIsoOrEquiv.get(row);
+							model.serial[atom] = id.get(row);
+							model.altLoc[atom] = getAltLoc(row);
+							if (charges != null) {
+								Short charge = charges.get(group.names[i]);
+								if (charge != null)
+									model.charge[atom] = charge;
+							}
+							atom++;
+						}
+						g++;
+					}
+				}
+				model.groupAtomStart[nGroups] = nAtoms;
+				model.chainGroupStart[chains.size()] = nGroups;
+				structure.addModel(model);
+			}
+			return structure;
+		}
+
+		private final Map<String, Map<String, Short>> charges = new HashMap<>();
+
+		/**
+		 * @return the charges of the atoms of a chemical component, as set by
+		 *         {@link org.biojava.nbio.structure.io.ChargeAdder}
+		 */
+		private Map<String, Short> getCharges(String compId) {
+			return charges.computeIfAbsent(compId, k -> {
+				Map<String, Short> atomCharges = new HashMap<>();
+				for (ChemCompAtom atom : ChemCompGroupFactory.getChemComp(compId).getAtoms()) {
+					atomCharges.put(atom.getAtomId(), (short) atom.getCharge());
+				}
+				return atomCharges;
+			});
+		}
+	}
+}
@@ -0,0 +1,444 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.compact;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import javax.vecmath.Matrix4d;
+import javax.vecmath.Point3d;
+
+import org.biojava.nbio.structure.Element;
+import org.biojava.nbio.structure.GroupType;
+import org.biojava.nbio.structure.StructureTools;
+
+/**
+ * The atoms, groups and chains of a single model of a {@link CompactStructure},
+ * stored as parallel primitive arrays ("columns").
+ * <p>
+ * All atom coordinates of the model are held in a single interleaved
+ * <code>double[]</code> of length <code>3*getAtomCount()</code>, in the order
+ * <code>x0,y0,z0,x1,y1,z1,...</code>. The array returned by
+ * {@link #getCoordinates()} is the live column: it is not copied, so it can be
+ * handed directly to the coordinate-array methods of the geometry code.
+ * <p>
+ * Atoms are sorted by group and groups by chain, so that the atoms of group
+ * <code>g</code> are the index range
+ * <code>[getGroupAtomStart(g), getGroupAtomStart(g+1))</code> and the groups of
+ * chain <code>c</code> are <code>[getChainGroupStart(c), getChainGroupStart(c+1))</code>.
+ * Atom and residue names are interned in dictionaries shared by all models of
+ * the parent structure.
+ *
+ * @since 7.2.0
+ */
+public class CompactModel implements Serializable {
+
+	private static final long serialVersionUID = 3297645893216729312L;
+
+	private static final Element[] ELEMENTS = Element.values();
+	private static final GroupType[] GROUP_TYPES = GroupType.values();
+
+	private final CompactStructure parent;
+
+	// atom columns
+	final double[] coords;
+	final int[] atomName;
+	final byte[] element;
+	final float[] occupancy;
+	final float[] tempFactor;
+	final int[] serial;
+	final char[] altLoc;
+	final short[] charge;
+
+	// group columns, groupAtomStart has one extra element to close the last range
+	final int[] groupAtomStart;
+	final int[] groupName;
+	final int[] resNum;
+	final char[] insCode;
+	final byte[] groupType;
+	final boolean[] hetAtomInFile;
+
+	// chain columns, chainGroupStart has one extra element to close the last range
+	final int[] chainGroupStart;
+	final String[] asymId;
+	final String[] authId;
+	final int[] chainEntity;
+
+	CompactModel(CompactStructure parent, int nAtoms, int nGroups, int nChains) {
+		this.parent = parent;
+
+		coords = new double[3 * nAtoms];
+		atomName = new int[nAtoms];
+		element = new byte[nAtoms];
+		occupancy = new float[nAtoms];
+		tempFactor = new float[nAtoms];
+		serial = new int[nAtoms];
+		altLoc = new char[nAtoms];
+		charge = new short[nAtoms];
+
+		groupAtomStart = new int[nGroups + 1];
+		groupName = new int[nGroups];
+		resNum = new int[nGroups];
+		insCode = new char[nGroups];
+		groupType = new byte[nGroups];
+		hetAtomInFile = new boolean[nGroups];
+
+		chainGroupStart = new int[nChains + 1];
+		asymId = new String[nChains];
+		authId = new String[nChains];
+		chainEntity = new int[nChains];
+	}
+
+	/**
+	 * @return the structure this model belongs to
+	 */
+	public CompactStructure getStructure() {
+		return parent;
+	}
+
+	/**
+	 * @return the number of atoms in this model
+	 */
+	public int getAtomCount() {
+		return atomName.length;
+	}
+
+	/**
+	 * @return the number of groups (residues, ligands, waters) in this model
+	 */
+	public int getGroupCount() {
+		return groupName.length;
+	}
+
+	/**
+	 * @return the number of chains in this model
+	 */
+	public int getChainCount() {
+		return asymId.length;
+	}
+
+	/**
+	 * Returns the coordinate column of this model, interleaved as
+	 * <code>x0,y0,z0,x1,y1,z1,...</code>. This is the backing array, not a copy:
+	 * changes to it are visible through all atom views.
+	 *
+	 * @return the interleaved coordinates of all atoms
+	 */
+	public double[] getCoordinates() {
+		return coords;
+	}
+
+	/**
+	 * Copies the coordinates of a subset of atoms into an interleaved buffer.
+	 *
+	 * @param atomIndices
+	 *            the indices of the atoms to copy
+	 * @param dest
+	 *            buffer of length at least <code>3*atomIndices.length</code>,
+	 *            or null to allocate one
+	 * @return the filled buffer
+	 */
+	public double[] getCoordinates(int[] atomIndices, double[] dest) {
+		if (dest == null)
+			dest = new double[3 * atomIndices.length];
+		for (int i = 0; i < atomIndices.length; i++) {
+			System.arraycopy(coords, 3 * atomIndices[i], dest, 3 * i, 3);
+		}
+		return dest;
+	}
+
+	public double getX(int atom) {
+		return coords[3 * atom];
+	}
+
+	public double getY(int atom) {
+		return coords[3 * atom + 1];
+	}
+
+	public double getZ(int atom) {
+		return coords[3 * atom + 2];
+	}
+
+	public void setCoords(int atom, double x, double y, double z) {
+		coords[3 * atom] = x;
+		coords[3 * atom + 1] = y;
+		coords[3 * atom + 2] = z;
+	}
+
+	/**
+	 * @param atom
+	 *            atom index
+	 * @return a new Point3d holding the coordinates of the atom
+	 */
+	public Point3d getCoordsAsPoint3d(int atom) {
+		return new Point3d(coords[3 * atom], coords[3 * atom + 1], coords[3 * atom + 2]);
+	}
+
+	public String getAtomName(int atom) {
+		return parent.getAtomNameDictionary()[atomName[atom]];
+	}
+
+	public Element getElement(int atom) {
+		return ELEMENTS[element[atom]];
+	}
+
+	public void setElement(int atom, Element e) {
+		element[atom] = (byte) e.ordinal();
+	}
+
+	public float getOccupancy(int atom) {
+		return occupancy[atom];
+	}
+
+	public void setOccupancy(int atom, float occ) {
+		occupancy[atom] = occ;
+	}
+
+	public float getTempFactor(int atom) {
+		return tempFactor[atom];
+	}
+
+	public void setTempFactor(int atom, float temp) {
+		tempFactor[atom] = temp;
+	}
+
+	public int getPDBserial(int atom) {
+		return serial[atom];
+	}
+
+	public void setPDBserial(int atom, int s) {
+		serial[atom] = s;
+	}
+
+	/**
+	 * @param atom
+	 *            atom index
+	 * @return the alternate location indicator, 0 if none
+	 */
+	public char getAltLoc(int atom) {
+		return altLoc[atom];
+	}
+
+	public void setAltLoc(int atom, char c) {
+		altLoc[atom] = c;
+	}
+
+	public short getCharge(int atom) {
+		return charge[atom];
+	}
+
+	public void setCharge(int atom, short c) {
+		charge[atom] = c;
+	}
+
+	/**
+	 * Finds the group an atom belongs to.
+	 *
+	 * @param atom
+	 *            atom index
+	 * @return the group index
+	 */
+	public int getGroupIndex(int atom) {
+		return findRange(groupAtomStart, atom);
+	}
+
+	/**
+	 * @param group
+	 *            group index
+	 * @return the index of the first atom of the group. For
+	 *         <code>group == getGroupCount()</code> the number of atoms is
+	 *         returned.
+	 */
+	public int getGroupAtomStart(int group) {
+		return groupAtomStart[group];
+	}
+
+	public String getGroupName(int group) {
+		return parent.getGroupNameDictionary()[groupName[group]];
+	}
+
+	public int getResidueNumber(int group) {
+		return resNum[group];
+	}
+
+	/**
+	 * @param group
+	 *            group index
+	 * @return the insertion code, 0 if none
+	 */
+	public char getInsCode(int group) {
+		return insCode[group];
+	}
+
+	public GroupType getGroupType(int group) {
+		return GROUP_TYPES[groupType[group]];
+	}
+
+	public boolean isHetAtomInFile(int group) {
+		return hetAtomInFile[group];
+	}
+
+	/**
+	 * Finds the chain a group belongs to.
+	 *
+	 * @param group
+	 *            group index
+	 * @return the chain index
+	 */
+	public int getChainIndex(int group) {
+		return findRange(chainGroupStart, group);
+	}
+
+	/**
+	 * @param chain
+	 *            chain index
+	 * @return the index of the first group of the chain. For
+	 *         <code>chain == getChainCount()</code> the number of groups is
+	 *         returned.
+	 */
+	public int getChainGroupStart(int chain) {
+		return chainGroupStart[chain];
+	}
+
+	/**
+	 * @param chain
+	 *            chain index
+	 * @return the 'internal' chain identifier (asym_id)
+	 */
+	public String getChainId(int chain) {
+		return asymId[chain];
+	}
+
+	/**
+	 * @param chain
+	 *            chain index
+	 * @return the 'public' chain identifier (auth_asym_id)
+	 */
+	public String getChainName(int chain) {
+		return authId[chain];
+	}
+
+	/**
+	 * @param chain
+	 *            chain index
+	 * @return the index of the chain's entity in
+	 *         {@link CompactStructure#getEntityInfos()}, -1 if unknown
+	 */
+	public int getEntityIndex(int chain) {
+		return chainEntity[chain];
+	}
+
+	/**
+	 * Returns the index of the atom with the given name within a group.
+	 *
+	 * @param group
+	 *            group index
+	 * @param name
+	 *            the atom name
+	 * @return the atom index, or -1 if the group has no such atom
+	 */
+	public int findAtom(int group, String name) {
+		String[] names = parent.getAtomNameDictionary();
+		for (int i = groupAtomStart[group]; i < groupAtomStart[group + 1]; i++) {
+			if (names[atomName[i]].equals(name))
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the indices of one representative atom per polymer group, in
+	 * the same way as {@link StructureTools#getRepresentativeAtomArray(org.biojava.nbio.structure.Structure)}:
+	 * CA carbons for amino acids and {@value StructureTools#NUCLEOTIDE_REPRESENTATIVE}
+	 * for nucleotides.
+	 *
+	 * @return atom indices of the representative atoms
+	 */
+	public int[] getRepresentativeAtomIndices() {
+		int[] indices = new int[getGroupCount()];
+		int n = 0;
+		for (int g = 0; g < getGroupCount(); g++) {
+			int atom;
+			switch (getGroupType(g)) {
+			case AMINOACID:
+				atom = findAtom(g, StructureTools.CA_ATOM_NAME);
+				if (atom >= 0 && getElement(atom) == Element.C)
+					indices[n++] = atom;
+				break;
+			case NUCLEOTIDE:
+				atom = findAtom(g, StructureTools.NUCLEOTIDE_REPRESENTATIVE);
+				if (atom >= 0)
+					indices[n++] = atom;
+				break;
+			default:
+				// don't add
+			}
+		}
+		return Arrays.copyOf(indices, n);
+	}
+
+	/**
+	 * Applies a transformation to all coordinates of this model, in place.
+	 *
+	 * @param m
+	 *            the rotation-translation matrix
+	 */
+	public void transform(Matrix4d m) {
+		for (int i = 0; i < coords.length; i += 3) {
+			double x = coords[i];
+			double y = coords[i + 1];
+			double z = coords[i + 2];
+			coords[i] = m.m00 * x + m.m01 * y + m.m02 * z + m.m03;
+			coords[i + 1] = m.m10 * x + m.m11 * y + m.m12 * z + m.m13;
+			coords[i + 2] = m.m20 * x + m.m21 * y + m.m22 * z + m.m23;
+		}
+	}
+
+	/**
+	 * Binary search for the range containing <code>value</code> in an array of
+	 * range starts.
+	 */
+	private static int findRange(int[] starts, int value) {
+		int pos = Arrays.binarySearch(starts, 0, starts.length - 1, value);
+		if (pos < 0)
+			return -pos - 2;
+		// empty ranges share their start with the next one: take the last
+		while (pos + 1 < starts.length - 1 && starts[pos + 1] == value)
+			pos++;
+		return pos;
+	}
+
+	/**
+	 * Estimates the heap footprint of the columns of this model, excluding
+	 * the shared dictionaries.
+	 *
+	 * @return approximate size in bytes
+	 */
+	public long getEstimatedSize() {
+		long nAtoms = getAtomCount();
+		long nGroups = getGroupCount();
+		long nChains = getChainCount();
+		return nAtoms * (3 * 8 + 4 + 1 + 4 + 4 + 4 + 2 + 2)
+				+ nGroups * (4 + 4 + 4 + 2 + 1 + 1)
+				+ nChains * (4 + 4 + 8 + 8)
+				+ 20 * 16;
+	}
+}
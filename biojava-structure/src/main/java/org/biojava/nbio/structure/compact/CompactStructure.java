@@ -0,0 +1,374 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.compact;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.biojava.nbio.structure.AminoAcidImpl;
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Chain;
+import org.biojava.nbio.structure.ChainImpl;
+import org.biojava.nbio.structure.EntityInfo;
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.GroupType;
+import org.biojava.nbio.structure.HetatomImpl;
+import org.biojava.nbio.structure.NucleotideImpl;
+import org.biojava.nbio.structure.PDBCrystallographicInfo;
+import org.biojava.nbio.structure.PDBHeader;
+import org.biojava.nbio.structure.PdbId;
+import org.biojava.nbio.structure.ResidueNumber;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureImpl;
+import org.biojava.nbio.structure.chem.ChemComp;
+
+/**
+ * A memory-efficient, column-oriented representation of a {@link Structure}.
+ * <p>
+ * Instead of one object graph per atom (an {@link org.biojava.nbio.structure.AtomImpl}
+ * with its own Point3d, name, element and bond list), each model is stored as
+ * a handful of primitive arrays, see {@link CompactModel}. Atom and residue
+ * names are interned in per-structure dictionaries. This uses a fraction of
+ * the heap of the full object model and is intended for batch jobs over many
+ * entries:
+ *
+ * <pre>
+ * CompactStructure cs = cache.getCompactStructure(new PdbId("1abc"));
+ * CompactModel model = cs.getModel(0);
+ * double[] ca = model.getCoordinates(model.getRepresentativeAtomIndices(), null);
+ * </pre>
+ *
+ * mmCIF and BinaryCIF files are read directly into the columns by
+ * {@link CompactCifConverter}, without creating the full object model, which
+ * is what {@link org.biojava.nbio.structure.align.util.AtomCache#getCompactStructure(PdbId)}
+ * does for these file types. Other sources are converted with
+ * {@link #CompactStructure(Structure)}.
+ * <p>
+ * When the regular API is needed, {@link #toStructure()} creates a
+ * {@link Structure} whose atoms are {@link CompactAtom} flyweights reading
+ * from and writing to the columns.
+ * <p>
+ * The compact representation keeps the atoms of the principal alternate
+ * location of each group (those returned by {@link Group#getAtoms()}), the
+ * chain, entity, header and crystallographic information. Bonds, SEQRES
+ * groups, alternate location groups, sites and the remaining header
+ * categories are not retained.
+ *
+ * @since 7.2.0
+ */
+public class CompactStructure implements Serializable {
+
+	private static final long serialVersionUID = -3590267195830571604L;
+
+	private final PdbId pdbId;
+	private final String name;
+	private final PDBHeader pdbHeader;
+	private final PDBCrystallographicInfo crystallographicInfo;
+	private final List<EntityInfo> entityInfos;
+
+	private final String[] atomNames;
+	private final String[] groupNames;
+	private final ChemComp[] chemComps;
+
+	private final List<CompactModel> models;
+
+	/**
+	 * Creates the compact representation of a structure. The structure is
+	 * not modified and no references to its chains, groups or atoms are
+	 * retained, so it can be garbage collected afterwards.
+	 *
+	 * @param s
+	 *            the structure to compact
+	 */
+	public CompactStructure(Structure s) {
+		pdbId = s.getPdbId();
+		name = s.getName();
+		pdbHeader = s.getPDBHeader();
+		crystallographicInfo = s.getCrystallographicInfo();
+
+		Map<EntityInfo, Integer> entityIndex = new IdentityHashMap<>();
+		entityInfos = copyEntityInfos(s, entityIndex);
+
+		Map<String, Integer> atomNameIndex = new HashMap<>();
+		List<String> atomNameList = new ArrayList<>();
+		Map<String, Integer> groupNameIndex = new HashMap<>();
+		List<String> groupNameList = new ArrayList<>();
+		List<ChemComp> chemCompList = new ArrayList<>();
+
+		models = new ArrayList<>(s.nrModels());
+		for (int m = 0; m < s.nrModels(); m++) {
+			List<Chain> chains = s.getModel(m);
+
+			int nGroups = 0;
+			int nAtoms = 0;
+			for (Chain c : chains) {
+				nGroups += c.getAtomGroups().size();
+				for (Group g : c.getAtomGroups()) {
+					nAtoms += g.size();
+				}
+			}
+
+			CompactModel model = new CompactModel(this, nAtoms, nGroups, chains.size());
+			int atom = 0;
+			int group = 0;
+			for (int c = 0; c < chains.size(); c++) {
+				Chain chain = chains.get(c);
+				model.chainGroupStart[c] = group;
+				model.asymId[c] = chain.getId();
+				model.authId[c] = chain.getName();
+				Integer entity = chain.getEntityInfo() == null ? null : entityIndex.get(chain.getEntityInfo());
+				model.chainEntity[c] = entity == null ? -1 : entity;
+
+				for (Group g : chain.getAtomGroups()) {
+					model.groupAtomStart[group] = atom;
+					Integer groupName = groupNameIndex.get(g.getPDBName());
+					if (groupName == null) {
+						groupName = groupNameList.size();
+						groupNameIndex.put(g.getPDBName(), groupName);
+						groupNameList.add(g.getPDBName());
+						chemCompList.add(g.getChemComp());
+					}
+					model.groupName[group] = groupName;
+					ResidueNumber resNum = g.getResidueNumber();
+					if (resNum != null) {
+						model.resNum[group] = resNum.getSeqNum() == null ? 0 : resNum.getSeqNum();
+						model.insCode[group] = resNum.getInsCode() == null ? 0 : resNum.getInsCode();
+					}
+					model.groupType[group] = (byte) g.getType().ordinal();
+					model.hetAtomInFile[group] = g.isHetAtomInFile();
+
+					for (Atom a : g.getAtoms()) {
+						Integer atomName = atomNameIndex.get(a.getName());
+						if (atomName == null) {
+							atomName = atomNameList.size();
+							atomNameIndex.put(a.getName(), atomName);
+							atomNameList.add(a.getName());
+						}
+						model.atomName[atom] = atomName;
+						model.setCoords(atom, a.getX(), a.getY(), a.getZ());
+						model.setElement(atom, a.getElement());
+						model.occupancy[atom] = a.getOccupancy();
+						model.tempFactor[atom] = a.getTempFactor();
+						model.serial[atom] = a.getPDBserial();
+						Character altLoc = a.getAltLoc();
+						model.altLoc[atom] = altLoc == null ? 0 : altLoc;
+						model.charge[atom] = a.getCharge();
+						atom++;
+					}
+					group++;
+				}
+			}
+			model.groupAtomStart[nGroups] = nAtoms;
+			model.chainGroupStart[chains.size()] = nGroups;
+			models.add(model);
+		}
+
+		atomNames = atomNameList.toArray(new String[0]);
+		groupNames = groupNameList.toArray(new String[0]);
+		chemComps = chemCompList.toArray(new ChemComp[0]);
+	}
+
+	/**
+	 * Creates a compact structure without models, which are added with
+	 * {@link #addModel(CompactModel)}.
+	 *
+	 * @param header
+	 *            the structure holding the header and entity information, whose
+	 *            entities are indexed in the same order by the chain entity column
+	 */
+	CompactStructure(Structure header, List<String> atomNames, List<String> groupNames, List<ChemComp> chemComps) {
+		pdbId = header.getPdbId();
+		name = header.getName();
+		pdbHeader = header.getPDBHeader();
+		crystallographicInfo = header.getCrystallographicInfo();
+		entityInfos = copyEntityInfos(header, new IdentityHashMap<>());
+		this.atomNames = atomNames.toArray(new String[0]);
+		this.groupNames = groupNames.toArray(new String[0]);
+		this.chemComps = chemComps.toArray(new ChemComp[0]);
+		models = new ArrayList<>();
+	}
+
+	/**
+	 * Copies the entities without their chains, to avoid keeping the original
+	 * object graph alive.
+	 */
+	private static List<EntityInfo> copyEntityInfos(Structure s, Map<EntityInfo, Integer> entityIndex) {
+		List<EntityInfo> copies = new ArrayList<>();
+		for (EntityInfo info : s.getEntityInfos()) {
+			entityIndex.put(info, copies.size());
+			copies.add(new EntityInfo(info));
+		}
+		return copies;
+	}
+
+	void addModel(CompactModel model) {
+		models.add(model);
+	}
+
+	/**
+	 * @return the PDB identifier, may be null
+	 */
+	public PdbId getPdbId() {
+		return pdbId;
+	}
+
+	/**
+	 * @return the name of the original structure
+	 */
+	public String getName() {
+		return name;
+	}
+
+	public PDBHeader getPDBHeader() {
+		return pdbHeader;
+	}
+
+	public PDBCrystallographicInfo getCrystallographicInfo() {
+		return crystallographicInfo;
+	}
+
+	/**
+	 * @return the entities of the structure. Their chain lists are empty.
+	 */
+	public List<EntityInfo> getEntityInfos() {
+		return entityInfos;
+	}
+
+	/**
+	 * @return the number of models
+	 */
+	public int nrModels() {
+		return models.size();
+	}
+
+	/**
+	 * @param modelIdx
+	 *            0-based model index
+	 * @return the columns of the model
+	 */
+	public CompactModel getModel(int modelIdx) {
+		return models.get(modelIdx);
+	}
+
+	/**
+	 * @return the interned atom names, indexed by the atom name column
+	 */
+	String[] getAtomNameDictionary() {
+		return atomNames;
+	}
+
+	/**
+	 * @return the interned residue names, indexed by the group name column
+	 */
+	String[] getGroupNameDictionary() {
+		return groupNames;
+	}
+
+	/**
+	 * Estimates the heap footprint of the coordinate and annotation columns
+	 * of all models, excluding header and entity information.
+	 *
+	 * @return approximate size in bytes
+	 */
+	public long getEstimatedSize() {
+		long size = 0;
+		for (CompactModel model : models) {
+			size += model.getEstimatedSize();
+		}
+		return size;
+	}
+
+	/**
+	 * Creates a {@link Structure} view of the columns. Chains and groups are
+	 * regular objects, while atoms are {@link CompactAtom} flyweights, so
+	 * coordinate changes made through the returned structure (for instance
+	 * with {@link org.biojava.nbio.structure.Calc#transform(Structure, javax.vecmath.Matrix4d)})
+	 * are written to the columns of this object.
+	 * <p>
+	 * Each call creates a new view.
+	 *
+	 * @return a structure backed by this compact representation
+	 */
+	public Structure toStructure() {
+		Structure s = new StructureImpl();
+		s.setPdbId(pdbId);
+		s.setName(name);
+		if (pdbHeader != null)
+			s.setPDBHeader(pdbHeader);
+		s.setCrystallographicInfo(crystallographicInfo);
+
+		List<EntityInfo> entities = new ArrayList<>(entityInfos.size());
+		for (EntityInfo info : entityInfos) {
+			entities.add(new EntityInfo(info));
+		}
+
+		for (CompactModel model : models) {
+			List<Chain> chains = new ArrayList<>(model.getChainCount());
+			for (int c = 0; c < model.getChainCount(); c++) {
+				Chain chain = new ChainImpl();
+				chain.setId(model.getChainId(c));
+				chain.setName(model.getChainName(c));
+				int entity = model.getEntityIndex(c);
+				if (entity >= 0) {
+					chain.setEntityInfo(entities.get(entity));
+					entities.get(entity).addChain(chain);
+				}
+				for (int g = model.getChainGroupStart(c); g < model.getChainGroupStart(c + 1); g++) {
+					chain.addGroup(createGroup(model, g, chain.getName()));
+				}
+				chains.add(chain);
+			}
+			s.addModel(chains);
+		}
+		s.setEntityInfos(entities);
+		return s;
+	}
+
+	private Group createGroup(CompactModel model, int g, String chainName) {
+		Group group;
+		GroupType type = model.getGroupType(g);
+		ChemComp cc = chemComps[model.groupName[g]];
+		if (type == GroupType.AMINOACID) {
+			AminoAcidImpl aa = new AminoAcidImpl();
+			if (cc != null && cc.getOneLetterCode() != null && cc.getOneLetterCode().length() == 1)
+				aa.setAminoType(cc.getOneLetterCode().charAt(0));
+			group = aa;
+		} else if (type == GroupType.NUCLEOTIDE) {
+			group = new NucleotideImpl();
+		} else {
+			group = new HetatomImpl();
+		}
+		group.setPDBName(model.getGroupName(g));
+		char insCode = model.getInsCode(g);
+		group.setResidueNumber(chainName, model.getResidueNumber(g), insCode == 0 ? null : insCode);
+		group.setHetAtomInFile(model.isHetAtomInFile(g));
+		if (cc != null)
+			group.setChemComp(cc);
+		for (int a = model.getGroupAtomStart(g); a < model.getGroupAtomStart(g + 1); a++) {
+			group.addAtom(new CompactAtom(model, a));
+		}
+		return group;
+	}
+}
@@ -0,0 +1,41 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.contact;
+
+/**
+ * Receives the contacts found by a {@link Grid} as primitive values, so that
+ * no object needs to be created per contact.
+ *
+ * @see Grid#visitContacts(ContactVisitor)
+ * @since 7.2.0
+ */
+@FunctionalInterface
+public interface ContactVisitor {
+
+	/**
+	 * Called once for every pair of points within the cutoff.
+	 * @param i the index of the first point in the i coordinates
+	 * @param j the index of the second point, in the j coordinates if two sets were added to the grid,
+	 * otherwise in the i coordinates (and then j&gt;i)
+	 * @param distance the distance between the points
+	 */
+	void visit(int i, int j, double distance);
+}
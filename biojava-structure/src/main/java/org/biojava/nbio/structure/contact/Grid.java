@@ -38,6 +38,10 @@ import org.biojava.nbio.structure.Calc;
  * The grid is composed of cells of size of the cutoff so that the distances that need to be calculated
  * are reduced to those within each cell and to the neighbouring cells.
  * <p>
+ * The cells are stored as a cell list: the point indices are sorted by cell with a counting sort
+ * into a single int array, with the offset of each cell in a second array, and the coordinates are
+ * copied in the same order so that the points of a cell are contiguous in memory.
+ * <p>
  * Usage, for generic 3D points:
  * <pre>
  *  Point3d[] points = ...;
@@ -52,6 +56,10 @@ import org.biojava.nbio.structure.Calc;
  *  grid.addCoords(atoms);
  *  AtomContactSet contacts = getAtomContacts();
  * </pre>
+ * To avoid creating an object per contact, use {@link #visitContacts(ContactVisitor)}:
+ * <pre>
+ *  grid.visitContacts((i, j, distance) -&gt; ...);
+ * </pre>
  *
  * @author Jose Duarte
  *
@@ -63,8 +71,6 @@ public class Grid {
 	 */
 	private static final int SCALE=100;
 
-	private GridCell[][][] cells;
-
 	private double cutoff;
 	private int cellSize;
 
@@ -77,6 +83,20 @@ public class Grid {
 	// the bounds in int grid coordinates
 	private int[] bounds;
 
+	// the number of cells in each dimension
+	private int nx;
+	private int ny;
+	private int nz;
+
+	// cell lists: the points of cell c are iSorted[iCellStarts[c]] to iSorted[iCellStarts[c+1]-1],
+	// with their coordinates in iSortedCoords (3 per point, same order)
+	private int[] iCellStarts;
+	private int[] iSorted;
+	private double[] iSortedCoords;
+	private int[] jCellStarts;
+	private int[] jSorted;
+	private double[] jSortedCoords;
+
 	// the i and j bounding boxes in original double coordinates
 	private BoundingBox ibounds;
 	private BoundingBox jbounds;
@@ -292,45 +312,63 @@ public class Grid {
 	private void fillGrid() {
 
 		if (jbounds!=null && !ibounds.overlaps(jbounds, cutoff)) {
-			//System.out.print("-");
 			noOverlap = true;
 			return;
 		}
+		noOverlap = false;
 
 		findFullGridIntBounds();
 
-		cells = new GridCell[1+(bounds[3]-bounds[0])/cellSize]
-		                    [1+(bounds[4]-bounds[1])/cellSize]
-		                    [1+(bounds[5]-bounds[2])/cellSize];
+		nx = 1+(bounds[3]-bounds[0])/cellSize;
+		ny = 1+(bounds[4]-bounds[1])/cellSize;
+		nz = 1+(bounds[5]-bounds[2])/cellSize;
 
-		int i = 0;
-		for (Point3d atom:iAtoms) {
+		iCellStarts = new int[nx*ny*nz+1];
+		iSorted = new int[iAtoms.length];
+		iSortedCoords = new double[3*iAtoms.length];
+		fillCells(iAtoms, iCellStarts, iSorted, iSortedCoords);
 
-			int xind = xintgrid2xgridindex(getFloor(atom.x));
-			int yind = yintgrid2ygridindex(getFloor(atom.y));
-			int zind = zintgrid2zgridindex(getFloor(atom.z));
-			if (cells[xind][yind][zind]==null) {
-				cells[xind][yind][zind] = new GridCell(this);
-			}
-			cells[xind][yind][zind].addIindex(i);
-			i++;
+		if (jAtoms==null) {
+			jCellStarts = null;
+			jSorted = null;
+			jSortedCoords = null;
+			return;
 		}
 
-		if (jAtoms==null) return;
-
-		int j = 0;
-		for (Point3d atom:jAtoms) {
+		jCellStarts = new int[nx*ny*nz+1];
+		jSorted = new int[jAtoms.length];
+		jSortedCoords = new double[3*jAtoms.length];
+		fillCells(jAtoms, jCellStarts, jSorted, jSortedCoords);
+	}
 
-			int xind = xintgrid2xgridindex(getFloor(atom.x));
-			int yind = yintgrid2ygridindex(getFloor(atom.y));
-			int zind = zintgrid2zgridindex(getFloor(atom.z));
-			if (cells[xind][yind][zind]==null) {
-				cells[xind][yind][zind] = new GridCell(this);
-			}
-			cells[xind][yind][zind].addJindex(j);
-			j++;
+	/**
+	 * Sorts the points by cell with a counting sort. Within a cell points stay in increasing index order.
+	 */
+	private void fillCells(Point3d[] atoms, int[] cellStarts, int[] sorted, double[] sortedCoords) {
+		int[] atomCells = new int[atoms.length];
+		for (int i=0;i<atoms.length;i++) {
+			int cell = getCellIndex(atoms[i]);
+			atomCells[i] = cell;
+			cellStarts[cell+1]++;
+		}
+		for (int c=0;c<cellStarts.length-1;c++) {
+			cellStarts[c+1] += cellStarts[c];
 		}
+		int[] fill = Arrays.copyOf(cellStarts, cellStarts.length-1);
+		for (int i=0;i<atoms.length;i++) {
+			int k = fill[atomCells[i]]++;
+			sorted[k] = i;
+			sortedCoords[3*k] = atoms[i].x;
+			sortedCoords[3*k+1] = atoms[i].y;
+			sortedCoords[3*k+2] = atoms[i].z;
+		}
+	}
 
+	private int getCellIndex(Point3d atom) {
+		int xind = xintgrid2xgridindex(getFloor(atom.x));
+		int yind = yintgrid2ygridindex(getFloor(atom.y));
+		int zind = zintgrid2zgridindex(getFloor(atom.z));
+		return (xind*ny + yind)*nz + zind;
 	}
 
 	/**
@@ -382,18 +420,9 @@ public class Grid {
 
 		AtomContactSet contacts = new AtomContactSet(cutoff);
 
-		List<Contact> list = getIndicesContacts();
-
-		if (jAtomObjects == null) {
-			for (Contact cont : list) {
-				contacts.add(new AtomContact(new Pair<Atom>(iAtomObjects[cont.getI()],iAtomObjects[cont.getJ()]),cont.getDistance()));
-			}
-
-		} else {
-			for (Contact cont : list) {
-				contacts.add(new AtomContact(new Pair<Atom>(iAtomObjects[cont.getI()],jAtomObjects[cont.getJ()]),cont.getDistance()));
-			}
-		}
+		Atom[] jObjects = jAtomObjects == null ? iAtomObjects : jAtomObjects;
+		visitContacts((i, j, distance) ->
+				contacts.add(new AtomContact(new Pair<>(iAtomObjects[i], jObjects[j]), distance)));
 
 		return contacts;
 	}
@@ -419,31 +448,115 @@ public class Grid {
 	public List<Contact> getIndicesContacts() {
 
 		List<Contact> list = new ArrayList<>();
+		visitContacts((i, j, distance) -> list.add(new Contact(i, j, distance)));
+		return list;
+	}
+
+	/**
+	 * Returns the number of contacts, i.e. of pairs of atoms that are within the cutoff distance.
+	 * @return
+	 * @since 7.2.0
+	 */
+	public int getContactCount() {
+		int[] count = new int[1];
+		visitContacts((i, j, distance) -> count[0]++);
+		return count[0];
+	}
+
+	/**
+	 * Passes all contacts, i.e. all atoms that are within the cutoff distance, to the visitor
+	 * as their indices and distance. No objects are created per contact.
+	 * If both iAtoms and jAtoms are defined then contacts are between iAtoms and jAtoms,
+	 * if jAtoms is null, then contacts are within the iAtoms and are given with j&gt;i.
+	 * The order of the contacts is not specified.
+	 * @param visitor
+	 * @since 7.2.0
+	 */
+	public void visitContacts(ContactVisitor visitor) {
 
 		// if the 2 sets of atoms are not overlapping they are too far away and no need to calculate anything
 		// this won't apply if there's only one set of atoms (iAtoms), where we would want all-to-all contacts
-		if (noOverlap) return list;
+		if (noOverlap) return;
+
+		if (jAtoms == null) {
+			visitContactsWithin(visitor);
+		} else {
+			visitContactsBetween(visitor);
+		}
+	}
 
+	/**
+	 * Contacts within the iAtoms: each pair of cells is visited once, only looking at the 13
+	 * neighbouring cells that come after each cell.
+	 */
+	private void visitContactsWithin(ContactVisitor visitor) {
+		double cutoffSq = slackSquare(cutoff);
+		for (int xind=0;xind<nx;xind++) {
+			for (int yind=0;yind<ny;yind++) {
+				for (int zind=0;zind<nz;zind++) {
+					int cell = (xind*ny + yind)*nz + zind;
+					int start = iCellStarts[cell];
+					int end = iCellStarts[cell+1];
+					if (start==end) continue;
 
-		for (int xind=0;xind<cells.length;xind++) {
-			for (int yind=0;yind<cells[xind].length;yind++) {
-				for (int zind=0;zind<cells[xind][yind].length;zind++) {
 					// distances of points within this cell
-					GridCell thisCell = cells[xind][yind][zind];
-					if (thisCell==null) continue;
-
-					list.addAll(thisCell.getContactsWithinCell());
+					for (int a=start;a<end;a++) {
+						for (int b=a+1;b<end;b++) {
+							visitPair(iSortedCoords, iSorted, a, iSortedCoords, iSorted, b, cutoffSq, true, visitor);
+						}
+					}
 
-					// distances of points from this box to all neighbouring boxes: 26 iterations (26 neighbouring boxes)
-					for (int x=xind-1;x<=xind+1;x++) {
+					// distances of points from this cell to the following neighbouring cells
+					for (int x=xind;x<=xind+1;x++) {
+						if (x>=nx) continue;
 						for (int y=yind-1;y<=yind+1;y++) {
+							if (y<0 || y>=ny) continue;
 							for (int z=zind-1;z<=zind+1;z++) {
-								if (x==xind && y==yind && z==zind) continue;
+								if (z<0 || z>=nz) continue;
+								// only cells after this one, in x, then y, then z order
+								if (x==xind && (y<yind || (y==yind && z<=zind))) continue;
+
+								int other = (x*ny + y)*nz + z;
+								int otherEnd = iCellStarts[other+1];
+								for (int a=start;a<end;a++) {
+									for (int b=iCellStarts[other];b<otherEnd;b++) {
+										visitPair(iSortedCoords, iSorted, a, iSortedCoords, iSorted, b, cutoffSq, true, visitor);
+									}
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+	}
 
-								if (x>=0 && x<cells.length && y>=0 && y<cells[x].length && z>=0 && z<cells[x][y].length) {
-									if (cells[x][y][z] == null) continue;
+	/**
+	 * Contacts between the iAtoms and the jAtoms: all 27 cells around each cell of iAtoms are visited.
+	 */
+	private void visitContactsBetween(ContactVisitor visitor) {
+		double cutoffSq = slackSquare(cutoff);
+		for (int xind=0;xind<nx;xind++) {
+			for (int yind=0;yind<ny;yind++) {
+				for (int zind=0;zind<nz;zind++) {
+					int cell = (xind*ny + yind)*nz + zind;
+					int start = iCellStarts[cell];
+					int end = iCellStarts[cell+1];
+					if (start==end) continue;
 
-									list.addAll(thisCell.getContactsToOtherCell(cells[x][y][z]));
+					for (int x=xind-1;x<=xind+1;x++) {
+						if (x<0 || x>=nx) continue;
+						for (int y=yind-1;y<=yind+1;y++) {
+							if (y<0 || y>=ny) continue;
+							for (int z=zind-1;z<=zind+1;z++) {
+								if (z<0 || z>=nz) continue;
+
+								int other = (x*ny + y)*nz + z;
+								int otherEnd = jCellStarts[other+1];
+								for (int a=start;a<end;a++) {
+									for (int b=jCellStarts[other];b<otherEnd;b++) {
+										visitPair(iSortedCoords, iSorted, a, jSortedCoords, jSorted, b, cutoffSq, false, visitor);
+									}
 								}
 							}
 						}
@@ -451,8 +564,33 @@ public class Grid {
 				}
 			}
 		}
+	}
 
-		return list;
+	private void visitPair(double[] coords1, int[] sorted1, int a, double[] coords2, int[] sorted2, int b,
+			double cutoffSq, boolean ordered, ContactVisitor visitor) {
+		double dx = coords1[3*a] - coords2[3*b];
+		double dy = coords1[3*a+1] - coords2[3*b+1];
+		double dz = coords1[3*a+2] - coords2[3*b+2];
+		double distSq = dx*dx + dy*dy + dz*dz;
+		if (distSq >= cutoffSq) return;
+		// same as Point3d.distance, the squared cutoff only filters out the obvious cases
+		double distance = Math.sqrt(distSq);
+		if (distance >= cutoff) return;
+
+		int i = sorted1[a];
+		int j = sorted2[b];
+		if (ordered && j < i) {
+			visitor.visit(j, i, distance);
+		} else {
+			visitor.visit(i, j, distance);
+		}
+	}
+
+	/**
+	 * The square of the cutoff with some slack, so that it never rejects a distance that is below the cutoff
+	 */
+	private static double slackSquare(double cutoff) {
+		return cutoff*cutoff*(1 + 1e-9);
 	}
 
 	/**
@@ -467,6 +605,13 @@ public class Grid {
 	}
 	public boolean hasAnyContact(Collection<Point3d> atoms) {
 		for(Point3d atom : atoms) {
+			if (noOverlap) {
+				// no cells were filled
+				if (hasContactToAtom(iAtoms, atom) || hasContactToAtom(jAtoms, atom))
+					return true;
+				continue;
+			}
+
 			// Calculate Grid cell for the atom
 			int xind = xintgrid2xgridindex(getFloor(atom.x));
 			int yind = yintgrid2ygridindex(getFloor(atom.y));
@@ -474,15 +619,16 @@ public class Grid {
 
 			// Consider 3x3x3 grid of cells around point
 			for (int x=xind-1;x<=xind+1;x++) {
-				if( x<0 || cells.length<=x) continue;
+				if( x<0 || nx<=x) continue;
 				for (int y=yind-1;y<=yind+1;y++) {
-					if( y<0 || cells[x].length<=y ) continue;
+					if( y<0 || ny<=y ) continue;
 					for (int z=zind-1;z<=zind+1;z++) {
-						if( z<0 || cells[x][y].length<=z ) continue;
+						if( z<0 || nz<=z ) continue;
 
-						GridCell cell = cells[x][y][z];
+						int cell = (x*ny + y)*nz + z;
 						// Check for contacts in this cell
-						if(cell != null && cell.hasContactToAtom(iAtoms, jAtoms, atom, cutoff)) {
+						if (hasContactToAtom(iCellStarts, iSortedCoords, cell, atom) ||
+								(jCellStarts != null && hasContactToAtom(jCellStarts, jSortedCoords, cell, atom))) {
 							return true;
 						}
 					}
@@ -492,6 +638,26 @@ public class Grid {
 		return false;
 	}
 
+	private boolean hasContactToAtom(int[] cellStarts, double[] sortedCoords, int cell, Point3d query) {
+		for (int a=cellStarts[cell];a<cellStarts[cell+1];a++) {
+			double dx = sortedCoords[3*a] - query.x;
+			double dy = sortedCoords[3*a+1] - query.y;
+			double dz = sortedCoords[3*a+2] - query.z;
+			if (Math.sqrt(dx*dx + dy*dy + dz*dz) < cutoff)
+				return true;
+		}
+		return false;
+	}
+
+	private boolean hasContactToAtom(Point3d[] atoms, Point3d query) {
+		if (atoms == null) return false;
+		for (Point3d atom : atoms) {
+			if (atom.distance(query) < cutoff)
+				return true;
+		}
+		return false;
+	}
+
 	public double getCutoff() {
 		return cutoff;
 	}
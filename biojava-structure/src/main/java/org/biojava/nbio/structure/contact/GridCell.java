@@ -30,8 +30,9 @@ import javax.vecmath.Point3d;
  * A grid cell to be used in contact calculation via spatial hashing algorithm.
  *
  * @author Jose Duarte
- *
+ * @deprecated {@link Grid} now stores its cells as flat arrays and no longer uses this class
  */
+@Deprecated
 public class GridCell {
 
 
@@ -29,6 +29,7 @@ public class InterfaceFinder {
     private List<Chain> polyChains;
     private double cutoff;
 
+    private Atom[][] chainAtoms;
     private BoundingBox[] boundingBoxes;
 
     public InterfaceFinder(Structure structure) {
@@ -71,7 +72,7 @@ public class InterfaceFinder {
                 if (! boundingBoxes[i].overlaps(boundingBoxes[j], cutoff)) {
                     continue;
                 }
-                StructureInterface interf = calcInterface(polyChains.get(i), polyChains.get(j));
+                StructureInterface interf = calcInterface(i, j);
                 if (interf!=null) {
                     list.add(interf);
                 }
@@ -81,23 +82,28 @@ public class InterfaceFinder {
     }
 
     private void initBoundingBoxes() {
+        chainAtoms = new Atom[polyChains.size()][];
         boundingBoxes = new BoundingBox[polyChains.size()];
         for (int i = 0; i<polyChains.size(); i++) {
             Atom[] atoms = StructureTools.getAllNonHAtomArray(polyChains.get(i), INCLUDE_HETATOMS);
             Point3d[] points = Calc.atomsToPoints(atoms);
             BoundingBox bb = new BoundingBox(points);
+            chainAtoms[i] = atoms;
             boundingBoxes[i] = bb;
         }
     }
 
-    private StructureInterface calcInterface(Chain chain1, Chain chain2) {
-        AtomContactSet graph = StructureTools.getAtomsInContact(chain1, chain2, cutoff, INCLUDE_HETATOMS);
+    private StructureInterface calcInterface(int i, int j) {
+        // the atoms and bounding boxes of each chain are reused for all its pairs
+        Grid grid = new Grid(cutoff);
+        grid.addAtoms(chainAtoms[i], boundingBoxes[i], chainAtoms[j], boundingBoxes[j]);
+        AtomContactSet graph = grid.getAtomContacts();
 
         StructureInterface interf = null;
         if (graph.size()>0) {
             interf = new StructureInterface(
-                    StructureTools.getAllNonHAtomArray(chain1, INCLUDE_HETATOMS), StructureTools.getAllNonHAtomArray(chain2, INCLUDE_HETATOMS),
-                    chain1.getName(), chain2.getName(),
+                    chainAtoms[i], chainAtoms[j],
+                    polyChains.get(i).getName(), polyChains.get(j).getName(),
                     graph,
                     IDENTITY_TRANSFORM, IDENTITY_TRANSFORM);
         }
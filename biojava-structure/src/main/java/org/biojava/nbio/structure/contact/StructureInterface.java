@@ -208,6 +208,9 @@ public class StructureInterface implements Serializable, Comparable<StructureInt
 	/**
 	 * Set ASA annotations by passing the uncomplexed ASA values of the 2 partners.
 	 * This will calculate complexed ASA and set the ASA values in the member variables.
+	 * Only the atoms close to the other partner are recalculated, see
+	 * {@link AsaCalculator#calculateComplexAsas(double[], double[])}: the uncomplexed ASA values
+	 * must have been calculated with the same coordinates and number of sphere points.
 	 * @param asas1 ASA values for atoms of partner 1
 	 * @param asas2 ASA values for atoms of partner 2
 	 * @param nSpherePoints the number of sphere points to be used for complexed ASA calculation
@@ -220,10 +223,7 @@ public class StructureInterface implements Serializable, Comparable<StructureInt
 		AsaCalculator asaCalc = new AsaCalculator(atoms,
 				AsaCalculator.DEFAULT_PROBE_SIZE, nSpherePoints, nThreads);
 
-		double[] complexAsas = asaCalc.calculateAsas();
-
-		if (complexAsas.length!=asas1.length+asas2.length)
-			throw new IllegalArgumentException("The size of ASAs of complex doesn't match that of ASAs 1 + ASAs 2");
+		double[] complexAsas = asaCalc.calculateComplexAsas(asas1, asas2);
 
 
 		groupAsas1 = new TreeMap<>();
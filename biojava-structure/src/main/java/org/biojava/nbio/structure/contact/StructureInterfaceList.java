@@ -22,16 +22,19 @@ package org.biojava.nbio.structure.contact;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
-import org.biojava.nbio.core.util.SingleLinkageClusterer;
 import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Chain;
 import org.biojava.nbio.structure.Structure;
 import org.biojava.nbio.structure.asa.AsaCalculator;
 import org.biojava.nbio.structure.xtal.CrystalBuilder;
@@ -81,6 +84,10 @@ public class StructureInterfaceList implements Serializable, Iterable<StructureI
 
 	private Map<String, String> chainOrigNamesMap;
 
+	private double clusteringMinAreaRatio = 0;
+
+	private transient ForkJoinPool pool;
+
 	public StructureInterfaceList() {
 		this.list = new ArrayList<>();
 	}
@@ -368,6 +375,11 @@ public class StructureInterfaceList implements Serializable, Iterable<StructureI
 	 * using Jaccard contact set scores to measure the similarity of interfaces.
 	 * Subsequent calls will use the cached value without recomputing the clusters.
 	 * The clusters will be assigned ids by sorting descending by {@link StructureInterfaceCluster#getTotalArea()}
+	 * <p>
+	 * Only pairs of interfaces between the same pair of entities and with contact
+	 * set sizes that allow a score above the cutoff are compared, see also
+	 * {@link #setClusteringMinAreaRatio(double)}. The scores are calculated in
+	 * parallel in the {@link #setPool(ForkJoinPool) pool}.
 	 * @param contactOverlapScoreClusterCutoff the contact overlap score above which a pair will be
 	 * clustered
 	 * @return
@@ -382,41 +394,72 @@ public class StructureInterfaceList implements Serializable, Iterable<StructureI
 		// nothing to do if we have no interfaces
 		if (list.size()==0) return clusters;
 
-		logger.debug("Calculating all-vs-all Jaccard scores for {} interfaces", list.size());
-		double[][] matrix = new double[list.size()][list.size()];
-
-		for (int i=0;i<list.size();i++) {
-			for (int j=i+1;j<list.size();j++) {
-				StructureInterface iInterf = list.get(i);
-				StructureInterface jInterf = list.get(j);
-
-				double scoreDirect = iInterf.getContactOverlapScore(jInterf, false);
-				double scoreInvert = iInterf.getContactOverlapScore(jInterf, true);
-
-				double maxScore = Math.max(scoreDirect, scoreInvert);
+		int n = list.size();
+		long[][] directKeys = new long[n][];
+		long[][] invertedKeys = new long[n][];
+		// interfaces can only have a non-zero score if they are between the same pair of entities
+		Map<Long, List<Integer>> buckets = new TreeMap<>();
+		for (int i=0;i<n;i++) {
+			StructureInterface interf = list.get(i);
+			directKeys[i] = getContactKeys(interf, false);
+			invertedKeys[i] = getContactKeys(interf, true);
+			Long entityPairKey = getEntityPairKey(interf);
+			if (entityPairKey == null) {
+				// this happens in cases like 2uub
+				logger.warn("Found chains with null compounds for interface {}. It will not be clustered with any other interface.", interf.getId());
+				continue;
+			}
+			buckets.computeIfAbsent(entityPairKey, k -> new ArrayList<>()).add(i);
+		}
 
-				matrix[i][j] = maxScore;
+		int[][] candidates = getCandidatePairs(buckets, directKeys, contactOverlapScoreClusterCutoff);
+		logger.debug("Calculating Jaccard scores for {} candidate pairs out of {} interfaces", candidates[0].length, n);
+
+		ForkJoinPool p = pool == null ? ForkJoinPool.commonPool() : pool;
+		double[] scores = new double[candidates[0].length];
+		p.invoke(new OverlapScoreTask(candidates[0], candidates[1], directKeys, invertedKeys, scores, 0, scores.length));
+
+		// single linkage clusters are the connected components of the pairs above the cutoff
+		int[] parents = new int[n];
+		for (int i=0;i<n;i++) parents[i] = i;
+		for (int k=0;k<scores.length;k++) {
+			if (scores[k] > contactOverlapScoreClusterCutoff) {
+				int rootI = findRoot(parents, candidates[0][k]);
+				int rootJ = findRoot(parents, candidates[1][k]);
+				// the root is always the smallest index in the cluster
+				parents[Math.max(rootI, rootJ)] = Math.min(rootI, rootJ);
 			}
+		}
 
+		// clusters with several members first, then singletons, each in order of their first member
+		Map<Integer, List<Integer>> clusteredIndices = new TreeMap<>();
+		for (int i=0;i<n;i++) {
+			clusteredIndices.computeIfAbsent(findRoot(parents, i), k -> new ArrayList<>()).add(i);
+		}
+		List<List<Integer>> orderedClusters = new ArrayList<>();
+		for (List<Integer> members : clusteredIndices.values()) {
+			if (members.size() > 1) orderedClusters.add(members);
+		}
+		for (List<Integer> members : clusteredIndices.values()) {
+			if (members.size() == 1) orderedClusters.add(members);
 		}
 
-		logger.debug("Will now cluster {} interfaces based on full all-vs-all Jaccard scores matrix", list.size());
-		SingleLinkageClusterer slc = new SingleLinkageClusterer(matrix, true);
+		Map<Long, Double> pairScores = getClusterPairScores(orderedClusters, candidates, scores, directKeys, invertedKeys, p);
 
-		Map<Integer, Set<Integer>> clusteredIndices = slc.getClusters(contactOverlapScoreClusterCutoff);
-		for (int clusterIdx:clusteredIndices.keySet()) {
+		for (List<Integer> memberIndices : orderedClusters) {
 			List<StructureInterface> members = new ArrayList<>();
-			for (int idx:clusteredIndices.get(clusterIdx)) {
+			for (int idx:memberIndices) {
 				members.add(list.get(idx));
 			}
 			StructureInterfaceCluster cluster = new StructureInterfaceCluster();
 			cluster.setMembers(members);
 			double averageScore = 0.0;
 			int countPairs = 0;
-			for (int i=0;i<members.size();i++) {
-                int iIdx = list.indexOf(members.get(i));
-				for (int j=i+1;j<members.size();j++) {
-					averageScore += matrix[iIdx][list.indexOf(members.get(j))];
+			for (int i=0;i<memberIndices.size();i++) {
+				int iIdx = memberIndices.get(i);
+				for (int j=i+1;j<memberIndices.size();j++) {
+					int jIdx = memberIndices.get(j);
+					averageScore += pairScores.get(pairKey(Math.min(iIdx, jIdx), Math.max(iIdx, jIdx)));
 					countPairs++;
 				}
 			}
@@ -436,7 +479,7 @@ public class StructureInterfaceList implements Serializable, Iterable<StructureI
 				interf.setCluster(cluster);
 			}
 		}
-		logger.debug("Done clustering {} interfaces based on full all-vs-all Jaccard scores matrix. Found a total of {} clusters", list.size(), clusters.size());
+		logger.debug("Done clustering {} interfaces based on Jaccard scores. Found a total of {} clusters", list.size(), clusters.size());
 
 		// now we sort by areas (descending) and assign ids based on that sorting
 		clusters.sort((o1, o2) -> Double.compare(o2.getTotalArea(), o1.getTotalArea())); //note we invert so that sorting is descending
@@ -450,6 +493,253 @@ public class StructureInterfaceList implements Serializable, Iterable<StructureI
 		return clusters;
 	}
 
+	/**
+	 * Gets the minimum ratio between the areas of two interfaces for them to
+	 * be compared when clustering.
+	 * @return the ratio, 0 if areas are not used
+	 * @see #setClusteringMinAreaRatio(double)
+	 * @since 7.2.0
+	 */
+	public double getClusteringMinAreaRatio() {
+		return clusteringMinAreaRatio;
+	}
+
+	/**
+	 * Sets the minimum ratio between the smaller and the larger total area of
+	 * two interfaces for them to be compared in {@link #getClusters(double)}.
+	 * Pairs with more different areas are considered not similar without
+	 * calculating their contact overlap score. This is only useful after
+	 * {@link #calcAsas()}, and it can separate interfaces that would be
+	 * clustered otherwise. The default is 0, i.e. all areas are compared.
+	 * @param clusteringMinAreaRatio a value between 0 and 1
+	 * @since 7.2.0
+	 */
+	public void setClusteringMinAreaRatio(double clusteringMinAreaRatio) {
+		this.clusteringMinAreaRatio = clusteringMinAreaRatio;
+	}
+
+	/**
+	 * @return the pool used to calculate the contact overlap scores, or null
+	 * to use the common pool
+	 * @since 7.2.0
+	 */
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * Sets the pool used to calculate the contact overlap scores when clustering.
+	 * @param pool the pool, or null to use the {@link ForkJoinPool#commonPool() common pool}
+	 * @since 7.2.0
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Finds the pairs of interfaces whose contact overlap score needs to be calculated:
+	 * those in the same bucket, that pass the area ratio filter and whose contact
+	 * set sizes allow a score above the cutoff.
+	 * @return the first and second index of each pair, with first &lt; second
+	 */
+	private int[][] getCandidatePairs(Map<Long, List<Integer>> buckets, long[][] directKeys, double cutoff) {
+		int[] first = new int[16];
+		int[] second = new int[16];
+		int count = 0;
+		for (List<Integer> bucket : buckets.values()) {
+			// sorting by contact set size allows to stop as soon as the sizes are too different
+			Integer[] members = bucket.toArray(new Integer[0]);
+			Arrays.sort(members, (a, b) -> Integer.compare(directKeys[a].length, directKeys[b].length));
+			for (int i=0;i<members.length;i++) {
+				int sizeI = directKeys[members[i]].length;
+				if (sizeI == 0) continue;
+				for (int j=i+1;j<members.length;j++) {
+					int sizeJ = directKeys[members[j]].length;
+					// the score can be at most 2*min/(sizeI+sizeJ), which only decreases for larger sizeJ
+					if (2.0*sizeI/(sizeI+sizeJ) <= cutoff) break;
+					if (!haveSimilarAreas(list.get(members[i]), list.get(members[j]))) continue;
+					if (count == first.length) {
+						first = Arrays.copyOf(first, 2*count);
+						second = Arrays.copyOf(second, 2*count);
+					}
+					first[count] = Math.min(members[i], members[j]);
+					second[count] = Math.max(members[i], members[j]);
+					count++;
+				}
+			}
+		}
+		return new int[][] {Arrays.copyOf(first, count), Arrays.copyOf(second, count)};
+	}
+
+	private boolean haveSimilarAreas(StructureInterface interf1, StructureInterface interf2) {
+		if (clusteringMinAreaRatio <= 0) return true;
+		double area1 = interf1.getTotalArea();
+		double area2 = interf2.getTotalArea();
+		double max = Math.max(area1, area2);
+		return max == 0 || Math.min(area1, area2) >= clusteringMinAreaRatio * max;
+	}
+
+	private static int findRoot(int[] parents, int i) {
+		while (parents[i] != i) {
+			parents[i] = parents[parents[i]];
+			i = parents[i];
+		}
+		return i;
+	}
+
+	/**
+	 * Gets a key identifying the unordered pair of entities of the interface, or null
+	 * if an entity is missing. Interfaces with different keys have a contact overlap
+	 * score of 0.
+	 */
+	private static Long getEntityPairKey(StructureInterface interf) {
+		Pair<Chain> chains = interf.getParentChains();
+		if (chains == null || chains.getFirst().getEntityInfo() == null || chains.getSecond().getEntityInfo() == null) {
+			return null;
+		}
+		int molId1 = chains.getFirst().getEntityInfo().getMolId();
+		int molId2 = chains.getSecond().getEntityInfo().getMolId();
+		return ((long) Math.min(molId1, molId2) << 32) | (Math.max(molId1, molId2) & 0xffffffffL);
+	}
+
+	/**
+	 * Gets the scores of all pairs of members of the clusters, keyed by
+	 * {@link #pairKey(int, int)} of the smaller and larger index. The scores
+	 * of the candidate pairs are reused; the pairs that were not candidates,
+	 * but are clustered through other members, are calculated in the pool.
+	 */
+	private static Map<Long, Double> getClusterPairScores(List<List<Integer>> clusters, int[][] candidates, double[] scores,
+			long[][] directKeys, long[][] invertedKeys, ForkJoinPool pool) {
+		Map<Long, Double> pairScores = new HashMap<>();
+		for (int k=0;k<scores.length;k++) {
+			pairScores.put(pairKey(candidates[0][k], candidates[1][k]), scores[k]);
+		}
+
+		int[] first = new int[16];
+		int[] second = new int[16];
+		int count = 0;
+		for (List<Integer> members : clusters) {
+			for (int i=0;i<members.size();i++) {
+				for (int j=i+1;j<members.size();j++) {
+					int iIdx = Math.min(members.get(i), members.get(j));
+					int jIdx = Math.max(members.get(i), members.get(j));
+					if (pairScores.containsKey(pairKey(iIdx, jIdx))) continue;
+					if (count == first.length) {
+						first = Arrays.copyOf(first, 2*count);
+						second = Arrays.copyOf(second, 2*count);
+					}
+					first[count] = iIdx;
+					second[count] = jIdx;
+					count++;
+				}
+			}
+		}
+		if (count > 0) {
+			double[] missing = new double[count];
+			pool.invoke(new OverlapScoreTask(first, second, directKeys, invertedKeys, missing, 0, count));
+			for (int k=0;k<count;k++) {
+				pairScores.put(pairKey(first[k], second[k]), missing[k]);
+			}
+		}
+		return pairScores;
+	}
+
+	/**
+	 * Encodes the residue pairs of the contacts of the interface as sorted longs,
+	 * using the same chain-independent residue identifiers as
+	 * {@link StructureInterface#getContactOverlapScore(StructureInterface, boolean)}
+	 * @param invert whether to swap the first and second residue of each pair
+	 */
+	private static long[] getContactKeys(StructureInterface interf, boolean invert) {
+		GroupContactSet contacts = interf.getGroupContacts();
+		long[] keys = new long[contacts.size()];
+		int k = 0;
+		for (GroupContact contact : contacts) {
+			int first = new ResidueIdentifier(contact.getPair().getFirst()).getSeqResIndex();
+			int second = new ResidueIdentifier(contact.getPair().getSecond()).getSeqResIndex();
+			keys[k++] = invert ? pairKey(second, first) : pairKey(first, second);
+		}
+		Arrays.sort(keys);
+		return keys;
+	}
+
+	private static long pairKey(int first, int second) {
+		return ((long) first << 32) | (second & 0xffffffffL);
+	}
+
+	/**
+	 * The contact overlap score of two interfaces in either orientation, given their
+	 * sorted contact keys, i.e. the maximum of
+	 * {@link StructureInterface#getContactOverlapScore(StructureInterface, boolean)}
+	 * with and without inversion for two interfaces between the same entities.
+	 */
+	static double getOverlapScore(long[] direct1, long[] inverted1, long[] direct2) {
+		int total = direct1.length + direct2.length;
+		if (total == 0) return 0;
+		int common = Math.max(countCommon(direct1, direct2), countCommon(inverted1, direct2));
+		return (2.0*common)/total;
+	}
+
+	private static int countCommon(long[] keys1, long[] keys2) {
+		int common = 0;
+		int i = 0;
+		int j = 0;
+		while (i < keys1.length && j < keys2.length) {
+			if (keys1[i] < keys2[j]) {
+				i++;
+			} else if (keys1[i] > keys2[j]) {
+				j++;
+			} else {
+				common++;
+				i++;
+				j++;
+			}
+		}
+		return common;
+	}
+
+	/**
+	 * Calculates the contact overlap scores of a range of candidate pairs,
+	 * splitting the range in halves until it is small enough.
+	 */
+	private static class OverlapScoreTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private static final int MIN_PAIRS_PER_TASK = 256;
+
+		private final int[] first;
+		private final int[] second;
+		private final long[][] directKeys;
+		private final long[][] invertedKeys;
+		private final double[] scores;
+		private final int from;
+		private final int to;
+
+		OverlapScoreTask(int[] first, int[] second, long[][] directKeys, long[][] invertedKeys, double[] scores, int from, int to) {
+			this.first = first;
+			this.second = second;
+			this.directKeys = directKeys;
+			this.invertedKeys = invertedKeys;
+			this.scores = scores;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= MIN_PAIRS_PER_TASK) {
+				for (int k=from;k<to;k++) {
+					scores[k] = getOverlapScore(directKeys[first[k]], invertedKeys[first[k]], directKeys[second[k]]);
+				}
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new OverlapScoreTask(first, second, directKeys, invertedKeys, scores, from, mid),
+					new OverlapScoreTask(first, second, directKeys, invertedKeys, scores, mid, to));
+		}
+	}
+
 	@Override
 	public Iterator<StructureInterface> iterator() {
 		return list.iterator();
@@ -307,4 +307,155 @@ public class CalcPoint {
 		return contacts;
 	}
 
+	/*
+	 * The following methods operate on flat coordinate buffers, with the
+	 * coordinates of point i stored at indices 3*i, 3*i+1 and 3*i+2. The
+	 * number of points is passed explicitly, so that buffers can be
+	 * allocated once and reused for point sets of different sizes. None of
+	 * these methods allocate objects.
+	 */
+
+	/**
+	 * Center a cloud of points stored in a flat coordinate buffer.
+	 *
+	 * @param x
+	 *            interleaved x,y,z coordinates. Will be modified
+	 * @param n
+	 *            number of points
+	 */
+	public static void center(double[] x, int n) {
+		double cx = 0, cy = 0, cz = 0;
+		for (int i = 0; i < 3 * n; i += 3) {
+			cx += x[i];
+			cy += x[i + 1];
+			cz += x[i + 2];
+		}
+		translate(-cx / n, -cy / n, -cz / n, x, n);
+	}
+
+	/**
+	 * Calculate the centroid of a cloud of points stored in a flat
+	 * coordinate buffer.
+	 *
+	 * @param x
+	 *            interleaved x,y,z coordinates. Will not be modified
+	 * @param n
+	 *            number of points
+	 * @param centroid
+	 *            array of length 3 where the centroid is stored
+	 * @return the centroid array
+	 */
+	public static double[] centroid(double[] x, int n, double[] centroid) {
+		double cx = 0, cy = 0, cz = 0;
+		for (int i = 0; i < 3 * n; i += 3) {
+			cx += x[i];
+			cy += x[i + 1];
+			cz += x[i + 2];
+		}
+		centroid[0] = cx / n;
+		centroid[1] = cy / n;
+		centroid[2] = cz / n;
+		return centroid;
+	}
+
+	/**
+	 * Transform all points of a flat coordinate buffer in place.
+	 *
+	 * @param rotTrans
+	 *            4x4 rotation and translation matrix
+	 * @param x
+	 *            interleaved x,y,z coordinates. Will be modified
+	 * @param n
+	 *            number of points
+	 */
+	public static void transform(Matrix4d rotTrans, double[] x, int n) {
+		for (int i = 0; i < 3 * n; i += 3) {
+			double px = x[i];
+			double py = x[i + 1];
+			double pz = x[i + 2];
+			x[i] = rotTrans.m00 * px + rotTrans.m01 * py + rotTrans.m02 * pz + rotTrans.m03;
+			x[i + 1] = rotTrans.m10 * px + rotTrans.m11 * py + rotTrans.m12 * pz + rotTrans.m13;
+			x[i + 2] = rotTrans.m20 * px + rotTrans.m21 * py + rotTrans.m22 * pz + rotTrans.m23;
+		}
+	}
+
+	/**
+	 * Translate all points of a flat coordinate buffer in place.
+	 *
+	 * @param dx
+	 * @param dy
+	 * @param dz
+	 *            the translation vector
+	 * @param x
+	 *            interleaved x,y,z coordinates. Will be modified
+	 * @param n
+	 *            number of points
+	 */
+	public static void translate(double dx, double dy, double dz, double[] x, int n) {
+		for (int i = 0; i < 3 * n; i += 3) {
+			x[i] += dx;
+			x[i + 1] += dy;
+			x[i + 2] += dz;
+		}
+	}
+
+	/**
+	 * Calculate the RMSD of two flat coordinate buffers, already superposed.
+	 *
+	 * @param x
+	 *            interleaved coordinates superposed to y
+	 * @param y
+	 *            interleaved coordinates superposed to x
+	 * @param n
+	 *            number of points
+	 * @return RMSD
+	 * @see #rmsd(Point3d[], Point3d[])
+	 */
+	public static double rmsd(double[] x, double[] y, int n) {
+		checkLength(x, y, n);
+		double sum = 0.0;
+		for (int i = 0; i < 3 * n; i++) {
+			double d = x[i] - y[i];
+			sum += d * d;
+		}
+		return Math.sqrt(sum / n);
+	}
+
+	/**
+	 * Returns the TM-Score for two superimposed flat coordinate buffers.
+	 *
+	 * @param x
+	 *            interleaved coordinates superposed to y
+	 * @param y
+	 *            interleaved coordinates superposed to x
+	 * @param n
+	 *            number of equivalent points
+	 * @param lengthNative
+	 *            the length of the native structure, used for normalization
+	 * @return the TM-Score
+	 * @see #TMScore(Point3d[], Point3d[], int)
+	 */
+	public static double TMScore(double[] x, double[] y, int n, int lengthNative) {
+		checkLength(x, y, n);
+		double d0 = 1.24 * Math.cbrt(n - 15.0) - 1.8;
+		double d0Sq = d0 * d0;
+
+		double sum = 0;
+		for (int i = 0; i < 3 * n; i += 3) {
+			double dx = x[i] - y[i];
+			double dy = x[i + 1] - y[i + 1];
+			double dz = x[i + 2] - y[i + 2];
+			sum += 1.0 / (1.0 + (dx * dx + dy * dy + dz * dz) / d0Sq);
+		}
+
+		return sum / lengthNative;
+	}
+
+	private static void checkLength(double[] x, double[] y, int n) {
+		if (x.length < 3 * n || y.length < 3 * n) {
+			throw new IllegalArgumentException(
+					"Coordinate arrays are shorter than the number of points.");
+		}
+	}
+
 }
@@ -125,6 +125,11 @@ public final class SuperPositionQCP extends SuperPositionAbstract {
 	private Point3d xtrans;
 	private Point3d ytrans;
 
+	// centroids of the flat coordinate buffer input, see superpose(double[], double[], int)
+	private final double[] fixedCentroid = new double[3];
+	private final double[] movedCentroid = new double[3];
+	private boolean flatInput = false;
+
 	private double e0;
 	private Matrix3d rotmat = new Matrix3d();
 	private Matrix4d transformation = new Matrix4d();
@@ -177,6 +182,7 @@ public final class SuperPositionQCP extends SuperPositionAbstract {
 	private void set(Point3d[] x, Point3d[] y) {
 		this.x = x;
 		this.y = y;
+		flatInput = false;
 		rmsdCalculated = false;
 		transformationCalculated = false;
 	}
@@ -196,6 +202,7 @@ public final class SuperPositionQCP extends SuperPositionAbstract {
 		this.x = x;
 		this.y = y;
 		this.weight = weight;
+		flatInput = false;
 		rmsdCalculated = false;
 		transformationCalculated = false;
 	}
@@ -442,9 +449,9 @@ public final class SuperPositionQCP extends SuperPositionAbstract {
 		}
 
 		if (i == 50) {
-			logger.warn(String.format("More than %d iterations needed!", i));
+			logger.warn("More than {} iterations needed!", i);
 		} else {
-			logger.info(String.format("%d iterations needed!", i));
+			logger.debug("{} iterations needed!", i);
 		}
 
 		/*
@@ -536,7 +543,8 @@ public final class SuperPositionQCP extends SuperPositionAbstract {
 		q3 /= normq;
 		q4 /= normq;
 
-		logger.debug("q: " + q1 + " " + q2 + " " + q3 + " " + q4);
+		if (logger.isDebugEnabled())
+			logger.debug("q: {} {} {} {}", q1, q2, q3, q4);
 
 		double a2 = q1 * q1;
 		double x2 = q2 * q2;
@@ -615,12 +623,134 @@ public final class SuperPositionQCP extends SuperPositionAbstract {
 		}
 
 		getRotationMatrix();
-		if (!centered) {
-			calcTransformation();
-		} else {
+		if (centered) {
 			transformation.set(rotmat);
+		} else if (flatInput) {
+			calcFlatTransformation();
+		} else {
+			calcTransformation();
 		}
 		return transformation;
 	}
 
+	/**
+	 * Calculate the RMSD between two flat coordinate buffers that are not
+	 * superposed, see {@link #getRmsd(Point3d[], Point3d[])}.
+	 * <p>
+	 * The coordinates of point i are stored at indices 3*i, 3*i+1 and 3*i+2.
+	 * No objects are allocated and the input buffers are not modified, so
+	 * this is the fastest way to compute many RMSDs with a reused
+	 * SuperPositionQCP instance.
+	 *
+	 * @param fixed
+	 *            interleaved x,y,z coordinates of the reference points
+	 * @param moved
+	 *            interleaved x,y,z coordinates of the points to superpose
+	 * @param n
+	 *            number of points to use from each buffer
+	 * @return the minimum RMSD between the equivalent points (after
+	 *         superposition)
+	 */
+	public double getRmsd(double[] fixed, double[] moved, int n) {
+		if (fixed.length < 3 * n || moved.length < 3 * n)
+			throw new IllegalArgumentException(
+					"Coordinate arrays are shorter than the number of points.");
+		flatInput = true;
+		transformationCalculated = false;
+		innerProduct(fixed, moved, n);
+		calcRmsd(wsum);
+		rmsdCalculated = true;
+		return rmsd;
+	}
+
+	/**
+	 * Obtain the superposition matrix that minimizes the RMSD between two flat
+	 * coordinate buffers, see {@link #superpose(Point3d[], Point3d[])}.
+	 * <p>
+	 * The returned matrix is owned by this object and will be overwritten by
+	 * the next call: copy it if it needs to be kept. The input buffers are not
+	 * modified, use {@link CalcPoint#transform(Matrix4d, double[], int)} to
+	 * apply the transformation.
+	 *
+	 * @param fixed
+	 *            interleaved x,y,z coordinates of the reference points
+	 * @param moved
+	 *            interleaved x,y,z coordinates of the points to superpose
+	 * @param n
+	 *            number of points to use from each buffer
+	 * @return transformation matrix to superpose moved onto fixed
+	 */
+	public Matrix4d superpose(double[] fixed, double[] moved, int n) {
+		getRmsd(fixed, moved, n);
+		return superposeAfterRmsd();
+	}
+
+	/**
+	 * Inner product of two flat coordinate buffers, centering them on the
+	 * fly unless the input is flagged as centered.
+	 */
+	private void innerProduct(double[] fixed, double[] moved, int n) {
+		if (centered) {
+			fixedCentroid[0] = fixedCentroid[1] = fixedCentroid[2] = 0;
+			movedCentroid[0] = movedCentroid[1] = movedCentroid[2] = 0;
+		} else {
+			CalcPoint.centroid(fixed, n, fixedCentroid);
+			CalcPoint.centroid(moved, n, movedCentroid);
+		}
+		double fx = fixedCentroid[0], fy = fixedCentroid[1], fz = fixedCentroid[2];
+		double mx = movedCentroid[0], my = movedCentroid[1], mz = movedCentroid[2];
+
+		double g1 = 0.0, g2 = 0.0;
+		double sxx = 0, sxy = 0, sxz = 0, syx = 0, syy = 0, syz = 0, szx = 0, szy = 0, szz = 0;
+
+		for (int i = 0; i < 3 * n; i += 3) {
+			double x1 = fixed[i] - fx;
+			double y1 = fixed[i + 1] - fy;
+			double z1 = fixed[i + 2] - fz;
+			double x2 = moved[i] - mx;
+			double y2 = moved[i + 1] - my;
+			double z2 = moved[i + 2] - mz;
+
+			g1 += x1 * x1 + y1 * y1 + z1 * z1;
+			g2 += x2 * x2 + y2 * y2 + z2 * z2;
+
+			sxx += x1 * x2;
+			sxy += x1 * y2;
+			sxz += x1 * z2;
+
+			syx += y1 * x2;
+			syy += y1 * y2;
+			syz += y1 * z2;
+
+			szx += z1 * x2;
+			szy += z1 * y2;
+			szz += z1 * z2;
+		}
+
+		Sxx = sxx;
+		Sxy = sxy;
+		Sxz = sxz;
+		Syx = syx;
+		Syy = syy;
+		Syz = syz;
+		Szx = szx;
+		Szy = szy;
+		Szz = szz;
+		wsum = n;
+		e0 = (g1 + g2) * 0.5;
+	}
+
+	/**
+	 * Same as {@link #calcTransformation()} for flat buffer input: combines
+	 * the moved centroid to origin translation, the rotation and the origin
+	 * to fixed centroid translation without intermediate matrices.
+	 */
+	private void calcFlatTransformation() {
+		transformation.set(rotmat);
+		double mx = movedCentroid[0], my = movedCentroid[1], mz = movedCentroid[2];
+		transformation.m03 = fixedCentroid[0] - (rotmat.m00 * mx + rotmat.m01 * my + rotmat.m02 * mz);
+		transformation.m13 = fixedCentroid[1] - (rotmat.m10 * mx + rotmat.m11 * my + rotmat.m12 * mz);
+		transformation.m23 = fixedCentroid[2] - (rotmat.m20 * mx + rotmat.m21 * my + rotmat.m22 * mz);
+	}
+
 }
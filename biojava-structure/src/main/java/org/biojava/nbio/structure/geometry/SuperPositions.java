@@ -38,6 +38,10 @@ public class SuperPositions {
 	private static SuperPositionAbstract superposer = new SuperPositionQuat(
 			false);
 
+	/** Superposers for flat coordinate buffers, one per thread. */
+	private static final ThreadLocal<SuperPositionQCP> flatSuperposer = ThreadLocal
+			.withInitial(() -> new SuperPositionQCP(false));
+
 	/** Prevent instantiation */
 	private SuperPositions(){}
 
@@ -101,6 +105,45 @@ public class SuperPositions {
 		return superposer.getRmsd(fixed, moved);
 	}
 
+	/**
+	 * Superpose two flat coordinate buffers with the
+	 * {@link SuperPositionQCP#superpose(double[], double[], int)} method. The
+	 * coordinates of point i are stored at indices 3*i, 3*i+1 and 3*i+2.
+	 * <p>
+	 * This method is thread-safe: each thread uses its own superposer. The
+	 * input buffers are not modified.
+	 *
+	 * @param fixed
+	 *            interleaved x,y,z coordinates of the reference points
+	 * @param moved
+	 *            interleaved x,y,z coordinates of the points to superpose
+	 * @param n
+	 *            number of points to use from each buffer
+	 * @return a new transformation matrix to superpose moved onto fixed
+	 */
+	public static Matrix4d superpose(double[] fixed, double[] moved, int n) {
+		return new Matrix4d(flatSuperposer.get().superpose(fixed, moved, n));
+	}
+
+	/**
+	 * Calculate the RMSD after optimal superposition of two flat coordinate
+	 * buffers with the {@link SuperPositionQCP#getRmsd(double[], double[], int)}
+	 * method, without allocating any objects.
+	 * <p>
+	 * This method is thread-safe: each thread uses its own superposer.
+	 *
+	 * @param fixed
+	 *            interleaved x,y,z coordinates of the reference points
+	 * @param moved
+	 *            interleaved x,y,z coordinates of the points to superpose
+	 * @param n
+	 *            number of points to use from each buffer
+	 * @return the minimum RMSD between the equivalent points
+	 */
+	public static double getRmsd(double[] fixed, double[] moved, int n) {
+		return flatSuperposer.get().getRmsd(fixed, moved, n);
+	}
+
 	public static void setDefaultSuperPosition(SuperPositionAbstract defaultAlgorithm) {
 		superposer = defaultAlgorithm;
 	}
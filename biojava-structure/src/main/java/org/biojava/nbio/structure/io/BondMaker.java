@@ -33,6 +33,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -82,6 +83,11 @@ public class BondMaker {
 	private final Structure structure;
 	private final FileParsingParameters params;
 
+	// bond templates by chemical component id
+	private final Map<String, BondTemplate> bondTemplates = new HashMap<>();
+	// chains by asym id, for each model, built on first use
+	private List<Map<String, Chain>> chainsByAsymId;
+
 	public BondMaker(Structure structure, FileParsingParameters params) {
 		this.structure = structure;
 		this.params = params;
@@ -166,6 +172,13 @@ public class BondMaker {
 					if (mainGroup.getResidueNumber() == null) {
 						continue;
 					}
+
+					if (!mainGroup.hasAltLoc()) {
+						// the common case: a single conformer, bonds are formed directly from the template
+						formTemplateBonds(mainGroup, getBondTemplate(mainGroup));
+						continue;
+					}
+
 					// Now add support for altLocGroup
 					List<Group> totList = new ArrayList<>();
 					totList.add(mainGroup);
@@ -173,15 +186,10 @@ public class BondMaker {
 
 					// Now iterate through this list
 					for(Group group : totList){
-
-						ChemComp aminoChemComp = ChemCompGroupFactory.getChemComp(group.getPDBName());
-						logger.debug("chemcomp for residue {}-{} has {} atoms and {} bonds",
-								group.getPDBName(), group.getResidueNumber(), aminoChemComp.getAtoms().size(), aminoChemComp.getBonds().size());
-
-						for (ChemCompBond chemCompBond : aminoChemComp.getBonds()) {
+						BondTemplate template = getBondTemplate(group);
+						for (int i = 0; i < template.size(); i++) {
 							// note we don't check distance to make this call not too expensive
-							formBondAltlocAware(group, chemCompBond.getAtomId1(),
-									group, chemCompBond.getAtomId2(), -1, chemCompBond.getNumericalBondOrder());
+							formBondAltlocAware(group, template.atomNames1[i], group, template.atomNames2[i], -1, template.bondOrders[i]);
 						}
 					}
 				}
@@ -190,6 +198,73 @@ public class BondMaker {
 		}
 	}
 
+	/**
+	 * Returns the intra-group bonds of the chemical component of a group,
+	 * converted once per component and structure.
+	 */
+	private BondTemplate getBondTemplate(Group group) {
+		// most structures have few distinct components, so look them up once by name
+		BondTemplate template = bondTemplates.get(group.getPDBName());
+		if (template == null) {
+			ChemComp chemComp = ChemCompGroupFactory.getChemComp(group.getPDBName());
+			logger.debug("chemcomp for residue {} has {} atoms and {} bonds",
+					group.getPDBName(), chemComp.getAtoms().size(), chemComp.getBonds().size());
+			template = new BondTemplate(chemComp);
+			bondTemplates.put(group.getPDBName(), template);
+		}
+		return template;
+	}
+
+	/**
+	 * Forms the template bonds of a group without alt loc groups. Equivalent to
+	 * {@link #formBondAltlocAware(Group, String, Group, String, double, int)}
+	 * for each bond, but without building atom lists.
+	 */
+	private void formTemplateBonds(Group group, BondTemplate template) {
+		for (int i = 0; i < template.size(); i++) {
+			Atom a1 = getAtom(group, template.atomNames1[i], template.deuteriumNames1[i]);
+			if (a1 == null) {
+				continue;
+			}
+			Atom a2 = getAtom(group, template.atomNames2[i], template.deuteriumNames2[i]);
+			if (a2 == null || !isAltLocCompatible(a1, a2)) {
+				continue;
+			}
+			// size new bond lists to the number of template bonds, so that they don't grow and need no trimming
+			if (a1.getBonds() == null)
+				a1.setBonds(new ArrayList<>(template.degrees1[i]));
+			if (a2.getBonds() == null)
+				a2.setBonds(new ArrayList<>(template.degrees2[i]));
+			new BondImpl(a1, a2, template.bondOrders[i]);
+		}
+	}
+
+	/**
+	 * Gets the atom of the given name, or of the given deuterium name if it is a
+	 * hydrogen that was replaced by deuterium.
+	 */
+	private static Atom getAtom(Group group, String name, String deuteriumName) {
+		Atom a = group.getAtom(name);
+		// Check for deuteration
+		if (a == null && deuteriumName != null) {
+			a = group.getAtom(deuteriumName);
+			// Check it is actually deuterated
+			if (a != null && !a.getElement().equals(Element.D)) {
+				a = null;
+			}
+		}
+		return a;
+	}
+
+	/**
+	 * No bonds between differently named alt locs (that are not the default alt loc)
+	 */
+	private static boolean isAltLocCompatible(Atom a1, Atom a2) {
+		Character altLoc1 = a1.getAltLoc();
+		Character altLoc2 = a2.getAltLoc();
+		return altLoc1 == null || altLoc2 == null || altLoc1 == ' ' || altLoc2 == ' ' || altLoc1.equals(altLoc2);
+	}
+
 	/**
 	 * Form bond between atoms of the given names and groups, respecting alt loc rules to form bonds:
 	 * no bonds between differently named alt locs (that are not the default alt loc '.')
@@ -213,24 +288,18 @@ public class BondMaker {
 
 		for (Atom a1:a1s) {
 			for (Atom a2:a2s) {
-				if (a1.getAltLoc() != null && a2.getAltLoc()!=null &&
-						!a1.getAltLoc().equals(' ') && !a2.getAltLoc().equals(' ') &&
-						!a1.getAltLoc().equals(a2.getAltLoc())) {
+				if (!isAltLocCompatible(a1, a2)) {
 					logger.debug("Skipping bond between atoms with differently named alt locs {} (altLoc '{}') -- {} (altLoc '{}')",
-							a1.toString(), a1.getAltLoc(), a2.toString(), a2.getAltLoc());
+							a1, a1.getAltLoc(), a2, a2.getAltLoc());
 					continue;
 				}
 				if (maxAllowedLength<0) {
 					// negative maxAllowedLength means we don't check distance and always add bond
-					logger.debug("Forming bond between atoms {}-{} and {}-{} with bond order {}",
-							a1.getPDBserial(), a1.getName(), a2.getPDBserial(), a2.getName(), bondOrder);
 					new BondImpl(a1, a2, bondOrder);
 				} else {
 					if (Calc.getDistance(a1, a2) < maxAllowedLength) {
-						logger.debug("Forming bond between atoms {}-{} and {}-{} with bond order {}. Distance is below {}",
-								a1.getPDBserial(), a1.getName(), a2.getPDBserial(), a2.getName(), bondOrder, maxAllowedLength);
 						new BondImpl(a1, a2, bondOrder);
-					} else {
+					} else if (logger.isDebugEnabled()) {
 						logger.debug("Not forming bond between atoms {}-{} and {}-{} with bond order {}, because distance is above {}",
 								a1.getPDBserial(), a1.getName(), a2.getPDBserial(), a2.getName(), bondOrder, maxAllowedLength);
 					}
@@ -246,26 +315,29 @@ public class BondMaker {
 	 * @return list of all atoms, or empty list if no atoms with the name
 	 */
 	private List<Atom> getAtoms(Group g, String name) {
+		String deuteriumName = getDeuteriumName(name);
+		Atom a = getAtom(g, name, deuteriumName);
+		if (!g.hasAltLoc()) {
+			return a == null ? Collections.emptyList() : Collections.singletonList(a);
+		}
 		List<Atom> atoms = new ArrayList<>();
-		List<Group> groupsWithAltLocs = new ArrayList<>();
-		groupsWithAltLocs.add(g);
-		groupsWithAltLocs.addAll(g.getAltLocs());
-		for (Group group : groupsWithAltLocs) {
-			Atom a = group.getAtom(name);
-			// Check for deuteration
-			if (a==null && name.startsWith("H")) {
-				a = group.getAtom(name.replaceFirst("H", "D"));
-				// Check it is actually deuterated
-				if (a!=null && !a.getElement().equals(Element.D)){
-					a=null;
-				}
-			}
+		if (a != null)
+			atoms.add(a);
+		for (Group group : g.getAltLocs()) {
+			a = getAtom(group, name, deuteriumName);
 			if (a!=null)
 				atoms.add(a);
 		}
 		return atoms;
 	}
 
+	/**
+	 * @return the name of a hydrogen atom with the H replaced by D, or null if not a hydrogen name
+	 */
+	private static String getDeuteriumName(String name) {
+		return name.startsWith("H") ? "D" + name.substring(1) : null;
+	}
+
 	private void trimBondLists() {
 		for (int modelInd=0; modelInd<structure.nrModels(); modelInd++){
 			for (Chain chain : structure.getChains(modelInd)) {
@@ -513,7 +585,9 @@ public class BondMaker {
 		ResidueNumber resNum = new ResidueNumber(chainID, Integer.parseInt(resSeq), iCode.charAt(0));
 
 		for (int i=0; i<structure.nrModels(); i++){
-			Chain chain = structure.getChain(chainID,i);
+			Chain chain = getChain(chainID, i);
+			if (chain == null)
+				throw new StructureException("Could not find chain " + chainID + " in model " + i);
 			Group group = chain.getGroupByPDB(resNum);
 
 			Group g = group;
@@ -530,4 +604,69 @@ public class BondMaker {
 		}
 		return outMap;
 	}
+
+	/**
+	 * Same as {@link Structure#getChain(String, int)}, but with a map built
+	 * once instead of a linear search for each of the many bond records.
+	 */
+	private Chain getChain(String asymId, int modelIdx) {
+		if (chainsByAsymId == null) {
+			chainsByAsymId = new ArrayList<>(structure.nrModels());
+			for (int i = 0; i < structure.nrModels(); i++) {
+				Map<String, Chain> chains = new HashMap<>();
+				for (Chain c : structure.getChains(i)) {
+					// the first chain wins, as in Structure.getChain
+					chains.putIfAbsent(c.getId(), c);
+				}
+				chainsByAsymId.add(chains);
+			}
+		}
+		return chainsByAsymId.get(modelIdx).get(asymId);
+	}
+
+	/**
+	 * The intra-group bonds of a chemical component, with the atom names to look
+	 * up and the numerical bond orders resolved once.
+	 */
+	private static class BondTemplate {
+		private final String[] atomNames1;
+		private final String[] atomNames2;
+		private final String[] deuteriumNames1;
+		private final String[] deuteriumNames2;
+		private final int[] bondOrders;
+		// number of template bonds of the atoms
+		private final int[] degrees1;
+		private final int[] degrees2;
+
+		private BondTemplate(ChemComp chemComp) {
+			List<ChemCompBond> bonds = chemComp.getBonds();
+			int n = bonds.size();
+			atomNames1 = new String[n];
+			atomNames2 = new String[n];
+			deuteriumNames1 = new String[n];
+			deuteriumNames2 = new String[n];
+			bondOrders = new int[n];
+			degrees1 = new int[n];
+			degrees2 = new int[n];
+			Map<String, Integer> degrees = new HashMap<>();
+			for (ChemCompBond bond : bonds) {
+				degrees.merge(bond.getAtomId1(), 1, Integer::sum);
+				degrees.merge(bond.getAtomId2(), 1, Integer::sum);
+			}
+			for (int i = 0; i < n; i++) {
+				ChemCompBond bond = bonds.get(i);
+				atomNames1[i] = bond.getAtomId1();
+				atomNames2[i] = bond.getAtomId2();
+				deuteriumNames1[i] = getDeuteriumName(atomNames1[i]);
+				deuteriumNames2[i] = getDeuteriumName(atomNames2[i]);
+				bondOrders[i] = bond.getNumericalBondOrder();
+				degrees1[i] = degrees.get(atomNames1[i]);
+				degrees2[i] = degrees.get(atomNames2[i]);
+			}
+		}
+
+		private int size() {
+			return bondOrders.length;
+		}
+	}
 }
@@ -43,6 +43,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
@@ -72,6 +73,16 @@ public class EntityFinder {
 	 */
 	public static final double IDENTITY_THRESHOLD = 0.99999;
 
+	/**
+	 * The alignment scores of identical sequences
+	 */
+	private static final double[] IDENTICAL = {1.0, 0.0, 0.0};
+
+	/**
+	 * The alignment scores of sequences of different kinds of polymers
+	 */
+	private static final double[] NOT_ALIGNED = new double[0];
+
 	/**
 	 * Gap coverage value (num gaps over length of sequence) for each chain of the match:
 	 * 2 chains with more gap coverage than this value will not be considered part of the same entity
@@ -239,65 +250,39 @@ public class EntityFinder {
 
 		int molId = 1;
 
+		// here we use false, which means that X will be used for unknown compounds
+		List<String> sequences = new ArrayList<>();
+		for (Chain c : polyModels.get(0)) {
+			sequences.add(SeqRes2AtomAligner.getFullAtomSequence(c.getAtomGroups(), new HashMap<>(), false));
+		}
+		// the identity and gap coverages of the distinct pairs of sequences aligned so far
+		Map<String, double[]> alignments = new HashMap<>();
+
 		outer:
 			for (int i:polyChainIndices) {
 				Chain c1 = polyModels.get(0).get(i);
-				// here we use false, which means that X will be used for unknown compounds
-				String str1 = SeqRes2AtomAligner.getFullAtomSequence(c1.getAtomGroups(), new HashMap<>(), false);
+				String str1 = sequences.get(i);
 
 				for (int j:polyChainIndices) {
 
 					if (j<=i) continue;
 
 					Chain c2 = polyModels.get(0).get(j);
-					String str2 = SeqRes2AtomAligner.getFullAtomSequence(c2.getAtomGroups(), new HashMap<>(), false);
-
-					int seq1Length = 0;
-					int seq2Length = 0;
-
-					SequencePair<?,?> pair;
-					if (isProteinSequence(str1) && isProteinSequence(str2)) {
-						ProteinSequence s1 = getProteinSequence(str1);
-						ProteinSequence s2 = getProteinSequence(str2);
-						seq1Length = s1.getLength();
-						seq2Length = s2.getLength();
-
-						pair = alignProtein(s1,s2);
+					String str2 = sequences.get(j);
 
-					} else if (isDNASequence(str1) && isDNASequence(str2)) {
-						DNASequence s1 = getDNASequence(str1);
-						DNASequence s2 = getDNASequence(str2);
-						seq1Length = s1.getLength();
-						seq2Length = s2.getLength();
-
-						pair = alignDNA(s1,s2);
-
-					} else if (isRNASequence(str1) && isRNASequence(str2)) {
-						RNASequence s1 = getRNASequence(str1);
-						RNASequence s2 = getRNASequence(str2);
-						seq1Length = s1.getLength();
-						seq2Length = s2.getLength();
-
-						pair = alignRNA(s1,s2);
-
-					} else {
-						logger.debug("Chains {},{} are either different kind of polymers or could not be recognized as protein or nucleotide polymers", c1.getId(), c2.getId());
+					String key = str1 + "/" + str2;
+					double[] scores = alignments.get(key);
+					if (scores == null) {
+						scores = align(str1, str2, c1.getId(), c2.getId());
+						alignments.put(key, scores);
+					}
+					if (scores == NOT_ALIGNED) {
 						continue;
 					}
 
-					int numGaps = getNumGaps(pair);
-					int numGaps1 = getNumGapsQuery(pair);
-					int numGaps2 = getNumGapsTarget(pair);
-
-					int nonGaps = pair.getLength() - numGaps;
-
-					double identity = (double)pair.getNumIdenticals()/(double)nonGaps;
-					double gapCov1 = (double) numGaps1 / (double) seq1Length;
-					double gapCov2 = (double) numGaps2 / (double) seq2Length;
-
-					logger.debug("Alignment for chain pair {},{}: identity: {}, gap coverage 1: {}, gap coverage 2: {}",
-							c1.getId(), c2.getId(), String.format("%4.2f",identity), String.format("%4.2f",gapCov1), String.format("%4.2f",gapCov2));
-					logger.debug("\n{}", pair.toString(100));
+					double identity = scores[0];
+					double gapCov1 = scores[1];
+					double gapCov2 = scores[2];
 
 					if (identity > IDENTITY_THRESHOLD && gapCov1<GAP_COVERAGE_THRESHOLD && gapCov2<GAP_COVERAGE_THRESHOLD) {
 						if (	!chainIds2entities.containsKey(c1.getId()) &&
@@ -336,12 +321,6 @@ public class EntityFinder {
 						}
 					}
 
-					if (identity>1) {
-						logger.warn("Identity for chains {},{} above 1. {} identicals out of {} non-gap-aligned residues (identity {})",
-								c1.getId(),c2.getId(),pair.getNumIdenticals(),nonGaps,identity);
-						logger.warn("\n"+pair.toString(100));
-					}
-
 					if (chainIds2entities.size()==polyChainIndices.size()) // we've got all chains in entities
 						break outer;
 				}
@@ -376,6 +355,78 @@ public class EntityFinder {
 		return chainIds2entities;
 	}
 
+	/**
+	 * Aligns the sequences of two chains.
+	 * @return the identity and the gap coverages of the two sequences, or {@link #NOT_ALIGNED}
+	 * if they are different kinds of polymers
+	 */
+	private static double[] align(String str1, String str2, String chainId1, String chainId2) {
+
+		int seq1Length = 0;
+		int seq2Length = 0;
+
+		SequencePair<?,?> pair;
+		if (isProteinSequence(str1) && isProteinSequence(str2)) {
+			ProteinSequence s1 = getProteinSequence(str1);
+			ProteinSequence s2 = getProteinSequence(str2);
+			if (str1.equals(str2) && SeqRes2AtomAligner.isSelfScoreDominant(s1, s2, SubstitutionMatrixHelper.getIdentity())) {
+				return IDENTICAL;
+			}
+			seq1Length = s1.getLength();
+			seq2Length = s2.getLength();
+
+			pair = alignProtein(s1,s2);
+
+		} else if (isDNASequence(str1) && isDNASequence(str2)) {
+			DNASequence s1 = getDNASequence(str1);
+			DNASequence s2 = getDNASequence(str2);
+			if (str1.equals(str2) && SeqRes2AtomAligner.isSelfScoreDominant(s1, s2, SubstitutionMatrixHelper.getNuc4_4())) {
+				return IDENTICAL;
+			}
+			seq1Length = s1.getLength();
+			seq2Length = s2.getLength();
+
+			pair = alignDNA(s1,s2);
+
+		} else if (isRNASequence(str1) && isRNASequence(str2)) {
+			RNASequence s1 = getRNASequence(str1);
+			RNASequence s2 = getRNASequence(str2);
+			if (str1.equals(str2) && SeqRes2AtomAligner.isSelfScoreDominant(s1, s2, SubstitutionMatrixHelper.getNuc4_4())) {
+				return IDENTICAL;
+			}
+			seq1Length = s1.getLength();
+			seq2Length = s2.getLength();
+
+			pair = alignRNA(s1,s2);
+
+		} else {
+			logger.debug("Chains {},{} are either different kind of polymers or could not be recognized as protein or nucleotide polymers", chainId1, chainId2);
+			return NOT_ALIGNED;
+		}
+
+		int numGaps = getNumGaps(pair);
+		int numGaps1 = getNumGapsQuery(pair);
+		int numGaps2 = getNumGapsTarget(pair);
+
+		int nonGaps = pair.getLength() - numGaps;
+
+		double identity = (double)pair.getNumIdenticals()/(double)nonGaps;
+		double gapCov1 = (double) numGaps1 / (double) seq1Length;
+		double gapCov2 = (double) numGaps2 / (double) seq2Length;
+
+		logger.debug("Alignment for chain pair {},{}: identity: {}, gap coverage 1: {}, gap coverage 2: {}",
+				chainId1, chainId2, String.format("%4.2f",identity), String.format("%4.2f",gapCov1), String.format("%4.2f",gapCov2));
+		logger.debug("\n{}", pair.toString(100));
+
+		if (identity>1) {
+			logger.warn("Identity for chains {},{} above 1. {} identicals out of {} non-gap-aligned residues (identity {})",
+					chainId1,chainId2,pair.getNumIdenticals(),nonGaps,identity);
+			logger.warn("\n"+pair.toString(100));
+		}
+
+		return new double[] {identity, gapCov1, gapCov2};
+	}
+
 	private static SequencePair<ProteinSequence, AminoAcidCompound> alignProtein(ProteinSequence s1, ProteinSequence s2) {
 		SubstitutionMatrix<AminoAcidCompound> matrix = SubstitutionMatrixHelper.getIdentity();
 
@@ -21,7 +21,13 @@
  */
 package org.biojava.nbio.structure.io;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.text.DateFormat;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
@@ -41,6 +47,7 @@ import org.biojava.nbio.structure.PDBHeader;
 import org.biojava.nbio.structure.Site;
 import org.biojava.nbio.structure.Structure;
 import org.biojava.nbio.structure.io.cif.CifStructureConverter;
+import org.rcsb.cif.CifIO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -61,23 +68,35 @@ public class FileConvert {
 	private boolean printConnections;
 
 	// Locale should be english, e.g. in DE separator is "," -> PDB files have "." !
-	public static DecimalFormat d3 = (DecimalFormat)NumberFormat.getInstance(Locale.US);
-	static {
-		d3.setMaximumIntegerDigits(4);
-		d3.setMinimumFractionDigits(3);
-		d3.setMaximumFractionDigits(3);
-		d3.setGroupingUsed(false);
-	}
-	public static DecimalFormat d2 = (DecimalFormat)NumberFormat.getInstance(Locale.US);
-	static {
-		d2.setMaximumIntegerDigits(3);
-		d2.setMinimumFractionDigits(2);
-		d2.setMaximumFractionDigits(2);
-		d2.setGroupingUsed(false);
-	}
+	/**
+	 * @deprecated DecimalFormat is not thread-safe, this shared instance is
+	 *             not used anymore to write PDB files.
+	 */
+	@Deprecated
+	public static DecimalFormat d3 = newDecimalFormat(4, 3);
+	/**
+	 * @deprecated DecimalFormat is not thread-safe, this shared instance is
+	 *             not used anymore to write PDB files.
+	 */
+	@Deprecated
+	public static DecimalFormat d2 = newDecimalFormat(3, 2);
 
 	private static final String newline = System.getProperty("line.separator");
 
+	private static final String TER_RECORD = String.format("%-80s","TER") + newline;
+	private static final String ENDMDL_RECORD = String.format("%-80s","ENDMDL") + newline;
+	private static final String CONECT_PADDING = String.format("%64s", "");
+	private static final int LINE_CAPACITY = 82;
+
+	private static final long[] POWERS_OF_TEN = {1, 10, 100, 1000, 10000};
+
+	private static final String[] ELEMENT_SYMBOLS = new String[Element.values().length];
+	static {
+		for (Element e : Element.values()) {
+			ELEMENT_SYMBOLS[e.ordinal()] = e.equals(Element.R) ? "X" : e.toString().toUpperCase();
+		}
+	}
+
 	/**
 	 * Constructs a FileConvert object.
 	 *
@@ -112,40 +131,80 @@ public class FileConvert {
 	 * Rewritten since 5.0 to use {@link Bond}s
 	 * Will produce strictly one CONECT record per bond (won't group several bonds in one line)
 	 */
-	private String printPDBConnections(){
-
-		StringBuilder str = new StringBuilder();
+	private void writePDBConnections(Appendable out, StringBuilder line) throws IOException {
 
 		for (Chain c:structure.getChains()) {
 			for (Group g:c.getAtomGroups()) {
 				for (Atom a:g.getAtoms()) {
 					if (a.getBonds()!=null) {
-						for (Bond b:a.getBonds()) {				//7890123456789012345678901234567890123456789012345678901234567890
-							str.append(String.format("CONECT%5d%5d                                                                "+newline, b.getAtomA().getPDBserial(), b.getAtomB().getPDBserial()));
+						for (Bond b:a.getBonds()) {
+							line.setLength(0);
+							line.append("CONECT");
+							appendRightAligned(line, Integer.toString(b.getAtomA().getPDBserial()), 5);
+							appendRightAligned(line, Integer.toString(b.getAtomB().getPDBserial()), 5);
+							line.append(CONECT_PADDING).append(newline);
+							out.append(line);
 						}
 					}
 				}
 			}
 		}
-
-		return str.toString();
 	}
 
 	/** Convert a structure into a PDB file.
 	 * @return a String representing a PDB file.
 	 */
 	public String toPDB() {
+		StringBuilder str = new StringBuilder();
+		try {
+			writePDB(str);
+		} catch (IOException e) {
+			// never thrown by a StringBuilder
+			throw new UncheckedIOException(e);
+		}
+		return str.toString();
+	}
 
+	/**
+	 * Writes the structure in PDB format to a Writer, one record at a time,
+	 * so that the whole file is never held in memory. The Writer should be
+	 * buffered and it is not closed.
+	 * <p>
+	 * This method does not modify the structure and can be called
+	 * concurrently from several threads, each with its own Writer.
+	 *
+	 * @param writer where to write the PDB file
+	 * @throws IOException if writing fails
+	 * @since 7.2.0
+	 */
+	public void toPDB(Writer writer) throws IOException {
+		writePDB(writer);
+	}
 
-		StringBuffer str = new StringBuffer();
-		//int i = 0 ;
-
+	/**
+	 * Writes the structure in PDB format to an OutputStream, without
+	 * building the whole file in memory. The output is buffered and flushed,
+	 * but the stream is not closed.
+	 *
+	 * @param out where to write the PDB file
+	 * @throws IOException if writing fails
+	 * @see #toPDB(Writer)
+	 * @since 7.2.0
+	 */
+	public void toPDB(OutputStream out) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		writePDB(writer);
+		writer.flush();
+	}
 
+	private void writePDB(Appendable out) throws IOException {
 
 		// TODO: print all the PDB header informaton in PDB style
 		// some objects (PDBHeader, Compound) are still missing
 		//
 
+		StringBuffer str = new StringBuffer();
+
 		PDBHeader header = structure.getPDBHeader();
 		header.toPDB(str);
 
@@ -177,21 +236,23 @@ public class FileConvert {
 				e.printStackTrace();
 			}
 		}
+		out.append(str);
 
 		//
-		// print the atom records
+		// print the atom records, reusing a single line buffer
 		//
+		StringBuilder line = new StringBuilder(LINE_CAPACITY);
 
 		// do for all models
 		int nrModels = structure.nrModels() ;
 		if ( structure.isNmr()) {
-			str.append("EXPDTA    NMR, "+ nrModels+" STRUCTURES"+newline) ;
+			out.append("EXPDTA    NMR, "+ nrModels+" STRUCTURES"+newline) ;
 		}
 		for (int m = 0 ; m < nrModels ; m++) {
 
 
 			if ( nrModels>1 ) {
-				str.append("MODEL      " + (m+1)+ newline);
+				out.append("MODEL      " + (m+1)+ newline);
 			}
 
 			List<Chain> polyChains = structure.getPolyChains(m);
@@ -206,11 +267,11 @@ public class FileConvert {
 
 					Group g= chain.getAtomGroup(h);
 
-					toPDB(g,str);
+					writeGroup(g, out, line);
 
 				}
 				// End any polymeric chain with a "TER" record
-				if (nrGroups > 0) str.append(String.format("%-80s","TER")).append(newline);
+				if (nrGroups > 0) out.append(TER_RECORD);
 
 			}
 
@@ -223,13 +284,13 @@ public class FileConvert {
 
 					Group g= chain.getAtomGroup(h);
 
-					toPDB(g,str);
+					writeGroup(g, out, line);
 
 					nonPolyGroupsExist = true;
 				}
 
 			}
-			if (nonPolyGroupsExist) str.append(String.format("%-80s","TER")).append(newline);;
+			if (nonPolyGroupsExist) out.append(TER_RECORD);
 
 			boolean waterGroupsExist = false;
 			for (Chain chain : waterChains) {
@@ -240,77 +301,69 @@ public class FileConvert {
 
 					Group g= chain.getAtomGroup(h);
 
-					toPDB(g,str);
+					writeGroup(g, out, line);
 
 					waterGroupsExist = true;
 				}
 
 			}
-			if (waterGroupsExist) str.append(String.format("%-80s","TER")).append(newline);;
+			if (waterGroupsExist) out.append(TER_RECORD);
 
 
 			if ( nrModels>1) {
-				str.append(String.format("%-80s","ENDMDL")).append(newline);
+				out.append(ENDMDL_RECORD);
 			}
 
-
-
 		}
 
 		if ( doPrintConnections() )
-			str.append(printPDBConnections());
-
-		return str.toString() ;
+			writePDBConnections(out, line);
 	}
 
-	private static void toPDB(Group g, StringBuffer str) {
+	private static void writeGroup(Group g, Appendable out, StringBuilder line) throws IOException {
 		// iterate over all atoms ...
 		// format output ...
 		int groupsize  = g.size();
 
 		for ( int atompos = 0 ; atompos < groupsize; atompos++) {
-			Atom a = null ;
-
-			a = g.getAtom(atompos);
+			Atom a = g.getAtom(atompos);
 			if ( a == null)
 				continue ;
 
-			toPDB(a, str);
-
-
-			//line = record + serial + " " + fullname +altLoc
-			//+ leftResName + " " + chainID + resseq
-			//+ "   " + x+y+z
-			//+ occupancy + tempfactor;
-			//str.append(line + newline);
-			//System.out.println(line);
+			line.setLength(0);
+			appendAtomRecord(a, line, a.getGroup().getChain().getName());
+			out.append(line);
 		}
 		if ( g.hasAltLoc()){
 			for (Group alt : g.getAltLocs() ) {
-				toPDB(alt,str);
+				writeGroup(alt, out, line);
 			}
 		}
 
 	}
 
+	private static void toPDB(Group g, StringBuilder str) {
+		try {
+			writeGroup(g, str, new StringBuilder(LINE_CAPACITY));
+		} catch (IOException e) {
+			// never thrown by a StringBuilder
+			throw new UncheckedIOException(e);
+		}
+	}
+
 	/** Prints the content of an Atom object as a PDB formatted line.
 	 *
 	 * @param a
 	 * @return
 	 */
 	public static String toPDB(Atom a){
-		StringBuffer w = new StringBuffer();
-
-		toPDB(a,w);
-
-		return w.toString();
-
+		return toPDB(a, a.getGroup().getChain().getName());
 	}
 
 	public static String toPDB(Atom a, String chainId) {
-		StringBuffer w = new StringBuffer();
+		StringBuilder w = new StringBuilder(LINE_CAPACITY);
 
-		toPDB(a,w, chainId);
+		appendAtomRecord(a, w, chainId);
 
 		return w.toString();
 	}
@@ -323,7 +376,7 @@ public class FileConvert {
 	 * @return
 	 */
 	public static String toPDB(Chain chain){
-		StringBuffer w = new StringBuffer();
+		StringBuilder w = new StringBuilder();
 		int nrGroups = chain.getAtomLength();
 
 		for ( int h=0; h<nrGroups;h++){
@@ -346,7 +399,7 @@ public class FileConvert {
 	 * @return
 	 */
 	public static String toPDB(Group g){
-		StringBuffer w = new StringBuffer();
+		StringBuilder w = new StringBuilder();
 		toPDB(g,w);
 		return w.toString();
 	}
@@ -383,83 +436,148 @@ public class FileConvert {
 	 * @param chainID the chain ID that the Atom will have in the output string
 	 */
 	public static void toPDB(Atom a, StringBuffer str, String chainID) {
+		StringBuilder line = new StringBuilder(LINE_CAPACITY);
+		appendAtomRecord(a, line, chainID);
+		str.append(line);
+	}
 
-		Group g = a.getGroup();
+	public static void toPDB(Atom a, StringBuffer str) {
+		toPDB(a,str,a.getGroup().getChain().getName());
+	}
+
+	/**
+	 * Appends the ATOM or HETATM record of an Atom, see
+	 * {@link #toPDB(Atom, StringBuffer, String)}. The numbers are formatted
+	 * without any shared formatter, so this is safe to call from several
+	 * threads.
+	 */
+	private static void appendAtomRecord(Atom a, StringBuilder s, String chainID) {
+
+		int start = s.length();
 
-		GroupType type = g.getType() ;
+		Group g = a.getGroup();
 
-		String record = "" ;
-		if ( type.equals(GroupType.HETATM) ) {
-			record = "HETATM";
+		if ( g.getType().equals(GroupType.HETATM) ) {
+			s.append("HETATM");
 		} else {
-			record = "ATOM  ";
+			s.append("ATOM  ");
 		}
 
+		appendRightAligned(s, Integer.toString(a.getPDBserial()), 5);
+		s.append(' ');
+		s.append(formatAtomName(a));
 
-		// format output ...
-		String resName = g.getPDBName();
-		String pdbcode = g.getResidueNumber().toString();
+		Character  altLoc = a.getAltLoc();
+		s.append(altLoc == null ? ' ' : altLoc.charValue());
 
+		appendRightAligned(s, g.getPDBName(), 3);
+		s.append(' ');
+		s.append(chainID);
 
-		int    seri       = a.getPDBserial()        ;
-		String serial     = String.format("%5d",seri);
-		String fullName   = formatAtomName(a);
+		String pdbcode = g.getResidueNumber().toString();
+		if ( hasInsertionCode(pdbcode) ) {
+			appendRightAligned(s, pdbcode, 5);
+		} else {
+			appendRightAligned(s, pdbcode, 4);
+			s.append(' ');
+		}
 
-		Character  altLoc = a.getAltLoc();
-		if ( altLoc == null)
-			altLoc = ' ';
-
-		String resseq = "" ;
-		if ( hasInsertionCode(pdbcode) )
-			resseq     = String.format("%5s",pdbcode);
-		else
-			resseq     = String.format("%4s",pdbcode)+" ";
-
-		String x          = String.format("%8s",d3.format(a.getX()));
-		String y          = String.format("%8s",d3.format(a.getY()));
-		String z          = String.format("%8s",d3.format(a.getZ()));
-		String occupancy  = String.format("%6s",d2.format(a.getOccupancy())) ;
-		String tempfactor = String.format("%6s",d2.format(a.getTempFactor()));
-
-
-		String leftResName = String.format("%3s",resName);
-
-		StringBuffer s = new StringBuffer();
-		s.append(record);
-		s.append(serial);
-		s.append(" ");
-		s.append(fullName);
-		s.append(altLoc);
-		s.append(leftResName);
-		s.append(" ");
-		s.append(chainID);
-		s.append(resseq);
 		s.append("   ");
-		s.append(x);
-		s.append(y);
-		s.append(z);
-		s.append(occupancy);
-		s.append(tempfactor);
+		appendDecimal(s, a.getX(), 8, 3, 4);
+		appendDecimal(s, a.getY(), 8, 3, 4);
+		appendDecimal(s, a.getZ(), 8, 3, 4);
+		appendDecimal(s, a.getOccupancy(), 6, 2, 3);
+		appendDecimal(s, a.getTempFactor(), 6, 2, 3);
+
+		// the element symbol is right-justified in columns 77 - 78
+		while (s.length() - start < 76) {
+			s.append(' ');
+		}
+		appendRightAligned(s, ELEMENT_SYMBOLS[a.getElement().ordinal()], 2);
+		s.append(newline);
+	}
 
-		Element e = a.getElement();
+	/**
+	 * Appends a value right-justified in a field of the given width, as
+	 * <code>String.format("%"+width+"s", value)</code> does.
+	 */
+	private static void appendRightAligned(StringBuilder s, String value, int width) {
+		String v = String.valueOf(value);
+		for (int i = v.length(); i < width; i++) {
+			s.append(' ');
+		}
+		s.append(v);
+	}
+
+	/**
+	 * Appends a number right-justified in a field of the given width, with
+	 * exactly fractionDigits decimals, the same as formatting with
+	 * {@link #d3} or {@link #d2}. Values close to a rounding tie or with more
+	 * than maxIntegerDigits integer digits, where DecimalFormat has its own
+	 * rules, are rare and still formatted by a new DecimalFormat.
+	 */
+	private static void appendDecimal(StringBuilder s, double value, int width,
+			int fractionDigits, int maxIntegerDigits) {
+
+		long scale = POWERS_OF_TEN[fractionDigits];
+		double abs = Math.abs(value);
+		double scaled = abs * scale;
+		double floor = Math.floor(scaled);
+		double diff = scaled - floor - 0.5;
+
+		// also true for NaN and infinities
+		if (!(abs < POWERS_OF_TEN[maxIntegerDigits] - 1) || Math.abs(diff) < 1e-6) {
+			appendRightAligned(s, newDecimalFormat(maxIntegerDigits, fractionDigits).format(value), width);
+			return;
+		}
 
-		String eString = e.toString().toUpperCase();
+		long rounded = diff < 0 ? (long) floor : (long) floor + 1;
+		long intPart = rounded / scale;
+		long fracPart = rounded % scale;
 
-		if ( e.equals(Element.R)) {
-			eString = "X";
+		// fill the digits from the right
+		char[] buf = new char[16];
+		int pos = buf.length;
+		for (int i = 0; i < fractionDigits; i++) {
+			buf[--pos] = (char) ('0' + fracPart % 10);
+			fracPart /= 10;
+		}
+		buf[--pos] = '.';
+		do {
+			buf[--pos] = (char) ('0' + intPart % 10);
+			intPart /= 10;
+		} while (intPart > 0);
+		// DecimalFormat keeps the sign of negative values rounded to 0
+		if (value < 0 || (value == 0 && 1 / value < 0)) {
+			buf[--pos] = '-';
 		}
-		str.append(String.format("%-76s%2s", s.toString(),eString));
-		str.append(newline);
 
+		for (int i = buf.length - pos; i < width; i++) {
+			s.append(' ');
+		}
+		s.append(buf, pos, buf.length - pos);
 	}
 
-	public static void toPDB(Atom a, StringBuffer str) {
-		toPDB(a,str,a.getGroup().getChain().getName());
+	private static DecimalFormat newDecimalFormat(int maxIntegerDigits, int fractionDigits) {
+		DecimalFormat df = (DecimalFormat)NumberFormat.getInstance(Locale.US);
+		df.setMaximumIntegerDigits(maxIntegerDigits);
+		df.setMinimumFractionDigits(fractionDigits);
+		df.setMaximumFractionDigits(fractionDigits);
+		df.setGroupingUsed(false);
+		return df;
 	}
 
-
 	/** test if pdbserial has an insertion code */
 	private static boolean hasInsertionCode(String pdbserial) {
+		// plain residue numbers, checked without an exception
+		int length = pdbserial.length();
+		if (length > 0 && length < 10) {
+			int i = pdbserial.charAt(0) == '-' && length > 1 ? 1 : 0;
+			while (i < length && pdbserial.charAt(i) >= '0' && pdbserial.charAt(i) <= '9')
+				i++;
+			if (i == length)
+				return false;
+		}
 		try {
 			Integer.parseInt(pdbserial) ;
 		} catch (NumberFormatException e) {
@@ -607,4 +725,16 @@ public class FileConvert {
 	public static String toMMCIF(Chain chain) {
 		return CifStructureConverter.toText(chain);
 	}
+
+	/**
+	 * Writes this structure in mmCIF format to an OutputStream. The encoded
+	 * file is written as is, without decoding it to a String first. The
+	 * stream is not closed.
+	 * @param out where to write the mmCIF file
+	 * @throws IOException if writing fails
+	 * @since 7.2.0
+	 */
+	public void toMMCIF(OutputStream out) throws IOException {
+		out.write(CifIO.writeText(CifStructureConverter.toCifFile(structure)));
+	}
 }
@@ -25,6 +25,12 @@
 package org.biojava.nbio.structure.io;
 
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
 
 import org.biojava.nbio.structure.AminoAcid;
 
@@ -41,8 +47,25 @@ import org.biojava.nbio.structure.AminoAcid;
  * </li>
  * <li> {@link #setCreateAtomBonds(boolean)} - create atom bonds from parsed bonds in PDB/mmCIF files and chemical component files
  * </li>
+ * <li> {@link #setCifCategories(Collection)} - read only the given mmCIF categories besides the coordinates
+ * </li>
+ * <li> {@link #setParseFirstModelOnly(boolean)} and {@link #setParsePolymerOnly(boolean)} - read only the atoms
+ *      of the first model and/or of polymer residues (mmCIF/BinaryCIF only)
+ * </li>
  * </ul>
  *
+ * For instance, a scan that needs the C-alpha atoms of the polymer chains of the first model
+ * plus the entity information would use
+ * <pre>
+ * FileParsingParameters params = new FileParsingParameters();
+ * params.setAcceptedAtomNames(new String[] {StructureTools.CA_ATOM_NAME});
+ * params.setParseFirstModelOnly(true);
+ * params.setParsePolymerOnly(true);
+ * params.setCifCategories(FileParsingParameters.ENTITY_CIF_CATEGORIES);
+ * params.setAlignSeqRes(false);
+ * </pre>
+ * With BinaryCIF input, the columns of the categories that are not read are never decoded.
+ *
  * @author Andreas Prlic
  *
  */
@@ -109,10 +132,55 @@ public class FileParsingParameters implements Serializable
 
 	String[] fullAtomNames;
 
+	/**
+	 * The mmCIF categories needed to build the entity information of a structure.
+	 * @since 7.2.0
+	 */
+	public static final Set<String> ENTITY_CIF_CATEGORIES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+			"entity", "entity_poly", "entity_poly_seq", "entity_src_gen", "entity_src_nat",
+			"pdbx_entity_src_syn", "struct_asym")));
+
+	/**
+	 * The mmCIF categories to read besides atom_site, null to read all of them
+	 */
+	private Set<String> cifCategories;
+
+	/**
+	 * Flag to read only the atoms of the first model of mmCIF files
+	 */
+	private boolean parseFirstModelOnly;
+
+	/**
+	 * Flag to read only the atoms of polymer residues of mmCIF files
+	 */
+	private boolean parsePolymerOnly;
+
 	public FileParsingParameters(){
 		setDefault();
 	}
 
+	/**
+	 * Copy constructor.
+	 *
+	 * @param other the parameters to copy
+	 * @since 7.2.0
+	 */
+	public FileParsingParameters(FileParsingParameters other) {
+		parseSecStruc = other.parseSecStruc;
+		alignSeqRes = other.alignSeqRes;
+		parseCAOnly = other.parseCAOnly;
+		headerOnly = other.headerOnly;
+		fullAtomNames = other.fullAtomNames == null ? null : other.fullAtomNames.clone();
+		maxAtoms = other.maxAtoms;
+		atomCaThreshold = other.atomCaThreshold;
+		parseBioAssembly = other.parseBioAssembly;
+		createAtomBonds = other.createAtomBonds;
+		createAtomCharges = other.createAtomCharges;
+		cifCategories = other.cifCategories == null ? null : new HashSet<>(other.cifCategories);
+		parseFirstModelOnly = other.parseFirstModelOnly;
+		parsePolymerOnly = other.parsePolymerOnly;
+	}
+
 	public void setDefault(){
 
 		parseSecStruc = false;
@@ -134,6 +202,12 @@ public class FileParsingParameters implements Serializable
 
 		createAtomCharges = true;
 
+		cifCategories = null;
+
+		parseFirstModelOnly = false;
+
+		parsePolymerOnly = false;
+
 	}
 
 	/**
@@ -332,6 +406,112 @@ public class FileParsingParameters implements Serializable
 		this.createAtomCharges = createAtomCharges;
 	}
 
+	/**
+	 * The mmCIF categories that are read besides the coordinates in atom_site.
+	 *
+	 * @return the names of the categories, e.g. "entity", or null if all categories are read. default null
+	 * @since 7.2.0
+	 */
+	public Set<String> getCifCategories() {
+		return cifCategories;
+	}
 
+	/**
+	 * Restrict the mmCIF categories that are read besides the coordinates in atom_site,
+	 * which are controlled by {@link #setHeaderOnly(boolean)}. The structure will lack the
+	 * information of the other categories, e.g. without "struct_conn" no inter-residue bonds
+	 * are created. With BinaryCIF input, the columns of the categories that are not read are
+	 * never decoded.
+	 *
+	 * @param cifCategories the names of the categories, e.g. "entity", or null to read all categories
+	 * @see #ENTITY_CIF_CATEGORIES
+	 * @since 7.2.0
+	 */
+	public void setCifCategories(Collection<String> cifCategories) {
+		this.cifCategories = cifCategories == null ? null : new HashSet<>(cifCategories);
+	}
+
+	/**
+	 * Is the given mmCIF category read?
+	 *
+	 * @param category the name of the category, e.g. "entity"
+	 * @return true if the category is read
+	 * @since 7.2.0
+	 */
+	public boolean isCifCategoryParsed(String category) {
+		return cifCategories == null || cifCategories.contains(category);
+	}
 
+	/**
+	 * Are only the atoms of the first model of mmCIF files read?
+	 *
+	 * @return true if only the first model is read. default false
+	 * @since 7.2.0
+	 */
+	public boolean isParseFirstModelOnly() {
+		return parseFirstModelOnly;
+	}
+
+	/**
+	 * Read only the atoms of the first model of mmCIF files, the remaining rows of
+	 * atom_site are not read at all.
+	 *
+	 * @param parseFirstModelOnly true to read only the first model
+	 * @since 7.2.0
+	 */
+	public void setParseFirstModelOnly(boolean parseFirstModelOnly) {
+		this.parseFirstModelOnly = parseFirstModelOnly;
+	}
+
+	/**
+	 * Are only the atoms of polymer residues of mmCIF files read?
+	 *
+	 * @return true if only polymer residues are read. default false
+	 * @since 7.2.0
+	 */
+	public boolean isParsePolymerOnly() {
+		return parsePolymerOnly;
+	}
+
+	/**
+	 * Read only the atoms of polymer residues of mmCIF files, i.e. those with a label_seq_id.
+	 * Ligands and waters are skipped before any group is created for them.
+	 *
+	 * @param parsePolymerOnly true to read only polymer residues
+	 * @since 7.2.0
+	 */
+	public void setParsePolymerOnly(boolean parsePolymerOnly) {
+		this.parsePolymerOnly = parsePolymerOnly;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = Objects.hash(parseSecStruc, alignSeqRes, parseCAOnly, headerOnly, maxAtoms,
+				atomCaThreshold, parseBioAssembly, createAtomBonds, createAtomCharges,
+				cifCategories, parseFirstModelOnly, parsePolymerOnly);
+		result = 31 * result + Arrays.hashCode(fullAtomNames);
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null || getClass() != obj.getClass())
+			return false;
+		FileParsingParameters other = (FileParsingParameters) obj;
+		return parseSecStruc == other.parseSecStruc
+				&& alignSeqRes == other.alignSeqRes
+				&& parseCAOnly == other.parseCAOnly
+				&& headerOnly == other.headerOnly
+				&& maxAtoms == other.maxAtoms
+				&& atomCaThreshold == other.atomCaThreshold
+				&& parseBioAssembly == other.parseBioAssembly
+				&& createAtomBonds == other.createAtomBonds
+				&& createAtomCharges == other.createAtomCharges
+				&& Objects.equals(cifCategories, other.cifCategories)
+				&& parseFirstModelOnly == other.parseFirstModelOnly
+				&& parsePolymerOnly == other.parsePolymerOnly
+				&& Arrays.equals(fullAtomNames, other.fullAtomNames);
+	}
 }
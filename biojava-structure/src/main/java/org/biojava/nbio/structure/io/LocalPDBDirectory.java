@@ -26,14 +26,21 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.biojava.nbio.core.util.FileDownloadUtils;
 import org.biojava.nbio.core.util.InputStreamProvider;
@@ -141,6 +148,12 @@ public abstract class LocalPDBDirectory implements StructureIOFile {
 	/** Minimum size for a valid structure file (CIF or PDB), in bytes */
 	public static final long MIN_PDB_FILE_SIZE = 40;  // Empty gzip files are 20bytes. Add a few more for buffer.
 
+	/**
+	 * The default number of concurrent downloads of {@link #prefetch(Collection)}
+	 * @since 7.2.0
+	 */
+	public static final int DEFAULT_PREFETCH_THREADS = 4;
+
 	private File path;
 	private List<String> extensions;
 
@@ -151,8 +164,18 @@ public abstract class LocalPDBDirectory implements StructureIOFile {
 	 */
 	private String serverName;
 
+	/**
+	 * The server of BinaryCIF files, prefixed by the protocol string and ending with a slash
+	 */
+	private String bcifServerName;
+
 	private FileParsingParameters params;
 
+	/** The index of the local files, null to search the file system */
+	private volatile LocalPDBIndex index;
+
+	private int prefetchThreads;
+
 	private ObsoleteBehavior obsoleteBehavior;
 	private FetchBehavior fetchBehavior;
 
@@ -187,6 +210,8 @@ public abstract class LocalPDBDirectory implements StructureIOFile {
 		this.path = new File(path);
 
 		this.serverName = getServerName();
+		this.bcifServerName = DEFAULT_BCIF_FILE_SERVER;
+		this.prefetchThreads = DEFAULT_PREFETCH_THREADS;
 
 		// Initialize splitDirURL,obsoleteDirURL,splitDirPath,obsoleteDirPath
 		initPaths();
@@ -205,6 +230,7 @@ public abstract class LocalPDBDirectory implements StructureIOFile {
 	public void setPath(String p){
 		path = new File(FileDownloadUtils.expandUserHome(p)) ;
 		initPaths();
+		index = null;
 	}
 
 	/**
@@ -225,6 +251,7 @@ public abstract class LocalPDBDirectory implements StructureIOFile {
 	public void addExtension(String s){
 		//System.out.println("add Extension "+s);
 		extensions.add(s);
+		index = null;
 	}
 
 	@Override
@@ -237,6 +264,94 @@ public abstract class LocalPDBDirectory implements StructureIOFile {
 	 */
 	public void clearExtensions(){
 		extensions.clear();
+		index = null;
+	}
+
+	/**
+	 * Use an index of the local files instead of searching the file system for every structure.
+	 * The index is loaded from the given file, or built from the files of the directory
+	 * and written to it if the file is missing or was written for another directory or format.
+	 * <p>
+	 * The index is dropped when the path or the extensions of this directory change.
+	 * Files downloaded or deleted afterwards are recorded in memory, call
+	 * {@link LocalPDBIndex#write(Path)} to save them.
+	 * @param indexFile the file of the index
+	 * @throws IOException if the index cannot be read or written
+	 * @see LocalPDBIndex
+	 * @since 7.2.0
+	 */
+	public void useIndex(Path indexFile) throws IOException {
+		index = LocalPDBIndex.open(this, indexFile);
+	}
+
+	/**
+	 * @param index the index of the local files, or null to search the file system
+	 * @since 7.2.0
+	 */
+	public void setIndex(LocalPDBIndex index) {
+		this.index = index;
+	}
+
+	/**
+	 * @return the index of the local files, or null if the file system is searched
+	 * @since 7.2.0
+	 */
+	public LocalPDBIndex getIndex() {
+		return index;
+	}
+
+	/**
+	 * Set the server that files are downloaded from, e.g. a mirror of the PDB archive.
+	 * Any URL with the layout of the archive can be used, including file: URLs of a local copy.
+	 * @param serverName the server, prefixed by the protocol string, e.g. https://files.wwpdb.org
+	 * @see #getServerName()
+	 * @since 7.2.0
+	 */
+	public void setFileServer(String serverName) {
+		this.serverName = serverName;
+	}
+
+	/**
+	 * @return the server that files are downloaded from
+	 * @since 7.2.0
+	 */
+	public String getFileServer() {
+		return serverName;
+	}
+
+	/**
+	 * Set the server that BinaryCIF files are downloaded from.
+	 * @param bcifServerName the server, prefixed by the protocol string and ending with a slash,
+	 * default {@value #DEFAULT_BCIF_FILE_SERVER}
+	 * @since 7.2.0
+	 */
+	public void setBcifFileServer(String bcifServerName) {
+		this.bcifServerName = bcifServerName;
+	}
+
+	/**
+	 * @return the server that BinaryCIF files are downloaded from
+	 * @since 7.2.0
+	 */
+	public String getBcifFileServer() {
+		return bcifServerName;
+	}
+
+	/**
+	 * @param prefetchThreads the maximum number of concurrent downloads of {@link #prefetch(Collection)}
+	 * @since 7.2.0
+	 */
+	public void setPrefetchThreads(int prefetchThreads) {
+		this.prefetchThreads = prefetchThreads;
+	}
+
+	/**
+	 * @return the maximum number of concurrent downloads of {@link #prefetch(Collection)},
+	 * default {@value #DEFAULT_PREFETCH_THREADS}
+	 * @since 7.2.0
+	 */
+	public int getPrefetchThreads() {
+		return prefetchThreads;
 	}
 
 	@Override
@@ -400,6 +515,60 @@ public abstract class LocalPDBDirectory implements StructureIOFile {
 			throw new IOException("Downloaded file invalid: "+file);
 	}
 
+	/**
+	 * Download the structures that are missing, according to the {@link FetchBehavior},
+	 * but don't parse them. Up to {@link #getPrefetchThreads()} files are downloaded at the same time.
+	 * <p>
+	 * Used to pre-fetch large numbers of structures. With an {@link #useIndex(Path) index},
+	 * the files that are already present are found without accessing the file system.
+	 * Unlike {@link #prefetchStructure(String)}, the files that are already present are not validated.
+	 * @param pdbIds the PDB IDs
+	 * @throws IOException if some structures could not be fetched, after all others were.
+	 * The exceptions of the other failed structures are suppressed by the thrown one.
+	 * @since 7.2.0
+	 */
+	public void prefetch(Collection<PdbId> pdbIds) throws IOException {
+		if (pdbIds.isEmpty()) {
+			return;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(prefetchThreads, pdbIds.size())));
+		List<Future<File>> futures = new ArrayList<>();
+		try {
+			for (PdbId pdbId : pdbIds) {
+				futures.add(executor.submit(() -> downloadStructure(pdbId)));
+			}
+
+			List<Exception> errors = new ArrayList<>();
+			Iterator<PdbId> ids = pdbIds.iterator();
+			for (Future<File> future : futures) {
+				PdbId pdbId = ids.next();
+				try {
+					// downloadStructure either found the file (in the index, if any) or downloaded it
+					if (future.get() == null) {
+						throw new IOException("Structure "+pdbId+" not found and unable to download.");
+					}
+				} catch (ExecutionException e) {
+					errors.add(e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+				} catch (IOException e) {
+					errors.add(e);
+				}
+			}
+			if (!errors.isEmpty()) {
+				IOException e = new IOException(String.format("Could not fetch %d of %d structures",
+						errors.size(), pdbIds.size()), errors.get(0));
+				for (int i = 1; i < errors.size(); i++) {
+					e.addSuppressed(errors.get(i));
+				}
+				throw e;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while fetching structures", e);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
 	/**
 	 * Attempts to delete all versions of a structure from the local directory.
 	 * @param pdbId a String representing the PDB ID.
@@ -436,6 +605,10 @@ public abstract class LocalPDBDirectory implements StructureIOFile {
 				if(success) {
 					logger.debug("Deleting {}", existing.getAbsolutePath());
 				}
+				LocalPDBIndex index = this.index;
+				if (index != null) {
+					index.remove(pdbId);
+				}
 				deleted = deleted || success;
 
 				// delete parent if empty
@@ -490,7 +663,7 @@ public abstract class LocalPDBDirectory implements StructureIOFile {
 		case FETCH_REMEDIATED:
 			// Use existing if present and recent enough
 			if( existing != null) {
-				long lastModified = existing.lastModified();
+				long lastModified = getLastModified(pdbId, existing);
 
 				if (lastModified < LAST_REMEDIATION_DATE) {
 					// the file is too old, replace with newer version
@@ -547,8 +720,7 @@ public abstract class LocalPDBDirectory implements StructureIOFile {
 
 		String filename = getFilename(id);
 		if (filename.endsWith(".bcif") || filename.endsWith(".bcif.gz")) {
-			// TODO this should be configurable
-			ftp = DEFAULT_BCIF_FILE_SERVER + filename;
+			ftp = bcifServerName + filename;
 		} else {
 			ftp = String.format("%s%s/%s/%s",
 			serverName, pathOnServer, id.substring(id.length()-3, id.length()-1), getFilename(id));
@@ -582,9 +754,30 @@ public abstract class LocalPDBDirectory implements StructureIOFile {
 		if(! FileDownloadUtils.validateFile(realFile))
 			throw new IOException("Downloaded file invalid: "+realFile);
 
+		LocalPDBIndex index = this.index;
+		if (index != null) {
+			index.add(pdbId, realFile, obsolete);
+		}
+
 		return realFile;
 	}
 
+	/**
+	 * The modification time of a local file, from the index if possible
+	 */
+	private long getLastModified(PdbId pdbId, File file) {
+		LocalPDBIndex index = this.index;
+		if (index != null) {
+			for (boolean obsolete : new boolean[] { false, true }) {
+				LocalPDBIndex.Entry entry = index.get(pdbId, obsolete);
+				if (entry != null && entry.getFile().equals(file)) {
+					return entry.getLastModified();
+				}
+			}
+		}
+		return file.lastModified();
+	}
+
 	/**
 	 * Get the last modified time of the file in given url by retrieveing the "Last-Modified" header.
 	 * Note that this only works for http URLs
@@ -666,6 +859,18 @@ public abstract class LocalPDBDirectory implements StructureIOFile {
 	 * @throws IOException If the file exists but is empty and can't be deleted
 	 */
 	public File getLocalFile(PdbId pdbId) throws IOException {
+		LocalPDBIndex index = this.index;
+		if (index != null) {
+			LocalPDBIndex.Entry entry = index.get(pdbId, false);
+			if (entry == null && getObsoleteBehavior() == ObsoleteBehavior.FETCH_OBSOLETE) {
+				entry = index.get(pdbId, true);
+			}
+			if (entry != null) {
+				return entry.getFile();
+			}
+			// not indexed, e.g. added by another process: search the file system
+		}
+
 		String id = pdbId.getId();
 		int offset = id.length() - 3;
 		// Search for existing files
@@ -697,6 +902,9 @@ public abstract class LocalPDBDirectory implements StructureIOFile {
 							Files.delete(f.toPath());
 							return null;
 						}
+						if (index != null) {
+							index.add(pdbId, f, searchdir != splitdir);
+						}
 						return f;
 					}
 				}
@@ -706,6 +914,20 @@ public abstract class LocalPDBDirectory implements StructureIOFile {
 		return null;
 	}
 
+	/**
+	 * @return the directory before the 2-char split directories
+	 */
+	File getSplitDir() {
+		return splitDirPath;
+	}
+
+	/**
+	 * @return the directory before the 2-char split directories of obsolete entries
+	 */
+	File getObsoleteDir() {
+		return obsoleteDirPath;
+	}
+
 	protected boolean checkFileExists(String pdbId) {
 		return checkFileExists(new PdbId(pdbId));
 	}
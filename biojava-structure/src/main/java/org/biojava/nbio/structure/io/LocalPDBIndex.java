@@ -0,0 +1,500 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.io;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.biojava.nbio.structure.PdbId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An index of the structure files of a {@link LocalPDBDirectory}, so that they can be found
+ * without probing the file system for every file name and layout the directory accepts.
+ * <p>
+ * The index stores, for every PDB ID, the location, format, size and modification time of the
+ * file that {@link LocalPDBDirectory#getLocalFile(PdbId)} would find, separately for current and
+ * obsolete entries. It is saved as a hash table with fixed-width slots, which is memory-mapped when
+ * loaded: a lookup reads a few slots of the mapped file and takes constant time, whatever the size of
+ * the archive. Files downloaded or deleted through the directory after the index was loaded are kept
+ * in memory until the index is saved again with {@link #write(Path)}.
+ * <p>
+ * The index is a snapshot: files added to the directory by other processes are not part of it, but
+ * are still found by {@link LocalPDBDirectory#getLocalFile(PdbId)}, which falls back to probing the
+ * file system for the IDs that are not in the index.
+ *
+ * @see LocalPDBDirectory#useIndex(Path)
+ * @since 7.2.0
+ */
+public class LocalPDBIndex {
+
+	private static final Logger logger = LoggerFactory.getLogger(LocalPDBIndex.class);
+
+	private static final int MAGIC = 0x424a5049;
+	private static final int VERSION = 1;
+
+	/** Length of the keys: the extended form of the PDB IDs, e.g. PDB_00004HHB */
+	private static final int KEY_LENGTH = 12;
+	/** Key, flags, extension index, padding, size and modification time */
+	private static final int SLOT_SIZE = 32;
+
+	private static final int USED = 1;
+	private static final int OBSOLETE = 2;
+	private static final int PDB_PREFIX = 4;
+
+	/** Prefixes of the file names, in the order they are searched by {@link LocalPDBDirectory} */
+	private static final String[] PREFIXES = { "", "pdb" };
+
+	/**
+	 * A structure file of the index.
+	 */
+	public static class Entry {
+		private final PdbId pdbId;
+		private final File file;
+		private final String extension;
+		private final long size;
+		private final long lastModified;
+		private final boolean obsolete;
+
+		Entry(PdbId pdbId, File file, String extension, long size, long lastModified, boolean obsolete) {
+			this.pdbId = pdbId;
+			this.file = file;
+			this.extension = extension;
+			this.size = size;
+			this.lastModified = lastModified;
+			this.obsolete = obsolete;
+		}
+
+		public PdbId getPdbId() {
+			return pdbId;
+		}
+
+		/**
+		 * @return the structure file
+		 */
+		public File getFile() {
+			return file;
+		}
+
+		/**
+		 * @return the extension of the file, which gives its format, e.g. ".cif.gz"
+		 */
+		public String getExtension() {
+			return extension;
+		}
+
+		/**
+		 * @return the size of the file in bytes
+		 */
+		public long getSize() {
+			return size;
+		}
+
+		/**
+		 * @return the modification time of the file, in milliseconds since the epoch
+		 */
+		public long getLastModified() {
+			return lastModified;
+		}
+
+		/**
+		 * @return true if the file is in the obsolete part of the directory
+		 */
+		public boolean isObsolete() {
+			return obsolete;
+		}
+	}
+
+	/** Marks the entries deleted since the index was loaded */
+	private static final Entry REMOVED = new Entry(null, null, null, 0, 0, false);
+
+	private final String root;
+	private final List<String> extensions;
+	private final File splitDir;
+	private final File obsoleteDir;
+
+	/** The mapped hash table, null if the index was not loaded from a file */
+	private final ByteBuffer table;
+	private final int capacity;
+	private final int tableOffset;
+
+	/** Entries added or removed since the index was loaded, by key and obsolete flag */
+	private final Map<String, Entry> changes = new ConcurrentHashMap<>();
+
+	private LocalPDBIndex(LocalPDBDirectory directory, ByteBuffer table, int tableOffset, int capacity) {
+		this.root = directory.getPath();
+		this.extensions = new ArrayList<>(directory.getExtensions());
+		if (extensions.isEmpty()) {
+			throw new IllegalArgumentException("Cannot index a directory without file extensions: " + root);
+		}
+		this.splitDir = directory.getSplitDir();
+		this.obsoleteDir = directory.getObsoleteDir();
+		this.table = table;
+		this.tableOffset = tableOffset;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Index the structure files that are currently in a directory.
+	 * @param directory the local PDB directory
+	 * @return the index, which is only kept in memory until it is written
+	 * @throws IOException if the directory cannot be listed
+	 * @throws IllegalArgumentException if the directory has no file extensions
+	 */
+	public static LocalPDBIndex scan(LocalPDBDirectory directory) throws IOException {
+		LocalPDBIndex index = new LocalPDBIndex(directory, null, 0, 0);
+		Map<String, Integer> ranks = new HashMap<>();
+		int files = 0;
+		for (boolean obsolete : new boolean[] { false, true }) {
+			File dir = obsolete ? index.obsoleteDir : index.splitDir;
+			if (!dir.isDirectory()) {
+				continue;
+			}
+			try (DirectoryStream<Path> middles = Files.newDirectoryStream(dir.toPath())) {
+				for (Path middle : middles) {
+					if (!Files.isDirectory(middle)) {
+						continue;
+					}
+					try (DirectoryStream<Path> paths = Files.newDirectoryStream(middle)) {
+						for (Path path : paths) {
+							files++;
+							index.scanFile(path, obsolete, ranks);
+						}
+					}
+				}
+			}
+		}
+		logger.info("Indexed {} structure files among {} files of {}", index.changes.size(), files, index.root);
+		return index;
+	}
+
+	private void scanFile(Path path, boolean obsolete, Map<String, Integer> ranks) throws IOException {
+		String name = path.getFileName().toString();
+		int rank = getRank(name);
+		if (rank < 0) {
+			return;
+		}
+		PdbId pdbId = new PdbId(getId(name, rank));
+		String key = getKey(pdbId, obsolete);
+		Integer previous = ranks.get(key);
+		// the file found first by LocalPDBDirectory is kept
+		if (previous != null && previous < rank) {
+			return;
+		}
+		File file = path.toFile();
+		if (!file.equals(getFile(pdbId, rank, obsolete))) {
+			// e.g. in the wrong 2-letter directory
+			return;
+		}
+		BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+		if (!attributes.isRegularFile() || attributes.size() < LocalPDBDirectory.MIN_PDB_FILE_SIZE) {
+			return;
+		}
+		ranks.put(key, rank);
+		changes.put(key, new Entry(pdbId, file, getExtension(rank), attributes.size(),
+				attributes.lastModifiedTime().toMillis(), obsolete));
+	}
+
+	/**
+	 * The order in which {@link LocalPDBDirectory} searches the file names: by prefix, then by extension.
+	 * @return the rank of the file name, or -1 if it is not a structure file of the directory
+	 */
+	private int getRank(String name) {
+		for (int p = 0; p < PREFIXES.length; p++) {
+			if (!name.startsWith(PREFIXES[p])) {
+				continue;
+			}
+			for (int e = 0; e < extensions.size(); e++) {
+				String extension = extensions.get(e);
+				if (!name.endsWith(extension) || name.length() <= PREFIXES[p].length() + extension.length()) {
+					continue;
+				}
+				String id = name.substring(PREFIXES[p].length(), name.length() - extension.length());
+				if ((PdbId.isValidShortPdbId(id) || PdbId.isValidExtendedPdbId(id))
+						&& new PdbId(id).getId().toLowerCase().equals(id)) {
+					return p * extensions.size() + e;
+				}
+			}
+		}
+		return -1;
+	}
+
+	private String getId(String name, int rank) {
+		String prefix = PREFIXES[rank / extensions.size()];
+		return name.substring(prefix.length(), name.length() - getExtension(rank).length());
+	}
+
+	private String getExtension(int rank) {
+		return extensions.get(rank % extensions.size());
+	}
+
+	private File getFile(PdbId pdbId, int rank, boolean obsolete) {
+		String id = pdbId.getId().toLowerCase();
+		int offset = id.length() - 3;
+		File dir = new File(obsolete ? obsoleteDir : splitDir, id.substring(offset, offset + 2));
+		return new File(dir, PREFIXES[rank / extensions.size()] + id + getExtension(rank));
+	}
+
+	private static String getKey(PdbId pdbId, boolean obsolete) {
+		return pdbId.getId(false) + (obsolete ? "*" : "");
+	}
+
+	/**
+	 * Load an index written by {@link #write(Path)}, or index the directory if there is no valid index
+	 * for it and write it.
+	 * @param directory the local PDB directory
+	 * @param indexFile the file of the index
+	 * @return the index
+	 * @throws IOException if the index cannot be read or written
+	 */
+	public static LocalPDBIndex open(LocalPDBDirectory directory, Path indexFile) throws IOException {
+		if (Files.exists(indexFile)) {
+			LocalPDBIndex index = load(directory, indexFile);
+			if (index != null) {
+				return index;
+			}
+			logger.info("Index {} was written for another directory or format, indexing {} again", indexFile, directory.getPath());
+		}
+		LocalPDBIndex index = scan(directory);
+		index.write(indexFile);
+		return load(directory, indexFile);
+	}
+
+	/**
+	 * Memory-map an index written by {@link #write(Path)}.
+	 * @param directory the local PDB directory
+	 * @param indexFile the file of the index
+	 * @return the index, or null if the file is not an index of this directory and its extensions
+	 * @throws IOException if the file cannot be read
+	 */
+	public static LocalPDBIndex load(LocalPDBDirectory directory, Path indexFile) throws IOException {
+		MappedByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		if (buffer.remaining() < 8 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+			return null;
+		}
+		String root = readString(buffer);
+		int extensionCount = buffer.getInt();
+		List<String> extensions = new ArrayList<>();
+		for (int i = 0; i < extensionCount; i++) {
+			extensions.add(readString(buffer));
+		}
+		if (!root.equals(directory.getPath()) || !extensions.equals(directory.getExtensions())) {
+			return null;
+		}
+		int capacity = buffer.getInt();
+		int count = buffer.getInt();
+		LocalPDBIndex index = new LocalPDBIndex(directory, buffer, buffer.position(), capacity);
+		logger.debug("Loaded index {} of {} structure files", indexFile, count);
+		return index;
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Find the structure file of a PDB ID.
+	 * @param pdbId the PDB ID
+	 * @param obsolete true to find the file in the obsolete part of the directory
+	 * @return the file, or null if it is not in the index
+	 */
+	public Entry get(PdbId pdbId, boolean obsolete) {
+		Entry change = changes.get(getKey(pdbId, obsolete));
+		if (change != null) {
+			return change == REMOVED ? null : change;
+		}
+		if (table == null) {
+			return null;
+		}
+		byte[] key = pdbId.getId(false).getBytes(StandardCharsets.US_ASCII);
+		if (key.length != KEY_LENGTH) {
+			return null;
+		}
+		for (int slot = getSlot(key, obsolete, capacity); ; slot = MappedIndexFormat.nextSlot(slot, capacity)) {
+			int offset = tableOffset + slot * SLOT_SIZE;
+			int flags = table.get(offset + KEY_LENGTH);
+			if ((flags & USED) == 0) {
+				return null;
+			}
+			if (((flags & OBSOLETE) != 0) == obsolete && matches(offset, key)) {
+				int rank = ((flags & PDB_PREFIX) != 0 ? extensions.size() : 0) + table.get(offset + KEY_LENGTH + 1);
+				return new Entry(pdbId, getFile(pdbId, rank, obsolete), getExtension(rank),
+						table.getLong(offset + 16), table.getLong(offset + 24), obsolete);
+			}
+		}
+	}
+
+	private boolean matches(int offset, byte[] key) {
+		for (int i = 0; i < KEY_LENGTH; i++) {
+			if (table.get(offset + i) != key[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int getSlot(byte[] key, boolean obsolete, int capacity) {
+		return MappedIndexFormat.getSlot(key, obsolete ? 1 : 0, capacity);
+	}
+
+	/**
+	 * Record a file that was added to the directory.
+	 * @param pdbId the PDB ID
+	 * @param file the structure file
+	 * @param obsolete true if the file is in the obsolete part of the directory
+	 */
+	void add(PdbId pdbId, File file, boolean obsolete) {
+		int rank = getRank(file.getName());
+		if (rank < 0 || !file.equals(getFile(pdbId, rank, obsolete))) {
+			return;
+		}
+		String key = getKey(pdbId, obsolete);
+		Entry previous = get(pdbId, obsolete);
+		// keep the file that LocalPDBDirectory would find first
+		if (previous != null && getRank(previous.getFile().getName()) < rank) {
+			return;
+		}
+		changes.put(key, new Entry(pdbId, file, getExtension(rank), file.length(), file.lastModified(), obsolete));
+	}
+
+	/**
+	 * Record that the files of a PDB ID were deleted from the directory.
+	 * @param pdbId the PDB ID
+	 */
+	void remove(PdbId pdbId) {
+		changes.put(getKey(pdbId, false), REMOVED);
+		changes.put(getKey(pdbId, true), REMOVED);
+	}
+
+	/**
+	 * @return all files of the index
+	 */
+	public List<Entry> getEntries() {
+		List<Entry> entries = new ArrayList<>();
+		if (table != null) {
+			byte[] key = new byte[KEY_LENGTH];
+			for (int slot = 0; slot < capacity; slot++) {
+				int offset = tableOffset + slot * SLOT_SIZE;
+				int flags = table.get(offset + KEY_LENGTH);
+				if ((flags & USED) == 0) {
+					continue;
+				}
+				for (int i = 0; i < KEY_LENGTH; i++) {
+					key[i] = table.get(offset + i);
+				}
+				PdbId pdbId = new PdbId(new String(key, StandardCharsets.US_ASCII));
+				boolean obsolete = (flags & OBSOLETE) != 0;
+				if (!changes.containsKey(getKey(pdbId, obsolete))) {
+					entries.add(get(pdbId, obsolete));
+				}
+			}
+		}
+		for (Entry entry : changes.values()) {
+			if (entry != REMOVED) {
+				entries.add(entry);
+			}
+		}
+		return entries;
+	}
+
+	/**
+	 * @return the number of files of the index
+	 */
+	public int size() {
+		return getEntries().size();
+	}
+
+	/**
+	 * Save the index, including the files added or removed since it was loaded.
+	 * The file is replaced atomically, so that other processes never see a partial index.
+	 * @param indexFile the file of the index
+	 * @throws IOException if the file cannot be written
+	 */
+	public void write(Path indexFile) throws IOException {
+		List<Entry> entries = getEntries();
+		int capacity = MappedIndexFormat.getCapacity(entries.size());
+		ByteBuffer slots = ByteBuffer.allocate(capacity * SLOT_SIZE);
+		for (Entry entry : entries) {
+			byte[] key = entry.getPdbId().getId(false).getBytes(StandardCharsets.US_ASCII);
+			int rank = getRank(entry.getFile().getName());
+			int flags = USED | (entry.isObsolete() ? OBSOLETE : 0) | (rank >= extensions.size() ? PDB_PREFIX : 0);
+			int slot = getSlot(key, entry.isObsolete(), capacity);
+			while (slots.get(slot * SLOT_SIZE + KEY_LENGTH) != 0) {
+				slot = MappedIndexFormat.nextSlot(slot, capacity);
+			}
+			int offset = slot * SLOT_SIZE;
+			slots.position(offset);
+			slots.put(key);
+			slots.put((byte) flags);
+			slots.put((byte) (rank % extensions.size()));
+			slots.putLong(offset + 16, entry.getSize());
+			slots.putLong(offset + 24, entry.getLastModified());
+		}
+
+		MappedIndexFormat.writeAtomically(indexFile, out -> {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			writeString(out, root);
+			out.writeInt(extensions.size());
+			for (String extension : extensions) {
+				writeString(out, extension);
+			}
+			out.writeInt(capacity);
+			out.writeInt(entries.size());
+			out.write(slots.array());
+		});
+	}
+
+	/**
+	 * @return the extensions of the directory when it was indexed
+	 */
+	public List<String> getExtensions() {
+		return Collections.unmodifiableList(extensions);
+	}
+}
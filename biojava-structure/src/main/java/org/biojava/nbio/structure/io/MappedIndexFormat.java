@@ -0,0 +1,235 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The building blocks of the memory-mapped binary files of BioJava, such as the {@link LocalPDBIndex},
+ * the {@link org.biojava.nbio.structure.io.sifts.SiftsResidueStore} and the
+ * {@link org.biojava.nbio.structure.chem.BinaryChemCompProvider} dictionary, so that they share one
+ * on-disk layout:
+ * <ul>
+ * <li>open-addressing hash tables with a power of 2 capacity and linear probing, see
+ * {@link #getCapacity(int)} and {@link #getSlot(byte[], int, int)}</li>
+ * <li>string tables: the number of strings, the offsets of the strings relative to the end of the
+ * offsets and one more for the end of the last string, then the UTF-8 bytes of the strings</li>
+ * <li>hash tables of the ordinals of strings of a string table, one int per slot holding the
+ * ordinal plus 1, or 0 for an empty slot</li>
+ * </ul>
+ * Mapped tables are read with absolute gets only, so that they can be read by concurrent threads.
+ * Files are written with {@link #writeAtomically(Path, FileWriter)}.
+ *
+ * @since 7.2.0
+ */
+public final class MappedIndexFormat {
+
+	private MappedIndexFormat() {
+	}
+
+	/**
+	 * Writes the content of a file.
+	 */
+	@FunctionalInterface
+	public interface FileWriter {
+		void write(DataOutputStream out) throws IOException;
+	}
+
+	/**
+	 * Writes a file to a temporary file in the same directory, then moves it in place atomically,
+	 * so that other processes never see a partial file.
+	 * @param file the file to write
+	 * @param writer writes the content of the file
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void writeAtomically(Path file, FileWriter writer) throws IOException {
+		Path parent = file.toAbsolutePath().getParent();
+		Files.createDirectories(parent);
+		Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+				writer.write(out);
+			}
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	/**
+	 * @param count the number of keys
+	 * @return the capacity of a hash table of the keys: a power of 2, at least twice the number of keys
+	 */
+	public static int getCapacity(int count) {
+		return Integer.highestOneBit(Math.max(16, count * 2 - 1)) << 1;
+	}
+
+	/**
+	 * @param key the key
+	 * @param seed distinguishes equal keys in different namespaces of a table, 0 if there are none
+	 * @param capacity the capacity of the table
+	 * @return the first slot to probe for the key
+	 */
+	public static int getSlot(byte[] key, int seed, int capacity) {
+		int h = Arrays.hashCode(key) * 31 + seed;
+		h ^= h >>> 16;
+		return h & (capacity - 1);
+	}
+
+	/**
+	 * @return the slot to probe after a slot
+	 */
+	public static int nextSlot(int slot, int capacity) {
+		return (slot + 1) & (capacity - 1);
+	}
+
+	/**
+	 * @param strings the strings
+	 * @return the string table of the strings
+	 */
+	public static byte[] toStringTable(List<String> strings) {
+		byte[][] bytes = new byte[strings.size()][];
+		long length = 4L * (strings.size() + 2);
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = strings.get(i).getBytes(StandardCharsets.UTF_8);
+			length += bytes[i].length;
+		}
+		if (length > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("String table larger than 2 GB");
+		}
+		ByteBuffer table = ByteBuffer.allocate((int) length);
+		table.putInt(bytes.length);
+		int offset = 0;
+		for (byte[] b : bytes) {
+			table.putInt(offset);
+			offset += b.length;
+		}
+		table.putInt(offset);
+		for (byte[] b : bytes) {
+			table.put(b);
+		}
+		return table.array();
+	}
+
+	/**
+	 * @param buffer the mapped file
+	 * @param table the position of the string table
+	 * @return the number of strings of the table
+	 */
+	public static int getStringCount(ByteBuffer buffer, int table) {
+		return buffer.getInt(table);
+	}
+
+	/**
+	 * @param buffer the mapped file
+	 * @param table the position of the string table
+	 * @return the size of the string table in bytes
+	 */
+	public static int getStringTableSize(ByteBuffer buffer, int table) {
+		int count = buffer.getInt(table);
+		return 4 + 4 * (count + 1) + buffer.getInt(table + 4 + 4 * count);
+	}
+
+	/**
+	 * @param buffer the mapped file
+	 * @param table the position of the string table
+	 * @param i the ordinal of the string
+	 * @return the string
+	 */
+	public static String getString(ByteBuffer buffer, int table, int i) {
+		int data = table + 4 + 4 * (buffer.getInt(table) + 1);
+		int start = buffer.getInt(table + 4 + 4 * i);
+		byte[] bytes = new byte[buffer.getInt(table + 8 + 4 * i) - start];
+		for (int k = 0; k < bytes.length; k++) {
+			bytes[k] = buffer.get(data + start + k);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @param buffer the mapped file
+	 * @param table the position of the string table
+	 * @param i the ordinal of the string
+	 * @param key the UTF-8 bytes of a string
+	 * @return true if the string has the bytes of the key
+	 */
+	public static boolean stringEquals(ByteBuffer buffer, int table, int i, byte[] key) {
+		int data = table + 4 + 4 * (buffer.getInt(table) + 1);
+		int start = buffer.getInt(table + 4 + 4 * i);
+		if (buffer.getInt(table + 8 + 4 * i) - start != key.length) {
+			return false;
+		}
+		for (int k = 0; k < key.length; k++) {
+			if (buffer.get(data + start + k) != key[k]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param keys distinct strings, stored from ordinal first of a string table
+	 * @param capacity the capacity of the table, see {@link #getCapacity(int)}
+	 * @return the slots of the hash table of the strings
+	 */
+	public static int[] toHashTable(List<String> keys, int capacity) {
+		int[] slots = new int[capacity];
+		for (int i = 0; i < keys.size(); i++) {
+			int slot = getSlot(keys.get(i).getBytes(StandardCharsets.UTF_8), 0, capacity);
+			while (slots[slot] != 0) {
+				slot = nextSlot(slot, capacity);
+			}
+			slots[slot] = i + 1;
+		}
+		return slots;
+	}
+
+	/**
+	 * Finds a string with a hash table written from {@link #toHashTable(List, int)}.
+	 * @param buffer the mapped file
+	 * @param slots the position of the hash table
+	 * @param capacity the capacity of the hash table
+	 * @param table the position of the string table
+	 * @param first the ordinal in the string table of the first key of the hash table
+	 * @param key the UTF-8 bytes of the string
+	 * @return the index of the string among the keys of the hash table, or -1 if it is not one of them
+	 */
+	public static int find(ByteBuffer buffer, int slots, int capacity, int table, int first, byte[] key) {
+		for (int slot = getSlot(key, 0, capacity); ; slot = nextSlot(slot, capacity)) {
+			int i = buffer.getInt(slots + 4 * slot) - 1;
+			if (i < 0) {
+				return -1;
+			}
+			if (stringEquals(buffer, table, first + i, key)) {
+				return i;
+			}
+		}
+	}
+}
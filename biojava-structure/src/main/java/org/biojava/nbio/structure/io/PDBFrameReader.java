@@ -0,0 +1,285 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.io;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureTools;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the models of a multi-model PDB file, such as an NMR ensemble or a
+ * trajectory of a simulation, one at a time as coordinate frames.
+ * <p>
+ * The header and the first model are parsed with a {@link PDBFileParser} into
+ * the {@link #getTopology() topology}. The following models must have the same
+ * atoms in the same order: only their coordinates are read, without creating
+ * any atoms, so that files with thousands of models can be processed without
+ * holding more than one model in memory. Records following the last model,
+ * like CONECT, are not read.
+ * <p>
+ * The coordinates of a frame are those of the atoms of the topology, in the
+ * order of {@link #getAtoms()}, with the coordinates of atom i at indices 3*i,
+ * 3*i+1 and 3*i+2. The first frame is the first model:
+ * <pre>
+ * try (PDBFrameReader reader = new PDBFrameReader(inStream)) {
+ *     double[] coords = new double[3 * reader.getAtoms().length];
+ *     while (reader.nextFrame(coords)) {
+ *         ...
+ *     }
+ * }
+ * </pre>
+ *
+ * @see org.biojava.nbio.structure.TrajectoryAnalyzer
+ * @since 7.2.0
+ */
+public class PDBFrameReader implements Closeable {
+
+	private static final Logger logger = LoggerFactory.getLogger(PDBFrameReader.class);
+
+	private static final double[] POWERS_OF_TEN = {1, 10, 100, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8};
+
+	private final BufferedReader reader;
+	private final Structure topology;
+	private final Atom[] atoms;
+	// index in atoms of the k-th ATOM/HETATM record of a model, -1 if the parser skipped the record
+	private final int[] recordAtoms;
+
+	private int frames;
+
+	/**
+	 * Reads the topology from the header and the first model of a PDB file,
+	 * with default parsing parameters.
+	 * @param inStream the PDB file, which is closed by {@link #close()}
+	 * @throws IOException if the topology can't be read
+	 */
+	public PDBFrameReader(InputStream inStream) throws IOException {
+		this(inStream, new FileParsingParameters());
+	}
+
+	/**
+	 * Reads the topology from the header and the first model of a PDB file.
+	 * Atoms not accepted by the parameters are skipped in all frames.
+	 * @param inStream the PDB file, which is closed by {@link #close()}
+	 * @param params the parameters to parse the topology with
+	 * @throws IOException if the topology can't be read
+	 */
+	public PDBFrameReader(InputStream inStream, FileParsingParameters params) throws IOException {
+		reader = new BufferedReader(new InputStreamReader(inStream, StandardCharsets.US_ASCII));
+
+		StringBuilder firstModel = new StringBuilder();
+		int[] serials = new int[1024];
+		int nRecords = 0;
+		String line;
+		while ((line = reader.readLine()) != null) {
+			firstModel.append(line).append('\n');
+			if (isCoordinateRecord(line)) {
+				if (nRecords == serials.length) {
+					serials = Arrays.copyOf(serials, 2 * nRecords);
+				}
+				serials[nRecords++] = parseSerial(line);
+			} else if (line.startsWith("ENDMDL")) {
+				break;
+			}
+		}
+
+		PDBFileParser parser = new PDBFileParser();
+		parser.setFileParsingParameters(params);
+		topology = parser.parsePDBFile(new BufferedReader(new StringReader(firstModel.toString())));
+		atoms = StructureTools.getAllAtomArray(topology, 0);
+
+		Map<Integer, Integer> atomIndices = new HashMap<>(2 * atoms.length);
+		for (int i = 0; i < atoms.length; i++) {
+			if (atomIndices.put(atoms[i].getPDBserial(), i) != null) {
+				throw new IOException("Atom serial number " + atoms[i].getPDBserial()
+						+ " is not unique, the atoms of the frames can't be identified");
+			}
+		}
+		recordAtoms = new int[nRecords];
+		for (int k = 0; k < nRecords; k++) {
+			Integer i = atomIndices.get(serials[k]);
+			recordAtoms[k] = i == null ? -1 : i;
+		}
+		logger.debug("Read topology of {} atoms from {} coordinate records", atoms.length, nRecords);
+	}
+
+	/**
+	 * @return the structure parsed from the header and the first model
+	 */
+	public Structure getTopology() {
+		return topology;
+	}
+
+	/**
+	 * @return the atoms of the topology, in the order of the coordinates of
+	 *         the frames
+	 */
+	public Atom[] getAtoms() {
+		return atoms;
+	}
+
+	/**
+	 * @return the number of frames read so far
+	 */
+	public int getFrameCount() {
+		return frames;
+	}
+
+	/**
+	 * Reads the coordinates of the next model. The first call returns the
+	 * coordinates of the first model, as parsed into the topology.
+	 * @param coords the buffer to fill, of length at least 3 times the
+	 *            number of atoms
+	 * @return false if there are no more models, in which case the buffer is
+	 *         not modified
+	 * @throws IOException if the model can't be read or doesn't have the atoms
+	 *             of the first model
+	 */
+	public boolean nextFrame(double[] coords) throws IOException {
+		if (coords.length < 3 * atoms.length) {
+			throw new IllegalArgumentException("Coordinate buffer is shorter than 3 times the number of atoms");
+		}
+		if (frames == 0) {
+			for (int i = 0; i < atoms.length; i++) {
+				coords[3 * i] = atoms[i].getX();
+				coords[3 * i + 1] = atoms[i].getY();
+				coords[3 * i + 2] = atoms[i].getZ();
+			}
+			frames++;
+			return true;
+		}
+
+		String line;
+		while ((line = reader.readLine()) != null && !line.startsWith("MODEL")) {
+			// skip anything between models
+		}
+		if (line == null) {
+			return false;
+		}
+
+		int k = 0;
+		while ((line = reader.readLine()) != null && !line.startsWith("ENDMDL")) {
+			if (!isCoordinateRecord(line)) {
+				continue;
+			}
+			if (k == recordAtoms.length) {
+				throw new IOException("Model " + (frames + 1) + " has more atoms than the first model");
+			}
+			int i = recordAtoms[k++];
+			if (i < 0) {
+				continue;
+			}
+			if (line.length() < 54) {
+				throw new IOException("Coordinate record of model " + (frames + 1) + " is too short: " + line);
+			}
+			try {
+				coords[3 * i] = parseCoordinate(line, 30, 38);
+				coords[3 * i + 1] = parseCoordinate(line, 38, 46);
+				coords[3 * i + 2] = parseCoordinate(line, 46, 54);
+			} catch (NumberFormatException e) {
+				throw new IOException("Invalid coordinates in model " + (frames + 1) + ": " + line, e);
+			}
+		}
+		if (k != recordAtoms.length) {
+			throw new IOException("Model " + (frames + 1) + " has " + k + " atoms, the first model has "
+					+ recordAtoms.length);
+		}
+		frames++;
+		return true;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	private static boolean isCoordinateRecord(String line) {
+		return line.startsWith("ATOM") || line.startsWith("HETATM");
+	}
+
+	/**
+	 * Parses the decimal atom serial number of a coordinate record. Serials
+	 * that are not decimal numbers, such as hybrid-36 or overflowed
+	 * ("*****") serials of large trajectories, can't identify the atoms.
+	 */
+	private static int parseSerial(String line) throws IOException {
+		if (line.length() < 11) {
+			throw new IOException("Coordinate record is too short: " + line);
+		}
+		try {
+			return Integer.parseInt(line.substring(6, 11).trim());
+		} catch (NumberFormatException e) {
+			throw new IOException("Atom serial number is not a decimal number: " + line, e);
+		}
+	}
+
+	/**
+	 * Parses a fixed point number of a fixed width field. The value is the
+	 * same as that of {@link Double#parseDouble(String)}: the digits and the
+	 * power of ten are exact doubles, so their quotient is correctly rounded.
+	 */
+	static double parseCoordinate(String line, int start, int end) {
+		int pos = start;
+		while (pos < end && line.charAt(pos) == ' ') {
+			pos++;
+		}
+		boolean negative = false;
+		if (pos < end && (line.charAt(pos) == '-' || line.charAt(pos) == '+')) {
+			negative = line.charAt(pos) == '-';
+			pos++;
+		}
+		long digits = 0;
+		int nDigits = 0;
+		int decimals = -1;
+		for (; pos < end; pos++) {
+			char c = line.charAt(pos);
+			if (c >= '0' && c <= '9') {
+				digits = 10 * digits + (c - '0');
+				nDigits++;
+				if (decimals >= 0) {
+					decimals++;
+				}
+			} else if (c == '.' && decimals < 0) {
+				decimals = 0;
+			} else {
+				break;
+			}
+		}
+		// anything unusual, like exponents or trailing characters
+		if (pos < end || nDigits == 0 || decimals >= POWERS_OF_TEN.length) {
+			return Double.parseDouble(line.substring(start, end).trim());
+		}
+		double value = decimals > 0 ? digits / POWERS_OF_TEN[decimals] : digits;
+		return negative ? -value : value;
+	}
+}
@@ -25,6 +25,7 @@ package org.biojava.nbio.structure.io;
 
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -82,8 +83,14 @@ public class SeqRes2AtomAligner {
 
 
 
+	private static final int[] NO_MATCHES = new int[0];
+
 	private String alignmentString;
 
+	// the aligned positions of the pairs of sequences aligned so far, so that
+	// chains with the same sequences (e.g. the copies of a complex) are aligned once
+	private final Map<String, int[]> alignments = new HashMap<>();
+
 	public SeqRes2AtomAligner(){
 		logger.debug("initialising SeqRes2AtomAligner");
 		alignmentString = "";
@@ -460,9 +467,30 @@ public class SeqRes2AtomAligner {
 		//
 		String seq2 = getFullAtomSequence(atomRes, atomIndexPosition, true);
 
+		String key = "N" + seq1 + "/" + seq2;
+		int[] matches = alignments.get(key);
+		if (matches == null) {
+			matches = alignNucleotideSequences(seq1, seq2);
+			alignments.put(key, matches);
+		} else {
+			logger.debug("Reusing alignment of identical nucleotide sequences");
+		}
+
+		boolean noMatchFound = mapDNAChains(seqRes,atomRes,seq1,seq2,matches,seqresIndexPosition, atomIndexPosition );
+
+		return noMatchFound;
+
+	}
+
+	/**
+	 * Aligns two nucleotide sequences.
+	 * @return the pairs of aligned identical positions, empty if the sequences could not be aligned
+	 */
+	private int[] alignNucleotideSequences(String seq1, String seq2) {
+
 		if (seq1.isEmpty() || seq2.isEmpty()) {
 			logger.warn("Could not align nucleotide sequences, at least one of them is empty");
-			return true;
+			return NO_MATCHES;
 		}
 
 		logger.debug("align seq1 ("+ seq1.length()+") " + seq1);
@@ -471,7 +499,7 @@ public class SeqRes2AtomAligner {
 		Sequence<NucleotideCompound> s1 = getNucleotideSequence(seq1);
 		Sequence<NucleotideCompound> s2 = getNucleotideSequence(seq2);
 
-		if (s1==null || s2==null) return true;
+		if (s1==null || s2==null) return NO_MATCHES;
 
 		if ( ! s1.getCompoundSet().equals(s2.getCompoundSet()) ) {
 			// e.g. trying to align a DNA and an RNA sequence...
@@ -482,7 +510,7 @@ public class SeqRes2AtomAligner {
 					s1 = new RNASequence(seq1,AmbiguityRNACompoundSet.getRNACompoundSet());
 				} catch (CompoundNotFoundException ex) {
 					logger.warn("Could not align DNA and RNA compound sets: " + seq1);
-					return true;
+					return NO_MATCHES;
 				}
 			}
 
@@ -491,7 +519,7 @@ public class SeqRes2AtomAligner {
 					s2 = new RNASequence(seq2,AmbiguityRNACompoundSet.getRNACompoundSet());
 				} catch (CompoundNotFoundException ex) {
 					logger.warn("Could not align DNA and RNA compound sets: " + seq2);
-					return true;
+					return NO_MATCHES;
 				}
 			}
 		}
@@ -499,6 +527,12 @@ public class SeqRes2AtomAligner {
 
 		SubstitutionMatrix<NucleotideCompound> matrix = SubstitutionMatrixHelper.getNuc4_4();
 
+		int[] matches = findExactMatch(s1, s2, matrix);
+		if (matches != null) {
+			logger.debug("ATOM sequence found in SEQRES sequence at position {}", matches[0]);
+			return matches;
+		}
+
 		GapPenalty penalty = new SimpleGapPenalty(8,1);
 
 		PairwiseSequenceAligner<Sequence<NucleotideCompound>, NucleotideCompound> smithWaterman =
@@ -515,7 +549,7 @@ public class SeqRes2AtomAligner {
 			logger.warn("Sequences: ");
 			logger.warn(seq1);
 			logger.warn(seq2);
-			return true;
+			return NO_MATCHES;
 
 		}
 
@@ -523,10 +557,7 @@ public class SeqRes2AtomAligner {
 
 		logger.debug("Alignment:\n{}", pair.toString(100));
 
-
-		boolean noMatchFound = mapDNAChains(seqRes,atomRes,pair,seqresIndexPosition, atomIndexPosition );
-
-		return noMatchFound;
+		return getMatches(pair, DNACompoundSet.getDNACompoundSet().getCompoundForString("-"));
 
 	}
 
@@ -580,6 +611,27 @@ public class SeqRes2AtomAligner {
 		//
 		String seq2 = getFullAtomSequence(atomRes, atomIndexPosition, false);
 
+		String key = "P" + seq1 + "/" + seq2;
+		int[] matches = alignments.get(key);
+		if (matches == null) {
+			matches = alignProteinSequences(seq1, seq2);
+			alignments.put(key, matches);
+		} else {
+			logger.debug("Reusing alignment of identical protein sequences");
+		}
+
+		boolean noMatchFound = mapChains(seqRes,atomRes,seq1,seq2,matches,seqresIndexPosition, atomIndexPosition );
+
+		return noMatchFound;
+
+
+	}
+
+	/**
+	 * Aligns two protein sequences.
+	 * @return the pairs of aligned identical positions, empty if the sequences could not be aligned
+	 */
+	private int[] alignProteinSequences(String seq1, String seq2) {
 
 		logger.debug("Protein seq1 to align (length "+ seq1.length()+"): " + seq1);
 		logger.debug("Protein seq2 to align (length "+ seq2.length()+"): " + seq2);
@@ -591,12 +643,18 @@ public class SeqRes2AtomAligner {
 			s2 = new ProteinSequence(seq2);
 		} catch (CompoundNotFoundException e) {
 			logger.warn("Could not create protein sequences ({}) to align ATOM and SEQRES groups, they will remain unaligned.", e.getMessage());
-			return true;
+			return NO_MATCHES;
 		}
 
 
 		SubstitutionMatrix<AminoAcidCompound> matrix = SubstitutionMatrixHelper.getBlosum65();
 
+		int[] matches = findExactMatch(s1, s2, matrix);
+		if (matches != null) {
+			logger.debug("ATOM sequence found in SEQRES sequence at position {}", matches[0]);
+			return matches;
+		}
+
 		GapPenalty penalty = new SimpleGapPenalty(8, 1);
 
 
@@ -613,23 +671,104 @@ public class SeqRes2AtomAligner {
 			logger.warn("Sequences: ");
 			logger.warn(seq1);
 			logger.warn(seq2);
-			return true;
+			return NO_MATCHES;
 		}
 
 
 		logger.debug("Alignment:\n{}", pair.toString(100));
 
+		return getMatches(pair, AminoAcidCompoundSet.getAminoAcidCompoundSet().getCompoundForString("-"));
 
-		boolean noMatchFound = mapChains(seqRes,atomRes,pair,seqresIndexPosition, atomIndexPosition );
+	}
 
-		return noMatchFound;
+	/**
+	 * Finds the alignment of two sequences when the second one occurs exactly once in the first one,
+	 * and every compound of the second sequence scores higher against itself than against any other
+	 * compound of the two sequences. The exact match is then the only best local alignment, so that
+	 * dynamic programming is not needed.
+	 *
+	 * @param s1 the first sequence
+	 * @param s2 the second sequence
+	 * @param matrix the substitution matrix the sequences would be aligned with
+	 * @return the pairs of aligned positions, or null if the second sequence is not found or the
+	 * match might not be the best alignment
+	 */
+	static <C extends Compound> int[] findExactMatch(Sequence<C> s1, Sequence<C> s2, SubstitutionMatrix<C> matrix) {
+		String seq1 = s1.getSequenceAsString();
+		String seq2 = s2.getSequenceAsString();
+		if (seq2.isEmpty() || seq1.length() != s1.getLength() || seq2.length() != s2.getLength())
+			return null;
+
+		int start = seq1.indexOf(seq2);
+		if (start < 0 || seq1.indexOf(seq2, start + 1) >= 0)
+			return null;
+
+		if (!isSelfScoreDominant(s1, s2, matrix))
+			return null;
+
+		int[] matches = new int[2 * seq2.length()];
+		for (int i = 0; i < seq2.length(); i++) {
+			matches[2 * i] = start + i;
+			matches[2 * i + 1] = i;
+		}
+		return matches;
+	}
+
+	/**
+	 * Whether every compound of s2 has a positive score against itself, strictly higher than its
+	 * score against any other compound of s1 and s2.
+	 */
+	static <C extends Compound> boolean isSelfScoreDominant(Sequence<C> s1, Sequence<C> s2, SubstitutionMatrix<C> matrix) {
+		Map<String, C> compounds1 = new HashMap<>();
+		Map<String, C> compounds2 = new HashMap<>();
+		for (C c : s1) compounds1.put(c.getShortName(), c);
+		for (C c : s2) compounds2.put(c.getShortName(), c);
+
+		for (C a : compounds2.values()) {
+			short self = matrix.getValue(a, a);
+			if (self <= 0)
+				return false;
+			for (Map<String, C> compounds : Arrays.asList(compounds1, compounds2)) {
+				for (C b : compounds.values()) {
+					if (b.getShortName().equals(a.getShortName()))
+						continue;
+					if (matrix.getValue(a, b) >= self || matrix.getValue(b, a) >= self)
+						return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The aligned positions of identical compounds of an alignment, as pairs of 0-based indices
+	 * in the query and the target.
+	 */
+	private static <S extends Sequence<C>, C extends Compound> int[] getMatches(SequencePair<S, C> pair, Compound gapSymbol) {
+		int aligLength = pair.getLength();
+		int[] matches = new int[2 * aligLength];
+		int n = 0;
+		for (int i = 1; i <= aligLength ; i++) {
 
+			Compound s =  pair.getCompoundAt(1, i);
+			Compound a =  pair.getCompoundAt(2, i);
 
+			if (  s.equals(gapSymbol) || a.equals(gapSymbol)){
+				continue;
+			}
+
+			if ( s.equals(a)){
+				// alignment is using internal index start at 1...
+				matches[n++] = pair.getIndexInQueryAt(i)  - 1;
+				matches[n++] = pair.getIndexInTargetAt(i) - 1;
+			}
+		}
+		return Arrays.copyOf(matches, n);
 	}
 
 
 	private boolean mapChains(List<Group> seqResGroups, List<Group> atomRes,
-			SequencePair<ProteinSequence, AminoAcidCompound> pair,
+			String seq, String atomSeq, int[] matches,
 			Map<Integer,Integer> seqresIndexPosition,
 			Map<Integer,Integer> atomIndexPosition )   {
 
@@ -638,72 +777,59 @@ public class SeqRes2AtomAligner {
 		// at the present stage the future seqRes are still stored as Atom groups in the seqRes parent...
 
 
-		int aligLength = pair.getLength();
-
 		// make sure we actually find an alignment
 		boolean noMatchFound = true;
 
-		Compound gapSymbol =  AminoAcidCompoundSet.getAminoAcidCompoundSet().getCompoundForString("-");
-
 		mainLoop:
-			for (int i = 1; i <= aligLength ; i++) {
+			for (int i = 0; i < matches.length ; i += 2) {
 
-				Compound s =  pair.getCompoundAt(1, i);
-				Compound a =  pair.getCompoundAt(2, i);
+				int posSeq  = matches[i];
+				int posAtom = matches[i + 1];
+				char s = seq.charAt(posSeq);
+				char a = atomSeq.charAt(posAtom);
 
-				// alignment is using internal index start at 1...
-				int posSeq  = pair.getIndexInQueryAt(i)  - 1;
-				int posAtom = pair.getIndexInTargetAt(i) - 1;
+				// the atom record can be aligned to the SeqRes record!
+				// replace the SeqRes group with the Atom group!
 
-				if (  s.equals(gapSymbol) || a.equals(gapSymbol)){
-					continue;
-				}
+				Group s1 = seqResGroups.get(seqresIndexPosition.get(posSeq));
+				Group a1 = atomRes.get(atomIndexPosition.get(posAtom));
 
-				if ( s.equals(a)){
+				if ( s1 == null || a1 == null){
+					/// can't map this position...
+					logger.warn("can't map " + s + " " + posSeq +" " + s1 + " atom: " + posAtom + " " + a1 );
+					continue mainLoop;
+				}
 
-					// the atom record can be aligned to the SeqRes record!
-					// replace the SeqRes group with the Atom group!
+				// need to trim the names to allow matching e.g in
+				// pdb1b2m
+				String pdbNameS = s1.getPDBName();
+				String pdbNameA = a1.getPDBName();
 
-					Group s1 = seqResGroups.get(seqresIndexPosition.get(posSeq));
-					Group a1 = atomRes.get(atomIndexPosition.get(posAtom));
+				if ( pdbNameS == null || pdbNameA == null ){
+					logger.warn("null value for group.getPDBName found at {} when trying to align {} and {} {}",posSeq, s1, a1, posAtom);
+					logger.warn("ATOM and SEQRES sequences will not be aligned.");
+					return true;
+				}
 
-					if ( s1 == null || a1 == null){
-						/// can't map this position...
-						logger.warn("can't map " + i + ":" + s + " " + posSeq +" " + s1 + " atom: " + posAtom + " " + a1 );
-						continue mainLoop;
-					}
+				if ( ! pdbNameA.trim().equals(pdbNameS.trim())) {
 
-					// need to trim the names to allow matching e.g in
-					// pdb1b2m
-					String pdbNameS = s1.getPDBName();
-					String pdbNameA = a1.getPDBName();
+					String msg = "'"+ s1 + "' (position " + posSeq + ") does not align with '" + a1+ "' (position " + posAtom + "), should be: " + s + " : " + a;
 
-					if ( pdbNameS == null || pdbNameA == null ){
-						logger.warn("null value for group.getPDBName found at {} when trying to align {} and {} {}",posSeq, s1, a1, posAtom);
-						logger.warn("ATOM and SEQRES sequences will not be aligned.");
-						return true;
+					if ( s1.getType().equals(HetatomImpl.type) && a1.getType().equals(HetatomImpl.type)){
+						logger.info(msg + ". They seem to be hetatoms, so ignoring mismatch.");
 					}
-
-					if ( ! pdbNameA.trim().equals(pdbNameS.trim())) {
-
-						String msg = "'"+ s1 + "' (position " + posSeq + ") does not align with '" + a1+ "' (position " + posAtom + "), should be: " + s + " : " + a;
-
-						if ( s1.getType().equals(HetatomImpl.type) && a1.getType().equals(HetatomImpl.type)){
-							logger.info(msg + ". They seem to be hetatoms, so ignoring mismatch.");
-						}
-						else {
-							logger.warn(msg + ". This could be a problem because they aren't both hetatoms");
-						}
-
+					else {
+						logger.warn(msg + ". This could be a problem because they aren't both hetatoms");
 					}
 
-					// do the actual replacing of the SEQRES group with the ATOM group
-					//					if ( s1.getChain().getChainID().equals("A")) {
-					//						System.out.println(" setting " + posSeq +" " + a1);
-					//					}
-					seqResGroups.set(seqresIndexPosition.get(posSeq),a1);
-					noMatchFound = false;
 				}
+
+				// do the actual replacing of the SEQRES group with the ATOM group
+				//					if ( s1.getChain().getChainID().equals("A")) {
+				//						System.out.println(" setting " + posSeq +" " + a1);
+				//					}
+				seqResGroups.set(seqresIndexPosition.get(posSeq),a1);
+				noMatchFound = false;
 			}
 
 
@@ -719,7 +845,7 @@ public class SeqRes2AtomAligner {
 	}
 
 	private boolean mapDNAChains(List<Group> seqResGroups, List<Group> atomRes,
-			SequencePair<Sequence<NucleotideCompound>, NucleotideCompound> pair,
+			String seq, String atomSeq, int[] matches,
 			Map<Integer,Integer> seqresIndexPosition,
 			Map<Integer,Integer> atomIndexPosition)   {
 
@@ -727,77 +853,59 @@ public class SeqRes2AtomAligner {
 		// at the present stage the future seqREs are still stored as Atom groups in the seqRes parent...
 
 
-		int aligLength = pair.getLength();
-
-		//		System.out.println("sequence length seqres:");
-		//		System.out.println(seqresIndexPosition.keySet().size());
-		//		System.out.println("alignment length: " + aligLength);
-		// System.out.println(gapSymbol.getName());
-
 		// make sure we actually find an alignment
 		boolean noMatchFound = true;
 
-		Compound gapSymbol =  DNACompoundSet.getDNACompoundSet().getCompoundForString("-");
-
 		mainLoop:
-			for (int i = 1; i <= aligLength ; i++) {
-
-				Compound s =  pair.getCompoundAt(1, i);
-				Compound a =  pair.getCompoundAt(2,i);
-
-				// alignment is using internal index start at 1...
-				int posSeq = pair.getIndexInQueryAt(i)  -1;
-				int posAtom = pair.getIndexInTargetAt(i) -1;
-
-				if (  s.equals(gapSymbol) || a.equals(gapSymbol)){
-					continue;
-				}
+			for (int i = 0; i < matches.length ; i += 2) {
 
-				if ( s.equals(a)){
+				int posSeq  = matches[i];
+				int posAtom = matches[i + 1];
+				char s = seq.charAt(posSeq);
+				char a = atomSeq.charAt(posAtom);
 
-					// the atom record can be aligned to the SeqRes record!
-					// replace the SeqRes group with the Atom group!
+				// the atom record can be aligned to the SeqRes record!
+				// replace the SeqRes group with the Atom group!
 
-					Group s1 = seqResGroups.get(seqresIndexPosition.get(posSeq));
-					Group a1 = atomRes.get(atomIndexPosition.get(posAtom));
+				Group s1 = seqResGroups.get(seqresIndexPosition.get(posSeq));
+				Group a1 = atomRes.get(atomIndexPosition.get(posAtom));
 
-					if ( s1 == null || a1 == null){
-						/// can't map this position...
-						logger.warn("can't map " + i + ":" + s + " " + posSeq +" " + s1 + " atom: " + posAtom + " " + a1 );
-						continue mainLoop;
-					}
-
-					// need to trim the names to allow matching e.g in
-					// pdb1b2m
-					String pdbNameS = s1.getPDBName();
-					String pdbNameA = a1.getPDBName();
-					if ( pdbNameS == null || pdbNameA == null ){
-						logger.warn("null value found for group.getPDBName() at " + posSeq + " when trying to align " + s1 + " and " + a1 + " " + posAtom);
-						logger.warn("ATOM and SEQRES sequences will not be aligned.");
-					}
-					if (! pdbNameA.equals(pdbNameS)){
-						if ( ! pdbNameA.trim().equals(pdbNameS.trim())) {
-							logger.info(s1 + " " + posSeq + " does not align with " + a1+ " " + posAtom + " should be: " + s + " : " + a);
-							if ( s1.getType().equals(HetatomImpl.type) && a1.getType().equals(HetatomImpl.type)){
-								logger.info("they seem to be hetatoms, so ignoring mismatch.");
-							}
-							else {
-								//  System.exit(0);// for debug only
-								//System.out.println(lst1.seqString());
-								//System.out.println(lst2.seqString());
-								logger.warn("Could not match residues " + s1 + " " + a1);
-							}
+				if ( s1 == null || a1 == null){
+					/// can't map this position...
+					logger.warn("can't map " + s + " " + posSeq +" " + s1 + " atom: " + posAtom + " " + a1 );
+					continue mainLoop;
+				}
 
+				// need to trim the names to allow matching e.g in
+				// pdb1b2m
+				String pdbNameS = s1.getPDBName();
+				String pdbNameA = a1.getPDBName();
+				if ( pdbNameS == null || pdbNameA == null ){
+					logger.warn("null value found for group.getPDBName() at " + posSeq + " when trying to align " + s1 + " and " + a1 + " " + posAtom);
+					logger.warn("ATOM and SEQRES sequences will not be aligned.");
+				}
+				if (! pdbNameA.equals(pdbNameS)){
+					if ( ! pdbNameA.trim().equals(pdbNameS.trim())) {
+						logger.info(s1 + " " + posSeq + " does not align with " + a1+ " " + posAtom + " should be: " + s + " : " + a);
+						if ( s1.getType().equals(HetatomImpl.type) && a1.getType().equals(HetatomImpl.type)){
+							logger.info("they seem to be hetatoms, so ignoring mismatch.");
+						}
+						else {
+							//  System.exit(0);// for debug only
+							//System.out.println(lst1.seqString());
+							//System.out.println(lst2.seqString());
+							logger.warn("Could not match residues " + s1 + " " + a1);
 						}
-					}
 
-					// do the actual replacing of the SEQRES group with the ATOM group
-					//					if ( s1.getChain().getChainID().equals("A")) {
-					//						System.out.println(" setting " + posSeq +" " + a1);
-					//					}
-					seqResGroups.set(seqresIndexPosition.get(posSeq),a1);
-					noMatchFound = false;
+					}
 				}
+
+				// do the actual replacing of the SEQRES group with the ATOM group
+				//					if ( s1.getChain().getChainID().equals("A")) {
+				//						System.out.println(" setting " + posSeq +" " + a1);
+				//					}
+				seqResGroups.set(seqresIndexPosition.get(posSeq),a1);
+				noMatchFound = false;
 			}
 
 
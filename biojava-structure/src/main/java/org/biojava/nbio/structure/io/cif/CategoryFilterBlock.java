@@ -0,0 +1,57 @@
+package org.biojava.nbio.structure.io.cif;
+
+import org.biojava.nbio.structure.io.FileParsingParameters;
+import org.rcsb.cif.model.Block;
+import org.rcsb.cif.model.Category;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A view of a block that hides the categories not requested by the {@link FileParsingParameters}. Hidden
+ * categories are seen as absent by typed blocks such as {@link org.rcsb.cif.schema.mm.MmCifBlock}, so that
+ * none of their columns are ever decoded.
+ * @since 7.2.0
+ */
+class CategoryFilterBlock implements Block {
+    private static final String ATOM_SITE = "atom_site";
+
+    private final Block delegate;
+    private final FileParsingParameters parameters;
+
+    CategoryFilterBlock(Block delegate, FileParsingParameters parameters) {
+        this.delegate = delegate;
+        this.parameters = parameters;
+    }
+
+    private boolean isParsed(String categoryName) {
+        return ATOM_SITE.equals(categoryName) || parameters.isCifCategoryParsed(categoryName);
+    }
+
+    @Override
+    public String getBlockHeader() {
+        return delegate.getBlockHeader();
+    }
+
+    @Override
+    public Category getCategory(String categoryName) {
+        return isParsed(categoryName) ? delegate.getCategory(categoryName) : null;
+    }
+
+    @Override
+    public Map<String, Category> getCategories() {
+        Map<String, Category> categories = new LinkedHashMap<>();
+        for (Map.Entry<String, Category> entry : delegate.getCategories().entrySet()) {
+            if (isParsed(entry.getKey())) {
+                categories.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return categories;
+    }
+
+    @Override
+    public List<Block> getSaveFrames() {
+        return delegate.getSaveFrames();
+    }
+}
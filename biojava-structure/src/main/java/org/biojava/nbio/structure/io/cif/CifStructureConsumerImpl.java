@@ -5,8 +5,10 @@ import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeFormatterBuilder;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
@@ -14,6 +16,7 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.OptionalInt;
+import java.util.Set;
 import java.util.stream.IntStream;
 
 import javax.vecmath.Matrix4d;
@@ -204,7 +207,23 @@ public class CifStructureConsumerImpl implements CifStructureConsumer {
         IntColumn labelSeqId = atomSite.getLabelSeqId();
         IntColumn pdbx_pdb_model_num = atomSite.getPdbxPDBModelNum();
 
+        // rows rejected by the parsing parameters are skipped before any chain or group is created for them
+        Set<String> acceptedAtomNames = params.getAcceptedAtomNames() == null ? null :
+                new HashSet<>(Arrays.asList(params.getAcceptedAtomNames()));
+        int firstModelNumber = atomSite.getRowCount() > 0 ? pdbx_pdb_model_num.get(0) : 0;
+
         for (int atomIndex = 0; atomIndex < atomSite.getRowCount(); atomIndex++) {
+            if (params.isParseFirstModelOnly() && pdbx_pdb_model_num.get(atomIndex) != firstModelNumber) {
+                // models are consecutive in atom_site
+                break;
+            }
+            if (params.isParsePolymerOnly() && labelSeqId.getValueKind(atomIndex) != ValueKind.PRESENT) {
+                continue;
+            }
+            if (acceptedAtomNames != null && !acceptedAtomNames.contains(labelAtomId.get(atomIndex))) {
+                continue;
+            }
+
             boolean startOfNewChain = false;
             Character oneLetterCode = StructureTools.get1LetterCodeAmino(labelCompId.get(atomIndex));
 
@@ -688,8 +707,10 @@ public class CifStructureConsumerImpl implements CifStructureConsumer {
 
     @Override
     public void consumeEntityPolySeq(EntityPolySeq entityPolySeq) {
+        // converted once: binary files may store the ids as numbers, which single-value access converts on every call
+        String[] entityIds = entityPolySeq.getEntityId().getArray();
         for (int rowIndex = 0; rowIndex < entityPolySeq.getRowCount(); rowIndex++) {
-            Chain entityChain = getEntityChain(entityPolySeq.getEntityId().get(rowIndex));
+            Chain entityChain = getEntityChain(entityIds[rowIndex]);
 
             // first we check through the chemcomp provider, if it fails we do some heuristics to guess the type of group
             // TODO some of this code is analogous to getNewGroup() and we should try to unify them - JD 2016-03-08
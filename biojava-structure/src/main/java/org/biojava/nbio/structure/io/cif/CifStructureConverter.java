@@ -107,7 +107,9 @@ public class CifStructureConverter {
         consumer.prepare();
 
         // feed individual categories to consumer
-        MmCifBlock cifBlock = cifFile.as(StandardSchemata.MMCIF).getFirstBlock();
+        MmCifBlock cifBlock = parameters.getCifCategories() == null ?
+                cifFile.as(StandardSchemata.MMCIF).getFirstBlock() :
+                new MmCifBlock(new CategoryFilterBlock(cifFile.getBlocks().get(0), parameters));
 
         consumer.consumeAuditAuthor(cifBlock.getAuditAuthor());
         consumer.consumeAtomSite(cifBlock.getAtomSite());
@@ -24,7 +24,7 @@
  */
 package org.biojava.nbio.structure.io.sifts;
 
-import org.biojava.nbio.structure.align.util.AtomCache;
+import org.biojava.nbio.structure.align.util.UserConfiguration;
 import org.biojava.nbio.core.util.FileDownloadUtils;
 import org.biojava.nbio.core.util.InputStreamProvider;
 import org.slf4j.Logger;
@@ -58,9 +58,8 @@ public class SiftsMappingProvider {
 	public static List<SiftsEntity> getSiftsMapping(String pdbId) throws IOException{
 		// grab files from here:
 
-		AtomCache cache = new AtomCache();
-
-		String path = cache.getCachePath();
+		// the cache path of AtomCache, without creating one per call
+		String path = new UserConfiguration().getCacheFilePath();
 
 		pdbId = pdbId.toLowerCase();
 
@@ -0,0 +1,1073 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.io.sifts;
+
+import org.biojava.nbio.core.util.InputStreamProvider;
+import org.biojava.nbio.structure.ResidueNumber;
+import org.biojava.nbio.structure.io.MappedIndexFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A compact store of residue-level SIFTS mappings between PDB chains and UniProt sequences,
+ * to map whole archives without parsing one XML file per entry.
+ * <p>
+ * The store is built with a {@link Builder}, from the per-entry SIFTS XML files (as downloaded
+ * by {@link SiftsMappingProvider}) or from the bulk pdb_chain_uniprot.tsv file of SIFTS, and
+ * written to a binary file. The file is memory-mapped when it is opened: residues are fixed-width
+ * records, and the chains and UniProt accessions are found through hash tables stored in the file,
+ * so that finding them takes constant time whatever the size of the store. The residues of a
+ * chain are contiguous, in SEQRES order, and are found by PDB residue number or SEQRES position
+ * with a binary search within the chain. The residues mapped to a UniProt accession are sorted by
+ * UniProt position.
+ * <p>
+ * Chains, residues and accessions are identified by int handles, and the data of a residue is
+ * read with primitive getters, so that batch queries do not create objects per residue:
+ * <pre>
+ * int chain = store.findChain("4hhb", "A");
+ * int residue = store.findResidue(chain, 42, '\0');
+ * int position = store.getUniProtPosition(residue);
+ * </pre>
+ * {@link #getResidues(String, String)} and the other methods returning {@link SiftsResidue}
+ * objects give the same residues as {@link SiftsXMLParser}.
+ * <p>
+ * The bulk tsv file only has segments: residues read from it have SEQRES and UniProt positions,
+ * but no PDB residue number, residue names nor observation details.
+ *
+ * @since 7.2.0
+ */
+public class SiftsResidueStore {
+
+	private static final Logger logger = LoggerFactory.getLogger(SiftsResidueStore.class);
+
+	private static final int MAGIC = 0x424a5352;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 36;
+
+	/**
+	 * Residue records: PDB residue number (or name index if it is not a number), SEQRES position,
+	 * UniProt position, accession index, PDB, SEQRES and UniProt residue name indices,
+	 * insertion code and flags
+	 */
+	private static final int RECORD_SIZE = 24;
+	private static final int SEQRES_POSITION = 4;
+	private static final int UNIPROT_POSITION = 8;
+	private static final int ACCESSION = 12;
+	private static final int PDB_NAME = 16;
+	private static final int SEQRES_NAME = 18;
+	private static final int UNIPROT_NAME = 20;
+	private static final int INS_CODE = 22;
+	private static final int FLAGS = 23;
+
+	private static final int HAS_PDB_NUMBER = 1;
+	private static final int RAW_PDB_NUMBER = 2;
+	private static final int OBSERVATION_KNOWN = 4;
+	private static final int NOT_OBSERVED = 8;
+	private static final int HAS_SEQRES_POSITION = 16;
+	private static final int HAS_UNIPROT_POSITION = 32;
+
+	/** Sort key of the residues without PDB residue number, after all the numbered ones */
+	private static final long NO_PDB_NUMBER_KEY = ((long) Integer.MAX_VALUE << 8) | 0xff;
+
+	/** The sections larger than 2GB are mapped in chunks of a power of 2 elements */
+	private static final int RESIDUE_CHUNK_SHIFT = 26;
+	private static final int INT_CHUNK_SHIFT = 28;
+
+	private final ByteBuffer meta;
+	private final ByteBuffer[] residues;
+	private final ByteBuffer[] pdbOrder;
+	private final ByteBuffer[] uniProtOrder;
+
+	private final int residueCount;
+	private final int chainCount;
+	private final int chainCapacity;
+	private final int accessionCount;
+	private final int accessionCapacity;
+
+	private final int stringsOffset;
+	private final int namesOffset;
+	private final int chainStartsOffset;
+	private final int chainSlotsOffset;
+	private final int accessionStartsOffset;
+	private final int accessionSlotsOffset;
+
+	private final String[] names;
+	private final String[] accessions;
+
+	private SiftsResidueStore(ByteBuffer meta, ByteBuffer[] residues, ByteBuffer[] pdbOrder, ByteBuffer[] uniProtOrder) {
+		this.meta = meta;
+		this.residues = residues;
+		this.pdbOrder = pdbOrder;
+		this.uniProtOrder = uniProtOrder;
+
+		residueCount = meta.getInt(8);
+		chainCount = meta.getInt(12);
+		chainCapacity = meta.getInt(16);
+		accessionCount = meta.getInt(20);
+		accessionCapacity = meta.getInt(24);
+
+		stringsOffset = HEADER_SIZE;
+		namesOffset = stringsOffset + MappedIndexFormat.getStringTableSize(meta, stringsOffset);
+		chainStartsOffset = namesOffset + MappedIndexFormat.getStringTableSize(meta, namesOffset);
+		chainSlotsOffset = chainStartsOffset + 4 * (chainCount + 1);
+		accessionStartsOffset = chainSlotsOffset + 4 * chainCapacity;
+		accessionSlotsOffset = accessionStartsOffset + 4 * (accessionCount + 1);
+
+		// residue names are few and read for most residues
+		names = new String[MappedIndexFormat.getStringCount(meta, namesOffset) + 1];
+		for (int i = 1; i < names.length; i++) {
+			names[i] = MappedIndexFormat.getString(meta, namesOffset, i - 1);
+		}
+		accessions = new String[accessionCount];
+	}
+
+	/**
+	 * Memory-map a store written by {@link Builder#write(Path)}.
+	 * @param file the file of the store
+	 * @return the store
+	 * @throws IOException if the file cannot be read or is not a SIFTS residue store
+	 */
+	public static SiftsResidueStore open(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() < HEADER_SIZE) {
+				throw new IOException("Not a SIFTS residue store: " + file);
+			}
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+			if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+				throw new IOException("Not a SIFTS residue store of version " + VERSION + ": " + file);
+			}
+			long residueCount = header.getInt(8);
+			long uniProtOrderCount = header.getInt(28);
+			long metaSize = header.getInt(32);
+			long pdbOrderOffset = metaSize + residueCount * RECORD_SIZE;
+			long uniProtOrderOffset = pdbOrderOffset + residueCount * 4;
+			if (channel.size() != uniProtOrderOffset + uniProtOrderCount * 4) {
+				throw new IOException("Truncated SIFTS residue store: " + file);
+			}
+
+			SiftsResidueStore store = new SiftsResidueStore(
+					channel.map(FileChannel.MapMode.READ_ONLY, 0, metaSize),
+					map(channel, metaSize, residueCount, RECORD_SIZE, RESIDUE_CHUNK_SHIFT),
+					map(channel, pdbOrderOffset, residueCount, 4, INT_CHUNK_SHIFT),
+					map(channel, uniProtOrderOffset, uniProtOrderCount, 4, INT_CHUNK_SHIFT));
+			logger.debug("Opened SIFTS residue store {} with {} residues of {} chains", file, store.residueCount, store.chainCount);
+			return store;
+		}
+	}
+
+	private static ByteBuffer[] map(FileChannel channel, long offset, long count, int elementSize, int chunkShift) throws IOException {
+		long chunk = 1L << chunkShift;
+		ByteBuffer[] buffers = new ByteBuffer[(int) ((count + chunk - 1) >>> chunkShift)];
+		for (int i = 0; i < buffers.length; i++) {
+			long start = i * chunk;
+			long length = Math.min(chunk, count - start);
+			buffers[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset + start * elementSize, length * elementSize);
+		}
+		return buffers;
+	}
+
+	private static int getInt(ByteBuffer[] buffers, int i) {
+		return buffers[i >>> INT_CHUNK_SHIFT].getInt((i & ((1 << INT_CHUNK_SHIFT) - 1)) << 2);
+	}
+
+	private ByteBuffer residueBuffer(int residue) {
+		return residues[residue >>> RESIDUE_CHUNK_SHIFT];
+	}
+
+	private static int residueOffset(int residue) {
+		return (residue & ((1 << RESIDUE_CHUNK_SHIFT) - 1)) * RECORD_SIZE;
+	}
+
+	private static String getChainKey(String pdbId, String chainName) {
+		return pdbId.toLowerCase() + "." + chainName;
+	}
+
+	/**
+	 * @return the number of chains of the store
+	 */
+	public int getChainCount() {
+		return chainCount;
+	}
+
+	/**
+	 * @return the number of residues of the store
+	 */
+	public int getResidueCount() {
+		return residueCount;
+	}
+
+	/**
+	 * @return the number of UniProt accessions of the store
+	 */
+	public int getAccessionCount() {
+		return accessionCount;
+	}
+
+	/**
+	 * Find a chain.
+	 * @param pdbId the PDB ID
+	 * @param chainName the chain name (author id)
+	 * @return the chain handle, or -1 if the chain is not in the store
+	 */
+	public int findChain(String pdbId, String chainName) {
+		byte[] key = getChainKey(pdbId, chainName).getBytes(StandardCharsets.UTF_8);
+		return MappedIndexFormat.find(meta, chainSlotsOffset, chainCapacity, stringsOffset, 0, key);
+	}
+
+	/**
+	 * @param chain the chain handle
+	 * @return the PDB ID of the chain, in lower case
+	 */
+	public String getPdbId(int chain) {
+		String key = MappedIndexFormat.getString(meta, stringsOffset, chain);
+		return key.substring(0, key.indexOf('.'));
+	}
+
+	/**
+	 * @param chain the chain handle
+	 * @return the name (author id) of the chain
+	 */
+	public String getChainName(int chain) {
+		String key = MappedIndexFormat.getString(meta, stringsOffset, chain);
+		return key.substring(key.indexOf('.') + 1);
+	}
+
+	/**
+	 * The residues of a chain have consecutive handles, in SEQRES order.
+	 * @param chain the chain handle
+	 * @return the handle of the first residue of the chain
+	 */
+	public int getFirstResidue(int chain) {
+		return meta.getInt(chainStartsOffset + 4 * chain);
+	}
+
+	/**
+	 * @param chain the chain handle
+	 * @return the number of residues of the chain
+	 */
+	public int getResidueCount(int chain) {
+		return meta.getInt(chainStartsOffset + 4 * chain + 4) - getFirstResidue(chain);
+	}
+
+	/**
+	 * @param residue the residue handle
+	 * @return the handle of the chain of the residue
+	 */
+	public int getChain(int residue) {
+		int low = 0;
+		int high = chainCount - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (getFirstResidue(mid) <= residue) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+	private long getPdbNumberKey(int residue) {
+		ByteBuffer b = residueBuffer(residue);
+		int offset = residueOffset(residue);
+		if ((b.get(offset + FLAGS) & HAS_PDB_NUMBER) == 0) {
+			return NO_PDB_NUMBER_KEY;
+		}
+		return ((long) b.getInt(offset) << 8) | (b.get(offset + INS_CODE) & 0xff);
+	}
+
+	/**
+	 * Find a residue of a chain by PDB residue number.
+	 * @param chain the chain handle
+	 * @param seqNum the PDB residue number
+	 * @param insCode the insertion code, or 0 if there is none
+	 * @return the residue handle, or -1 if the chain has no residue with this number
+	 */
+	public int findResidue(int chain, int seqNum, char insCode) {
+		if (chain < 0) {
+			return -1;
+		}
+		long key = ((long) seqNum << 8) | (insCode & 0xff);
+		int low = getFirstResidue(chain);
+		int high = low + getResidueCount(chain) - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int residue = getInt(pdbOrder, mid);
+			long k = getPdbNumberKey(residue);
+			if (k < key) {
+				low = mid + 1;
+			} else if (k > key) {
+				high = mid - 1;
+			} else {
+				return residue;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Find a residue of a chain by PDB residue number.
+	 * @param chain the chain handle
+	 * @param residueNumber the residue number, its chain name is not used
+	 * @return the residue handle, or -1 if the chain has no residue with this number
+	 */
+	public int findResidue(int chain, ResidueNumber residueNumber) {
+		if (residueNumber.getSeqNum() == null) {
+			return -1;
+		}
+		Character insCode = residueNumber.getInsCode();
+		return findResidue(chain, residueNumber.getSeqNum(), insCode == null ? 0 : insCode);
+	}
+
+	/**
+	 * Find a residue of a chain by SEQRES position.
+	 * @param chain the chain handle
+	 * @param position the 1-based SEQRES position
+	 * @return the residue handle, or -1 if the chain has no residue at this position
+	 */
+	public int findResidueBySeqResPosition(int chain, int position) {
+		if (chain < 0) {
+			return -1;
+		}
+		int low = getFirstResidue(chain);
+		int high = low + getResidueCount(chain) - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			ByteBuffer b = residueBuffer(mid);
+			int offset = residueOffset(mid);
+			// residues without position are last
+			int p = (b.get(offset + FLAGS) & HAS_SEQRES_POSITION) == 0 ? Integer.MAX_VALUE : b.getInt(offset + SEQRES_POSITION);
+			if (p < position) {
+				low = mid + 1;
+			} else if (p > position) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @param residue the residue handle
+	 * @return the PDB residue number of the residue, without chain name, or null if it has none
+	 */
+	public ResidueNumber getResidueNumber(int residue) {
+		ByteBuffer b = residueBuffer(residue);
+		int offset = residueOffset(residue);
+		if ((b.get(offset + FLAGS) & HAS_PDB_NUMBER) == 0) {
+			return null;
+		}
+		byte insCode = b.get(offset + INS_CODE);
+		return new ResidueNumber(null, b.getInt(offset), insCode == 0 ? null : (char) insCode);
+	}
+
+	/**
+	 * @param residue the residue handle
+	 * @return the 1-based SEQRES position of the residue, or -1 if it is not known
+	 */
+	public int getSeqResPosition(int residue) {
+		ByteBuffer b = residueBuffer(residue);
+		int offset = residueOffset(residue);
+		if ((b.get(offset + FLAGS) & HAS_SEQRES_POSITION) == 0) {
+			return -1;
+		}
+		return b.getInt(offset + SEQRES_POSITION);
+	}
+
+	/**
+	 * @param residue the residue handle
+	 * @return the position of the residue in the UniProt sequence, or -1 if it is not mapped
+	 */
+	public int getUniProtPosition(int residue) {
+		ByteBuffer b = residueBuffer(residue);
+		int offset = residueOffset(residue);
+		if ((b.get(offset + FLAGS) & HAS_UNIPROT_POSITION) == 0) {
+			return -1;
+		}
+		return b.getInt(offset + UNIPROT_POSITION);
+	}
+
+	/**
+	 * @param residue the residue handle
+	 * @return the UniProt accession the residue is mapped to, or null if it is not mapped
+	 */
+	public String getUniProtAccession(int residue) {
+		int accession = residueBuffer(residue).getInt(residueOffset(residue) + ACCESSION);
+		return accession < 0 ? null : getAccession(accession);
+	}
+
+	/**
+	 * @param residue the residue handle
+	 * @return true if the residue is annotated as not observed in the structure
+	 */
+	public boolean isNotObserved(int residue) {
+		return (residueBuffer(residue).get(residueOffset(residue) + FLAGS) & NOT_OBSERVED) != 0;
+	}
+
+	private String getAccession(int accession) {
+		String s = accessions[accession];
+		if (s == null) {
+			s = MappedIndexFormat.getString(meta, stringsOffset, chainCount + accession);
+			accessions[accession] = s;
+		}
+		return s;
+	}
+
+	private SiftsResidue getResidue(String pdbId, String chainName, int residue) {
+		ByteBuffer b = residueBuffer(residue);
+		int offset = residueOffset(residue);
+		int flags = b.get(offset + FLAGS);
+
+		SiftsResidue res = new SiftsResidue();
+		res.setPdbId(pdbId);
+		res.setChainId(chainName);
+		if ((flags & HAS_PDB_NUMBER) != 0) {
+			byte insCode = b.get(offset + INS_CODE);
+			res.setPdbResNum(b.getInt(offset) + (insCode == 0 ? "" : String.valueOf((char) insCode)));
+		} else if ((flags & RAW_PDB_NUMBER) != 0) {
+			res.setPdbResNum(names[b.getInt(offset)]);
+		}
+		if ((flags & HAS_SEQRES_POSITION) != 0) {
+			res.setNaturalPos(b.getInt(offset + SEQRES_POSITION));
+		}
+		if ((flags & HAS_UNIPROT_POSITION) != 0) {
+			res.setUniProtPos(b.getInt(offset + UNIPROT_POSITION));
+		}
+		int accession = b.getInt(offset + ACCESSION);
+		if (accession >= 0) {
+			res.setUniProtAccessionId(getAccession(accession));
+		}
+		res.setPdbResName(names[b.getChar(offset + PDB_NAME)]);
+		res.setSeqResName(names[b.getChar(offset + SEQRES_NAME)]);
+		res.setUniProtResName(names[b.getChar(offset + UNIPROT_NAME)]);
+		if ((flags & OBSERVATION_KNOWN) != 0) {
+			res.setNotObserved((flags & NOT_OBSERVED) != 0);
+		}
+		return res;
+	}
+
+	/**
+	 * @param residue the residue handle
+	 * @return the residue, as read by {@link SiftsXMLParser}
+	 */
+	public SiftsResidue getResidue(int residue) {
+		int chain = getChain(residue);
+		return getResidue(getPdbId(chain), getChainName(chain), residue);
+	}
+
+	/**
+	 * @param pdbId the PDB ID
+	 * @param chainName the chain name (author id)
+	 * @return the residues of the chain in SEQRES order, empty if the chain is not in the store
+	 */
+	public List<SiftsResidue> getResidues(String pdbId, String chainName) {
+		int chain = findChain(pdbId, chainName);
+		if (chain < 0) {
+			return Collections.emptyList();
+		}
+		String id = getPdbId(chain);
+		List<SiftsResidue> list = new ArrayList<>(getResidueCount(chain));
+		int first = getFirstResidue(chain);
+		for (int residue = first; residue < first + getResidueCount(chain); residue++) {
+			list.add(getResidue(id, chainName, residue));
+		}
+		return list;
+	}
+
+	/**
+	 * @param pdbId the PDB ID
+	 * @param residueNumber the residue number, with chain name
+	 * @return the residue, or null if it is not in the store
+	 */
+	public SiftsResidue getResidue(String pdbId, ResidueNumber residueNumber) {
+		int chain = findChain(pdbId, residueNumber.getChainName());
+		int residue = findResidue(chain, residueNumber);
+		if (residue < 0) {
+			return null;
+		}
+		return getResidue(getPdbId(chain), residueNumber.getChainName(), residue);
+	}
+
+	/**
+	 * Map residues of a chain to their UniProt positions.
+	 * @param pdbId the PDB ID
+	 * @param chainName the chain name (author id)
+	 * @param residueNumbers the PDB residue numbers, their chain names are not used
+	 * @param positions array receiving the UniProt position of each residue, -1 if it is not mapped
+	 * @return the number of mapped residues
+	 */
+	public int getUniProtPositions(String pdbId, String chainName, ResidueNumber[] residueNumbers, int[] positions) {
+		int chain = findChain(pdbId, chainName);
+		int mapped = 0;
+		for (int i = 0; i < residueNumbers.length; i++) {
+			int residue = findResidue(chain, residueNumbers[i]);
+			positions[i] = residue < 0 ? -1 : getUniProtPosition(residue);
+			if (positions[i] >= 0) {
+				mapped++;
+			}
+		}
+		return mapped;
+	}
+
+	/**
+	 * Find a UniProt accession.
+	 * @param accession the UniProt accession
+	 * @return the accession handle, or -1 if no residue is mapped to it
+	 */
+	public int findAccession(String accession) {
+		byte[] key = accession.getBytes(StandardCharsets.UTF_8);
+		return MappedIndexFormat.find(meta, accessionSlotsOffset, accessionCapacity, stringsOffset, chainCount, key);
+	}
+
+	/**
+	 * Find the residues of all chains that are mapped to a UniProt position.
+	 * @param accession the UniProt accession
+	 * @param position the position in the UniProt sequence
+	 * @return the residue handles, by chain
+	 */
+	public int[] findUniProtResidues(String accession, int position) {
+		int a = findAccession(accession);
+		if (a < 0) {
+			return new int[0];
+		}
+		int start = meta.getInt(accessionStartsOffset + 4 * a);
+		int end = meta.getInt(accessionStartsOffset + 4 * a + 4);
+		// first residue at the position
+		int low = start;
+		int high = end;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (getUniProtPosition(getInt(uniProtOrder, mid)) < position) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		int last = low;
+		while (last < end && getUniProtPosition(getInt(uniProtOrder, last)) == position) {
+			last++;
+		}
+		int[] found = new int[last - low];
+		for (int i = 0; i < found.length; i++) {
+			found[i] = getInt(uniProtOrder, low + i);
+		}
+		return found;
+	}
+
+	/**
+	 * @param accession the UniProt accession
+	 * @param position the position in the UniProt sequence
+	 * @return the residues of all chains that are mapped to the position
+	 */
+	public List<SiftsResidue> getResiduesByUniProt(String accession, int position) {
+		List<SiftsResidue> list = new ArrayList<>();
+		for (int residue : findUniProtResidues(accession, position)) {
+			list.add(getResidue(residue));
+		}
+		return list;
+	}
+
+	/**
+	 * Collects residue mappings and writes them as a {@link SiftsResidueStore}.
+	 * The residues are kept in compact arrays until they are written, about 24 bytes per residue.
+	 * Adding mappings is thread-safe.
+	 */
+	public static class Builder {
+
+		private final Map<String, ChainResidues> chains = new HashMap<>();
+		private final Map<String, Integer> accessionIndex = new HashMap<>();
+		private final List<String> accessionList = new ArrayList<>();
+		// index 0 is null
+		private final Map<String, Integer> nameIndex = new HashMap<>();
+		private final List<String> nameList = new ArrayList<>(Collections.singletonList(null));
+
+		/**
+		 * Add the residues of a SIFTS entry, as read by {@link SiftsXMLParser}. Chains that were
+		 * added before are replaced. Residues without PDB chain are ignored.
+		 * @param pdbId the PDB ID
+		 * @param entities the SIFTS entities of the entry
+		 * @return this builder
+		 */
+		public synchronized Builder addEntities(String pdbId, List<SiftsEntity> entities) {
+			Map<String, ChainResidues> entry = new LinkedHashMap<>();
+			for (SiftsEntity entity : entities) {
+				for (SiftsSegment segment : entity.getSegments()) {
+					for (SiftsResidue residue : segment.getResidues()) {
+						if (residue.getChainId() == null) {
+							continue;
+						}
+						entry.computeIfAbsent(residue.getChainId(), c -> new ChainResidues()).add(this, residue);
+					}
+				}
+			}
+			for (Map.Entry<String, ChainResidues> e : entry.entrySet()) {
+				chains.put(getChainKey(pdbId, e.getKey()), e.getValue());
+			}
+			return this;
+		}
+
+		/**
+		 * Add the residues of a SIFTS XML file, which may be gzipped. The PDB ID is the beginning
+		 * of the file name, up to the first dot.
+		 * @param file the SIFTS XML file, as downloaded by {@link SiftsMappingProvider}
+		 * @return this builder
+		 * @throws IOException if the file cannot be read
+		 */
+		public Builder addXmlFile(Path file) throws IOException {
+			String name = file.getFileName().toString();
+			String pdbId = name.substring(0, name.indexOf('.') < 0 ? name.length() : name.indexOf('.'));
+			SiftsXMLParser parser = new SiftsXMLParser();
+			try (InputStream is = new InputStreamProvider().getInputStream(file.toFile())) {
+				parser.parseXmlFile(is);
+			}
+			return addEntities(pdbId, parser.getEntities());
+		}
+
+		/**
+		 * Add the residues of SIFTS XML files, parsing them in parallel in the common
+		 * fork/join pool.
+		 * @param files the SIFTS XML files
+		 * @return this builder
+		 * @throws IOException if a file cannot be read
+		 * @see #addXmlFile(Path)
+		 */
+		public Builder addXmlFiles(Collection<Path> files) throws IOException {
+			long start = System.currentTimeMillis();
+			try {
+				files.parallelStream().forEach(file -> {
+					try {
+						addXmlFile(file);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			logger.info("Read {} SIFTS XML files in {} ms", files.size(), System.currentTimeMillis() - start);
+			return this;
+		}
+
+		/**
+		 * Add the residues of all SIFTS XML files (*.xml or *.xml.gz) in a directory and its
+		 * subdirectories, e.g. the SIFTS directory of the cache of {@link SiftsMappingProvider}.
+		 * @param dir the directory
+		 * @return this builder
+		 * @throws IOException if the directory or a file cannot be read
+		 */
+		public Builder addXmlDirectory(Path dir) throws IOException {
+			List<Path> files;
+			try (Stream<Path> paths = Files.walk(dir)) {
+				files = paths.filter(p -> {
+					String name = p.getFileName().toString();
+					return Files.isRegularFile(p) && (name.endsWith(".xml") || name.endsWith(".xml.gz"));
+				}).collect(Collectors.toList());
+			}
+			return addXmlFiles(files);
+		}
+
+		/**
+		 * Add the residues of the segments of the bulk SIFTS pdb_chain_uniprot.tsv file (columns
+		 * PDB, CHAIN, SP_PRIMARY, RES_BEG, RES_END, PDB_BEG, PDB_END, SP_BEG, SP_END). Each SEQRES
+		 * position of a segment is mapped to the UniProt position at the same offset. Chains that
+		 * were added before are replaced.
+		 * @param reader the tsv file
+		 * @return this builder
+		 * @throws IOException if the file cannot be read
+		 */
+		public Builder addChainMappings(BufferedReader reader) throws IOException {
+			Map<String, ChainResidues> read = new HashMap<>();
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.isEmpty() || line.startsWith("#") || line.startsWith("PDB")) continue;
+				String[] parts = line.split("\t");
+				try {
+					int resBeg = Integer.parseInt(parts[3]);
+					int resEnd = Integer.parseInt(parts[4]);
+					int spBeg = Integer.parseInt(parts[7]);
+					int spEnd = Integer.parseInt(parts[8]);
+					if (resEnd - resBeg != spEnd - spBeg) {
+						logger.warn("SEQRES and UniProt ranges of different lengths, ignoring line: {}", line);
+						continue;
+					}
+					ChainResidues chain = read.computeIfAbsent(getChainKey(parts[0], parts[1]), c -> new ChainResidues());
+					synchronized (this) {
+						int accession = intern(parts[2], accessionIndex, accessionList);
+						for (int i = 0; i <= resEnd - resBeg; i++) {
+							chain.add(0, resBeg + i, spBeg + i, accession, 0, 0, 0, 0,
+									HAS_SEQRES_POSITION | HAS_UNIPROT_POSITION);
+						}
+					}
+				} catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+					logger.warn("Could not parse SIFTS mapping line: {}", line);
+				}
+			}
+			synchronized (this) {
+				chains.putAll(read);
+			}
+			return this;
+		}
+
+		/**
+		 * @return the number of chains added so far
+		 */
+		public synchronized int getChainCount() {
+			return chains.size();
+		}
+
+		private static int intern(String s, Map<String, Integer> index, List<String> list) {
+			Integer i = index.get(s);
+			if (i == null) {
+				i = list.size();
+				index.put(s, i);
+				list.add(s);
+			}
+			return i;
+		}
+
+		private int internName(String name) {
+			if (name == null) {
+				return 0;
+			}
+			int i = intern(name, nameIndex, nameList);
+			if (i > Character.MAX_VALUE) {
+				throw new IllegalStateException("Too many distinct residue names");
+			}
+			return i;
+		}
+
+		/**
+		 * Write the store. The file is replaced atomically, so that other processes never
+		 * see a partial store.
+		 * @param file the file of the store
+		 * @throws IOException if the file cannot be written
+		 */
+		public synchronized void write(Path file) throws IOException {
+			List<String> keys = new ArrayList<>(chains.keySet());
+			Collections.sort(keys);
+			List<String> accessions = new ArrayList<>(accessionList);
+			Collections.sort(accessions);
+			int[] accessionOrder = new int[accessionList.size()];
+			for (int a = 0; a < accessions.size(); a++) {
+				accessionOrder[accessionIndex.get(accessions.get(a))] = a;
+			}
+
+			// residues in SEQRES order within each chain
+			int[] chainStarts = new int[keys.size() + 1];
+			long total = 0;
+			for (int c = 0; c < keys.size(); c++) {
+				total += chains.get(keys.get(c)).size;
+				if (total > Integer.MAX_VALUE) {
+					throw new IllegalStateException("Too many residues for a SIFTS residue store");
+				}
+				chainStarts[c + 1] = (int) total;
+			}
+			int residueCount = (int) total;
+			int[][] seqResOrders = new int[keys.size()][];
+			int[] accessionCounts = new int[accessions.size() + 1];
+			for (int c = 0; c < keys.size(); c++) {
+				ChainResidues chain = chains.get(keys.get(c));
+				seqResOrders[c] = chain.getSeqResOrder();
+				for (int i = 0; i < chain.size; i++) {
+					if (chain.hasUniProtPosition(i)) {
+						accessionCounts[accessionOrder[chain.getAccession(i)] + 1]++;
+					}
+				}
+			}
+			int[] accessionStarts = accessionCounts;
+			for (int a = 0; a < accessions.size(); a++) {
+				accessionStarts[a + 1] += accessionStarts[a];
+			}
+
+			List<String> strings = new ArrayList<>(keys);
+			strings.addAll(accessions);
+			byte[] stringTable = MappedIndexFormat.toStringTable(strings);
+			byte[] nameTable = MappedIndexFormat.toStringTable(nameList.subList(1, nameList.size()));
+
+			int chainCapacity = MappedIndexFormat.getCapacity(keys.size());
+			int accessionCapacity = MappedIndexFormat.getCapacity(accessions.size());
+			long metaSize = HEADER_SIZE + stringTable.length + nameTable.length + 4L * (keys.size() + 1)
+					+ 4L * chainCapacity + 4L * (accessions.size() + 1) + 4L * accessionCapacity;
+			if (metaSize > Integer.MAX_VALUE) {
+				throw new IllegalStateException("Too many chains for a SIFTS residue store");
+			}
+
+			MappedIndexFormat.writeAtomically(file, out -> {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(residueCount);
+				out.writeInt(keys.size());
+				out.writeInt(chainCapacity);
+				out.writeInt(accessions.size());
+				out.writeInt(accessionCapacity);
+				out.writeInt(accessionStarts[accessions.size()]);
+				out.writeInt((int) metaSize);
+				out.write(stringTable);
+				out.write(nameTable);
+
+				for (int start : chainStarts) {
+					out.writeInt(start);
+				}
+				writeInts(out, MappedIndexFormat.toHashTable(strings.subList(0, keys.size()), chainCapacity));
+				for (int start : accessionStarts) {
+					out.writeInt(start);
+				}
+				writeInts(out, MappedIndexFormat.toHashTable(accessions, accessionCapacity));
+
+				ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+				for (int c = 0; c < keys.size(); c++) {
+					ChainResidues chain = chains.get(keys.get(c));
+					for (int i : seqResOrders[c]) {
+						chain.write(i, record, accessionOrder);
+						out.write(record.array());
+					}
+				}
+
+				for (int c = 0; c < keys.size(); c++) {
+					for (int residue : chains.get(keys.get(c)).getPdbOrder(seqResOrders[c])) {
+						out.writeInt(chainStarts[c] + residue);
+					}
+				}
+
+				writeInts(out, getUniProtOrder(keys, seqResOrders, chainStarts, accessionOrder, accessionStarts));
+			});
+			logger.info("Wrote SIFTS residue store {} with {} residues of {} chains", file, residueCount, keys.size());
+		}
+
+		/**
+		 * The residue handles sorted by accession, UniProt position and handle
+		 */
+		private int[] getUniProtOrder(List<String> keys, int[][] seqResOrders, int[] chainStarts,
+				int[] accessionOrder, int[] accessionStarts) {
+			int accessionCount = accessionStarts.length - 1;
+			long[] sorted = new long[accessionStarts[accessionCount]];
+			int[] fill = Arrays.copyOf(accessionStarts, accessionCount);
+			for (int c = 0; c < keys.size(); c++) {
+				ChainResidues chain = chains.get(keys.get(c));
+				int[] order = seqResOrders[c];
+				for (int k = 0; k < order.length; k++) {
+					int i = order[k];
+					if (chain.hasUniProtPosition(i)) {
+						int a = accessionOrder[chain.getAccession(i)];
+						sorted[fill[a]++] = ((long) chain.getUniProtPosition(i) << 32) | (chainStarts[c] + k);
+					}
+				}
+			}
+			int[] residues = new int[sorted.length];
+			for (int a = 0; a < accessionCount; a++) {
+				Arrays.sort(sorted, accessionStarts[a], accessionStarts[a + 1]);
+			}
+			for (int i = 0; i < sorted.length; i++) {
+				residues[i] = (int) sorted[i];
+			}
+			return residues;
+		}
+
+		private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+			for (int v : values) {
+				out.writeInt(v);
+			}
+		}
+	}
+
+	/**
+	 * The residues of a chain, 6 ints per residue: PDB residue number, SEQRES position, UniProt
+	 * position, accession, PDB and SEQRES residue names, UniProt residue name, insertion code
+	 * and flags
+	 */
+	private static class ChainResidues {
+		private static final int INTS = 6;
+
+		private int[] data = new int[INTS * 16];
+		private int size;
+
+		void add(Builder builder, SiftsResidue residue) {
+			int flags = 0;
+			int number = 0;
+			int insCode = 0;
+			String resNum = residue.getPdbResNum();
+			if (resNum != null) {
+				ResidueNumber rn = parseResidueNumber(resNum);
+				if (rn != null) {
+					flags |= HAS_PDB_NUMBER;
+					number = rn.getSeqNum();
+					insCode = rn.getInsCode() == null ? 0 : rn.getInsCode();
+				} else {
+					flags |= RAW_PDB_NUMBER;
+					number = Builder.intern(resNum, builder.nameIndex, builder.nameList);
+				}
+			}
+			if (residue.getNotObserved() != null) {
+				flags |= OBSERVATION_KNOWN | (residue.getNotObserved() ? NOT_OBSERVED : 0);
+			}
+			int seqResPosition = 0;
+			if (residue.getNaturalPos() != null) {
+				flags |= HAS_SEQRES_POSITION;
+				seqResPosition = residue.getNaturalPos();
+			}
+			int uniProtPosition = 0;
+			if (residue.getUniProtPos() != null) {
+				flags |= HAS_UNIPROT_POSITION;
+				uniProtPosition = residue.getUniProtPos();
+			}
+			int accession = residue.getUniProtAccessionId() == null ? -1
+					: Builder.intern(residue.getUniProtAccessionId(), builder.accessionIndex, builder.accessionList);
+			add(number, seqResPosition, uniProtPosition, accession, builder.internName(residue.getPdbResName()),
+					builder.internName(residue.getSeqResName()), builder.internName(residue.getUniProtResName()),
+					insCode, flags);
+		}
+
+		/**
+		 * @return the residue number, or null if the string is not the canonical form of a
+		 *         residue number with an ASCII insertion code
+		 */
+		private static ResidueNumber parseResidueNumber(String resNum) {
+			ResidueNumber rn;
+			try {
+				rn = ResidueNumber.fromString(resNum);
+			} catch (NumberFormatException e) {
+				return null;
+			}
+			if (rn == null || rn.getSeqNum() == null) {
+				return null;
+			}
+			Character insCode = rn.getInsCode();
+			if (insCode != null && (insCode == 0 || insCode > 127)) {
+				return null;
+			}
+			String canonical = rn.getSeqNum() + (insCode == null ? "" : String.valueOf(insCode));
+			return canonical.equals(resNum) ? rn : null;
+		}
+
+		void add(int number, int seqResPosition, int uniProtPosition, int accession, int pdbName, int seqResName,
+				int uniProtName, int insCode, int flags) {
+			if (INTS * (size + 1) > data.length) {
+				data = Arrays.copyOf(data, 2 * data.length);
+			}
+			int i = INTS * size++;
+			data[i] = number;
+			data[i + 1] = seqResPosition;
+			data[i + 2] = uniProtPosition;
+			data[i + 3] = accession;
+			data[i + 4] = (pdbName << 16) | seqResName;
+			data[i + 5] = (uniProtName << 16) | (insCode << 8) | flags;
+		}
+
+		int getAccession(int i) {
+			return data[INTS * i + 3];
+		}
+
+		int getUniProtPosition(int i) {
+			return data[INTS * i + 2];
+		}
+
+		boolean hasUniProtPosition(int i) {
+			return (data[INTS * i + 5] & HAS_UNIPROT_POSITION) != 0 && getAccession(i) >= 0;
+		}
+
+		void write(int i, ByteBuffer record, int[] accessionOrder) {
+			int k = INTS * i;
+			int accession = data[k + 3];
+			record.clear();
+			record.putInt(data[k]);
+			record.putInt(data[k + 1]);
+			record.putInt(data[k + 2]);
+			record.putInt(accession < 0 ? -1 : accessionOrder[accession]);
+			record.putChar((char) (data[k + 4] >>> 16));
+			record.putChar((char) data[k + 4]);
+			record.putChar((char) (data[k + 5] >>> 16));
+			record.put((byte) (data[k + 5] >>> 8));
+			record.put((byte) data[k + 5]);
+		}
+
+		/**
+		 * @return the indices of the residues sorted by SEQRES position, the residues without
+		 *         position last, in the order they were added
+		 */
+		int[] getSeqResOrder() {
+			long[] keys = new long[size];
+			for (int i = 0; i < size; i++) {
+				int k = INTS * i;
+				long position = (data[k + 5] & HAS_SEQRES_POSITION) != 0 ? data[k + 1] : Integer.MAX_VALUE;
+				keys[i] = (position << 32) | i;
+			}
+			return toIndices(keys);
+		}
+
+		/**
+		 * @param seqResOrder the order in which the residues are written
+		 * @return the positions in the written chain of the residues sorted by PDB residue number,
+		 *         the residues without number last
+		 */
+		int[] getPdbOrder(int[] seqResOrder) {
+			if (size >= 1 << 24) {
+				throw new IllegalStateException("Too many residues in a chain");
+			}
+			// 40 bits of unsigned key, in the order of the signed keys of the store, and 24 bits of position
+			long[] keys = new long[size];
+			for (int k = 0; k < size; k++) {
+				int i = INTS * seqResOrder[k];
+				long key = (data[i + 5] & HAS_PDB_NUMBER) != 0
+						? (((long) data[i] - Integer.MIN_VALUE) << 8) | ((data[i + 5] >>> 8) & 0xff)
+						: (1L << 40) - 1;
+				keys[k] = ((key << 24) | k) ^ Long.MIN_VALUE;
+			}
+			int[] order = new int[size];
+			Arrays.sort(keys);
+			for (int k = 0; k < size; k++) {
+				order[k] = (int) (keys[k] & ((1 << 24) - 1));
+			}
+			return order;
+		}
+
+		private static int[] toIndices(long[] keys) {
+			Arrays.sort(keys);
+			int[] indices = new int[keys.length];
+			for (int i = 0; i < keys.length; i++) {
+				indices[i] = (int) keys[i];
+			}
+			return indices;
+		}
+	}
+}
@@ -21,9 +21,7 @@
 
 package org.biojava.nbio.structure.quaternary;
 
-import org.biojava.nbio.structure.Calc;
 import org.biojava.nbio.structure.Chain;
-import org.biojava.nbio.structure.EntityInfo;
 import org.biojava.nbio.structure.Structure;
 import org.rcsb.cif.schema.mm.PdbxStructAssembly;
 import org.rcsb.cif.schema.mm.PdbxStructAssemblyGen;
@@ -65,8 +63,6 @@ public class BiologicalAssemblyBuilder {
 	 */
 	private Map<String, Matrix4d> allTransformations;
 
-	private List<String> modelIndex = new ArrayList<>();
-
 	public BiologicalAssemblyBuilder(){
 		init();
 	}
@@ -92,17 +88,29 @@ public class BiologicalAssemblyBuilder {
 	 * @return
 	 */
 	public Structure rebuildQuaternaryStructure(Structure asymUnit, List<BiologicalAssemblyTransformation> transformations, boolean useAsymIds, boolean multiModel) {
+		return buildAssemblyView(asymUnit, transformations, useAsymIds).toStructure(multiModel);
+	}
+
+	/**
+	 * Builds a view of the quaternary structure built from given asymUnit and transformations,
+	 * in which each chain copy is a chain of the asymUnit with its transformation. No chain
+	 * or atom is copied, so that contacts and symmetry can be calculated for large assemblies
+	 * without building them; {@link BiologicalAssemblyView#toStructure(boolean)} builds the
+	 * same Structure as {@link #rebuildQuaternaryStructure(Structure, List, boolean, boolean)}.
+	 * @param asymUnit
+	 * @param transformations
+	 * @param useAsymIds if true use {@link Chain#getId()} to match the ids in the BiologicalAssemblyTransformation (needed if data read from mmCIF),
+	 * if false use {@link Chain#getName()} for the chain matching (needed if data read from PDB).
+	 * @return the view of the assembly
+	 * @since 7.2.0
+	 */
+	public BiologicalAssemblyView buildAssemblyView(Structure asymUnit, List<BiologicalAssemblyTransformation> transformations, boolean useAsymIds) {
 
 		// ensure that new chains are build in the same order as they appear in the asymmetric unit
 		orderTransformationsByChainId(asymUnit, transformations);
 
-		Structure s = asymUnit.clone();
-
-		Map<Integer, EntityInfo> entityInfoMap = new HashMap<>();
-		// this resets all models (not only the first one): this is important for NMR (multi-model)
-		// like that we can be sure we start with an empty structures and we add models or chains to it
-		s.resetModels();
-		s.setEntityInfos(new ArrayList<>());
+		List<Chain> chains = new ArrayList<>();
+		List<BiologicalAssemblyTransformation> chainTransformations = new ArrayList<>();
 
 		for (BiologicalAssemblyTransformation transformation : transformations){
 
@@ -125,36 +133,12 @@ public class BiologicalAssemblyBuilder {
 			}
 
 			for (Chain c: chainsToTransform) {
-
-				Chain chain = (Chain)c.clone();
-
-				Calc.transform(chain, transformation.getTransformationMatrix());
-
-				String transformId = transformation.getId();
-
-				// note that the Structure.addChain/Structure.addModel methods set the parent reference to the new Structure
-
-				if (multiModel)
-					addChainMultiModel(s, chain, transformId);
-				else
-					addChainFlattened(s, chain, transformId);
-
-				EntityInfo entityInfo;
-				if (!entityInfoMap.containsKey(chain.getEntityInfo().getMolId())) {
-					entityInfo = new EntityInfo(chain.getEntityInfo());
-					entityInfoMap.put(chain.getEntityInfo().getMolId(), entityInfo);
-					s.addEntityInfo(entityInfo);
-				} else {
-					entityInfo = entityInfoMap.get(chain.getEntityInfo().getMolId());
-				}
-				chain.setEntityInfo(entityInfo);
-				entityInfo.addChain(chain);
-
+				chains.add(c);
+				chainTransformations.add(transformation);
 			}
 		}
 
-		s.setBiologicalAssembly(true);
-		return s;
+		return new BiologicalAssemblyView(asymUnit, chains, chainTransformations);
 	}
 
 	/**
@@ -192,52 +176,6 @@ public class BiologicalAssemblyBuilder {
 		return chainIds;
 	}
 
-	/**
-	 * Adds a chain to the given structure to form a biological assembly,
-	 * adding the symmetry expanded chains as new models per transformId.
-	 * @param s
-	 * @param newChain
-	 * @param transformId
-	 */
-	private void addChainMultiModel(Structure s, Chain newChain, String transformId) {
-
-		// multi-model bioassembly
-
-		if ( modelIndex.size() == 0)
-			modelIndex.add("PLACEHOLDER FOR ASYM UNIT");
-
-		int modelCount = modelIndex.indexOf(transformId);
-		if ( modelCount == -1)  {
-			modelIndex.add(transformId);
-			modelCount = modelIndex.indexOf(transformId);
-		}
-
-		if (modelCount == 0) {
-			s.addChain(newChain);
-		} else if (modelCount > s.nrModels()) {
-			List<Chain> newModel = new ArrayList<>();
-			newModel.add(newChain);
-			s.addModel(newModel);
-		} else {
-			s.addChain(newChain, modelCount-1);
-		}
-
-	}
-
-	/**
-	 * Adds a chain to the given structure to form a biological assembly,
-	 * adding the symmetry-expanded chains as new chains with renamed
-	 * chain ids and names (in the form originalAsymId_transformId and originalAuthId_transformId).
-	 * @param s
-	 * @param newChain
-	 * @param transformId
-	 */
-	private void addChainFlattened(Structure s, Chain newChain, String transformId) {
-		newChain.setId(newChain.getId()+SYM_CHAIN_ID_SEPARATOR+transformId);
-		newChain.setName(newChain.getName()+SYM_CHAIN_ID_SEPARATOR+transformId);
-		s.addChain(newChain);
-	}
-
 	/**
 	 * Returns a list of transformation matrices for the generation of a macromolecular
 	 * assembly for the specified assembly Id.
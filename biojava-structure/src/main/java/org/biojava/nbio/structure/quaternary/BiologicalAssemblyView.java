@@ -0,0 +1,498 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.quaternary;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.vecmath.Matrix4d;
+import javax.vecmath.Point3d;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Calc;
+import org.biojava.nbio.structure.Chain;
+import org.biojava.nbio.structure.EntityInfo;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureTools;
+import org.biojava.nbio.structure.contact.BoundingBox;
+import org.biojava.nbio.structure.contact.ContactVisitor;
+import org.biojava.nbio.structure.contact.Grid;
+import org.biojava.nbio.structure.geometry.CalcPoint;
+
+/**
+ * A biological assembly as a list of chain copies, each one a chain of the
+ * asymmetric unit together with the transformation that places it in the
+ * assembly. No chain or atom is copied: the coordinates of a copy are
+ * transformed on demand, either into a flat coordinate buffer that can be
+ * reused between copies or through read-only {@link TransformedAtom} views.
+ * <p>
+ * This makes it possible to analyse the contacts and the symmetry of large
+ * assemblies, like virus capsids, in the memory of the asymmetric unit. When
+ * the full {@link Structure} API is needed, {@link #toStructure(boolean)}
+ * builds the assembly with copies of the chains, as
+ * {@link BiologicalAssemblyBuilder#rebuildQuaternaryStructure(Structure, List, boolean, boolean)}
+ * does.
+ * <p>
+ * Views are built with
+ * {@link BiologicalAssemblyBuilder#buildAssemblyView(Structure, List, boolean)}.
+ * The asymmetric unit must not be modified while the view is in use.
+ *
+ * @since 7.2.0
+ */
+public class BiologicalAssemblyView {
+
+	private final Structure asymUnit;
+	private final List<Chain> chains;
+	private final List<BiologicalAssemblyTransformation> transformations;
+
+	// the atoms of each chain of the asymmetric unit, shared by all its copies,
+	// collected on first use
+	private final Map<Chain, Atom[]> atoms = Collections.synchronizedMap(new IdentityHashMap<>());
+	private final Map<Chain, Atom[]> representativeAtoms = Collections.synchronizedMap(new IdentityHashMap<>());
+
+	/**
+	 * @param asymUnit
+	 *            the asymmetric unit
+	 * @param chains
+	 *            the chain of the asymmetric unit of each copy
+	 * @param transformations
+	 *            the transformation of each copy
+	 */
+	BiologicalAssemblyView(Structure asymUnit, List<Chain> chains, List<BiologicalAssemblyTransformation> transformations) {
+		if (chains.size() != transformations.size())
+			throw new IllegalArgumentException("Each chain copy needs a transformation");
+		this.asymUnit = asymUnit;
+		this.chains = chains;
+		this.transformations = transformations;
+	}
+
+	private Atom[] getChainAtoms(Chain c) {
+		return atoms.computeIfAbsent(c, StructureTools::getAllAtomArray);
+	}
+
+	/**
+	 * @return the asymmetric unit the assembly is built from
+	 */
+	public Structure getAsymUnit() {
+		return asymUnit;
+	}
+
+	/**
+	 * @return the number of chain copies in the assembly
+	 */
+	public int getChainCount() {
+		return chains.size();
+	}
+
+	/**
+	 * @param copy
+	 *            the index of the chain copy
+	 * @return the chain of the asymmetric unit the copy is made of
+	 */
+	public Chain getOriginalChain(int copy) {
+		return chains.get(copy);
+	}
+
+	/**
+	 * @param copy
+	 *            the index of the chain copy
+	 * @return the transformation placing the copy in the assembly
+	 */
+	public BiologicalAssemblyTransformation getTransformation(int copy) {
+		return transformations.get(copy);
+	}
+
+	/**
+	 * @param copy
+	 *            the index of the chain copy
+	 * @return the transformation matrix placing the copy in the assembly
+	 */
+	public Matrix4d getTransformationMatrix(int copy) {
+		return transformations.get(copy).getTransformationMatrix();
+	}
+
+	/**
+	 * Returns the chain id of a copy, in the form originalAsymId_transformId,
+	 * as in assemblies built without multiple models.
+	 *
+	 * @param copy
+	 *            the index of the chain copy
+	 * @return the chain id of the copy
+	 */
+	public String getChainId(int copy) {
+		return chains.get(copy).getId() + BiologicalAssemblyBuilder.SYM_CHAIN_ID_SEPARATOR + transformations.get(copy).getId();
+	}
+
+	/**
+	 * Returns the chain name of a copy, in the form originalAuthId_transformId,
+	 * as in assemblies built without multiple models.
+	 *
+	 * @param copy
+	 *            the index of the chain copy
+	 * @return the chain name of the copy
+	 */
+	public String getChainName(int copy) {
+		return chains.get(copy).getName() + BiologicalAssemblyBuilder.SYM_CHAIN_ID_SEPARATOR + transformations.get(copy).getId();
+	}
+
+	/**
+	 * Returns the untransformed atoms of the chain of a copy, without waters
+	 * as in {@link StructureTools#getAllAtomArray(Chain)}. The array is
+	 * shared by all the copies of the chain and must not be modified. The
+	 * atom indices of the coordinate buffers and of the contacts refer to
+	 * this array.
+	 *
+	 * @param copy
+	 *            the index of the chain copy
+	 * @return the atoms of the chain in the asymmetric unit
+	 */
+	public Atom[] getOriginalAtoms(int copy) {
+		return getChainAtoms(chains.get(copy));
+	}
+
+	/**
+	 * Returns the untransformed representative atoms (CA or P) of the chain
+	 * of a copy. The array is shared by all the copies of the chain and must
+	 * not be modified.
+	 *
+	 * @param copy
+	 *            the index of the chain copy
+	 * @return the representative atoms of the chain in the asymmetric unit
+	 * @see StructureTools#getRepresentativeAtomArray(Chain)
+	 */
+	public Atom[] getOriginalRepresentativeAtoms(int copy) {
+		return representativeAtoms.computeIfAbsent(chains.get(copy), StructureTools::getRepresentativeAtomArray);
+	}
+
+	/**
+	 * @return the number of atoms of all the chain copies, without waters
+	 */
+	public int getAtomCount() {
+		int n = 0;
+		for (Chain c : chains) {
+			n += getChainAtoms(c).length;
+		}
+		return n;
+	}
+
+	/**
+	 * Returns read-only views of the atoms of a copy, with transformed
+	 * coordinates.
+	 *
+	 * @param copy
+	 *            the index of the chain copy
+	 * @return the atoms of the copy
+	 */
+	public Atom[] getAtoms(int copy) {
+		return toTransformedAtoms(getOriginalAtoms(copy), getTransformationMatrix(copy));
+	}
+
+	/**
+	 * Returns read-only views of the representative atoms of a copy, with
+	 * transformed coordinates.
+	 *
+	 * @param copy
+	 *            the index of the chain copy
+	 * @return the representative atoms of the copy
+	 */
+	public Atom[] getRepresentativeAtoms(int copy) {
+		return toTransformedAtoms(getOriginalRepresentativeAtoms(copy), getTransformationMatrix(copy));
+	}
+
+	private static Atom[] toTransformedAtoms(Atom[] original, Matrix4d m) {
+		Atom[] transformed = new Atom[original.length];
+		for (int i = 0; i < original.length; i++) {
+			transformed[i] = new TransformedAtom(original[i], m);
+		}
+		return transformed;
+	}
+
+	/**
+	 * Writes the transformed coordinates of the atoms of a copy to a flat
+	 * buffer, in the order of {@link #getOriginalAtoms(int)}.
+	 *
+	 * @param copy
+	 *            the index of the chain copy
+	 * @param coords
+	 *            buffer to fill. If null or shorter than 3 times the number
+	 *            of atoms a new one is allocated
+	 * @return the filled buffer, with interleaved x,y,z coordinates
+	 */
+	public double[] getCoordinates(int copy, double[] coords) {
+		Atom[] original = getOriginalAtoms(copy);
+		coords = Calc.atomsToCoordinates(original, coords);
+		CalcPoint.transform(getTransformationMatrix(copy), coords, original.length);
+		return coords;
+	}
+
+	/**
+	 * Writes the transformed coordinates of the representative atoms of a
+	 * copy to a flat buffer, in the order of
+	 * {@link #getOriginalRepresentativeAtoms(int)}.
+	 *
+	 * @param copy
+	 *            the index of the chain copy
+	 * @param coords
+	 *            buffer to fill. If null or shorter than 3 times the number
+	 *            of atoms a new one is allocated
+	 * @return the filled buffer, with interleaved x,y,z coordinates
+	 */
+	public double[] getRepresentativeCoordinates(int copy, double[] coords) {
+		Atom[] original = getOriginalRepresentativeAtoms(copy);
+		coords = Calc.atomsToCoordinates(original, coords);
+		CalcPoint.transform(getTransformationMatrix(copy), coords, original.length);
+		return coords;
+	}
+
+	/**
+	 * @param copy
+	 *            the index of the chain copy
+	 * @return the bounding box of the transformed atoms of the copy, or null
+	 *         if the chain has no atoms
+	 */
+	public BoundingBox getBoundingBox(int copy) {
+		return getBoundingBox(getCoordinates(copy, null), getOriginalAtoms(copy).length);
+	}
+
+	private static BoundingBox getBoundingBox(double[] coords, int n) {
+		if (n == 0)
+			return null;
+		BoundingBox bb = new BoundingBox(coords[0], coords[0], coords[1], coords[1], coords[2], coords[2]);
+		for (int i = 3; i < 3 * n; i += 3) {
+			bb.xmin = Math.min(bb.xmin, coords[i]);
+			bb.xmax = Math.max(bb.xmax, coords[i]);
+			bb.ymin = Math.min(bb.ymin, coords[i + 1]);
+			bb.ymax = Math.max(bb.ymax, coords[i + 1]);
+			bb.zmin = Math.min(bb.zmin, coords[i + 2]);
+			bb.zmax = Math.max(bb.zmax, coords[i + 2]);
+		}
+		return bb;
+	}
+
+	/**
+	 * Passes all the atom contacts between two copies to the visitor, as the
+	 * indices of the atoms in {@link #getOriginalAtoms(int)} of the first and
+	 * the second copy and their distance.
+	 *
+	 * @param copy1
+	 *            the index of the first chain copy
+	 * @param copy2
+	 *            the index of the second chain copy
+	 * @param cutoff
+	 *            the distance cutoff
+	 * @param visitor
+	 *            the visitor receiving the contacts
+	 */
+	public void visitContacts(int copy1, int copy2, double cutoff, ContactVisitor visitor) {
+		int n1 = getOriginalAtoms(copy1).length;
+		int n2 = getOriginalAtoms(copy2).length;
+		if (n1 == 0 || n2 == 0)
+			return;
+
+		double[] coords = getCoordinates(copy1, null);
+		Point3d[] points1 = toPoints(coords, newPoints(n1));
+		BoundingBox box1 = getBoundingBox(coords, n1);
+		coords = getCoordinates(copy2, coords);
+		Point3d[] points2 = toPoints(coords, newPoints(n2));
+		BoundingBox box2 = getBoundingBox(coords, n2);
+
+		Grid grid = new Grid(cutoff);
+		grid.addCoords(points1, box1, points2, box2);
+		grid.visitContacts(visitor);
+	}
+
+	/**
+	 * Finds the pairs of chain copies that have at least one atom within the
+	 * cutoff distance of each other. Pairs whose bounding boxes are further
+	 * apart than the cutoff are not looked at. One grid is filled per copy,
+	 * and the coordinates of the copies it is queried with are transformed
+	 * into a buffer that is reused as long as the number of atoms does not
+	 * change (as for the copies of one chain).
+	 *
+	 * @param cutoff
+	 *            the distance cutoff
+	 * @return the pairs of indices of the copies in contact, the first index
+	 *         lower than the second
+	 */
+	public List<OrderedPair<Integer>> getContactingCopies(double cutoff) {
+		int n = chains.size();
+		BoundingBox[] boxes = new BoundingBox[n];
+		double[] coords = null;
+		for (int i = 0; i < n; i++) {
+			coords = getCoordinates(i, coords);
+			boxes[i] = getBoundingBox(coords, getOriginalAtoms(i).length);
+		}
+
+		List<OrderedPair<Integer>> pairs = new ArrayList<>();
+		Point3d[] points1 = new Point3d[0];
+		Point3d[] points2 = new Point3d[0];
+		for (int i = 0; i < n; i++) {
+			if (boxes[i] == null)
+				continue;
+			Grid grid = null;
+			for (int j = i + 1; j < n; j++) {
+				if (boxes[j] == null || !boxes[i].overlaps(boxes[j], cutoff))
+					continue;
+				if (grid == null) {
+					// the grid copies the coordinates, so the points can be reused
+					int n1 = getOriginalAtoms(i).length;
+					if (points1.length != n1)
+						points1 = newPoints(n1);
+					coords = getCoordinates(i, coords);
+					toPoints(coords, points1);
+					grid = new Grid(cutoff);
+					grid.addCoords(points1, boxes[i]);
+				}
+				int n2 = getOriginalAtoms(j).length;
+				if (points2.length != n2)
+					points2 = newPoints(n2);
+				coords = getCoordinates(j, coords);
+				if (grid.hasAnyContact(toPoints(coords, points2)))
+					pairs.add(new OrderedPair<>(i, j));
+			}
+		}
+		return pairs;
+	}
+
+	private static Point3d[] newPoints(int n) {
+		Point3d[] points = new Point3d[n];
+		for (int i = 0; i < n; i++) {
+			points[i] = new Point3d();
+		}
+		return points;
+	}
+
+	private static Point3d[] toPoints(double[] coords, Point3d[] points) {
+		for (int i = 0; i < points.length; i++) {
+			points[i].set(coords[3 * i], coords[3 * i + 1], coords[3 * i + 2]);
+		}
+		return points;
+	}
+
+	/**
+	 * Builds the assembly as a new {@link Structure}, with transformed copies
+	 * of the chains.
+	 * The output Structure will be different depending on the multiModel parameter:
+	 * <li>
+	 * the symmetry-expanded chains are added as new models, one per transformId. All original models but
+	 * the first one are discarded.
+	 * </li>
+	 * <li>
+	 * as original with symmetry-expanded chains added with renamed chain ids and names (in the form
+	 * originalAsymId_transformId and originalAuthId_transformId)
+	 * </li>
+	 * @param multiModel if true the output Structure will be a multi-model one with one transformId per model,
+	 * if false the outputStructure will be as the original with added chains with renamed asymIds (in the form originalAsymId_transformId and originalAuthId_transformId).
+	 * @return the assembly
+	 */
+	public Structure toStructure(boolean multiModel) {
+		Structure s = asymUnit.clone();
+
+		Map<Integer, EntityInfo> entityInfoMap = new HashMap<>();
+		// this resets all models (not only the first one): this is important for NMR (multi-model)
+		// like that we can be sure we start with an empty structures and we add models or chains to it
+		s.resetModels();
+		s.setEntityInfos(new ArrayList<>());
+
+		List<String> modelIndex = new ArrayList<>();
+
+		for (int copy = 0; copy < chains.size(); copy++) {
+
+			Chain chain = (Chain) chains.get(copy).clone();
+
+			Calc.transform(chain, getTransformationMatrix(copy));
+
+			String transformId = transformations.get(copy).getId();
+
+			// note that the Structure.addChain/Structure.addModel methods set the parent reference to the new Structure
+
+			if (multiModel)
+				addChainMultiModel(s, chain, transformId, modelIndex);
+			else
+				addChainFlattened(s, chain, transformId);
+
+			EntityInfo entityInfo;
+			if (!entityInfoMap.containsKey(chain.getEntityInfo().getMolId())) {
+				entityInfo = new EntityInfo(chain.getEntityInfo());
+				entityInfoMap.put(chain.getEntityInfo().getMolId(), entityInfo);
+				s.addEntityInfo(entityInfo);
+			} else {
+				entityInfo = entityInfoMap.get(chain.getEntityInfo().getMolId());
+			}
+			chain.setEntityInfo(entityInfo);
+			entityInfo.addChain(chain);
+		}
+
+		s.setBiologicalAssembly(true);
+		return s;
+	}
+
+	/**
+	 * Adds a chain to the given structure to form a biological assembly,
+	 * adding the symmetry expanded chains as new models per transformId.
+	 * @param s
+	 * @param newChain
+	 * @param transformId
+	 * @param modelIndex the transformIds of the models added so far
+	 */
+	private static void addChainMultiModel(Structure s, Chain newChain, String transformId, List<String> modelIndex) {
+
+		// multi-model bioassembly
+
+		if ( modelIndex.size() == 0)
+			modelIndex.add("PLACEHOLDER FOR ASYM UNIT");
+
+		int modelCount = modelIndex.indexOf(transformId);
+		if ( modelCount == -1)  {
+			modelIndex.add(transformId);
+			modelCount = modelIndex.indexOf(transformId);
+		}
+
+		if (modelCount == 0) {
+			s.addChain(newChain);
+		} else if (modelCount > s.nrModels()) {
+			List<Chain> newModel = new ArrayList<>();
+			newModel.add(newChain);
+			s.addModel(newModel);
+		} else {
+			s.addChain(newChain, modelCount-1);
+		}
+
+	}
+
+	/**
+	 * Adds a chain to the given structure to form a biological assembly,
+	 * adding the symmetry-expanded chains as new chains with renamed
+	 * chain ids and names (in the form originalAsymId_transformId and originalAuthId_transformId).
+	 * @param s
+	 * @param newChain
+	 * @param transformId
+	 */
+	private static void addChainFlattened(Structure s, Chain newChain, String transformId) {
+		newChain.setId(newChain.getId()+BiologicalAssemblyBuilder.SYM_CHAIN_ID_SEPARATOR+transformId);
+		newChain.setName(newChain.getName()+BiologicalAssemblyBuilder.SYM_CHAIN_ID_SEPARATOR+transformId);
+		s.addChain(newChain);
+	}
+}
@@ -0,0 +1,261 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.quaternary;
+
+import java.util.List;
+
+import javax.vecmath.Matrix4d;
+import javax.vecmath.Point3d;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.AtomImpl;
+import org.biojava.nbio.structure.Bond;
+import org.biojava.nbio.structure.Element;
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.io.FileConvert;
+
+/**
+ * A read-only {@link Atom} view of an atom of the asymmetric unit, moved by a
+ * transformation. The coordinates are transformed on each access, all the
+ * other data is read from the original atom, so no atom is copied.
+ * <p>
+ * {@link #getGroup()} returns the group of the original atom, in the
+ * asymmetric unit. Bonds are not exposed, since they link original atoms.
+ *
+ * @see BiologicalAssemblyView
+ * @since 7.2.0
+ */
+public class TransformedAtom implements Atom {
+
+	private static final long serialVersionUID = 4930485317386259072L;
+
+	private final Atom atom;
+	private final Matrix4d m;
+
+	/**
+	 * @param atom
+	 *            the original atom
+	 * @param m
+	 *            the transformation, which is not copied
+	 */
+	public TransformedAtom(Atom atom, Matrix4d m) {
+		this.atom = atom;
+		this.m = m;
+	}
+
+	/**
+	 * @return the original, untransformed atom
+	 */
+	public Atom getOriginalAtom() {
+		return atom;
+	}
+
+	/**
+	 * @return the transformation applied to the original atom
+	 */
+	public Matrix4d getTransformation() {
+		return m;
+	}
+
+	private static UnsupportedOperationException readOnly() {
+		return new UnsupportedOperationException("Atoms of biological assembly views can not be modified");
+	}
+
+	@Override
+	public void setName(String s) {
+		throw readOnly();
+	}
+
+	@Override
+	public String getName() {
+		return atom.getName();
+	}
+
+	@Override
+	public void setElement(Element e) {
+		throw readOnly();
+	}
+
+	@Override
+	public Element getElement() {
+		return atom.getElement();
+	}
+
+	@Override
+	public void setPDBserial(int i) {
+		throw readOnly();
+	}
+
+	@Override
+	public int getPDBserial() {
+		return atom.getPDBserial();
+	}
+
+	@Override
+	public void setCoords(double[] c) {
+		throw readOnly();
+	}
+
+	@Override
+	public double[] getCoords() {
+		return new double[] { getX(), getY(), getZ() };
+	}
+
+	@Override
+	public Point3d getCoordsAsPoint3d() {
+		return new Point3d(getX(), getY(), getZ());
+	}
+
+	@Override
+	public void setX(double x) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setY(double y) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setZ(double z) {
+		throw readOnly();
+	}
+
+	@Override
+	public double getX() {
+		return m.m00 * atom.getX() + m.m01 * atom.getY() + m.m02 * atom.getZ() + m.m03;
+	}
+
+	@Override
+	public double getY() {
+		return m.m10 * atom.getX() + m.m11 * atom.getY() + m.m12 * atom.getZ() + m.m13;
+	}
+
+	@Override
+	public double getZ() {
+		return m.m20 * atom.getX() + m.m21 * atom.getY() + m.m22 * atom.getZ() + m.m23;
+	}
+
+	@Override
+	public void setAltLoc(Character c) {
+		throw readOnly();
+	}
+
+	@Override
+	public Character getAltLoc() {
+		return atom.getAltLoc();
+	}
+
+	@Override
+	public void setOccupancy(float occupancy) {
+		throw readOnly();
+	}
+
+	@Override
+	public float getOccupancy() {
+		return atom.getOccupancy();
+	}
+
+	@Override
+	public void setTempFactor(float temp) {
+		throw readOnly();
+	}
+
+	@Override
+	public float getTempFactor() {
+		return atom.getTempFactor();
+	}
+
+	/**
+	 * Returns a detached copy of this atom, with the transformed coordinates,
+	 * as an {@link AtomImpl}.
+	 */
+	@Override
+	public Object clone() {
+		AtomImpl n = new AtomImpl();
+		n.setOccupancy(getOccupancy());
+		n.setTempFactor(getTempFactor());
+		n.setAltLoc(getAltLoc());
+		n.setCharge(getCharge());
+		n.setX(getX());
+		n.setY(getY());
+		n.setZ(getZ());
+		n.setPDBserial(getPDBserial());
+		n.setName(getName());
+		n.setElement(getElement());
+		return n;
+	}
+
+	@Override
+	public void setGroup(Group parent) {
+		throw readOnly();
+	}
+
+	@Override
+	public Group getGroup() {
+		return atom.getGroup();
+	}
+
+	@Override
+	public void addBond(Bond bond) {
+		throw readOnly();
+	}
+
+	@Override
+	public List<Bond> getBonds() {
+		return null;
+	}
+
+	@Override
+	public void setBonds(List<Bond> bonds) {
+		throw readOnly();
+	}
+
+	@Override
+	public boolean hasBond(Atom other) {
+		return false;
+	}
+
+	@Override
+	public short getCharge() {
+		return atom.getCharge();
+	}
+
+	@Override
+	public void setCharge(short charge) {
+		throw readOnly();
+	}
+
+	@Override
+	public String toPDB() {
+		return FileConvert.toPDB(this);
+	}
+
+	@Override
+	public void toPDB(StringBuffer buf) {
+		FileConvert.toPDB(this, buf);
+	}
+
+	@Override
+	public String toString() {
+		return getName() + " " + getElement() + " " + getPDBserial() + " " + getX() + " " + getY() + " " + getZ();
+	}
+}
@@ -21,21 +21,13 @@
 package org.biojava.nbio.structure.secstruc;
 
 import org.biojava.nbio.structure.*;
-import org.biojava.nbio.structure.contact.AtomContact;
-import org.biojava.nbio.structure.contact.AtomContactSet;
 import org.biojava.nbio.structure.contact.Grid;
-import org.biojava.nbio.structure.contact.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Calculate and assign the secondary structure (SS) to the
@@ -100,9 +92,26 @@ public class SecStrucCalc {
 	private List<Ladder> ladders;
 	private List<BetaBridge> bridges;
 	private Atom[] atoms;
+	// the states of the groups, to avoid looking up their properties
+	private SecStrucState[] states;
+	// N, CA, C and O atoms of the original groups, when calculating frames
+	private Atom[] frameBackbone;
 	// Added by Anthony - to speed up intergroup calculations
-	private AtomContactSet contactSet;
-	private Map<ResidueNumber, Integer> indResMap;
+	// pairs of indices of groups with CA atoms in contact, stored as i,j with i<j
+	private int[] contactPairs;
+	private int nContactPairs;
+	// backbone coordinates of the groups, x, y and z of group i at 3*i
+	private double[] nCoords;
+	private double[] hCoords;
+	private double[] cCoords;
+	private double[] oCoords;
+	// groups that can donate an H-bond: not PRO and with an H atom
+	private boolean[] donors;
+	// the two lowest H-bond energies and their partners of group i at 2*i and 2*i+1
+	private double[] acceptorEnergies;
+	private int[] acceptorPartners;
+	private double[] donorEnergies;
+	private int[] donorPartners;
 	public SecStrucCalc(){
 		ladders = new ArrayList<>();
 		bridges = new ArrayList<>();
@@ -120,40 +129,115 @@ public class SecStrucCalc {
 	public List<SecStrucState> calculate(Structure s, boolean assign)
 			throws StructureException {
 
+		frameBackbone = null;
 		List<SecStrucState> secstruc = new ArrayList<>();
 		for(int i=0; i<s.nrModels(); i++) {
-			// Reinitialise the global vars
-			ladders = new ArrayList<>();
-			bridges = new ArrayList<>();
 			groups = initGroupArray(s, i);
-			// Initialise the contact set for this structure
-			initContactSet();
-			if (groups.length < 5) {
-				// not enough groups to do anything
-				throw new StructureException("Not enough backbone groups in the"
-						+ " Structure to calculate the secondary structure ("
-						+ groups.length+" given, minimum 5)" );
-			}
+			predict();
 
-			calculateHAtoms();
-			calculateHBonds();
-			calculateDihedralAngles();
-			calculateTurns();
-			buildHelices();
-			detectBends();
-			detectStrands();
-
-			for (SecStrucGroup sg : groups){
-				SecStrucState ss = (SecStrucState)
-						sg.getProperty(Group.SEC_STRUC);
+			for (int g = 0; g < groups.length; g++){
+				SecStrucState ss = states[g];
 				// Add to return list and assign to original if flag is true
 				secstruc.add(ss);
-				if (assign) sg.getOriginal().setProperty(Group.SEC_STRUC, ss);
+				if (assign) groups[g].getOriginal().setProperty(Group.SEC_STRUC, ss);
 			}
 		}
 		return secstruc;
 	}
 
+	/**
+	 * Prepares the prediction of the secondary structure of successive
+	 * coordinate frames of a model, such as the conformations of a
+	 * trajectory. The backbone groups of the model are resolved once, and
+	 * every call to {@link #calculateFrame()} predicts the secondary
+	 * structure for the current coordinates of their atoms.
+	 *
+	 * @param s the Structure
+	 * @param modelId the index of the model in s
+	 * @see org.biojava.nbio.structure.TrajectoryAnalyzer
+	 * @since 7.2.0
+	 */
+	public void initFrames(Structure s, int modelId) {
+		groups = initGroupArray(s, modelId);
+		frameBackbone = new Atom[4*groups.length];
+		for (int g = 0; g < groups.length; g++) {
+			Group original = groups[g].getOriginal();
+			frameBackbone[4*g] = original.getAtom(StructureTools.N_ATOM_NAME);
+			frameBackbone[4*g+1] = original.getAtom(StructureTools.CA_ATOM_NAME);
+			frameBackbone[4*g+2] = original.getAtom(StructureTools.C_ATOM_NAME);
+			frameBackbone[4*g+3] = original.getAtom(StructureTools.O_ATOM_NAME);
+		}
+	}
+
+	/**
+	 * Predicts the secondary structure for the current coordinates of the
+	 * atoms of the model given to {@link #initFrames(Structure, int)}. The
+	 * groups of the model are not modified.
+	 *
+	 * @return a List of SS annotation objects, one per backbone group
+	 * @throws StructureException if there are less than 5 backbone groups
+	 * @throws IllegalStateException if initFrames has not been called
+	 * @since 7.2.0
+	 */
+	public List<SecStrucState> calculateFrame() throws StructureException {
+		if (frameBackbone == null) {
+			throw new IllegalStateException("No model to calculate frames of, call initFrames first");
+		}
+		for (int g = 0; g < groups.length; g++) {
+			SecStrucGroup sg = groups[g];
+			copyCoords(frameBackbone[4*g], sg.getN());
+			copyCoords(frameBackbone[4*g+1], sg.getCA());
+			copyCoords(frameBackbone[4*g+2], sg.getC());
+			copyCoords(frameBackbone[4*g+3], sg.getO());
+		}
+		predict();
+		return new ArrayList<>(Arrays.asList(states));
+	}
+
+	private static void copyCoords(Atom from, Atom to) {
+		to.setX(from.getX());
+		to.setY(from.getY());
+		to.setZ(from.getZ());
+	}
+
+	/**
+	 * Predicts the SS of the current groups.
+	 */
+	private void predict() throws StructureException {
+		// Reinitialise the global vars
+		ladders = new ArrayList<>();
+		bridges = new ArrayList<>();
+		initStates();
+		// Initialise the contact set for this structure
+		initContactSet();
+		if (groups.length < 5) {
+			// not enough groups to do anything
+			throw new StructureException("Not enough backbone groups in the"
+					+ " Structure to calculate the secondary structure ("
+					+ groups.length+" given, minimum 5)" );
+		}
+
+		calculateHAtoms();
+		initBackboneCoords();
+		calculateHBonds();
+		calculateDihedralAngles();
+		calculateTurns();
+		buildHelices();
+		detectBends();
+		detectStrands();
+	}
+
+	private void initStates() {
+		states = new SecStrucState[groups.length];
+		for (int g = 0; g < groups.length; g++) {
+			SecStrucState state = new SecStrucState(groups[g],
+					SecStrucInfo.BIOJAVA_ASSIGNMENT,
+					SecStrucType.coil);
+			groups[g].setProperty(Group.SEC_STRUC, state);
+			states[g] = state;
+		}
+	}
+
 	/**
 	 * Function to generate the contact sets
 	 */
@@ -161,21 +245,25 @@ public class SecStrucCalc {
 
 		// Initialise an array of atoms
 		atoms = new Atom[groups.length];
-		// Remake this local var
-		indResMap = new HashMap<>();
 		for (int i=0 ; i < groups.length ; i++){
-			SecStrucGroup one = groups[i];
-			indResMap.put(one.getResidueNumber(), i);
-			atoms[i] = one.getCA();
+			atoms[i] = groups[i].getCA();
 		}
-		Grid grid = new Grid(CA_MIN_DIST);
+		contactPairs = new int[2*groups.length];
+		nContactPairs = 0;
 		if(atoms.length==0){
-			contactSet = new AtomContactSet(CA_MIN_DIST);
-		}
-		else{
-			grid.addAtoms(atoms);
-			contactSet = grid.getAtomContacts();
+			return;
 		}
+		Grid grid = new Grid(CA_MIN_DIST);
+		grid.addAtoms(atoms);
+		// the atoms are the CAs of the groups, so atom indices are group indices
+		grid.visitContacts((i, j, distance) -> {
+			if (2*nContactPairs == contactPairs.length) {
+				contactPairs = Arrays.copyOf(contactPairs, 2*contactPairs.length);
+			}
+			contactPairs[2*nContactPairs] = i;
+			contactPairs[2*nContactPairs+1] = j;
+			nContactPairs++;
+		});
 	}
 
 	/**
@@ -422,26 +510,14 @@ public class SecStrucCalc {
 	 * Optimised to use the contact set
 	 */
 	private void findBridges() {
-		// Get the interator of contacts
-		Iterator<AtomContact> myIter = contactSet.iterator();
-		List<Pair<Integer>> outList = new ArrayList<>();
-
-		// Now iterate through this
-		while(myIter.hasNext()){
-			// Get the next atom contact
-			AtomContact ac = myIter.next();
-			Group g1 = ac.getPair().getFirst().getGroup();
-			Group g2 = ac.getPair().getSecond().getGroup();
-			// Get the indices
-			int i = indResMap.get(g1.getResidueNumber());
-			int j = indResMap.get(g2.getResidueNumber());
-			// If i>j switch them over
-			if(i>j){
-				// Switch them over
-				int old = i;
-				i = j;
-				j = old;
-			}
+		// candidate pairs packed as i<<32|j, so that sorting orders by i then j
+		long[] candidates = new long[nContactPairs];
+		int nCandidates = 0;
+
+		// Now iterate through the contacts, with i<j
+		for (int c=0; c<nContactPairs; c++){
+			int i = contactPairs[2*c];
+			int j = contactPairs[2*c+1];
 			// Only these
 			if(j<i+3){
 				continue;
@@ -461,38 +537,13 @@ public class SecStrucCalc {
 				continue;
 			}
 
-			Pair<Integer> thisPair = new Pair<>(i,j);
-			outList.add(thisPair);
+			candidates[nCandidates++] = ((long) i << 32) | j;
 		}
-		//
-		Collections.sort(outList, new Comparator<Pair<Integer>>() {
-			@Override
-			public int compare(Pair<Integer> o1, Pair<Integer> o2) {
-				if(o1.getFirst()<o2.getFirst()){
-					return -1;
-				}
-				else if(o1.getFirst()>o2.getFirst()){
-					return +1;
-				}
-				else{
-					if(o1.getSecond()<o2.getSecond()){
-						return -1;
-					}
-					else if(o1.getSecond()>o2.getSecond()){
-						return 1;
-					}
-					else{
-						return 0;
-					}
-				}
-			}
-		});
+		Arrays.sort(candidates, 0, nCandidates);
 
-
-
-		for(Pair<Integer> p: outList){
-			int i = p.getFirst();
-			int j = p.getSecond();
+		for (int c=0; c<nCandidates; c++){
+			int i = (int) (candidates[c] >>> 32);
+			int j = (int) candidates[c];
 			BridgeType btype = null;
 			// Now do the bonding
 			if ((isBonded(i-1,j) && isBonded(j,i+1)) ||
@@ -732,12 +783,6 @@ public class SecStrucCalc {
 					sg.setC((Atom)   C.clone());
 					sg.setO((Atom)  O.clone());
 					sg.setOriginal(g);
-
-					SecStrucState state = new SecStrucState(sg,
-							SecStrucInfo.BIOJAVA_ASSIGNMENT,
-							SecStrucType.coil);
-
-					sg.setProperty(Group.SEC_STRUC, state);
 					groupList.add(sg);
 				}
 			}
@@ -758,16 +803,60 @@ public class SecStrucCalc {
 			SecStrucGroup a  = groups[i];
 			SecStrucGroup b  = groups[i+1];
 
+			//Atom H = calc_H(a.getC(), b.getN(), b.getCA());
+			Atom H = calcSimple_H(a.getC(), a.getO(), b.getN());
 			if ( !b.hasAtom("H") ) {
-				//Atom H = calc_H(a.getC(), b.getN(), b.getCA());
-				Atom H = calcSimple_H(a.getC(), a.getO(), b.getN());
 				b.setH(H);
+			} else {
+				// calculated for a previous frame
+				b.getH().setCoords(H.getCoords());
 			}
 		}
 	}
 
 
 
+	/**
+	 * Copy the backbone coordinates of the groups into arrays, so that the
+	 * H-bond energies are computed without going through the Atom objects.
+	 */
+	private void initBackboneCoords() {
+		int n = groups.length;
+		if (donors == null || donors.length != n) {
+			nCoords = new double[3*n];
+			hCoords = new double[3*n];
+			cCoords = new double[3*n];
+			oCoords = new double[3*n];
+			donors = new boolean[n];
+			acceptorEnergies = new double[2*n];
+			acceptorPartners = new int[2*n];
+			donorEnergies = new double[2*n];
+			donorPartners = new int[2*n];
+		} else {
+			// reused for the next model or frame
+			Arrays.fill(acceptorEnergies, 0);
+			Arrays.fill(acceptorPartners, 0);
+			Arrays.fill(donorEnergies, 0);
+			Arrays.fill(donorPartners, 0);
+		}
+		for (int i = 0; i < n; i++) {
+			SecStrucGroup g = groups[i];
+			copyCoords(g.getN(), nCoords, i);
+			copyCoords(g.getC(), cCoords, i);
+			copyCoords(g.getO(), oCoords, i);
+			donors[i] = !"PRO".equals(g.getPDBName()) && g.hasAtom("H");
+			if (donors[i]) {
+				copyCoords(g.getH(), hCoords, i);
+			}
+		}
+	}
+
+	private static void copyCoords(Atom atom, double[] coords, int i) {
+		coords[3*i] = atom.getX();
+		coords[3*i+1] = atom.getY();
+		coords[3*i+2] = atom.getZ();
+	}
+
 	/**
 	 * Calculate the HBonds between different groups.
 	 * see Creighton page 147 f
@@ -778,47 +867,21 @@ public class SecStrucCalc {
 		 * More efficient method for calculating C-Alpha pairs
 		 */
 		if (groups.length < 5) return;
-		Iterator<AtomContact> otu = contactSet.iterator();
-		while(otu.hasNext()){
-			AtomContact ac = otu.next();
-			Pair<Atom> pair = ac.getPair();
-			Group g1 = pair.getFirst().getGroup();
-			Group g2 = pair.getSecond().getGroup();
-			// Now I need to get the index of the Group in the list groups
-			int i = indResMap.get(g1.getResidueNumber());
-			int j = indResMap.get(g2.getResidueNumber());
-			// Now check this
+		for (int c=0; c<nContactPairs; c++){
+			int i = contactPairs[2*c];
+			int j = contactPairs[2*c+1];
 			checkAddHBond(i,j);
 			//"backwards" hbonds are not allowed
 			if (j!=(i+1)) checkAddHBond(j,i);
 		}
+		storeHBonds();
 	}
 
 	private void checkAddHBond(int i, int j){
+		// PRO and groups without H have no NH to donate
+		if (!donors[i]) return;
 
-		SecStrucGroup one = groups[i];
-
-		if ("PRO".equals(one.getPDBName())){
-			logger.debug("Ignore: PRO {}", one.getResidueNumber());
-			return;
-		}
-		if (!one.hasAtom("H")) {
-			logger.debug("Residue {} has no H",one.getResidueNumber());
-			return;
-		}
-
-		SecStrucGroup two = groups[j];
-
-		double energy = 0;
-
-		try {
-			energy = calculateHBondEnergy(one,two);
-		} catch (Exception e){
-			logger.warn("Energy calculation failed", e);
-			return;
-		}
-		logger.debug("Energy between positions ({},{}): ",i,j,energy);
-
+		double energy = calculateHBondEnergy(i,j);
 		trackHBondEnergy(i,j,energy);
 	}
 
@@ -833,24 +896,16 @@ public class SecStrucCalc {
 	 * 2.5-3.2 &aring; as "moderate, mostly electrostatic",
 	 * 3.2-4.0 &aring; as "weak, electrostatic".
 	 * Energies are given as 40-14, 15-4, and <4 kcal/mol respectively.
+	 *
+	 * @param i the group with the NH
+	 * @param j the group with the CO
 	 */
-	private static double calculateHBondEnergy(SecStrucGroup one,
-			SecStrucGroup two) {
-
-		Atom N = one.getN();
-		Atom H = one.getH();
-
-		Atom O = two.getO();
-		Atom C = two.getC();
+	private double calculateHBondEnergy(int i, int j) {
 
-		double dno = Calc.getDistance(O,N);
-		double dhc = Calc.getDistance(C,H);
-		double dho = Calc.getDistance(O,H);
-		double dnc = Calc.getDistance(C,N);
-
-		logger.debug(" cccc: {} {} {} {} O ({})..N ({}):{}  |  ho:{} - hc:{} + nc:{} - no:{}",
-				one.getResidueNumber(),one.getPDBName(),two.getResidueNumber(),two.getPDBName(),
-				O.getPDBserial(),N.getPDBserial(),dno,dho,dhc,dnc,dno);
+		double dno = distance(oCoords, j, nCoords, i);
+		double dhc = distance(cCoords, j, hCoords, i);
+		double dho = distance(oCoords, j, hCoords, i);
+		double dnc = distance(cCoords, j, nCoords, i);
 
 		//there seems to be a contact!
 		if ( (dno < MINDIST) || (dhc < MINDIST) ||
@@ -863,8 +918,6 @@ public class SecStrucCalc {
 
 		double energy = e1 + e2;
 
-		logger.debug(" N ({}) O({}): {} : {} ",N.getPDBserial(),O.getPDBserial(),(float) dno,energy);
-
 		//Avoid too strong energy
 		if (energy > HBONDLOWENERGY) return energy;
 
@@ -872,69 +925,70 @@ public class SecStrucCalc {
 	}
 
 	/**
-	 * Store Hbonds in the Groups.
-	 * DSSP allows two HBonds per aminoacids to allow bifurcated bonds.
+	 * The distance between atom i of coords1 and atom j of coords2, with the
+	 * same arithmetic as {@link Calc#getDistance(Atom, Atom)}.
 	 */
-	private  void trackHBondEnergy(int i, int j, double energy) {
+	private static double distance(double[] coords1, int i, double[] coords2, int j) {
+		double x = coords1[3*i] - coords2[3*j];
+		double y = coords1[3*i+1] - coords2[3*j+1];
+		double z = coords1[3*i+2] - coords2[3*j+2];
 
-		if ("PRO".equals(groups[i].getPDBName())) {
-			logger.debug("Ignore: PRO {}",groups[i].getResidueNumber());
-			return;
-		}
+		double s  = x * x  + y * y + z * z;
 
-		SecStrucState stateOne = getSecStrucState(i);
-		SecStrucState stateTwo = getSecStrucState(j);
-
-		double acc1e = stateOne.getAccept1().getEnergy();
-		double acc2e = stateOne.getAccept2().getEnergy();
+		return Math.sqrt(s);
+	}
 
-		double don1e = stateTwo.getDonor1().getEnergy();
-		double don2e = stateTwo.getDonor2().getEnergy();
+	/**
+	 * Keep track of the Hbonds of the groups.
+	 * DSSP allows two HBonds per aminoacids to allow bifurcated bonds.
+	 */
+	private  void trackHBondEnergy(int i, int j, double energy) {
 
 		//Acceptor: N-H-->O
-		if (energy < acc1e) {
-			logger.debug("{} < {}",energy,acc1e);
-			stateOne.setAccept2(stateOne.getAccept1());
-
-			HBond bond = new HBond();
-			bond.setEnergy(energy);
-			bond.setPartner(j);
-
-			stateOne.setAccept1(bond);
-
-		} else if ( energy < acc2e ) {
-			logger.debug("{} < {}",energy,acc2e);
-
-			HBond bond = new HBond();
-			bond.setEnergy(energy);
-			bond.setPartner(j);
-
-			stateOne.setAccept2(bond);
+		int a = 2*i;
+		if (energy < acceptorEnergies[a]) {
+			acceptorEnergies[a+1] = acceptorEnergies[a];
+			acceptorPartners[a+1] = acceptorPartners[a];
+			acceptorEnergies[a] = energy;
+			acceptorPartners[a] = j;
+		} else if ( energy < acceptorEnergies[a+1] ) {
+			acceptorEnergies[a+1] = energy;
+			acceptorPartners[a+1] = j;
 		}
 
-
 		//The other side of the bond: donor O-->N-H
-		if (energy <  don1e) {
-			logger.debug("{} < {}",energy,don1e);
-			stateTwo.setDonor2(stateTwo.getDonor1());
-
-			HBond bond = new HBond();
-			bond.setEnergy(energy);
-			bond.setPartner(i);
-
-			stateTwo.setDonor1(bond);
-
-		} else if ( energy < don2e ) {
-			logger.debug("{} < {}",energy,don2e);
-
-			HBond bond = new HBond();
-			bond.setEnergy(energy);
-			bond.setPartner(i);
+		int d = 2*j;
+		if (energy < donorEnergies[d]) {
+			donorEnergies[d+1] = donorEnergies[d];
+			donorPartners[d+1] = donorPartners[d];
+			donorEnergies[d] = energy;
+			donorPartners[d] = i;
+		} else if ( energy < donorEnergies[d+1] ) {
+			donorEnergies[d+1] = energy;
+			donorPartners[d+1] = i;
+		}
+	}
 
-			stateTwo.setDonor2(bond);
+	/**
+	 * Store the tracked Hbonds in the states of the groups.
+	 */
+	private void storeHBonds() {
+		for (int i = 0; i < groups.length; i++) {
+			SecStrucState state = getSecStrucState(i);
+			state.setAccept1(createHBond(acceptorEnergies[2*i], acceptorPartners[2*i]));
+			state.setAccept2(createHBond(acceptorEnergies[2*i+1], acceptorPartners[2*i+1]));
+			state.setDonor1(createHBond(donorEnergies[2*i], donorPartners[2*i]));
+			state.setDonor2(createHBond(donorEnergies[2*i+1], donorPartners[2*i+1]));
 		}
 	}
 
+	private static HBond createHBond(double energy, int partner) {
+		HBond bond = new HBond();
+		bond.setEnergy(energy);
+		bond.setPartner(partner);
+		return bond;
+	}
+
 	/**
 	 * Detect helical turn patterns.
 	 */
@@ -974,24 +1028,14 @@ public class SecStrucCalc {
 	 */
 	private boolean isBonded(int i, int j) {
 
-		SecStrucState one = getSecStrucState(i);
-		SecStrucState two = getSecStrucState(j);
-
-		double don1e = one.getDonor1().getEnergy();
-		double don2e = one.getDonor2().getEnergy();
-		double acc1e = two.getAccept1().getEnergy();
-		double acc2e = two.getAccept2().getEnergy();
-
-		int don1p = one.getDonor1().getPartner();
-		int don2p = one.getDonor2().getPartner();
-		int acc1p = two.getAccept1().getPartner();
-		int acc2p = two.getAccept2().getPartner();
+		int d = 2*i;
+		int a = 2*j;
 
 		//Either donor from i is j, or accept from j is i
-		boolean hbond = (don1p == j && don1e < HBONDHIGHENERGY) ||
-				(don2p == j && don2e < HBONDHIGHENERGY) ||
-				(acc1p == i && acc1e < HBONDHIGHENERGY) ||
-				(acc2p == i && acc2e < HBONDHIGHENERGY);
+		boolean hbond = (donorPartners[d] == j && donorEnergies[d] < HBONDHIGHENERGY) ||
+				(donorPartners[d+1] == j && donorEnergies[d+1] < HBONDHIGHENERGY) ||
+				(acceptorPartners[a] == i && acceptorEnergies[a] < HBONDHIGHENERGY) ||
+				(acceptorPartners[a+1] == i && acceptorEnergies[a+1] < HBONDHIGHENERGY);
 
 		if (hbond){
 			logger.debug("*** H-bond from CO of {} to NH of {}", i, j);
@@ -1141,9 +1185,7 @@ public class SecStrucCalc {
 	}
 
 	private SecStrucState getSecStrucState(int pos){
-		Group g = groups[pos];
-		SecStrucState state = (SecStrucState) g.getProperty(Group.SEC_STRUC);
-		return state;
+		return states[pos];
 	}
 
 }
@@ -0,0 +1,255 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.symmetry.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import javax.vecmath.AxisAngle4d;
+import javax.vecmath.Matrix4d;
+import javax.vecmath.Point3d;
+import javax.vecmath.Quat4d;
+import javax.vecmath.Vector3d;
+
+import org.biojava.nbio.structure.geometry.CalcPoint;
+import org.biojava.nbio.structure.geometry.UnitQuaternions;
+
+/**
+ * Superimposes the subunits of a {@link QuatSymmetrySubunits} according to
+ * permutations of their centers, as done by the {@link RotationSolver} and the
+ * {@link SystematicSolver}. The superpositions do not modify any state, so
+ * they can be calculated in parallel.
+ * <p>
+ * Permutations that can not superimpose the centers within the RMSD threshold
+ * are rejected before the superposition: a rotation about the centroid keeps
+ * the distances of the centers to the centroid, so the RMSD of the centers is
+ * at least the RMSD of these distances.
+ */
+class PermutationSuperposer {
+
+	/** Minimum number of permutations to superimpose in a single task */
+	private static final int MIN_PERMUTATIONS_PER_TASK = 2;
+
+	private final QuatSymmetrySubunits subunits;
+	private final QuatSymmetryParameters parameters;
+
+	private final Vector3d centroid;
+	private final Matrix4d centroidInverse = new Matrix4d();
+	private final Point3d[] originalCoords;
+	// distances of the centers to the centroid
+	private final double[] radii;
+
+	PermutationSuperposer(QuatSymmetrySubunits subunits, QuatSymmetryParameters parameters) {
+		this.subunits = subunits;
+		this.parameters = parameters;
+
+		// translation to centered coordinate system
+		centroid = new Vector3d(subunits.getCentroid());
+		// translation back to original coordinate system
+		Vector3d reverse = new Vector3d(centroid);
+		reverse.negate();
+		centroidInverse.set(reverse);
+		// Make sure matrix element m33 is 1.0. An old version vecmath did not set this element.
+		centroidInverse.setElement(3, 3, 1.0);
+
+		List<Point3d> centers = subunits.getCenters();
+		int n = subunits.getSubunitCount();
+		originalCoords = new Point3d[n];
+		radii = new double[n];
+		for (int i = 0; i < n; i++) {
+			originalCoords[i] = centers.get(i);
+			radii[i] = new Vector3d(originalCoords[i]).length();
+		}
+	}
+
+	/**
+	 * @return the centers of the subunits, relative to their centroid
+	 */
+	Point3d[] getOriginalCoords() {
+		return originalCoords;
+	}
+
+	/**
+	 * Checks whether the centers could be superimposed within the RMSD
+	 * threshold by the given permutation, without superimposing them.
+	 *
+	 * @param permutation
+	 * @return false if the permutation certainly exceeds the RMSD threshold
+	 */
+	boolean isWithinRadiusBound(List<Integer> permutation) {
+		double threshold = parameters.getRmsdThreshold();
+		double sum = 0;
+		for (int i = 0; i < radii.length; i++) {
+			double d = radii[i] - radii[permutation.get(i)];
+			sum += d * d;
+		}
+		// small tolerance so that rounding never rejects a valid permutation
+		return sum / radii.length < threshold * threshold * (1 + 1e-9);
+	}
+
+	/**
+	 * Superimpose subunits based on the given permutation. Then check whether
+	 * the superposition passes RMSD thresholds and create a Rotation to
+	 * represent it if so.
+	 * @param permutation A list specifying which subunits should be aligned by the current transformation
+	 * @return A Rotation representing the permutation, or null if the superposition did not meet thresholds.
+	 */
+	Rotation superimpose(List<Integer> permutation) {
+		if (!isWithinRadiusBound(permutation)) {
+			return null;
+		}
+
+		// permutate subunits
+		int n = originalCoords.length;
+		Point3d[] transformedCoords = new Point3d[n];
+		for (int j = 0; j < n; j++) {
+			transformedCoords[j] = new Point3d(originalCoords[permutation.get(j)]);
+		}
+
+		int fold = PermutationGroup.getOrder(permutation);
+
+		// get optimal transformation and axisangle by subunit superposition
+		// TODO implement this piece of code using at origin superposition
+		Quat4d quat = UnitQuaternions.relativeOrientation(
+				originalCoords, transformedCoords);
+		AxisAngle4d axisAngle = new AxisAngle4d();
+		Matrix4d transformation = new Matrix4d();
+
+		transformation.set(quat);
+		axisAngle.set(quat);
+
+		Vector3d axis = new Vector3d(axisAngle.x, axisAngle.y, axisAngle.z);
+		if (axis.lengthSquared() < 1.0E-6) {
+			axisAngle.x = 0;
+			axisAngle.y = 0;
+			axisAngle.z = 1;
+			axisAngle.angle = 0;
+		} else {
+			axis.normalize();
+			axisAngle.x = axis.x;
+			axisAngle.y = axis.y;
+			axisAngle.z = axis.z;
+		}
+
+		CalcPoint.transform(transformation, transformedCoords);
+		double subunitRmsd = CalcPoint.rmsd(transformedCoords, originalCoords);
+
+		if (subunitRmsd < parameters.getRmsdThreshold()) {
+			combineWithTranslation(transformation);
+
+			// evaluate superposition of CA traces
+			QuatSymmetryScores scores = QuatSuperpositionScorer.calcScores(subunits, transformation, permutation);
+			if (scores.getRmsd() < 0.0 || scores.getRmsd() > parameters.getRmsdThreshold()) {
+				return null;
+			}
+
+			scores.setRmsdCenters(subunitRmsd);
+			return createSymmetryOperation(permutation, transformation, axisAngle, fold, scores);
+		}
+		return null;
+	}
+
+	/**
+	 * Superimposes the given permutations in parallel in the pool of the
+	 * parameters.
+	 *
+	 * @param permutations
+	 * @return a map from each permutation to its Rotation, or to null if it
+	 *         did not meet the thresholds
+	 */
+	Map<List<Integer>, Rotation> superimposeAll(List<List<Integer>> permutations) {
+		Rotation[] rotations = new Rotation[permutations.size()];
+		if (permutations.size() < 2 * MIN_PERMUTATIONS_PER_TASK) {
+			for (int i = 0; i < rotations.length; i++) {
+				rotations[i] = superimpose(permutations.get(i));
+			}
+		} else {
+			ForkJoinPool pool = parameters.getPool();
+			if (pool == null) {
+				pool = ForkJoinPool.commonPool();
+			}
+			pool.invoke(new SuperpositionTask(permutations, rotations, 0, rotations.length));
+		}
+
+		Map<List<Integer>, Rotation> result = new HashMap<>();
+		for (int i = 0; i < rotations.length; i++) {
+			result.put(permutations.get(i), rotations[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * Adds translational component to rotation matrix
+	 * @param rotation
+	 */
+	private void combineWithTranslation(Matrix4d rotation) {
+		rotation.setTranslation(centroid);
+		rotation.mul(rotation, centroidInverse);
+	}
+
+	private static Rotation createSymmetryOperation(List<Integer> permutation, Matrix4d transformation, AxisAngle4d axisAngle, int fold, QuatSymmetryScores scores) {
+		Rotation s = new Rotation();
+		s.setPermutation(new ArrayList<>(permutation));
+		s.setTransformation(new Matrix4d(transformation));
+		s.setAxisAngle(new AxisAngle4d(axisAngle));
+		s.setFold(fold);
+		s.setScores(scores);
+		return s;
+	}
+
+	/**
+	 * Superimposes a range of permutations, splitting the range in halves
+	 * until it is small enough.
+	 */
+	private class SuperpositionTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<List<Integer>> permutations;
+		private final Rotation[] rotations;
+		private final int from;
+		private final int to;
+
+		SuperpositionTask(List<List<Integer>> permutations, Rotation[] rotations, int from, int to) {
+			this.permutations = permutations;
+			this.rotations = rotations;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= MIN_PERMUTATIONS_PER_TASK) {
+				for (int i = from; i < to; i++) {
+					rotations[i] = superimpose(permutations.get(i));
+				}
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new SuperpositionTask(permutations, rotations, from, mid),
+					new SuperpositionTask(permutations, rotations, mid, to));
+		}
+	}
+}
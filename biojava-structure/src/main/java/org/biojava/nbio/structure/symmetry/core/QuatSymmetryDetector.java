@@ -27,6 +27,7 @@ import org.biojava.nbio.structure.Structure;
 import org.biojava.nbio.structure.cluster.*;
 import org.biojava.nbio.structure.contact.BoundingBox;
 import org.biojava.nbio.structure.contact.Grid;
+import org.biojava.nbio.structure.quaternary.BiologicalAssemblyView;
 import org.jgrapht.graph.SimpleGraph;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,6 +39,8 @@ import org.jgrapht.Graph;
 
 import javax.vecmath.Point3d;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.stream.Collectors;
 
 /**
@@ -92,6 +95,31 @@ public class QuatSymmetryDetector {
 		return calcGlobalSymmetry(composition, symmParams);
 	}
 
+	/**
+	 * Calculate GLOBAL symmetry results of a biological assembly, without
+	 * building it. This means that all {@link Subunit} are included in the
+	 * symmetry.
+	 *
+	 * @param assembly
+	 *            protein chain copies will be extracted as {@link Subunit}
+	 * @param symmParams
+	 *            quaternary symmetry parameters
+	 * @param clusterParams
+	 *            subunit clustering parameters
+	 * @return GLOBAL quaternary structure symmetry results
+	 * @see SubunitExtractor#extractSubunits(BiologicalAssemblyView, int, double, int)
+	 * @since 7.2.0
+	 */
+	public static QuatSymmetryResults calcGlobalSymmetry(BiologicalAssemblyView assembly,
+			QuatSymmetryParameters symmParams,
+			SubunitClustererParameters clusterParams) {
+		List<Subunit> subunits = SubunitExtractor.extractSubunits(assembly,
+				clusterParams.getAbsoluteMinimumSequenceLength(),
+				clusterParams.getMinimumSequenceLengthFraction(),
+				clusterParams.getMinimumSequenceLength());
+		return calcGlobalSymmetry(subunits, symmParams, clusterParams);
+	}
+
 	/**
 	 * Calculate GLOBAL symmetry results. This means that all {@link Subunit}
 	 * are included in the symmetry.
@@ -295,7 +323,7 @@ public class QuatSymmetryDetector {
 				Grid grid = new Grid(CONTACT_GRAPH_DISTANCE_CUTOFF);
 				grid.addCoords(coords1, bb1, coords2, bb2);
 
-				if (grid.getIndicesContacts().size() >= CONTACT_GRAPH_MIN_CONTACTS) {
+				if (grid.getContactCount() >= CONTACT_GRAPH_MIN_CONTACTS) {
 					graph.addEdge(i, j);
 				}
 			}
@@ -310,10 +338,13 @@ public class QuatSymmetryDetector {
 
 		List<QuatSymmetryResults> clusterSymmetries = new ArrayList<>();
 
-		// find solutions for single clusters first
+		// find solutions for single clusters first, they are independent
+		QuatSymmetryResults[] componentResults = new QuatSymmetryResults[nontrivialComposition.numberOfComponents()];
+		ForkJoinPool pool = symmParams.getPool() == null ? ForkJoinPool.commonPool() : symmParams.getPool();
+		pool.invoke(new ComponentSymmetryTask(nontrivialComposition, symmParams, componentResults, 0, componentResults.length));
+
 		for (int i=0;i<nontrivialComposition.numberOfComponents();i++) {
-			QuatSymmetryResults localResult =
-					calcQuatSymmetry(nontrivialComposition.getComponent(i),symmParams);
+			QuatSymmetryResults localResult = componentResults[i];
 
 			if(localResult!=null && !"C1".equals(localResult.getSymmetry())) {
 				localResult.setLocal(true);
@@ -556,4 +587,42 @@ public class QuatSymmetryDetector {
 
 		return results;
 	}
+
+	/**
+	 * Calculates the symmetry of a range of components of a stoichiometry,
+	 * one task per component.
+	 */
+	private static class ComponentSymmetryTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Stoichiometry composition;
+		private final QuatSymmetryParameters parameters;
+		private final QuatSymmetryResults[] results;
+		private final int from;
+		private final int to;
+
+		ComponentSymmetryTask(Stoichiometry composition, QuatSymmetryParameters parameters,
+				QuatSymmetryResults[] results, int from, int to) {
+			this.composition = composition;
+			this.parameters = parameters;
+			this.results = results;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				results[from] = calcQuatSymmetry(composition.getComponent(from), parameters);
+				return;
+			}
+			if (to - from < 1) {
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new ComponentSymmetryTask(composition, parameters, results, from, mid),
+					new ComponentSymmetryTask(composition, parameters, results, mid, to));
+		}
+	}
 }
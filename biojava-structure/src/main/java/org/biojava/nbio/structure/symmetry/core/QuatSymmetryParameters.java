@@ -22,6 +22,7 @@ package org.biojava.nbio.structure.symmetry.core;
 
 import java.io.Serializable;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * The QuatSymmetryParameters specify the options used for the detection of
@@ -58,8 +59,14 @@ public class QuatSymmetryParameters implements Serializable {
 	private double localTimeStart = -1; // time when the local calculations started
 										// if set (>0), local time limit will be used
 
+	private double solverTimeLimit = -1; // time limit for the search of symmetry
+										// operations of a single subunit set in
+										// seconds, no limit if negative
+
 	private boolean onTheFly = true;
 
+	private transient ForkJoinPool pool = null;
+
 	/**
 	 * @return the rmsdThreshold
 	 */
@@ -182,6 +189,71 @@ public class QuatSymmetryParameters implements Serializable {
 		return elapsedTime > localTimeLimit;
 	}
 
+	/**
+	 * @return the time limit in seconds for the search of symmetry operations
+	 *         of a single set of subunits, negative if there is no limit
+	 * @since 7.2.0
+	 */
+	public double getSolverTimeLimit() {
+		return solverTimeLimit;
+	}
+
+	/**
+	 * Sets the time limit for the search of symmetry operations of a single
+	 * set of subunits. When the limit is reached the search stops and the
+	 * symmetry operations found so far are used, so the result may be a lower
+	 * symmetry than the real one. The default is no limit.
+	 *
+	 * @param solverTimeLimit
+	 *            the time limit in seconds, negative for no limit
+	 * @since 7.2.0
+	 */
+	public void setSolverTimeLimit(double solverTimeLimit) {
+		this.solverTimeLimit = solverTimeLimit;
+	}
+
+	/**
+	 * Tells whether a search of symmetry operations started at the given time
+	 * should stop, because the {@link #getSolverTimeLimit() solver time limit}
+	 * was exceeded or the current thread was interrupted.
+	 *
+	 * @param solverTimeStart
+	 *            the start time of the search, from {@link System#nanoTime()}
+	 * @return true if the search should stop
+	 * @since 7.2.0
+	 */
+	public boolean isSolverLimitExceeded(long solverTimeStart) {
+		if (Thread.currentThread().isInterrupted()) {
+			return true;
+		}
+		if (solverTimeLimit < 0) {
+			return false;
+		}
+		return (System.nanoTime() - solverTimeStart) / 1e9 > solverTimeLimit;
+	}
+
+	/**
+	 * @return the pool used to evaluate permutations and local symmetries in
+	 *         parallel, null if the common pool is used
+	 * @since 7.2.0
+	 */
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * Sets the pool used to evaluate permutations of subunits and local
+	 * symmetries in parallel. The results do not depend on the pool.
+	 *
+	 * @param pool
+	 *            the pool, or null to use the
+	 *            {@link ForkJoinPool#commonPool() common pool}
+	 * @since 7.2.0
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
 	/**
 	 * On-the-fly Jmol bioassembly generation.
 	 *
@@ -212,7 +284,8 @@ public class QuatSymmetryParameters implements Serializable {
 				+ ", minimumHelixAngle=" + minimumHelixAngle
 				+ ", maximumLocalCombinations=" + maximumLocalCombinations
 				+ ", localTimeStart=" + localTimeStart
-				+ ", localTimeLimit=" + localTimeLimit + ", onTheFly="
+				+ ", localTimeLimit=" + localTimeLimit
+				+ ", solverTimeLimit=" + solverTimeLimit + ", onTheFly="
 				+ onTheFly + "]";
 	}
 
@@ -25,18 +25,17 @@ package org.biojava.nbio.structure.symmetry.core;
 import javax.vecmath.AxisAngle4d;
 import javax.vecmath.Matrix4d;
 import javax.vecmath.Point3d;
-import javax.vecmath.Quat4d;
-import javax.vecmath.Vector3d;
 
-import org.biojava.nbio.structure.geometry.CalcPoint;
 import org.biojava.nbio.structure.geometry.MomentsOfInertia;
-import org.biojava.nbio.structure.geometry.UnitQuaternions;
 import org.biojava.nbio.structure.symmetry.geometry.DistanceBox;
 import org.biojava.nbio.structure.symmetry.geometry.SphereSampler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -48,17 +47,24 @@ import java.util.Set;
  * @author Peter
  */
 public class RotationSolver implements QuatSymmetrySolver {
+
+	private static final Logger logger = LoggerFactory.getLogger(RotationSolver.class);
+
+	/** Number of sampled orientations whose permutations are superimposed together */
+	private static final int SAMPLES_PER_BATCH = 64;
+
 	private QuatSymmetrySubunits subunits = null;
 	private QuatSymmetryParameters parameters = null;
 
 	private double distanceThreshold = 0.0f;
 	private DistanceBox<Integer> box = null;
-	private Vector3d centroid = new Vector3d();
-	private Matrix4d centroidInverse = new Matrix4d();
+	private PermutationSuperposer superposer = null;
 	private Point3d[] originalCoords = null;
 	private Point3d[] transformedCoords = null;
 	// Cache whether a permutation is invalid (null) vs has been added to rotations
 	private Map<List<Integer>,Rotation> evaluatedPermutations = new HashMap<>();
+	// Cache of superpositions of allowed permutations, null if they did not meet thresholds
+	private Map<List<Integer>,Rotation> superpositions = new HashMap<>();
 
 	private RotationGroup rotations = new RotationGroup();
 
@@ -103,29 +109,41 @@ public class RotationSolver implements QuatSymmetrySolver {
 
 		List<Double> angles = getAngles();
 
-		for (int i = 0; i < sphereCount; i++) {
-			// Sampled orientation
-			//TODO The SphereSampler samples 4D orientation space. We really
-			// only need to sample 3D unit vectors, since we use limited
-			// angles. -SB
-			SphereSampler.getAxisAngle(i, sphereAngle);
-
-			// Each valid rotation angle
-			for (double angle : angles) {
-				// apply rotation
-				sphereAngle.angle = angle;
-				transformation.set(sphereAngle);
-				// Make sure matrix element m33 is 1.0. It's not on Linux.
-				transformation.setElement(3, 3, 1.0);
-				for (int j = 0; j < n; j++) {
-					transformedCoords[j].set(originalCoords[j]);
-					transformation.transform(transformedCoords[j]);
+		long solverTimeStart = System.nanoTime();
+
+		for (int batchStart = 0; batchStart < sphereCount; batchStart += SAMPLES_PER_BATCH) {
+			// permutations of subunits for all sampled orientations in the batch, in order
+			int batchEnd = Math.min(sphereCount, batchStart + SAMPLES_PER_BATCH);
+			List<List<Integer>> permutations = new ArrayList<>();
+			for (int i = batchStart; i < batchEnd; i++) {
+				// Sampled orientation
+				//TODO The SphereSampler samples 4D orientation space. We really
+				// only need to sample 3D unit vectors, since we use limited
+				// angles. -SB
+				SphereSampler.getAxisAngle(i, sphereAngle);
+
+				// Each valid rotation angle
+				for (double angle : angles) {
+					// apply rotation
+					sphereAngle.angle = angle;
+					transformation.set(sphereAngle);
+					// Make sure matrix element m33 is 1.0. It's not on Linux.
+					transformation.setElement(3, 3, 1.0);
+					for (int j = 0; j < n; j++) {
+						transformedCoords[j].set(originalCoords[j]);
+						transformation.transform(transformedCoords[j]);
+					}
+
+					// get permutation of subunits
+					permutations.add(getPermutation());
 				}
+			}
 
-				// get permutation of subunits and check validity/uniqueness
-				List<Integer> permutation = getPermutation();
-				//              System.out.println("Rotation Solver: permutation: " + i + ": " + permutation);
+			// superimpose the new permutations in parallel, they will be needed below
+			// unless all symmetry operations are found before
+			prefetchSuperpositions(permutations);
 
+			for (List<Integer> permutation : permutations) {
 				// check if novel
 				if ( evaluatedPermutations.containsKey(permutation)) {
 					continue; //either invalid or already added
@@ -141,7 +159,32 @@ public class RotationSolver implements QuatSymmetrySolver {
 					return;
 				}
 			}
+
+			// the first batch always completes, so that at least the identity is found
+			if (parameters.isSolverLimitExceeded(solverTimeStart)) {
+				logger.warn("Exceeded the time limit for the search of symmetry operations of {} subunits. "
+						+ "The symmetry may be incomplete.", n);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Superimposes all permutations that are allowed and have not been
+	 * evaluated yet.
+	 * @param permutations
+	 */
+	private void prefetchSuperpositions(List<List<Integer>> permutations) {
+		Set<List<Integer>> candidates = new LinkedHashSet<>();
+		for (List<Integer> permutation : permutations) {
+			if (permutation.size() > 0
+					&& !evaluatedPermutations.containsKey(permutation)
+					&& !superpositions.containsKey(permutation)
+					&& isAllowedPermutation(permutation)) {
+				candidates.add(permutation);
+			}
 		}
+		superpositions.putAll(superposer.superimposeAll(new ArrayList<>(candidates)));
 	}
 
 	/**
@@ -215,60 +258,18 @@ public class RotationSolver implements QuatSymmetrySolver {
 	}
 
 	/**
-	 * Superimpose subunits based on the given permutation. Then check whether
-	 * the superposition passes RMSD thresholds and create a Rotation to
-	 * represent it if so.
+	 * Superimpose subunits based on the given permutation, see
+	 * {@link PermutationSuperposer#superimpose(List)}. Caches results.
 	 * @param permutation A list specifying which subunits should be aligned by the current transformation
 	 * @return A Rotation representing the permutation, or null if the superposition did not meet thresholds.
 	 */
 	private Rotation superimposePermutation(List<Integer> permutation) {
-		// permutate subunits
-		for (int j = 0, n = subunits.getSubunitCount(); j < n; j++) {
-			transformedCoords[j].set(originalCoords[permutation.get(j)]);
+		if (superpositions.containsKey(permutation)) {
+			return superpositions.get(permutation);
 		}
-
-		int fold = PermutationGroup.getOrder(permutation);
-
-		// get optimal transformation and axisangle by subunit superposition
-		// TODO implement this piece of code using at origin superposition
-		Quat4d quat = UnitQuaternions.relativeOrientation(
-				originalCoords, transformedCoords);
-		AxisAngle4d axisAngle = new AxisAngle4d();
-		Matrix4d transformation = new Matrix4d();
-
-		transformation.set(quat);
-		axisAngle.set(quat);
-
-		Vector3d axis = new Vector3d(axisAngle.x, axisAngle.y, axisAngle.z);
-		if (axis.lengthSquared() < 1.0E-6) {
-			axisAngle.x = 0;
-			axisAngle.y = 0;
-			axisAngle.z = 1;
-			axisAngle.angle = 0;
-		} else {
-			axis.normalize();
-			axisAngle.x = axis.x;
-			axisAngle.y = axis.y;
-			axisAngle.z = axis.z;
-		}
-
-		CalcPoint.transform(transformation, transformedCoords);
-		double subunitRmsd = CalcPoint.rmsd(transformedCoords, originalCoords);
-
-		if (subunitRmsd < parameters.getRmsdThreshold()) {
-			combineWithTranslation(transformation);
-
-			// evaluate superposition of CA traces
-			QuatSymmetryScores scores = QuatSuperpositionScorer.calcScores(subunits, transformation, permutation);
-			if (scores.getRmsd() < 0.0 || scores.getRmsd() > parameters.getRmsdThreshold()) {
-				return null;
-			}
-
-			scores.setRmsdCenters(subunitRmsd);
-			Rotation symmetryOperation = createSymmetryOperation(permutation, transformation, axisAngle, fold, scores);
-			return symmetryOperation;
-		}
-		return null;
+		Rotation rot = superposer.superimpose(permutation);
+		superpositions.put(permutation, rot);
+		return rot;
 	}
 
 	/**
@@ -347,27 +348,6 @@ public class RotationSolver implements QuatSymmetrySolver {
 		return selfaligned == 0 || selfaligned == permutation.size();
 	}
 
-	/**
-	 * Adds translational component to rotation matrix
-	 * @param rotation
-	 * @return
-	 */
-	private void combineWithTranslation(Matrix4d rotation) {
-		rotation.setTranslation(centroid);
-		rotation.mul(rotation, centroidInverse);
-	}
-
-	private static Rotation createSymmetryOperation(List<Integer> permutation, Matrix4d transformation, AxisAngle4d axisAngle, int fold, QuatSymmetryScores scores) {
-		Rotation s = new Rotation();
-		s.setPermutation(new ArrayList<Integer>(permutation));
-		s.setTransformation(new Matrix4d(transformation));
-		s.setAxisAngle(new AxisAngle4d(axisAngle));
-		s.setFold(fold);
-		s.setScores(scores);
-
-		return s;
-	}
-
 	private void setupDistanceBox() {
 		distanceThreshold = calcDistanceThreshold();
 		box = new DistanceBox<>(distanceThreshold);
@@ -443,23 +423,12 @@ public class RotationSolver implements QuatSymmetrySolver {
 	}
 
 	private void initialize() {
-		// translation to centered coordinate system
-		centroid = new Vector3d(subunits.getCentroid());
-		// translation back to original coordinate system
-		Vector3d reverse = new Vector3d(centroid);
-		reverse.negate();
-		centroidInverse.set(reverse);
-		// Make sure matrix element m33 is 1.0. An old version vecmath did not set this element.
-		centroidInverse.setElement(3, 3,  1.0);
+		superposer = new PermutationSuperposer(subunits, parameters);
+		originalCoords = superposer.getOriginalCoords();
 
-		List<Point3d> centers = subunits.getCenters();
 		int n = subunits.getSubunitCount();
-
-		originalCoords = new Point3d[n];
 		transformedCoords = new Point3d[n];
-
 		for (int i = 0; i < n; i++) {
-			originalCoords[i] = centers.get(i);
 			transformedCoords[i] = new Point3d();
 		}
 
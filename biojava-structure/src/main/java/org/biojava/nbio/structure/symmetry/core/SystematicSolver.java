@@ -21,18 +21,15 @@
 
 package org.biojava.nbio.structure.symmetry.core;
 
-import org.biojava.nbio.structure.geometry.CalcPoint;
-import org.biojava.nbio.structure.geometry.UnitQuaternions;
 import org.biojava.nbio.structure.symmetry.utils.PermutationGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import javax.vecmath.AxisAngle4d;
-import javax.vecmath.Matrix4d;
-import javax.vecmath.Point3d;
-import javax.vecmath.Quat4d;
-import javax.vecmath.Vector3d;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 
@@ -42,15 +39,20 @@ import java.util.Set;
  * @author Peter
  */
 public class SystematicSolver implements QuatSymmetrySolver {
+
+	private static final Logger logger = LoggerFactory.getLogger(SystematicSolver.class);
+
+	/** Number of candidate permutations that are superimposed together */
+	private static final int PERMUTATIONS_PER_BATCH = 256;
+
 	private QuatSymmetrySubunits subunits = null;
 	private QuatSymmetryParameters parameters = null;
 
-	private Point3d[] originalCoords = null;
-	private Point3d[] transformedCoords = null;
+	private PermutationSuperposer superposer = null;
 	private RotationGroup rotations = new RotationGroup();
-	private Vector3d centroid = new Vector3d();
-	private Matrix4d centroidInverse = new Matrix4d();
 	private Set<List<Integer>> hashCodes = new HashSet<>();
+	// superpositions of candidate permutations, null if they did not meet thresholds
+	private Map<List<Integer>, Rotation> superpositions = new HashMap<>();
 
 	public SystematicSolver(QuatSymmetrySubunits subunits, QuatSymmetryParameters parameters) {
 		if (subunits.getSubunitCount()== 2) {
@@ -70,54 +72,60 @@ public class SystematicSolver implements QuatSymmetrySolver {
 	}
 
 	private void solve() {
-		initialize();
+		superposer = new PermutationSuperposer(subunits, parameters);
 		int n = subunits.getSubunitCount();
 		PermutationGenerator g = new PermutationGenerator(n);
+		long solverTimeStart = System.nanoTime();
 
 		// loop over all permutations
 		while (g.hasMore()) {
-			int[] perm = g.getNext();
-			List<Integer> permutation = new ArrayList<>(perm.length);
-			for (int j = 0; j < n; j++) {
-				permutation.add(perm[j]);
+			// the next permutations that can be valid, whatever rotations are found before them
+			List<List<Integer>> batch = new ArrayList<>();
+			while (g.hasMore() && batch.size() < PERMUTATIONS_PER_BATCH) {
+				int[] perm = g.getNext();
+				List<Integer> permutation = new ArrayList<>(perm.length);
+				for (int j = 0; j < n; j++) {
+					permutation.add(perm[j]);
+				}
+				if (isCandidatePermutation(permutation)) {
+					batch.add(permutation);
+				}
 			}
 
-			if (! isValidPermutation(permutation)) {
-				continue;
+			// superimpose them in parallel, they will be needed below
+			// unless all symmetry operations are found before
+			List<List<Integer>> newPermutations = new ArrayList<>();
+			for (List<Integer> permutation : batch) {
+				if (!hashCodes.contains(permutation) && !superpositions.containsKey(permutation)) {
+					newPermutations.add(permutation);
+				}
 			}
+			superpositions.putAll(superposer.superimposeAll(newPermutations));
 
-			boolean newPermutation = evaluatePermutation(permutation);
-			if (newPermutation) {
-				completeRotationGroup();
+			for (List<Integer> permutation : batch) {
+				if (! isValidPermutation(permutation)) {
+					continue;
+				}
+
+				boolean newPermutation = evaluatePermutation(permutation);
+				if (newPermutation) {
+					completeRotationGroup();
+				}
+
+				if (rotations.getOrder() >= subunits.getSubunitCount()) {
+					return;
+				}
 			}
 
-			if (rotations.getOrder() >= subunits.getSubunitCount()) {
+			// the first batch always completes, so that at least the identity is found
+			if (parameters.isSolverLimitExceeded(solverTimeStart)) {
+				logger.warn("Exceeded the time limit for the search of symmetry operations of {} subunits. "
+						+ "The symmetry may be incomplete.", n);
 				return;
 			}
 		}
 	}
 
-	/**
-	 * Adds translational component to rotation matrix
-	 * @param rotTrans
-	 * @param rotation
-	 * @return
-	 */
-	private void combineWithTranslation(Matrix4d rotation) {
-		rotation.setTranslation(centroid);
-		rotation.mul(rotation, centroidInverse);
-	}
-
-	private Rotation createSymmetryOperation(List<Integer> permutation, Matrix4d transformation, AxisAngle4d axisAngle, int fold, QuatSymmetryScores scores) {
-		Rotation s = new Rotation();
-		s.setPermutation(new ArrayList<Integer>(permutation));
-		s.setTransformation(new Matrix4d(transformation));
-		s.setAxisAngle(new AxisAngle4d(axisAngle));
-		s.setFold(fold);
-		s.setScores(scores);
-		return s;
-	}
-
 	private void completeRotationGroup() {
 		PermutationGroup g = new PermutationGroup();
 		for (int i = 0; i < rotations.getOrder(); i++) {
@@ -154,24 +162,37 @@ public class SystematicSolver implements QuatSymmetrySolver {
 			return false;
 		}
 
-		// check if permutation is pseudosymmetric
-		if (! isAllowedPermuation(permutation)) {
+		if (! isCandidatePermutation(permutation)) {
 			return false;
 		}
 
-		// get fold and make sure there is only one E (fold=1) permutation
+		// make sure there is only one E (fold=1) permutation
 		int fold = PermutationGroup.getOrder(permutation);
 		if (rotations.getOrder() > 1 && fold == 1) {
 			return false;
 		}
-		if (fold == 0 || subunits.getSubunitCount() % fold != 0) {
-			return false;
-		}
 
 		// if this permutation is a duplicate, returns false
 		return hashCodes.add(permutation);
 	}
 
+	/**
+	 * The checks of {@link #isValidPermutation(List)} that do not depend on
+	 * the rotations found so far.
+	 * @param permutation
+	 * @return
+	 */
+	private boolean isCandidatePermutation(List<Integer> permutation) {
+		// check if permutation is pseudosymmetric
+		if (! isAllowedPermuation(permutation)) {
+			return false;
+		}
+
+		// get fold
+		int fold = PermutationGroup.getOrder(permutation);
+		return fold != 0 && subunits.getSubunitCount() % fold == 0;
+	}
+
 	private boolean isAllowedPermuation(List<Integer> permutation) {
 		List<Integer> seqClusterId = subunits.getClusterIds();
 		for (int i = 0; i < permutation.size(); i++) {
@@ -184,75 +205,18 @@ public class SystematicSolver implements QuatSymmetrySolver {
 	}
 
 	private boolean evaluatePermutation(List<Integer> permutation) {
-		// permutate subunits
-		for (int j = 0, n = subunits.getSubunitCount(); j < n; j++) {
-			transformedCoords[j].set(originalCoords[permutation.get(j)]);
-		}
-
-		int fold = PermutationGroup.getOrder(permutation);
-
-		// TODO implement this piece of code using at origin superposition
-		Quat4d quat = UnitQuaternions.relativeOrientation(
-				originalCoords, transformedCoords);
-		AxisAngle4d axisAngle = new AxisAngle4d();
-		Matrix4d transformation = new Matrix4d();
-
-		transformation.set(quat);
-		axisAngle.set(quat);
-
-		Vector3d axis = new Vector3d(axisAngle.x, axisAngle.y, axisAngle.z);
-		if (axis.lengthSquared() < 1.0E-6) {
-			axisAngle.x = 0;
-			axisAngle.y = 0;
-			axisAngle.z = 1;
-			axisAngle.angle = 0;
+		Rotation symmetryOperation;
+		if (superpositions.containsKey(permutation)) {
+			symmetryOperation = superpositions.get(permutation);
 		} else {
-			axis.normalize();
-			axisAngle.x = axis.x;
-			axisAngle.y = axis.y;
-			axisAngle.z = axis.z;
+			symmetryOperation = superposer.superimpose(permutation);
+			superpositions.put(permutation, symmetryOperation);
 		}
 
-		CalcPoint.transform(transformation, transformedCoords);
-
-		double subunitRmsd = CalcPoint.rmsd(transformedCoords, originalCoords);
-
-		if (subunitRmsd <parameters.getRmsdThreshold()) {
-			// transform to original coordinate system
-			combineWithTranslation(transformation);
-			QuatSymmetryScores scores = QuatSuperpositionScorer.calcScores(subunits, transformation, permutation);
-			if (scores.getRmsd() < 0.0 || scores.getRmsd() > parameters.getRmsdThreshold()) {
-				return false;
-			}
-
-			scores.setRmsdCenters(subunitRmsd);
-			Rotation symmetryOperation = createSymmetryOperation(permutation, transformation, axisAngle, fold, scores);
-			rotations.addRotation(symmetryOperation);
-			return true;
-		}
-		return false;
-	}
-
-	private void initialize() {
-		// translation to centered coordinate system
-		centroid = new Vector3d(subunits.getCentroid());
-
-		// translation back to original coordinate system
-		Vector3d reverse = new Vector3d(centroid);
-		reverse.negate();
-		centroidInverse.set(reverse);
-		// Make sure matrix element m33 is 1.0. An old version vecmath did not set this element.
-		centroidInverse.setElement(3, 3, 1.0);
-
-		List<Point3d> centers = subunits.getCenters();
-		int n = subunits.getSubunitCount();
-
-		originalCoords = new Point3d[n];
-		transformedCoords = new Point3d[n];
-
-		for (int i = 0; i < n; i++) {
-			originalCoords[i] = centers.get(i);
-			transformedCoords[i] = new Point3d();
+		if (symmetryOperation == null) {
+			return false;
 		}
+		rotations.addRotation(symmetryOperation);
+		return true;
 	}
 }
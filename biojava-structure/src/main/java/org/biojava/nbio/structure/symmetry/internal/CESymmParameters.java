@@ -50,6 +50,7 @@ public class CESymmParameters extends CeParameters {
 	private double distanceCutoff;
 	private boolean gaps;
 	private int optimizationSteps;
+	private int optimizationTrajectories;
 
 	public static enum OrderDetectorMethod {
 		SEQUENCE_FUNCTION, GRAPH_COMPONENT, ANGLE, USER_INPUT;
@@ -106,6 +107,7 @@ public class CESymmParameters extends CeParameters {
 		this.distanceCutoff = o.distanceCutoff;
 		this.gaps = o.gaps;
 		this.optimizationSteps = o.optimizationSteps;
+		this.optimizationTrajectories = o.optimizationTrajectories;
 
 		this.winSize = o.winSize;
 		this.rmsdThr = o.rmsdThr;
@@ -140,6 +142,7 @@ public class CESymmParameters extends CeParameters {
 		distanceCutoff = 7.0;
 		gaps = true;
 		optimizationSteps = 0;
+		optimizationTrajectories = 1;
 	}
 
 	@Override
@@ -237,6 +240,11 @@ public class CESymmParameters extends CeParameters {
 		params.add("Optimization Steps: maximum number of optimization steps:"
 				+ " 0 means calculated automatically with the alignment length.");
 
+		// optimization trajectories
+		params.add("Optimization Trajectories: number of independent "
+				+ "optimizations run in parallel, with consecutive random seeds."
+				+ " The best scoring alignment is kept.");
+
 		return params;
 	}
 
@@ -258,6 +266,7 @@ public class CESymmParameters extends CeParameters {
 		params.add("DistanceCutoff");
 		params.add("Gaps");
 		params.add("OptimizationSteps");
+		params.add("OptimizationTrajectories");
 		return params;
 	}
 
@@ -279,6 +288,7 @@ public class CESymmParameters extends CeParameters {
 		params.add("Distance Cutoff");
 		params.add("Internal Gaps");
 		params.add("Optimization Steps");
+		params.add("Optimization Trajectories");
 		return params;
 	}
 
@@ -301,6 +311,7 @@ public class CESymmParameters extends CeParameters {
 		params.add(Double.class);
 		params.add(Boolean.class);
 		params.add(Integer.class);
+		params.add(Integer.class);
 		return params;
 	}
 
@@ -433,6 +444,26 @@ public class CESymmParameters extends CeParameters {
 		this.optimizationSteps = optimizationSteps;
 	}
 
+	/**
+	 * @return the number of independent Monte Carlo trajectories of the
+	 *         optimization
+	 * @since 7.2.0
+	 */
+	public int getOptimizationTrajectories() {
+		return optimizationTrajectories;
+	}
+
+	/**
+	 * @param optimizationTrajectories
+	 *            the number of independent Monte Carlo trajectories of the
+	 *            optimization, run in parallel. Trajectory k uses the random
+	 *            seed plus k and the best scoring alignment is kept.
+	 * @since 7.2.0
+	 */
+	public void setOptimizationTrajectories(Integer optimizationTrajectories) {
+		this.optimizationTrajectories = optimizationTrajectories;
+	}
+
 	@Override
 	public String toString() {
 		return "CESymmParameters [maxSymmOrder=" + maxSymmOrder
@@ -445,7 +476,8 @@ public class CESymmParameters extends CeParameters {
 				+ refinedScoreThreshold + ", sseThreshold=" + sseThreshold
 				+ ", minCoreLength=" + minCoreLength + ", distanceCutoff="
 				+ distanceCutoff + ", gaps=" + gaps + ", optimizationSteps="
-				+ optimizationSteps + "]";
+				+ optimizationSteps + ", optimizationTrajectories="
+				+ optimizationTrajectories + "]";
 	}
 
 }
@@ -31,6 +31,7 @@ import org.biojava.nbio.structure.StructureException;
 import org.biojava.nbio.structure.StructureIdentifier;
 import org.biojava.nbio.structure.StructureTools;
 import org.biojava.nbio.structure.align.ce.CECalculator;
+import org.biojava.nbio.structure.align.ce.CEWorkspace;
 import org.biojava.nbio.structure.align.ce.CeCPMain;
 import org.biojava.nbio.structure.align.ce.MatrixListener;
 import org.biojava.nbio.structure.align.model.AFPChain;
@@ -186,7 +187,8 @@ public class CeSymm {
 
 		Matrix origM = null;
 		AFPChain myAFP = new AFPChain(algorithmName);
-		CECalculator calculator = new CECalculator(params);
+		// the calculator is kept for all the self-alignments, so it needs its own workspace
+		CECalculator calculator = new CECalculator(params, new CEWorkspace());
 		Matrix lastMatrix = null;
 
 		List<AFPChain> selfAlignments = new ArrayList<>();
@@ -392,8 +394,8 @@ public class CeSymm {
 			// Optimize the global alignment freely once more (final step)
 			if (params.getOptimization() && result.getSymmLevels() > 1) {
 				try {
-					SymmOptimizer optimizer = new SymmOptimizer(result);
-					MultipleAlignment optimized = optimizer.optimize();
+					MultipleAlignment optimized = SymmOptimizer.optimize(result,
+							params.getOptimizationTrajectories());
 					// Set the optimized MultipleAlignment and the axes
 					result.setMultipleAlignment(optimized);
 				} catch (RefinerFailedException e) {
@@ -426,9 +428,8 @@ public class CeSymm {
 			// STEP 5: symmetry alignment optimization
 			if (result.getParams().getOptimization()) {
 				try {
-					MultipleAlignment msa = result.getMultipleAlignment();
-					SymmOptimizer optimizer = new SymmOptimizer(result);
-					msa = optimizer.optimize();
+					MultipleAlignment msa = SymmOptimizer.optimize(result,
+							result.getParams().getOptimizationTrajectories());
 					result.setMultipleAlignment(msa);
 				} catch (RefinerFailedException e) {
 					logger.debug("Optimization failed:{}", e.getMessage());
@@ -26,6 +26,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import org.biojava.nbio.structure.Atom;
 import org.biojava.nbio.structure.StructureException;
@@ -111,9 +113,23 @@ public class SymmOptimizer {
 	 * @throws StructureException
 	 */
 	public SymmOptimizer(CeSymmResult symmResult) {
+		this(symmResult, symmResult.getAxes(), symmResult.getParams().getRndSeed());
+	}
+
+	/**
+	 * Constructor of one trajectory of a multi-start optimization.
+	 *
+	 * @param symmResult
+	 *            CeSymmResult with all the information
+	 * @param axes
+	 *            the symmetry axes, updated during the optimization
+	 * @param seed
+	 *            the seed of the random moves
+	 */
+	private SymmOptimizer(CeSymmResult symmResult, SymmetryAxes axes, long seed) {
 
-		this.axes = symmResult.getAxes();
-		this.rnd = new Random(symmResult.getParams().getRndSeed());
+		this.axes = axes;
+		this.rnd = new Random(seed);
 		this.Lmin = symmResult.getParams().getMinCoreLength();
 		this.dCutoff = symmResult.getParams().getDistanceCutoff();
 
@@ -330,6 +346,111 @@ public class SymmOptimizer {
 		return msa;
 	}
 
+	/**
+	 * Runs several independent Monte Carlo trajectories of the optimization
+	 * concurrently and returns the alignment with the highest MC score.
+	 * <p>
+	 * Trajectory k uses the random seed of the parameters plus k, and ties
+	 * in the score are resolved in favour of the lowest k, so the result is
+	 * reproducible for a given seed and number of trajectories. A single
+	 * trajectory is the same as {@link #optimize()}.
+	 * <p>
+	 * The trajectories share the Atoms of the result, but every one
+	 * optimizes its own copy of the alignment and the symmetry axes. The
+	 * axes of the best trajectory are set to the result.
+	 *
+	 * @param symmResult
+	 *            CeSymmResult with all the information
+	 * @param trajectories
+	 *            the number of independent trajectories
+	 * @return the optimized MultipleAlignment with the highest MC score
+	 * @throws StructureException
+	 * @throws RefinerFailedException
+	 *             if the optimization failed in all the trajectories
+	 * @since 7.2.0
+	 */
+	public static MultipleAlignment optimize(CeSymmResult symmResult,
+			int trajectories) throws StructureException,
+			RefinerFailedException {
+
+		if (trajectories <= 1)
+			return new SymmOptimizer(symmResult).optimize();
+
+		// The alignment of the result is cloned by every optimizer, do it
+		// before going concurrent
+		SymmOptimizer[] optimizers = new SymmOptimizer[trajectories];
+		long seed = symmResult.getParams().getRndSeed();
+		for (int k = 0; k < trajectories; k++) {
+			optimizers[k] = new SymmOptimizer(symmResult,
+					new SymmetryAxes(symmResult.getAxes()), seed + k);
+		}
+
+		MultipleAlignment[] results = new MultipleAlignment[trajectories];
+		Exception[] errors = new Exception[trajectories];
+		ForkJoinPool.commonPool().invoke(
+				new TrajectoryTask(optimizers, results, errors, 0, trajectories));
+
+		int best = -1;
+		for (int k = 0; k < trajectories; k++) {
+			if (results[k] == null) {
+				logger.debug("Optimization trajectory {} failed: {}", k,
+						errors[k].getMessage());
+				continue;
+			}
+			if (best < 0 || results[k].getScore(MultipleAlignmentScorer.MC_SCORE)
+					> results[best].getScore(MultipleAlignmentScorer.MC_SCORE))
+				best = k;
+		}
+
+		if (best < 0) {
+			if (errors[0] instanceof StructureException)
+				throw (StructureException) errors[0];
+			throw (RefinerFailedException) errors[0];
+		}
+		symmResult.setAxes(optimizers[best].axes);
+		return results[best];
+	}
+
+	/**
+	 * Runs the optimizers of a range of trajectories, each in its own task.
+	 */
+	private static class TrajectoryTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final SymmOptimizer[] optimizers;
+		private final MultipleAlignment[] results;
+		private final Exception[] errors;
+		private final int from;
+		private final int to;
+
+		TrajectoryTask(SymmOptimizer[] optimizers, MultipleAlignment[] results,
+				Exception[] errors, int from, int to) {
+			this.optimizers = optimizers;
+			this.results = results;
+			this.errors = errors;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new TrajectoryTask(optimizers, results, errors, from, mid),
+						new TrajectoryTask(optimizers, results, errors, mid, to));
+				return;
+			}
+			for (int k = from; k < to; k++) {
+				try {
+					results[k] = optimizers[k].optimize();
+				} catch (StructureException | RefinerFailedException e) {
+					errors[k] = e;
+				}
+			}
+		}
+	}
+
 	/**
 	 * This method translates the internal data structures to a
 	 * MultipleAlignment of the repeats in order to use the methods to score
@@ -195,6 +195,21 @@ public class SymmetryAxes {
 		axes = new ArrayList<>();
 	}
 
+	/**
+	 * Copy constructor. The operators of the axes are copied, so that
+	 * updating the axes of the copy does not change the original.
+	 *
+	 * @param o SymmetryAxes to copy
+	 * @since 7.2.0
+	 */
+	public SymmetryAxes(SymmetryAxes o){
+		axes = new ArrayList<>(o.axes.size());
+		for (Axis axis : o.axes) {
+			axes.add(new Axis(new Matrix4d(axis.getOperator()), axis.getOrder(),
+					axis.getSymmType(), axis.getLevel(), axis.getFirstRepeat()));
+		}
+	}
+
 	/**
 	 * Adds a new axis of symmetry to the bottom level of the tree
 	 *
@@ -32,6 +32,8 @@ import javax.vecmath.Matrix4d;
 import javax.vecmath.Point3i;
 import javax.vecmath.Vector3d;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 
 /**
@@ -95,6 +97,86 @@ public class CrystalBuilder {
 	private boolean searchBeyondAU;
 	private Matrix4d[] ops;
 
+	private ForkJoinPool pool;
+
+	/**
+	 * The chain pairs tried for one crystal operator (one space group operator in one cell)
+	 */
+	private static class OperatorTrials {
+		final CrystalTransform tt;
+		int maxContacts;
+		int contactsFound;
+		// the debug log line
+		StringBuilder builder;
+
+		OperatorTrials(CrystalTransform tt) {
+			this.tt = tt;
+		}
+	}
+
+	/**
+	 * A pair of chains (i from the original AU, j transformed by the operator) whose bounding boxes overlap
+	 */
+	private static class ContactTrial {
+		final OperatorTrials operator;
+		final int i;
+		final int j;
+		// null for the original AU
+		final Matrix4d mJCryst;
+		int builderPos;
+
+		ContactTrial(OperatorTrials operator, int i, int j, Matrix4d mJCryst) {
+			this.operator = operator;
+			this.i = i;
+			this.j = j;
+			this.mJCryst = mJCryst;
+		}
+	}
+
+	/**
+	 * Calculates the contacts of a range of trials, splitting the range in halves down to single trials.
+	 */
+	private class ContactsTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<ContactTrial> trials;
+		private final StructureInterface[] interfaces;
+		private final List<Chain> polyChains;
+		private final double cutoff;
+		private final int from;
+		private final int to;
+
+		ContactsTask(List<ContactTrial> trials, StructureInterface[] interfaces, List<Chain> polyChains, double cutoff, int from, int to) {
+			this.trials = trials;
+			this.interfaces = interfaces;
+			this.polyChains = polyChains;
+			this.cutoff = cutoff;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new ContactsTask(trials, interfaces, polyChains, cutoff, from, mid),
+						new ContactsTask(trials, interfaces, polyChains, cutoff, mid, to));
+				return;
+			}
+			ContactTrial trial = trials.get(from);
+			Chain chaini = polyChains.get(trial.i);
+			Chain chainj = polyChains.get(trial.j);
+
+			if (trial.mJCryst != null) {
+				chainj = (Chain)chainj.clone();
+				Calc.transform(chainj,trial.mJCryst);
+			}
+
+			interfaces[from] = calcContacts(chaini, chainj, cutoff, trial.operator.tt);
+		}
+	}
+
 	/**
 	 * Special constructor for NCS-aware CrystalBuilder.
 	 * The output list of interfaces will be pre-clustered by NCS-equivalence.
@@ -183,6 +265,24 @@ public class CrystalBuilder {
 		this.numCells = numCells;
 	}
 
+	/**
+	 * Set the pool used to calculate the contacts between chains. By default (or if null) the common
+	 * pool is used. The interfaces found are the same, and in the same order, for any pool.
+	 * @param pool
+	 * @since 7.2.0
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * @return the pool set with {@link #setPool(ForkJoinPool)}, or null if the common pool is used
+	 * @since 7.2.0
+	 */
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
 	private void initialiseVisited() {
 		visitedCrystalTransforms = new ArrayList<>();
 		if(this.hasNcsOps()) {
@@ -207,6 +307,9 @@ public class CrystalBuilder {
 	 * generation of all crystal symmetry mates. An interface is defined as any pair of chains
 	 * that contact, i.e. for which there is at least a pair of atoms (one from each chain) within
 	 * the given cutoff distance.
+	 * <p>
+	 * The contacts of the candidate chain pairs are calculated in parallel in the pool given with
+	 * {@link #setPool(ForkJoinPool)}, the returned list does not depend on the number of threads.
 	 * @param cutoff the distance cutoff for 2 chains to be considered in contact
 	 * @return
 	 */
@@ -290,6 +393,11 @@ public class CrystalBuilder {
 
 		List<Chain> polyChains = structure.getPolyChains();
 
+		// 1) enumerate the chain pairs to try, in a fixed order. This is fast (only bounding boxes are
+		// compared) and the redundancy checks depend on the order in which the operators are visited
+		List<ContactTrial> trials = new ArrayList<>();
+		List<OperatorTrials> operators = new ArrayList<>();
+
 		for (int a=-numCells;a<=numCells;a++) {
 			for (int b=-numCells;b<=numCells;b++) {
 				for (int c=-numCells;c<=numCells;c++) {
@@ -332,12 +440,27 @@ public class CrystalBuilder {
 							selfEquivalent = true;
 						}
 
-						StringBuilder builder = null;
-						if (verbose) builder = new StringBuilder(String.valueOf(tt)).append(" ");
+						boolean original = n==0 && a==0 && b==0 && c==0;
 
-						// Now that we know that boxes overlap and operator is not redundant, we have to go to the details
-						int contactsFound = 0;
+						Matrix4d mJCryst = null;
+						if (!original) {
+							mJCryst = new Matrix4d(ops[n]);
+							translate(mJCryst, transOrth);
+						}
 
+						OperatorTrials operator = new OperatorTrials(tt);
+						if (original)
+							operator.maxContacts = (numPolyChainsAu*(numPolyChainsAu-1))/2;
+						else if (selfEquivalent)
+							operator.maxContacts = (numPolyChainsAu*(numPolyChainsAu+1))/2;
+						else
+							operator.maxContacts = numPolyChainsAu*numPolyChainsAu;
+						if (verbose) {
+							operator.builder = new StringBuilder(String.valueOf(tt)).append(" ");
+							operators.add(operator);
+						}
+
+						// Now that we know that boxes overlap and operator is not redundant, we have to go to the details
 						for (int j=0;j<numPolyChainsAu;j++) {
 
 							for (int i=0;i<numPolyChainsAu;i++) { // we only have to compare the original asymmetric unit to every full cell around
@@ -348,61 +471,67 @@ public class CrystalBuilder {
 									continue;
 								}
 								// special case of original AU, we don't compare a chain to itself
-								if (n==0 && a==0 && b==0 && c==0 && i==j) continue;
+								if (original && i==j) continue;
 
 								// before calculating the AtomContactSet we check for overlap, then we save putting atoms into the grid
 								if (!bbGrid.getChainBoundingBox(0,i).overlaps(bbGridTrans.getChainBoundingBox(n,j),cutoff)) {
 									skippedChainsNoOverlap++;
 									if (verbose) {
-										builder.append(".");
+										operator.builder.append(".");
 									}
 									continue;
 								}
 
 								trialCount++;
 
-								// finally we've gone through all short-cuts and the 2 chains seem to be close enough:
-								// we do the calculation of contacts
-								Chain chaini = polyChains.get(i);
-								Chain chainj = polyChains.get(j);
-
-								if (n!=0 || a!=0 || b!=0 || c!=0) {
-									Matrix4d mJCryst = new Matrix4d(ops[n]);
-									translate(mJCryst, transOrth);
-									chainj = (Chain)chainj.clone();
-									Calc.transform(chainj,mJCryst);
-								}
-
-								StructureInterface interf = calcContacts(chaini, chainj, cutoff, tt, builder);
-								if (interf == null) {
-									continue;
-								}
-
-								contactsFound++;
-								if(this.hasNcsOps()) {
-									StructureInterface interfNcsRef = findNcsRef(interf);
-									set.addNcsEquivalent(interf,interfNcsRef);
-								} else {
-									set.add(interf);
+								ContactTrial trial = new ContactTrial(operator, i, j, mJCryst);
+								if (verbose) {
+									// placeholder for the result of the contact calculation
+									trial.builderPos = operator.builder.length();
+									operator.builder.append("?");
 								}
+								trials.add(trial);
 							}
 						}
-
-						if( verbose ) {
-							if (a==0 && b==0 && c==0 && n==0)
-								builder.append(" "+contactsFound+"("+(numPolyChainsAu*(numPolyChainsAu-1))/2+")");
-							else if (selfEquivalent)
-								builder.append(" "+contactsFound+"("+(numPolyChainsAu*(numPolyChainsAu+1))/2+")");
-							else
-								builder.append(" "+contactsFound+"("+numPolyChainsAu*numPolyChainsAu+")");
-
-							logger.debug(builder.toString());
-						}
 					}
 				}
 			}
 		}
 
+		// 2) the 2 chains of each trial seem to be close enough: we do the calculation of contacts, in parallel
+		StructureInterface[] interfaces = new StructureInterface[trials.size()];
+		if (!trials.isEmpty()) {
+			ForkJoinPool p = pool == null ? ForkJoinPool.commonPool() : pool;
+			p.invoke(new ContactsTask(trials, interfaces, polyChains, cutoff, 0, trials.size()));
+		}
+
+		// 3) we merge the results in the order of the trials, so that the output does not depend on threads
+		for (int t=0;t<trials.size();t++) {
+			ContactTrial trial = trials.get(t);
+			StructureInterface interf = interfaces[t];
+			if (verbose) {
+				trial.operator.builder.setCharAt(trial.builderPos, interf == null ? 'o' : 'x');
+			}
+			if (interf == null) {
+				continue;
+			}
+
+			trial.operator.contactsFound++;
+			if(this.hasNcsOps()) {
+				StructureInterface interfNcsRef = findNcsRef(interf);
+				set.addNcsEquivalent(interf,interfNcsRef);
+			} else {
+				set.add(interf);
+			}
+		}
+
+		if (verbose) {
+			for (OperatorTrials operator : operators) {
+				operator.builder.append(" "+operator.contactsFound+"("+operator.maxContacts+")");
+				logger.debug(operator.builder.toString());
+			}
+		}
+
 		end = System.currentTimeMillis();
 		logger.debug("\n{} chain-chain clash trials done. Time {}{}s", trialCount, (end-start), 1000);
 		logger.debug("  skipped (not overlapping AUs)       : {}", skippedAUsNoOverlap);
@@ -496,12 +625,11 @@ public class CrystalBuilder {
 		return matchInterface;
 	}
 
-	private StructureInterface calcContacts(Chain chaini, Chain chainj, double cutoff, CrystalTransform tt, StringBuilder builder) {
+	private StructureInterface calcContacts(Chain chaini, Chain chainj, double cutoff, CrystalTransform tt) {
 		// note that we don't consider hydrogens when calculating contacts
 		AtomContactSet graph = StructureTools.getAtomsInContact(chaini, chainj, cutoff, INCLUDE_HETATOMS);
 
 		if (graph.size()>0) {
-			if (builder != null) builder.append("x");
 
 			CrystalTransform transf = new CrystalTransform(this.crystallographicInfo.getSpaceGroup());
 			StructureInterface interf = new StructureInterface(
@@ -513,7 +641,6 @@ public class CrystalBuilder {
 			return interf;
 
 		} else {
-			if (builder != null) builder.append("o");
 			return null;
 		}
 	}
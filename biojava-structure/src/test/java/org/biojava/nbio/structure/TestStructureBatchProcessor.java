@@ -0,0 +1,219 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.biojava.nbio.structure.align.util.AtomCache;
+import org.biojava.nbio.structure.io.LocalPDBDirectory.FetchBehavior;
+import org.biojava.nbio.structure.io.StructureFiletype;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the parallel processing of structures from a local directory.
+ */
+public class TestStructureBatchProcessor {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private AtomCache cache;
+
+	@Before
+	public void setUp() throws IOException {
+		File dir = tmp.newFolder("pdb");
+		copyResource("/4hhb.cif.gz", new File(dir, "data/structures/divided/mmCIF/hh/4hhb.cif.gz"));
+		copyResource("/1hh0_4char.cif.gz", new File(dir, "data/structures/divided/mmCIF/hh/1hh0.cif.gz"));
+
+		cache = new AtomCache(dir.getPath());
+		cache.setFiletype(StructureFiletype.CIF);
+		cache.setFetchBehavior(FetchBehavior.LOCAL_ONLY);
+	}
+
+	private static void copyResource(String resource, File file) throws IOException {
+		file.getParentFile().mkdirs();
+		try (InputStream in = TestStructureBatchProcessor.class.getResourceAsStream(resource)) {
+			Files.copy(in, file.toPath());
+		}
+	}
+
+	@Test
+	public void testProcess() throws IOException {
+		StructureBatchProcessor<Integer> processor = new StructureBatchProcessor<>(cache, s -> s.getPolyChains().size());
+		List<StructureBatchProcessor.Progress> reports = new ArrayList<>();
+		processor.setProgressListener(reports::add);
+		processor.setProgressInterval(0);
+
+		Map<String, Integer> results = new LinkedHashMap<>();
+		List<String> failures = new ArrayList<>();
+		StructureBatchProcessor.Progress progress = processor.process(Arrays.asList("4hhb", "1abc", "1hh0", "4hhb"),
+				new StructureBatchProcessor.ResultSink<Integer>() {
+					@Override
+					public void accept(String name, Integer result) {
+						results.put(name, result);
+					}
+
+					@Override
+					public void failed(String name, Exception e) {
+						failures.add(name);
+					}
+				});
+
+		// duplicates are processed once, missing structures do not stop the others
+		assertEquals(3, progress.getTotal());
+		assertEquals(2, progress.getProcessed());
+		assertEquals(1, progress.getFailed());
+		assertEquals(0, progress.getRemaining());
+		assertEquals(Integer.valueOf(4), results.get("4hhb"));
+		assertTrue(results.containsKey("1hh0"));
+		assertEquals(Arrays.asList("1abc"), failures);
+
+		// one report per structure, and the final one
+		assertEquals(4, reports.size());
+		assertEquals(3, reports.get(reports.size() - 1).getProcessed() + reports.get(reports.size() - 1).getFailed());
+	}
+
+	@Test
+	public void testFunctionFailure() throws IOException {
+		StructureBatchProcessor<String> processor = new StructureBatchProcessor<>(cache, s -> {
+			if (s.getPDBCode().equals("4HHB"))
+				throw new StructureException("no analysis for " + s.getPDBCode());
+			return s.getPDBCode();
+		});
+		ForkJoinPool pool = new ForkJoinPool(1);
+		try {
+			processor.setPool(pool);
+			List<String> results = new ArrayList<>();
+			StructureBatchProcessor.Progress progress = processor.process(Arrays.asList("4hhb", "1hh0"),
+					(name, result) -> results.add(result));
+			assertEquals(1, progress.getFailed());
+			assertEquals(Arrays.asList("1HH0"), results);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testSinkFailure() throws Exception {
+		// more structures than threads, so that some are not started when the sink fails
+		List<String> names = new ArrayList<>();
+		for (char c = 'a'; c <= 'p'; c++) {
+			String name = "1hh" + c;
+			copyResource("/4hhb.cif.gz", new File(tmp.getRoot(), "pdb/data/structures/divided/mmCIF/hh/" + name + ".cif.gz"));
+			names.add(name);
+		}
+		AtomicInteger loaded = new AtomicInteger();
+		StructureBatchProcessor<Integer> processor = new StructureBatchProcessor<>(cache, s -> {
+			loaded.incrementAndGet();
+			return StructureTools.getNrAtoms(s);
+		});
+		AtomicInteger sinkCalls = new AtomicInteger();
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			processor.setPool(pool);
+			try {
+				processor.process(names, (name, result) -> {
+					sinkCalls.incrementAndGet();
+					throw new IOException("sink closed");
+				});
+				fail("the failure of the sink should be thrown");
+			} catch (IOException e) {
+				assertEquals("sink closed", e.getMessage());
+			}
+
+			// the sink was called once, and nothing is loaded after the run returned
+			int loadedAtReturn = loaded.get();
+			assertTrue(loadedAtReturn < names.size());
+			Thread.sleep(500);
+			assertEquals(1, sinkCalls.get());
+			assertEquals(loadedAtReturn, loaded.get());
+
+			// the processor can be used again
+			List<String> results = new ArrayList<>();
+			StructureBatchProcessor.Progress progress = processor.process(names, (name, result) -> results.add(name));
+			assertEquals(names.size(), progress.getProcessed());
+			assertEquals(names.size(), results.size());
+			assertEquals(1, sinkCalls.get());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testOverlappingRuns() throws Exception {
+		StructureBatchProcessor<Integer> processor = new StructureBatchProcessor<>(cache, s -> s.getPolyChains().size());
+		ForkJoinPool pool = new ForkJoinPool(4);
+		processor.setPool(pool);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			// the first run holds its sink until the second one is finished
+			CountDownLatch firstStarted = new CountDownLatch(1);
+			CountDownLatch secondFinished = new CountDownLatch(1);
+			Map<String, Integer> first = new LinkedHashMap<>();
+			Future<StructureBatchProcessor.Progress> firstRun = executor.submit(() ->
+					processor.process(Arrays.asList("4hhb", "1hh0"), (name, result) -> {
+						first.put(name, result);
+						firstStarted.countDown();
+						try {
+							assertTrue(secondFinished.await(10, TimeUnit.SECONDS));
+						} catch (InterruptedException e) {
+							throw new IOException(e);
+						}
+					}));
+			assertTrue(firstStarted.await(10, TimeUnit.SECONDS));
+
+			Map<String, Integer> second = new LinkedHashMap<>();
+			StructureBatchProcessor.Progress progress = processor.process(Arrays.asList("4hhb"), second::put);
+			secondFinished.countDown();
+			assertEquals(1, progress.getTotal());
+			assertEquals(1, second.size());
+			assertEquals(Integer.valueOf(4), second.get("4hhb"));
+
+			progress = firstRun.get(10, TimeUnit.SECONDS);
+			assertEquals(2, progress.getTotal());
+			assertEquals(2, progress.getProcessed());
+			assertEquals(2, first.size());
+		} finally {
+			executor.shutdownNow();
+			pool.shutdown();
+		}
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure;
+
+import org.biojava.nbio.structure.asa.AsaCalculator;
+import org.biojava.nbio.structure.chem.ChemCompGroupFactory;
+import org.biojava.nbio.structure.chem.ReducedChemCompProvider;
+import org.biojava.nbio.structure.geometry.SuperPositionQCP;
+import org.biojava.nbio.structure.io.PDBFileParser;
+import org.biojava.nbio.structure.io.PDBFrameReader;
+import org.biojava.nbio.structure.secstruc.SecStrucCalc;
+import org.biojava.nbio.structure.secstruc.SecStrucState;
+import org.biojava.nbio.structure.test.util.GlobalsHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.vecmath.Point3d;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the analyses of frames streamed from an NMR ensemble match those
+ * of the models of the fully parsed structure.
+ */
+public class TestTrajectoryAnalyzer {
+
+	private static final String NMR_FILE = "/org/biojava/nbio/structure/io/4b19_raw.pdb.gz";
+
+	@Before
+	public void setUp() {
+		GlobalsHelper.pushState();
+		ChemCompGroupFactory.setChemCompProvider(new ReducedChemCompProvider());
+	}
+
+	@After
+	public void tearDown() {
+		GlobalsHelper.restoreState();
+	}
+
+	private static InputStream open() throws IOException {
+		return new GZIPInputStream(TestTrajectoryAnalyzer.class.getResourceAsStream(NMR_FILE));
+	}
+
+	private static Point3d[] getRepresentativeCoords(Structure s, int model) {
+		List<Point3d> points = new ArrayList<>();
+		for (Chain c : s.getChains(model)) {
+			for (Atom a : StructureTools.getRepresentativeAtomArray(c)) {
+				points.add(a.getCoordsAsPoint3d());
+			}
+		}
+		return points.toArray(new Point3d[0]);
+	}
+
+	@Test
+	public void testFramesMatchModels() throws IOException, StructureException {
+		Structure full;
+		try (InputStream is = open()) {
+			full = new PDBFileParser().parsePDBFile(is);
+		}
+		List<SecStrucState> expectedSs = new SecStrucCalc().calculate(full, false);
+		Point3d[] reference = getRepresentativeCoords(full, 0);
+
+		try (PDBFrameReader reader = new PDBFrameReader(open())) {
+			TrajectoryAnalyzer analyzer = new TrajectoryAnalyzer(reader.getTopology());
+			double[] coords = new double[3 * analyzer.getAtoms().length];
+			int model = 0;
+			while (reader.nextFrame(coords)) {
+				analyzer.setFrame(coords);
+
+				List<SecStrucState> ss = analyzer.getSecondaryStructure();
+				int n = ss.size();
+				assertEquals(expectedSs.size(), n * full.nrModels());
+				for (int i = 0; i < n; i++) {
+					SecStrucState expected = expectedSs.get(model * n + i);
+					assertEquals(expected, ss.get(i));
+					assertEquals(expected.getAccept1().getPartner(), ss.get(i).getAccept1().getPartner());
+					assertEquals(expected.getAccept1().getEnergy(), ss.get(i).getAccept1().getEnergy(), 0);
+					assertEquals(expected.getPhi(), ss.get(i).getPhi(), 0);
+				}
+
+				double[] expectedAsas = new AsaCalculator(StructureTools.getAllNonHAtomArray(full, false, model),
+						AsaCalculator.DEFAULT_PROBE_SIZE, AsaCalculator.DEFAULT_N_SPHERE_POINTS, 1).calculateAsas();
+				assertArrayEquals(expectedAsas, analyzer.getAsas(), 1e-9);
+				assertEquals(expectedAsas.length, analyzer.getAsaAtoms().length);
+
+				double expectedRmsd = new SuperPositionQCP(false).getRmsd(reference, getRepresentativeCoords(full, model));
+				assertEquals(expectedRmsd, analyzer.getRmsd(), 1e-6);
+				if (model == 0) {
+					assertEquals(0, analyzer.getRmsd(), 1e-6);
+				} else {
+					assertTrue(analyzer.getRmsd() > 0.1);
+				}
+
+				int[] contacts = new int[1];
+				analyzer.visitContacts(4.0, (i, j, d) -> {
+					assertTrue(d < 4.0);
+					contacts[0]++;
+				});
+				assertTrue(contacts[0] > coords.length / 3);
+				model++;
+			}
+			assertEquals(full.nrModels(), model);
+			assertEquals(full.nrModels(), analyzer.getFrameCount());
+		}
+	}
+}
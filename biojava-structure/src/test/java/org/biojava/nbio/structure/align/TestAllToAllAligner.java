@@ -0,0 +1,101 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.biojava.nbio.structure.align.ce.CeMain;
+import org.biojava.nbio.structure.align.model.AFPChain;
+import org.biojava.nbio.structure.align.util.AtomCache;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestAllToAllAligner {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private static List<String> getNames() throws Exception {
+		List<String> names = new ArrayList<>();
+		for (String file : new String[] { "/2gox.pdb", "/3cdl.pdb", "/3cfy.pdb" }) {
+			names.add(new File(TestAllToAllAligner.class.getResource(file).toURI()).getAbsolutePath());
+		}
+		return names;
+	}
+
+	@Test
+	public void testAllToAllWithCheckpoint() throws Exception {
+		List<String> names = getNames();
+		File checkpoint = new File(tmp.getRoot(), "checkpoint.tsv");
+
+		AllToAllAligner aligner = new AllToAllAligner(new AtomCache(), CeMain.algorithmName);
+		aligner.setPool(new ForkJoinPool(2));
+		aligner.setCheckpointFile(checkpoint);
+
+		List<AFPChain> results = new ArrayList<>();
+		assertEquals(3, aligner.alignAllToAll(names, results::add));
+		assertEquals(3, results.size());
+		assertEquals(0, aligner.getFailedCount());
+		for (AFPChain afpChain : results) {
+			assertTrue(names.indexOf(afpChain.getName1()) < names.indexOf(afpChain.getName2()));
+			assertTrue(afpChain.getOptLength() > 0);
+		}
+
+		// nothing left to do
+		results.clear();
+		assertEquals(0, aligner.alignAllToAll(names, results::add));
+		assertTrue(results.isEmpty());
+
+		// simulate an interrupted run by dropping the last line
+		List<String> lines = Files.readAllLines(checkpoint.toPath(), StandardCharsets.UTF_8);
+		assertEquals(3, lines.size());
+		Files.write(checkpoint.toPath(), lines.subList(0, 2), StandardCharsets.UTF_8);
+		assertEquals(1, aligner.alignAllToAll(names, results::add));
+		assertEquals(lines.get(2).split("\t")[1], results.get(0).getName2());
+
+		Map<String, List<String>> pairs = AllToAllAligner.readAlignedPairs(checkpoint);
+		// lines are in order of completion
+		assertEquals(new HashSet<>(Arrays.asList(names.get(1), names.get(2))), new HashSet<>(pairs.get(names.get(0))));
+	}
+
+	@Test
+	public void testOneToAll() throws Exception {
+		List<String> names = getNames();
+		AllToAllAligner aligner = new AllToAllAligner(new AtomCache(), CeMain.algorithmName);
+
+		List<AFPChain> results = new ArrayList<>();
+		assertEquals(2, aligner.alignOneToAll(names.get(0), names, results::add));
+		for (AFPChain afpChain : results) {
+			assertEquals(names.get(0), afpChain.getName1());
+		}
+	}
+}
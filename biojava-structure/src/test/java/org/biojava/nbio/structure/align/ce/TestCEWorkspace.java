@@ -0,0 +1,155 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align.ce;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.StructureException;
+import org.biojava.nbio.structure.StructureTools;
+import org.biojava.nbio.structure.align.model.AFPChain;
+import org.biojava.nbio.structure.io.PDBFileReader;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TestCEWorkspace {
+
+	private static Atom[] ca1;
+	private static Atom[] ca2;
+	private static Atom[] ca3;
+
+	@BeforeClass
+	public static void setUp() throws IOException {
+		PDBFileReader reader = new PDBFileReader();
+		ca1 = StructureTools.getAtomCAArray(reader.getStructure(TestCEWorkspace.class.getResourceAsStream("/3cdl.pdb")));
+		ca2 = StructureTools.getAtomCAArray(reader.getStructure(TestCEWorkspace.class.getResourceAsStream("/3cfy.pdb")));
+		ca3 = StructureTools.getAtomCAArray(reader.getStructure(TestCEWorkspace.class.getResourceAsStream("/2gox.pdb")));
+	}
+
+	private static AFPChain align(Atom[] a1, Atom[] a2, CeParameters params, CEWorkspace workspace)
+			throws StructureException {
+		CECalculator calculator = new CECalculator(params, workspace);
+		Atom[] a2clone = StructureTools.cloneAtomArray(a2);
+		AFPChain afpChain = new AFPChain(CeMain.algorithmName);
+		afpChain = calculator.extractFragments(afpChain, a1, a2clone);
+		calculator.traceFragmentMatrix(afpChain, a1, a2clone);
+		calculator.nextStep(afpChain, a1, a2clone);
+		return afpChain;
+	}
+
+	/**
+	 * Reusing a workspace for alignments of different sizes gives the same
+	 * results as using a new one.
+	 */
+	@Test
+	public void testReuse() throws StructureException {
+		for (CeParameters.ScoringStrategy strategy : new CeParameters.ScoringStrategy[] {
+				CeParameters.ScoringStrategy.CA_SCORING,
+				CeParameters.ScoringStrategy.CA_AND_SIDE_CHAIN_ANGLE_SCORING }) {
+			CeParameters params = new CeParameters();
+			params.setScoringStrategy(strategy);
+
+			AFPChain expected = align(ca1, ca2, params, new CEWorkspace());
+
+			CEWorkspace workspace = new CEWorkspace();
+			align(ca2, ca1, params, workspace);
+			AFPChain reused = align(ca1, ca2, params, workspace);
+
+			assertEquals(expected.getAlignScore(), reused.getAlignScore(), 0.0);
+			assertEquals(expected.getTotalRmsdOpt(), reused.getTotalRmsdOpt(), 0.0);
+			assertEquals(expected.getOptLength(), reused.getOptLength());
+			assertArrayEquals(expected.getDisTable1().getArray()[5], reused.getDisTable1().getArray()[5], 0.0);
+			assertEquals(ca2.length, reused.getDisTable2().getRowDimension());
+		}
+	}
+
+	@Test
+	public void testDistanceMatrices() throws StructureException {
+		CeParameters params = new CeParameters();
+		CECalculator calculator = new CECalculator(params);
+		calculator.extractFragments(new AFPChain(CeMain.algorithmName), ca1, StructureTools.cloneAtomArray(ca3));
+
+		double[][] dist1 = calculator.getDist1();
+		assertEquals(ca1.length, dist1.length);
+		assertEquals(ca1.length, dist1[0].length);
+		assertEquals(0.0, dist1[3][3], 0.0);
+		assertEquals(ca1[2].getCoordsAsPoint3d().distance(ca1[7].getCoordsAsPoint3d()), dist1[2][7], 1e-9);
+		assertEquals(dist1[7][2], dist1[2][7], 0.0);
+
+		// round trip through the setter
+		dist1[2][7] = 42;
+		calculator.setDist1(dist1);
+		assertEquals(42, calculator.getDist1()[2][7], 0.0);
+	}
+
+	/**
+	 * The matrices of a CeMain are overwritten by the next alignment on the
+	 * same thread, which is detected. The distance matrices stored in the
+	 * results are kept.
+	 */
+	@Test
+	public void testCalculatorsOnOneThread() throws StructureException {
+		CeMain first = new CeMain();
+		AFPChain afpChain = first.align(ca1, ca2);
+		double[][] dist1 = first.getCECalculator().getDist1();
+		assertSame(dist1, first.getCECalculator().getDist1());
+		assertNotNull(first.getCECalculator().getMatMatrix());
+
+		CeMain second = new CeMain();
+		second.align(ca3, ca1);
+		assertNotNull(second.getCECalculator().getMatMatrix());
+
+		assertSame(dist1, first.getCECalculator().getDist1());
+		assertArrayEquals(dist1[4], afpChain.getDisTable1().getArray()[4], 0.0);
+		assertEquals(ca2.length, afpChain.getDisTable2().getRowDimension());
+		try {
+			first.getCECalculator().getMatMatrix();
+			fail("The score matrix of the first alignment was overwritten");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+
+		// a calculator with its own workspace keeps its matrices
+		CECalculator own = new CECalculator(new CeParameters(), new CEWorkspace());
+		own.extractFragments(new AFPChain(CeMain.algorithmName), ca1, StructureTools.cloneAtomArray(ca2));
+		double[][] mat = own.getMatMatrix();
+		new CeMain().align(ca3, ca1);
+		assertArrayEquals(mat[10], own.getMatMatrix()[10], 0.0);
+		assertEquals(ca2.length, own.getDist2().length);
+	}
+
+	@Test
+	public void testWithoutDistanceMatrices() throws StructureException {
+		CeMain ce = new CeMain();
+		AFPChain expected = ce.align(ca1, ca2);
+		assertNotNull(expected.getDistanceMatrix());
+
+		CeParameters params = new CeParameters();
+		params.setStoreDistanceMatrices(false);
+		AFPChain afpChain = new CeMain().align(ca1, ca2, params);
+		assertNull(afpChain.getDistanceMatrix());
+		assertEquals(3, afpChain.getDisTable1().getRowDimension());
+		assertEquals(expected.getAlignScore(), afpChain.getAlignScore(), 0.0);
+		assertEquals(expected.getTotalRmsdOpt(), afpChain.getTotalRmsdOpt(), 0.0);
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align.screen;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.align.AllToAllAligner;
+import org.biojava.nbio.structure.align.model.AFPChain;
+import org.biojava.nbio.structure.align.seq.SmithWaterman3Daligner;
+import org.biojava.nbio.structure.align.util.AtomCache;
+import org.biojava.nbio.structure.secstruc.SecStrucCalc;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TestStructureScreener {
+
+	// about 370, 130 and 720 residues
+	private static String query;
+	private static String shortTarget;
+	private static String longTarget;
+
+	@BeforeClass
+	public static void setUp() throws Exception {
+		query = getPath("/3cdl.pdb");
+		shortTarget = getPath("/3cfy.pdb");
+		longTarget = getPath("/2gox.pdb");
+	}
+
+	private static String getPath(String resource) throws Exception {
+		return new File(TestStructureScreener.class.getResource(resource).toURI()).getAbsolutePath();
+	}
+
+	@Test
+	public void testDescriptor() throws Exception {
+		ScreeningParameters params = new ScreeningParameters();
+		AtomCache cache = new AtomCache();
+		StructureScreener screener = new StructureScreener(cache, params);
+		StructureDescriptor d = screener.getDescriptor(query);
+
+		assertEquals(cache.getRepresentativeAtoms(query).length, d.getLength());
+		double[] sse = d.getSecStrucComposition();
+		assertNotNull(sse);
+		assertEquals(1.0, sse[StructureDescriptor.HELIX] + sse[StructureDescriptor.STRAND] + sse[StructureDescriptor.COIL], 1e-9);
+		assertTrue(sse[StructureDescriptor.HELIX] > 0);
+
+		double sum = 0;
+		for (double h : d.getDistanceHistogram())
+			sum += h;
+		assertEquals(1.0, sum, 1e-9);
+
+		assertEquals(1.0, d.getSimilarity(d, params), 1e-9);
+		StructureDescriptor other = screener.getDescriptor(longTarget);
+		double s = d.getSimilarity(other, params);
+		assertTrue(s > 0 && s < 1);
+		assertEquals(s, other.getSimilarity(d, params), 1e-9);
+	}
+
+	@Test
+	public void testDescriptorDoesNotAssignSecStruc() throws Exception {
+		ScreeningParameters params = new ScreeningParameters();
+		Atom[] ca = new AtomCache().getRepresentativeAtoms(query);
+		double[] calculated = StructureDescriptor.compute(ca, params).getSecStrucComposition();
+		for (Atom a : ca)
+			assertNull(a.getGroup().getProperty(Group.SEC_STRUC));
+
+		// the same composition as from assigned secondary structure
+		new SecStrucCalc().calculate(ca[0].getGroup().getChain().getStructure(), true);
+		assertArrayEquals(calculated, StructureDescriptor.compute(ca, params).getSecStrucComposition(), 1e-12);
+	}
+
+	@Test
+	public void testScreen() throws Exception {
+		ScreeningParameters params = new ScreeningParameters();
+		StructureScreener screener = new StructureScreener(new AtomCache(), params);
+		List<String> targets = Arrays.asList(shortTarget, longTarget);
+
+		// the short target is rejected by length
+		List<ScreeningHit> hits = screener.screen(query, targets);
+		assertEquals(2, hits.size());
+		assertEquals(longTarget, hits.get(0).getName());
+		assertTrue(hits.get(0).isAccepted());
+		assertFalse(hits.get(1).isAccepted());
+		assertTrue(Double.isNaN(hits.get(1).getScore()));
+		assertEquals(0.5, StructureScreener.getRecall(hits, targets), 1e-9);
+
+		// without length cutoff, only keep the best target
+		params.setMinLengthRatio(0);
+		params.setMaxTargets(1);
+		hits = screener.screen(query, targets);
+		assertTrue(hits.get(0).isAccepted());
+		assertFalse(hits.get(1).isAccepted());
+		assertTrue(hits.get(0).getScore() >= hits.get(1).getScore());
+
+		params.setMaxTargets(0);
+		params.setMinScore(1.1);
+		hits = screener.screen(query, targets);
+		assertFalse(hits.get(0).isAccepted());
+		assertFalse(hits.get(1).isAccepted());
+	}
+
+	@Test
+	public void testSearch() throws Exception {
+		ScreeningParameters params = new ScreeningParameters();
+		params.setValidationFraction(1.0);
+		AtomCache cache = new AtomCache();
+		StructureScreener screener = new StructureScreener(cache, params);
+		AllToAllAligner aligner = new AllToAllAligner(cache, SmithWaterman3Daligner.algorithmName);
+
+		List<AFPChain> alignments = new ArrayList<>();
+		ScreeningResult result = screener.search(query, Arrays.asList(shortTarget, longTarget), aligner,
+				afpChain -> true, alignments::add);
+
+		assertEquals(2, result.getTargetCount());
+		assertEquals(1, result.getAcceptedCount());
+		assertEquals(1, result.getValidationCount());
+		assertEquals(2, result.getAlignedCount());
+		assertEquals(2, alignments.size());
+		assertEquals(1, result.getAcceptedHitCount());
+		assertEquals(1, result.getValidationHitCount());
+		assertEquals(0.5, result.getEstimatedRecall(), 1e-9);
+		assertEquals(0.0, result.getSavedFraction(), 1e-9);
+	}
+
+	@Test
+	public void testSearchFailedAndRepeatedTargets() throws Exception {
+		ScreeningParameters params = new ScreeningParameters();
+		params.setValidationFraction(1.0);
+		AtomCache cache = new AtomCache();
+		StructureScreener screener = new StructureScreener(cache, params);
+		AllToAllAligner aligner = new AllToAllAligner(cache, SmithWaterman3Daligner.algorithmName);
+
+		String missing = new File(shortTarget).getParent() + File.separator + "missing.pdb";
+		List<AFPChain> alignments = new ArrayList<>();
+		ScreeningResult result = screener.search(query, Arrays.asList(shortTarget, longTarget, missing, longTarget),
+				aligner, afpChain -> true, alignments::add);
+
+		// the repeated target is screened once, the missing one is neither accepted nor rejected
+		assertEquals(3, result.getTargetCount());
+		assertEquals(1, result.getAcceptedCount());
+		assertEquals(1, result.getRejectedCount());
+		assertEquals(1, result.getFailedCount());
+		assertEquals(2, alignments.size());
+		assertEquals(0.5, result.getEstimatedRecall(), 1e-9);
+	}
+}
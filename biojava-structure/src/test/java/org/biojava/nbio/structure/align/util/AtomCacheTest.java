@@ -22,6 +22,7 @@ package org.biojava.nbio.structure.align.util;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -37,8 +38,14 @@ import java.nio.file.StandardCopyOption;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.GZIPOutputStream;
 
 import org.biojava.nbio.core.util.FileDownloadUtils;
@@ -49,6 +56,7 @@ import org.biojava.nbio.structure.PdbId;
 import org.biojava.nbio.structure.ResidueRangeAndLength;
 import org.biojava.nbio.structure.Structure;
 import org.biojava.nbio.structure.StructureException;
+import org.biojava.nbio.structure.StructureImpl;
 import org.biojava.nbio.structure.StructureIO;
 import org.biojava.nbio.structure.StructureIdentifier;
 import org.biojava.nbio.structure.StructureTools;
@@ -478,4 +486,46 @@ public class AtomCacheTest {
 		}
 	}
 
+	/**
+	 * Concurrent requests for the same ID without a {@link StructureCache} load it once.
+	 */
+	@Test
+	public void testConcurrentLoading() throws Exception {
+		AtomicInteger loads = new AtomicInteger();
+		AtomCache counting = new AtomCache() {
+			@Override
+			protected Structure loadStructureFromCifByPdbId(PdbId pdbId) throws IOException {
+				loads.incrementAndGet();
+				try {
+					Thread.sleep(500);
+				} catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+				Structure s = new StructureImpl();
+				s.setPdbId(pdbId);
+				return s;
+			}
+		};
+		counting.setFiletype(StructureFiletype.CIF);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Structure>> results = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				results.add(executor.submit(() -> counting.getStructureForPdbId(new PdbId("1abc"))));
+			}
+			Structure first = results.get(0).get();
+			for (Future<Structure> result : results) {
+				Structure s = result.get();
+				assertEquals(new PdbId("1abc"), s.getPdbId());
+				if (result != results.get(0)) {
+					assertNotSame(first, s);
+				}
+			}
+		} finally {
+			executor.shutdown();
+			executor.awaitTermination(10, TimeUnit.SECONDS);
+		}
+		assertEquals(1, loads.get());
+	}
 }
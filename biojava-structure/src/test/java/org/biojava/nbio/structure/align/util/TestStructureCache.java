@@ -0,0 +1,174 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align.util;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.biojava.nbio.structure.PdbId;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureImpl;
+import org.biojava.nbio.structure.io.FileParsingParameters;
+import org.biojava.nbio.structure.io.StructureFiletype;
+import org.junit.Test;
+
+/**
+ * Tests for the in-memory {@link StructureCache}, using a fake loader so that
+ * no files are read.
+ */
+public class TestStructureCache {
+
+	private final AtomicInteger loads = new AtomicInteger();
+
+	private Structure load(String id) {
+		loads.incrementAndGet();
+		Structure s = new StructureImpl();
+		s.setPdbId(new PdbId(id));
+		return s;
+	}
+
+	@Test
+	public void testHitsAndCopies() throws IOException {
+		StructureCache cache = new StructureCache();
+		FileParsingParameters params = new FileParsingParameters();
+
+		Structure s1 = cache.get(new PdbId("1abc"), StructureFiletype.CIF, params, () -> load("1abc"));
+		Structure s2 = cache.get(new PdbId("1abc"), StructureFiletype.CIF, params, () -> load("1abc"));
+		assertEquals(1, loads.get());
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertNotSame(s1, s2);
+		assertEquals(s1.getPdbId(), s2.getPdbId());
+
+		cache.setCopyOnRead(false);
+		Structure s3 = cache.get(new PdbId("1abc"), StructureFiletype.CIF, params, () -> load("1abc"));
+		Structure s4 = cache.get(new PdbId("1abc"), StructureFiletype.CIF, params, () -> load("1abc"));
+		assertSame(s3, s4);
+	}
+
+	@Test
+	public void testKeyIncludesParameters() throws IOException {
+		StructureCache cache = new StructureCache();
+		FileParsingParameters params = new FileParsingParameters();
+
+		cache.get(new PdbId("1abc"), StructureFiletype.CIF, params, () -> load("1abc"));
+		// changing the parameters after the call does not affect the cached key
+		params.setParseCAOnly(true);
+		cache.get(new PdbId("1abc"), StructureFiletype.CIF, params, () -> load("1abc"));
+		cache.get(new PdbId("1abc"), StructureFiletype.PDB, params, () -> load("1abc"));
+		assertEquals(3, loads.get());
+
+		cache.get(new PdbId("1abc"), StructureFiletype.CIF, new FileParsingParameters(), () -> load("1abc"));
+		assertEquals(3, loads.get());
+		assertEquals(3, cache.size());
+
+		cache.invalidate(new PdbId("1abc"));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testLruEviction() throws IOException {
+		StructureCache cache = new StructureCache(2, Long.MAX_VALUE);
+		FileParsingParameters params = new FileParsingParameters();
+
+		cache.get(new PdbId("1aaa"), StructureFiletype.CIF, params, () -> load("1aaa"));
+		cache.get(new PdbId("2bbb"), StructureFiletype.CIF, params, () -> load("2bbb"));
+		// access 1aaa so that 2bbb is the least recently used
+		cache.get(new PdbId("1aaa"), StructureFiletype.CIF, params, () -> load("1aaa"));
+		cache.get(new PdbId("3ccc"), StructureFiletype.CIF, params, () -> load("3ccc"));
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+		assertEquals(3, loads.get());
+
+		cache.get(new PdbId("1aaa"), StructureFiletype.CIF, params, () -> load("1aaa"));
+		assertEquals(3, loads.get());
+		cache.get(new PdbId("2bbb"), StructureFiletype.CIF, params, () -> load("2bbb"));
+		assertEquals(4, loads.get());
+
+		// a byte bound smaller than one entry keeps only the most recent entry
+		StructureCache small = new StructureCache(10, 1);
+		small.get(new PdbId("1aaa"), StructureFiletype.CIF, params, () -> load("1aaa"));
+		small.get(new PdbId("2bbb"), StructureFiletype.CIF, params, () -> load("2bbb"));
+		assertEquals(1, small.size());
+	}
+
+	@Test
+	public void testCoalescing() throws Exception {
+		StructureCache cache = new StructureCache();
+		FileParsingParameters params = new FileParsingParameters();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		int nThreads = 4;
+		ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+		try {
+			List<Future<Structure>> results = new ArrayList<>();
+			results.add(executor.submit(() -> cache.get(new PdbId("1abc"), StructureFiletype.CIF, params, () -> {
+				started.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+				return load("1abc");
+			})));
+			started.await();
+			for (int i = 1; i < nThreads; i++) {
+				results.add(executor.submit(
+						() -> cache.get(new PdbId("1abc"), StructureFiletype.CIF, params, () -> load("1abc"))));
+			}
+			// give the waiting threads time to find the pending load
+			Thread.sleep(200);
+			release.countDown();
+			for (Future<Structure> f : results) {
+				assertEquals(new PdbId("1abc"), f.get().getPdbId());
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(1, loads.get());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(nThreads - 1, cache.getHitCount() + cache.getCoalescedCount());
+	}
+
+	@Test
+	public void testFailuresAreNotCached() {
+		StructureCache cache = new StructureCache();
+		FileParsingParameters params = new FileParsingParameters();
+		try {
+			cache.get(new PdbId("1abc"), StructureFiletype.CIF, params, () -> {
+				throw new IOException("fail");
+			});
+			fail("Expected IOException");
+		} catch (IOException e) {
+			assertEquals("fail", e.getMessage());
+		}
+		assertEquals(0, cache.size());
+	}
+}
@@ -38,6 +38,8 @@ import org.junit.Test;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Testing of Accessible Surface Area calculations
@@ -286,4 +288,65 @@ public class TestAsaCalc {
 		assertEquals(0, asas.length);
 
 	}
+
+	/**
+	 * Random atoms in a box, with enough density to have neighbors.
+	 */
+	private Atom[] getRandomAtoms(Random random, int n, double xOffset) {
+		Atom[] atoms = new Atom[n];
+		for (int i = 0; i < n; i++) {
+			atoms[i] = getAtom(xOffset + 20 * random.nextDouble(), 20 * random.nextDouble(), 20 * random.nextDouble());
+		}
+		return atoms;
+	}
+
+	@Test
+	public void testParallelAndSubset() {
+		Atom[] atoms = getRandomAtoms(new Random(42), 600, 0);
+
+		double[] asas = new AsaCalculator(atoms, AsaCalculator.DEFAULT_PROBE_SIZE, 200, 1).calculateAsas();
+
+		AsaCalculator asaCalc = new AsaCalculator(atoms, AsaCalculator.DEFAULT_PROBE_SIZE, 200, 4);
+		asaCalc.setPool(new ForkJoinPool(3));
+		assertArrayEquals(asas, asaCalc.calculateAsas(), 0.0);
+
+		int[] indices = {5, 0, 599, 300};
+		double[] subset = asaCalc.calculateAsas(indices);
+		for (int k = 0; k < indices.length; k++) {
+			assertEquals(asas[indices[k]], subset[k], 0.0);
+		}
+
+		// sphere points are shared
+		assertSame(AsaCalculator.getSpherePoints(200), AsaCalculator.getSpherePoints(200));
+	}
+
+	@Test
+	public void testComplexAsas() {
+		Random random = new Random(42);
+		// two blobs overlapping on a 4A slab
+		Atom[] atoms1 = getRandomAtoms(random, 400, 0);
+		Atom[] atoms2 = getRandomAtoms(random, 300, 16);
+		Atom[] complex = new Atom[atoms1.length + atoms2.length];
+		System.arraycopy(atoms1, 0, complex, 0, atoms1.length);
+		System.arraycopy(atoms2, 0, complex, atoms1.length, atoms2.length);
+
+		double[] asas1 = new AsaCalculator(atoms1, AsaCalculator.DEFAULT_PROBE_SIZE, 200, 1).calculateAsas();
+		double[] asas2 = new AsaCalculator(atoms2, AsaCalculator.DEFAULT_PROBE_SIZE, 200, 1).calculateAsas();
+
+		AsaCalculator asaCalc = new AsaCalculator(complex, AsaCalculator.DEFAULT_PROBE_SIZE, 200, 1);
+		double[] expected = asaCalc.calculateAsas();
+		double[] actual = asaCalc.calculateComplexAsas(asas1, asas2);
+		assertArrayEquals(expected, actual, 0.0);
+
+		int[] interfaceIndices = asaCalc.findInterfaceIndices(atoms1.length);
+		assertTrue(interfaceIndices.length > 0);
+		assertTrue(interfaceIndices.length < complex.length / 2);
+
+		try {
+			asaCalc.calculateComplexAsas(asas1, asas1);
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
 }
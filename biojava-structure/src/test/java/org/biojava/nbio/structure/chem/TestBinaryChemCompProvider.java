@@ -0,0 +1,157 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.chem;
+
+import org.biojava.nbio.structure.io.cif.ChemCompConverter;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link BinaryChemCompProvider}, converting some of the
+ * chemical components bundled with BioJava.
+ */
+public class TestBinaryChemCompProvider {
+
+    private static final List<String> IDS = Arrays.asList("ALA", "GLY", "MSE", "SEC", "TYS", "DA", "U", "HOH",
+            "ZN", "SO4", "GOL", "MAL", "SF4", "MGD", "2EP", "UNX");
+
+    @ClassRule
+    public static TemporaryFolder folder = new TemporaryFolder();
+
+    private static ChemicalComponentDictionary expected;
+    private static BinaryChemCompProvider provider;
+
+    @BeforeClass
+    public static void setUp() throws IOException {
+        // a small dictionary with one block per component, like components.cif
+        Path cif = folder.newFile("components.cif").toPath();
+        try (OutputStream out = Files.newOutputStream(cif)) {
+            for (String id : IDS) {
+                try (InputStream in = new GZIPInputStream(
+                        TestBinaryChemCompProvider.class.getResourceAsStream("/chemcomp/" + id + ".cif.gz"))) {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    byte[] buf = new byte[8192];
+                    int n;
+                    while ((n = in.read(buf)) > 0) {
+                        bytes.write(buf, 0, n);
+                    }
+                    out.write(bytes.toByteArray());
+                }
+            }
+        }
+        expected = ChemCompConverter.fromPath(cif);
+
+        Path binary = folder.getRoot().toPath().resolve("components.bjcc");
+        BinaryChemCompProvider.convert(cif, binary);
+        provider = new BinaryChemCompProvider(binary);
+    }
+
+    @Test
+    public void testRoundTrip() {
+        assertEquals(IDS.size(), provider.size());
+        for (String id : IDS) {
+            ChemComp cc = provider.getChemComp(id);
+            assertSameFields(id, expected.getChemComp(id), cc);
+            assertEquals(expected.getChemComp(id).isStandard(), cc.isStandard());
+            assertEquals(expected.getChemComp(id).getPolymerType(), cc.getPolymerType());
+        }
+        ChemComp ala = provider.getChemComp("ala");
+        assertEquals("ALA", ala.getId());
+        assertEquals('A', ala.getOneLetterCode().charAt(0));
+        assertEquals(expected.getChemComp("ALA").getAtoms().size(), ala.getAtoms().size());
+        assertEquals(expected.getChemComp("ALA").getAtoms().get(0).getModelCartnX(),
+                ala.getAtoms().get(0).getModelCartnX(), 0);
+        // strings are shared between decoded components
+        assertSame(ala.getAtoms().get(0).getAtomId(), provider.getChemComp("GLY").getAtoms().get(0).getAtomId());
+    }
+
+    @Test
+    public void testMissing() {
+        assertTrue(provider.contains("HOH"));
+        assertFalse(provider.contains("XYZ"));
+        ChemComp cc = provider.getChemComp("XYZ");
+        assertEquals("XYZ", cc.getId());
+        assertTrue(cc.isEmpty());
+    }
+
+    @Test
+    public void testConcurrentReads() {
+        IDS.parallelStream().forEach(id -> {
+            for (int i = 0; i < 50; i++) {
+                assertSameFields(id, expected.getChemComp(id), provider.getChemComp(id));
+            }
+        });
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotABinaryDictionary() throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, new byte[100]);
+        new BinaryChemCompProvider(file);
+    }
+
+    /**
+     * Compares all fields, as ChemCompAtom and ChemCompBond do not implement equals.
+     */
+    private static void assertSameFields(String message, Object expected, Object actual) {
+        if (expected instanceof List) {
+            List<?> e = (List<?>) expected;
+            List<?> a = (List<?>) actual;
+            assertEquals(message, e.size(), a.size());
+            for (int i = 0; i < e.size(); i++) {
+                assertSameFields(message + "[" + i + "]", e.get(i), a.get(i));
+            }
+            return;
+        }
+        if (expected == null || !expected.getClass().getName().startsWith(ChemComp.class.getName())) {
+            assertEquals(message, expected, actual);
+            return;
+        }
+        assertEquals(message, expected.getClass(), actual.getClass());
+        for (Field field : expected.getClass().getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+            field.setAccessible(true);
+            try {
+                assertSameFields(message + "." + field.getName(), field.get(expected), field.get(actual));
+            } catch (IllegalAccessException e) {
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.chem;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the in-memory {@link ChemCompCache}, using a fake provider so that
+ * no files are read.
+ */
+public class TestChemCompCache {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final ChemCompProvider provider = id -> {
+        loads.incrementAndGet();
+        if ("XXX".equals(id)) {
+            return null;
+        }
+        ChemComp cc = new ChemComp();
+        cc.setId(id);
+        return cc;
+    };
+
+    @Test
+    public void testHitsAndMissing() {
+        ChemCompCache cache = new ChemCompCache();
+
+        ChemComp c1 = cache.get("ALA", provider);
+        ChemComp c2 = cache.get("ALA", provider);
+        assertSame(c1, c2);
+        assertEquals("ALA", c1.getId());
+
+        // unknown components are cached as missing
+        assertNull(cache.get("XXX", provider));
+        assertNull(cache.get("XXX", provider));
+        assertTrue(cache.contains("XXX"));
+
+        assertEquals(2, loads.get());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(0.5, cache.getHitRate(), 1e-9);
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        cache.get("ALA", provider);
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void testFailuresAreNotCached() {
+        ChemCompCache cache = new ChemCompCache();
+        ChemCompProvider failing = id -> {
+            throw new IllegalStateException("failed " + id);
+        };
+        try {
+            cache.get("ALA", failing);
+            fail("Expected exception");
+        } catch (IllegalStateException e) {
+            assertEquals("failed ALA", e.getMessage());
+        }
+        assertFalse(cache.contains("ALA"));
+        assertNotNull(cache.get("ALA", provider));
+    }
+
+    @Test
+    public void testClockEviction() {
+        ChemCompCache cache = new ChemCompCache(2);
+
+        cache.get("ALA", provider);
+        cache.get("GLY", provider);
+        // read ALA so that GLY is evicted first
+        cache.get("ALA", provider);
+        cache.get("SER", provider);
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertTrue(cache.contains("ALA"));
+        assertFalse(cache.contains("GLY"));
+        assertTrue(cache.contains("SER"));
+        assertEquals(3, loads.get());
+
+        // many more entries than the bound
+        for (int i = 0; i < 100; i++) {
+            cache.get("L" + i, provider);
+        }
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testCoalescing() throws Exception {
+        ChemCompCache cache = new ChemCompCache();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ChemCompProvider slow = id -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return provider.getChemComp(id);
+        };
+
+        int nThreads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+        try {
+            List<Future<ChemComp>> results = new ArrayList<>();
+            results.add(executor.submit(() -> cache.get("HEM", slow)));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            for (int i = 1; i < nThreads; i++) {
+                results.add(executor.submit(() -> cache.get("HEM", slow)));
+            }
+            long deadline = System.currentTimeMillis() + 10000;
+            while (cache.getCoalescedCount() < nThreads - 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            ChemComp first = results.get(0).get();
+            for (Future<ChemComp> result : results) {
+                assertSame(first, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        assertEquals(nThreads - 1, cache.getCoalescedCount());
+    }
+
+    @Test
+    public void testPrewarm() {
+        List<String> common = ChemCompCache.getCommonChemCompIds();
+        assertTrue(common.size() > 200);
+        assertEquals("no duplicates", common.size(), new HashSet<>(common).size());
+        assertTrue(common.containsAll(Arrays.asList("ALA", "HOH", "HEM", "NAG", "ATP", "SO4", "GOL")));
+
+        ChemCompCache cache = new ChemCompCache();
+        cache.prewarm(common, provider);
+        assertEquals(common.size(), loads.get());
+        assertEquals(common.size(), cache.size());
+
+        // pre-warmed components are hits
+        cache.get("HOH", provider);
+        assertEquals(common.size(), loads.get());
+        assertEquals(1, cache.getHitCount());
+    }
+}
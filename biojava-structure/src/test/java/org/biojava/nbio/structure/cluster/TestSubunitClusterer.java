@@ -0,0 +1,108 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.cluster;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.GZIPInputStream;
+
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureTools;
+import org.biojava.nbio.structure.io.CifFileReader;
+import org.biojava.nbio.structure.symmetry.core.Stoichiometry;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TestSubunitClusterer {
+
+	private static List<Subunit> subunits;
+
+	@BeforeClass
+	public static void setUp() throws IOException {
+		Structure s = new CifFileReader().getStructure(
+				new GZIPInputStream(TestSubunitClusterer.class.getResourceAsStream("/4hhb.cif.gz")));
+		subunits = SubunitExtractor.extractSubunits(s, 5, 0.75, 20);
+	}
+
+	/**
+	 * Many copies of the hemoglobin subunits, without structures so that
+	 * entity ids can not be used.
+	 */
+	private static List<Subunit> getCopies(int copies) {
+		List<Subunit> many = new ArrayList<>();
+		for (int k = 0; k < copies; k++) {
+			for (Subunit s : subunits) {
+				many.add(new Subunit(StructureTools.cloneAtomArray(s.getRepresentativeAtoms()), s.getName() + k, null, null));
+			}
+		}
+		return many;
+	}
+
+	@Test
+	public void testSequenceThresholds() {
+		SubunitClustererParameters params = new SubunitClustererParameters();
+		params.setClustererMethod(SubunitClustererMethod.SEQUENCE);
+		params.setSequenceIdentityThreshold(0.95);
+		assertEquals("A2B2", SubunitClusterer.cluster(subunits, params).toString());
+
+		params.setSequenceIdentityThreshold(0.3);
+		Stoichiometry stoich = SubunitClusterer.cluster(subunits, params);
+		assertEquals("A4", stoich.toString());
+		assertEquals(SubunitClustererMethod.SEQUENCE, stoich.getClusters().get(0).getClustererMethod());
+	}
+
+	/**
+	 * The clusters must not depend on the number of threads.
+	 */
+	@Test
+	public void testDeterministic() {
+		List<Subunit> many = getCopies(20);
+		SubunitClustererParameters params = new SubunitClustererParameters();
+		params.setClustererMethod(SubunitClustererMethod.SEQUENCE_STRUCTURE);
+		params.setSequenceIdentityThreshold(0.95);
+
+		List<SubunitCluster> serial;
+		List<SubunitCluster> parallel;
+		ForkJoinPool pool1 = new ForkJoinPool(1);
+		ForkJoinPool pool4 = new ForkJoinPool(4);
+		try {
+			serial = SubunitClusterer.cluster(many, params, pool1).getClusters();
+			parallel = SubunitClusterer.cluster(many, params, pool4).getClusters();
+		} finally {
+			pool1.shutdown();
+			pool4.shutdown();
+		}
+
+		assertEquals(1, serial.size());
+		assertEquals(many.size(), serial.get(0).size());
+		assertEquals(SubunitClustererMethod.STRUCTURE, serial.get(0).getClustererMethod());
+		assertEquals(serial.size(), parallel.size());
+		for (int c = 0; c < serial.size(); c++) {
+			assertEquals(serial.get(c).getSubunits(), parallel.get(c).getSubunits());
+			assertEquals(serial.get(c).length(), parallel.get(c).length());
+			assertEquals(serial.get(c).toString(), parallel.get(c).toString());
+		}
+	}
+}
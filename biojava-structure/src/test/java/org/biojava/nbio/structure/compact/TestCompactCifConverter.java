@@ -0,0 +1,148 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.compact;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+import org.biojava.nbio.structure.PdbId;
+import org.biojava.nbio.structure.align.util.AtomCache;
+import org.biojava.nbio.structure.io.CifFileReader;
+import org.biojava.nbio.structure.io.FileParsingParameters;
+import org.biojava.nbio.structure.io.LocalPDBDirectory.FetchBehavior;
+import org.biojava.nbio.structure.io.StructureFiletype;
+import org.biojava.nbio.structure.io.cif.CifStructureConverter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.rcsb.cif.CifIO;
+import org.rcsb.cif.model.CifFile;
+
+public class TestCompactCifConverter {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private static CifFile read(String resource) throws IOException {
+		try (InputStream inStream = TestCompactCifConverter.class.getResourceAsStream(resource)) {
+			return CifIO.readFromInputStream(inStream);
+		}
+	}
+
+	/**
+	 * The columns read directly from the file are the same as those copied from the object model.
+	 */
+	private static void assertSameColumns(String resource, FileParsingParameters params) throws IOException {
+		CifFile cifFile = read(resource);
+		CompactStructure expected = new CompactStructure(CifStructureConverter.fromCifFile(cifFile, params));
+		CompactStructure actual = CompactCifConverter.fromCifFile(cifFile, params);
+
+		assertEquals(expected.getPdbId(), actual.getPdbId());
+		assertEquals(expected.getEntityInfos().size(), actual.getEntityInfos().size());
+		assertEquals(expected.getPDBHeader().getTitle(), actual.getPDBHeader().getTitle());
+		assertEquals(expected.nrModels(), actual.nrModels());
+
+		for (int m = 0; m < expected.nrModels(); m++) {
+			CompactModel e = expected.getModel(m);
+			CompactModel a = actual.getModel(m);
+			assertEquals(e.getChainCount(), a.getChainCount());
+			assertEquals(e.getGroupCount(), a.getGroupCount());
+			assertEquals(e.getAtomCount(), a.getAtomCount());
+
+			for (int c = 0; c < e.getChainCount(); c++) {
+				assertEquals(e.getChainId(c), a.getChainId(c));
+				assertEquals(e.getChainName(c), a.getChainName(c));
+				assertEquals(e.getEntityIndex(c), a.getEntityIndex(c));
+				assertEquals(e.getChainGroupStart(c), a.getChainGroupStart(c));
+			}
+			for (int g = 0; g < e.getGroupCount(); g++) {
+				String group = resource + " group " + g;
+				assertEquals(group, e.getGroupName(g), a.getGroupName(g));
+				assertEquals(group, e.getResidueNumber(g), a.getResidueNumber(g));
+				assertEquals(group, e.getInsCode(g), a.getInsCode(g));
+				assertEquals(group, e.getGroupType(g), a.getGroupType(g));
+				assertEquals(group, e.isHetAtomInFile(g), a.isHetAtomInFile(g));
+				assertEquals(group, e.getGroupAtomStart(g), a.getGroupAtomStart(g));
+			}
+			for (int i = 0; i < e.getAtomCount(); i++) {
+				String atom = resource + " atom " + i;
+				assertEquals(atom, e.getAtomName(i), a.getAtomName(i));
+				assertEquals(atom, e.getElement(i), a.getElement(i));
+				assertEquals(atom, e.getX(i), a.getX(i), 0.0);
+				assertEquals(atom, e.getY(i), a.getY(i), 0.0);
+				assertEquals(atom, e.getZ(i), a.getZ(i), 0.0);
+				assertEquals(atom, e.getOccupancy(i), a.getOccupancy(i), 0.0);
+				assertEquals(atom, e.getTempFactor(i), a.getTempFactor(i), 0.0);
+				assertEquals(atom, e.getPDBserial(i), a.getPDBserial(i));
+				assertEquals(atom, e.getAltLoc(i), a.getAltLoc(i));
+				assertEquals(atom, e.getCharge(i), a.getCharge(i));
+			}
+		}
+	}
+
+	@Test
+	public void testColumns() throws IOException {
+		FileParsingParameters params = new FileParsingParameters();
+		assertSameColumns("/4hhb.cif.gz", params);
+		assertSameColumns("/1hh0_4char.cif.gz", params);
+		assertSameColumns("/ligandTest.cif.gz", params);
+		assertSameColumns("/AF-V9WDR2-F1-model_v4.cif", params);
+	}
+
+	@Test
+	public void testParameters() throws IOException {
+		FileParsingParameters params = new FileParsingParameters();
+		params.setParseCAOnly(true);
+		assertSameColumns("/4hhb.cif.gz", params);
+
+		params = new FileParsingParameters();
+		params.setAcceptedAtomNames(new String[] {"CA", "P"});
+		assertSameColumns("/1hh0_4char.cif.gz", params);
+	}
+
+	@Test
+	public void testAtomCache() throws IOException {
+		// a local copy of the archive, filled from a file: URL
+		File server = tmp.newFolder("server");
+		File file = new File(server, "pub/pdb/data/structures/divided/mmCIF/hh/4hhb.cif.gz");
+		file.getParentFile().mkdirs();
+		try (InputStream in = TestCompactCifConverter.class.getResourceAsStream("/4hhb.cif.gz")) {
+			Files.copy(in, file.toPath());
+		}
+		File local = tmp.newFolder("local");
+		CifFileReader reader = new CifFileReader(local.getPath());
+		reader.setFileServer(server.toURI().toString().replaceAll("/$", ""));
+		reader.setFetchBehavior(FetchBehavior.FETCH_FILES);
+		reader.prefetchStructure("4hhb");
+
+		AtomCache cache = new AtomCache(local.getPath());
+		cache.setFiletype(StructureFiletype.CIF);
+		cache.setFetchBehavior(FetchBehavior.LOCAL_ONLY);
+		CompactStructure cs = cache.getCompactStructure(new PdbId("4hhb"));
+		CompactStructure expected = new CompactStructure(cache.getStructureForPdbId(new PdbId("4hhb")));
+		assertEquals(expected.getModel(0).getAtomCount(), cs.getModel(0).getAtomCount());
+		assertEquals(expected.getModel(0).getChainCount(), cs.getModel(0).getChainCount());
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.compact;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import javax.vecmath.Matrix4d;
+import javax.vecmath.Vector3d;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Calc;
+import org.biojava.nbio.structure.Chain;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureTools;
+import org.biojava.nbio.structure.io.FileParsingParameters;
+import org.biojava.nbio.structure.io.cif.CifStructureConverter;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TestCompactStructure {
+
+	private static Structure structure;
+
+	@BeforeClass
+	public static void setUp() throws IOException {
+		InputStream inStream = new GZIPInputStream(TestCompactStructure.class.getResourceAsStream("/4hhb.cif.gz"));
+		structure = CifStructureConverter.fromInputStream(inStream, new FileParsingParameters());
+	}
+
+	@Test
+	public void testColumns() {
+		CompactStructure cs = new CompactStructure(structure);
+		assertEquals(structure.nrModels(), cs.nrModels());
+
+		Atom[] atoms = StructureTools.getAllAtomArray(structure);
+		CompactModel model = cs.getModel(0);
+		assertEquals(structure.getChains().size(), model.getChainCount());
+		assertEquals(atoms.length, model.getAtomCount());
+
+		for (int i = 0; i < atoms.length; i++) {
+			assertEquals(atoms[i].getName(), model.getAtomName(i));
+			assertEquals(atoms[i].getElement(), model.getElement(i));
+			assertEquals(atoms[i].getX(), model.getX(i), 0.0);
+			assertEquals(atoms[i].getY(), model.getY(i), 0.0);
+			assertEquals(atoms[i].getZ(), model.getZ(i), 0.0);
+			assertEquals(atoms[i].getTempFactor(), model.getTempFactor(i), 0.0);
+			assertEquals(atoms[i].getPDBserial(), model.getPDBserial(i));
+			int g = model.getGroupIndex(i);
+			assertEquals(atoms[i].getGroup().getPDBName(), model.getGroupName(g));
+			assertEquals(atoms[i].getGroup().getResidueNumber().getSeqNum().intValue(), model.getResidueNumber(g));
+			assertEquals(atoms[i].getGroup().getChain().getId(), model.getChainId(model.getChainIndex(g)));
+		}
+
+		Atom[] reps = StructureTools.getRepresentativeAtomArray(structure);
+		int[] repIndices = model.getRepresentativeAtomIndices();
+		assertEquals(reps.length, repIndices.length);
+		double[] repCoords = model.getCoordinates(repIndices, null);
+		for (int i = 0; i < reps.length; i++) {
+			assertEquals(reps[i].getX(), repCoords[3 * i], 0.0);
+			assertEquals(reps[i].getZ(), repCoords[3 * i + 2], 0.0);
+		}
+	}
+
+	@Test
+	public void testStructureView() {
+		CompactStructure cs = new CompactStructure(structure);
+		Structure view = cs.toStructure();
+
+		assertEquals(structure.getPolyChains().size(), view.getPolyChains().size());
+		assertEquals(structure.getNonPolyChains().size(), view.getNonPolyChains().size());
+		assertEquals(structure.getWaterChains().size(), view.getWaterChains().size());
+
+		for (Chain c : structure.getPolyChains()) {
+			Chain vc = view.getPolyChain(c.getId());
+			assertNotNull(vc);
+			assertEquals(c.getAtomSequence(), vc.getAtomSequence());
+			assertEquals(StructureTools.getAtomCAArray(c).length, StructureTools.getAtomCAArray(vc).length);
+		}
+
+		// changes through the view are written to the columns
+		Matrix4d shift = new Matrix4d();
+		shift.setIdentity();
+		shift.setTranslation(new Vector3d(1, 2, 3));
+		double x0 = cs.getModel(0).getX(0);
+		Calc.transform(view, shift);
+		assertEquals(x0 + 1, cs.getModel(0).getX(0), 1e-9);
+
+		Atom a = view.getChainByIndex(0).getAtomGroup(0).getAtom(0);
+		assertTrue(a instanceof CompactAtom);
+		assertEquals(cs.getModel(0).getY(0), a.getY(), 0.0);
+	}
+
+	@Test
+	public void testSize() {
+		CompactStructure cs = new CompactStructure(structure);
+		int nAtoms = cs.getModel(0).getAtomCount();
+		// well under the ~100 bytes per atom of the object model
+		assertTrue(cs.getEstimatedSize() < 60L * nAtoms);
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.contact;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import javax.vecmath.Point3d;
+
+import org.junit.Test;
+
+/**
+ * Tests the cell list of {@link Grid} against all to all distances.
+ */
+public class TestGrid {
+
+	private static final double CUTOFF = 5.5;
+
+	private static Point3d[] getRandomPoints(Random random, int n, double size, double xOffset) {
+		Point3d[] points = new Point3d[n];
+		for (int i = 0; i < n; i++) {
+			points[i] = new Point3d(xOffset + size * random.nextDouble(), size * random.nextDouble() - size / 2,
+					size * random.nextDouble());
+		}
+		return points;
+	}
+
+	private static Map<Long, Double> bruteForce(Point3d[] iPoints, Point3d[] jPoints) {
+		Map<Long, Double> contacts = new HashMap<>();
+		for (int i = 0; i < iPoints.length; i++) {
+			for (int j = jPoints == null ? i + 1 : 0; j < (jPoints == null ? iPoints.length : jPoints.length); j++) {
+				double d = iPoints[i].distance(jPoints == null ? iPoints[j] : jPoints[j]);
+				if (d < CUTOFF)
+					contacts.put(key(i, j), d);
+			}
+		}
+		return contacts;
+	}
+
+	private static long key(int i, int j) {
+		return ((long) i << 32) | j;
+	}
+
+	@Test
+	public void testContactsWithin() {
+		Point3d[] points = getRandomPoints(new Random(1), 2000, 40, 0);
+		Map<Long, Double> expected = bruteForce(points, null);
+
+		Grid grid = new Grid(CUTOFF);
+		grid.addCoords(points);
+
+		Map<Long, Double> actual = new HashMap<>();
+		grid.visitContacts((i, j, distance) -> {
+			assertTrue(j > i);
+			assertNull("Contact visited twice", actual.put(key(i, j), distance));
+		});
+		assertEquals(expected, actual);
+		assertEquals(expected.size(), grid.getContactCount());
+
+		List<Contact> contacts = grid.getIndicesContacts();
+		assertEquals(expected.size(), contacts.size());
+		for (Contact c : contacts) {
+			assertEquals(expected.get(key(c.getI(), c.getJ())), c.getDistance(), 0.0);
+		}
+	}
+
+	@Test
+	public void testContactsBetween() {
+		Random random = new Random(2);
+		Point3d[] iPoints = getRandomPoints(random, 1000, 30, 0);
+		Point3d[] jPoints = getRandomPoints(random, 800, 30, 25);
+		Map<Long, Double> expected = bruteForce(iPoints, jPoints);
+		assertFalse(expected.isEmpty());
+
+		Grid grid = new Grid(CUTOFF);
+		grid.addCoords(iPoints, jPoints);
+		Map<Long, Double> actual = new HashMap<>();
+		grid.visitContacts((i, j, distance) -> assertNull(actual.put(key(i, j), distance)));
+		assertEquals(expected, actual);
+
+		// far apart sets
+		Grid farGrid = new Grid(CUTOFF);
+		farGrid.addCoords(iPoints, getRandomPoints(random, 10, 5, 100));
+		assertTrue(farGrid.isNoOverlap());
+		assertEquals(0, farGrid.getContactCount());
+	}
+
+	@Test
+	public void testHasAnyContact() {
+		Point3d[] points = getRandomPoints(new Random(3), 100, 20, 0);
+		Grid grid = new Grid(CUTOFF);
+		grid.addCoords(points);
+
+		Point3d near = new Point3d(points[7]);
+		near.x += CUTOFF / 2;
+		assertTrue(grid.hasAnyContact(new Point3d[] { near }));
+		assertFalse(grid.hasAnyContact(new Point3d[] { new Point3d(100, 100, 100), new Point3d(-30, 0, 0) }));
+	}
+}
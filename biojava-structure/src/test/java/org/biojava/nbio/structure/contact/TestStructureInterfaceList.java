@@ -0,0 +1,140 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.contact;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.io.PDBFileReader;
+import org.biojava.nbio.structure.xtal.CrystalBuilder;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TestStructureInterfaceList {
+
+	private static StructureInterfaceList interfaces;
+
+	@BeforeClass
+	public static void setUp() throws IOException {
+		Structure structure = new PDBFileReader().getStructure(TestStructureInterfaceList.class.getResourceAsStream("/2pos.pdb"));
+		interfaces = new CrystalBuilder(structure).getUniqueInterfaces();
+		interfaces.calcAsas(100, 1, -1);
+		interfaces.removeInterfacesBelowArea();
+	}
+
+	private static StructureInterfaceList copy() {
+		StructureInterfaceList copy = new StructureInterfaceList();
+		for (StructureInterface interf : interfaces) {
+			copy.add(interf);
+		}
+		return copy;
+	}
+
+	private static double score(StructureInterface i, StructureInterface j) {
+		return Math.max(i.getContactOverlapScore(j, false), i.getContactOverlapScore(j, true));
+	}
+
+	/**
+	 * The clusters are the connected components of the pairs with scores above
+	 * the cutoff, and the average scores are over all pairs of members.
+	 */
+	@Test
+	public void testClustersMatchAllVsAll() {
+		for (double cutoff : new double[] { 0.2, 0.05 }) {
+			List<StructureInterface> list = interfaces.getList();
+			int n = list.size();
+			// brute force connected components
+			int[] component = new int[n];
+			for (int i = 0; i < n; i++) component[i] = i;
+			boolean changed = true;
+			while (changed) {
+				changed = false;
+				for (int i = 0; i < n; i++) {
+					for (int j = i + 1; j < n; j++) {
+						if (component[i] != component[j] && score(list.get(i), list.get(j)) > cutoff) {
+							int min = Math.min(component[i], component[j]);
+							component[i] = component[j] = min;
+							changed = true;
+						}
+					}
+				}
+			}
+
+			List<StructureInterfaceCluster> clusters = copy().getClusters(cutoff);
+			Set<StructureInterface> seen = new HashSet<>();
+			Set<Integer> components = new HashSet<>();
+			for (StructureInterfaceCluster cluster : clusters) {
+				List<StructureInterface> members = cluster.getMembers();
+				int c = component[list.indexOf(members.get(0))];
+				assertTrue(components.add(c));
+				double sum = 0;
+				for (int i = 0; i < members.size(); i++) {
+					assertTrue(seen.add(members.get(i)));
+					assertEquals(c, component[list.indexOf(members.get(i))]);
+					for (int j = i + 1; j < members.size(); j++) {
+						sum += score(members.get(i), members.get(j));
+					}
+				}
+				int pairs = members.size() * (members.size() - 1) / 2;
+				assertEquals(pairs == 0 ? 1.0 : sum / pairs, cluster.getAverageScore(), 1e-9);
+			}
+			assertEquals(n, seen.size());
+		}
+	}
+
+	@Test
+	public void testPoolAndAreaRatio() {
+		List<StructureInterfaceCluster> expected = copy().getClusters();
+
+		StructureInterfaceList parallel = copy();
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			parallel.setPool(pool);
+			List<StructureInterfaceCluster> clusters = parallel.getClusters();
+			assertEquals(expected.size(), clusters.size());
+			for (int i = 0; i < expected.size(); i++) {
+				assertEquals(expected.get(i).getMembers(), clusters.get(i).getMembers());
+			}
+		} finally {
+			pool.shutdown();
+		}
+
+		// with a ratio of 1 only interfaces with identical areas can be clustered
+		StructureInterfaceList filtered = copy();
+		filtered.setClusteringMinAreaRatio(1.0);
+		List<StructureInterfaceCluster> clusters = filtered.getClusters();
+		assertTrue(clusters.size() > expected.size());
+		for (StructureInterfaceCluster cluster : clusters) {
+			List<Double> areas = new ArrayList<>();
+			for (StructureInterface interf : cluster.getMembers()) {
+				areas.add(interf.getTotalArea());
+			}
+			assertEquals(1, new HashSet<>(areas).size());
+		}
+	}
+}
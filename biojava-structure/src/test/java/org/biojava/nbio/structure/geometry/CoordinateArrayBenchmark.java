@@ -0,0 +1,158 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.geometry;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.vecmath.AxisAngle4d;
+import javax.vecmath.Matrix4d;
+import javax.vecmath.Vector3d;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.AtomImpl;
+import org.biojava.nbio.structure.Calc;
+import org.biojava.nbio.structure.StructureException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH micro-benchmarks comparing the Atom[] based methods of {@link Calc} and
+ * {@link SuperPositionQCP} with their flat coordinate buffer counterparts.
+ * <p>
+ * Not run as part of the unit tests. To run after <code>mvn test-compile</code>:
+ *
+ * <pre>
+ * mvn dependency:build-classpath -Dmdep.outputFile=cp.txt
+ * java -cp target/classes:target/test-classes:$(cat cp.txt) org.openjdk.jmh.Main CoordinateArrayBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CoordinateArrayBenchmark {
+
+	@Param({ "100", "1000" })
+	private int size;
+
+	private Atom[] atoms1;
+	private Atom[] atoms2;
+	private double[] coords1;
+	private double[] coords2;
+	private Matrix4d transform;
+	private SuperPositionQCP qcp;
+
+	@Setup
+	public void setup() {
+		Random rnd = new Random(0);
+		atoms1 = new Atom[size];
+		atoms2 = new Atom[size];
+		for (int i = 0; i < size; i++) {
+			atoms1[i] = new AtomImpl();
+			atoms1[i].setCoords(new double[] { rnd.nextInt(100), rnd.nextInt(50), rnd.nextInt(150) });
+			atoms2[i] = new AtomImpl();
+			atoms2[i].setCoords(new double[] { atoms1[i].getX() + rnd.nextDouble(),
+					atoms1[i].getY() + rnd.nextDouble(), atoms1[i].getZ() + rnd.nextDouble() });
+		}
+		transform = new Matrix4d();
+		transform.set(new AxisAngle4d(0.440, 0.302, 0.845, 1.570));
+		transform.setTranslation(new Vector3d(0.345, 2.453, 5.324));
+		Calc.transform(atoms1, transform);
+
+		coords1 = Calc.atomsToCoordinates(atoms1, null);
+		coords2 = Calc.atomsToCoordinates(atoms2, null);
+		qcp = new SuperPositionQCP(false);
+	}
+
+	@Benchmark
+	public double qcpRmsdAtoms() {
+		return qcp.getRmsd(Calc.atomsToPoints(atoms1), Calc.atomsToPoints(atoms2));
+	}
+
+	@Benchmark
+	public double qcpRmsdFlat() {
+		return qcp.getRmsd(coords1, coords2, size);
+	}
+
+	@Benchmark
+	public Matrix4d qcpSuperposeAtoms() {
+		return qcp.superpose(Calc.atomsToPoints(atoms1), Calc.atomsToPoints(atoms2));
+	}
+
+	@Benchmark
+	public Matrix4d qcpSuperposeFlat() {
+		return qcp.superpose(coords1, coords2, size);
+	}
+
+	@Benchmark
+	public double rmsdAtoms() {
+		return Calc.rmsd(atoms1, atoms2);
+	}
+
+	@Benchmark
+	public double rmsdFlat() {
+		return CalcPoint.rmsd(coords1, coords2, size);
+	}
+
+	@Benchmark
+	public double tmScoreAtoms() throws StructureException {
+		return Calc.getTMScore(atoms1, atoms2, size, size, true);
+	}
+
+	@Benchmark
+	public double tmScoreFlat() throws StructureException {
+		return Calc.getTMScore(coords1, coords2, size, size, size, true);
+	}
+
+	@Benchmark
+	public Atom centroidAtoms() {
+		return Calc.getCentroid(atoms1);
+	}
+
+	@Benchmark
+	public double[] centroidFlat() {
+		return CalcPoint.centroid(coords1, size, new double[3]);
+	}
+
+	@Benchmark
+	public Atom[] transformAtoms() {
+		Calc.transform(atoms2, transform);
+		return atoms2;
+	}
+
+	@Benchmark
+	public double[] transformFlat() {
+		CalcPoint.transform(transform, coords2, size);
+		return coords2;
+	}
+}
@@ -165,6 +165,64 @@ public class TestSuperPositionQCP {
 
 	}
 
+	/**
+	 * Check that the flat coordinate buffer methods give the same results as
+	 * the Point3d methods, also when the buffers are longer than needed.
+	 */
+	@Test
+	public void testFlatCoordinatesQCP() {
+
+		AxisAngle4d rotAxis = new AxisAngle4d(0.440, 0.302, 0.845, 1.570);
+		Matrix4d transform = new Matrix4d();
+		transform.set(rotAxis);
+		transform.setTranslation(new Vector3d(0.345, 2.453, 5.324));
+
+		Random rnd = new Random(0);
+		int n = 200;
+		Point3d[] c1 = new Point3d[n];
+		Point3d[] c2 = new Point3d[n];
+		// buffers with room for extra points, that must be ignored
+		double[] f1 = new double[3 * n + 30];
+		double[] f2 = new double[3 * n + 30];
+		for (int p = 0; p < n; p++) {
+			Point3d a = new Point3d(rnd.nextInt(100), rnd.nextInt(50), rnd.nextInt(150));
+			c1[p] = a;
+			c2[p] = new Point3d(a.x + rnd.nextDouble(), a.y + rnd.nextDouble(), a.z + rnd.nextDouble());
+		}
+		CalcPoint.transform(transform, c1);
+		for (int p = 0; p < n; p++) {
+			f1[3 * p] = c1[p].x;
+			f1[3 * p + 1] = c1[p].y;
+			f1[3 * p + 2] = c1[p].z;
+			f2[3 * p] = c2[p].x;
+			f2[3 * p + 1] = c2[p].y;
+			f2[3 * p + 2] = c2[p].z;
+		}
+		f2[3 * n] = 1000;
+
+		SuperPositionQCP qcp = new SuperPositionQCP(false);
+		double rmsd = qcp.getRmsd(c1, c2);
+		Matrix4d expected = new Matrix4d(qcp.superpose(c1, c2));
+
+		assertEquals(rmsd, qcp.getRmsd(f1, f2, n), 1e-9);
+		assertEquals(rmsd, SuperPositions.getRmsd(f1, f2, n), 1e-9);
+		Matrix4d m = qcp.superpose(f1, f2, n);
+		assertTrue(expected.epsilonEquals(m, 1e-6));
+		assertTrue(expected.epsilonEquals(SuperPositions.superpose(f1, f2, n), 1e-6));
+
+		CalcPoint.transform(m, f2, n);
+		CalcPoint.transform(expected, c2);
+		assertEquals(CalcPoint.rmsd(c1, c2), CalcPoint.rmsd(f1, f2, n), 1e-9);
+		assertEquals(rmsd, CalcPoint.rmsd(f1, f2, n), 1e-6);
+		assertEquals(CalcPoint.TMScore(c1, c2, n), CalcPoint.TMScore(f1, f2, n, n), 1e-9);
+		assertEquals(1000, f2[3 * n], 0.0);
+
+		double[] centroid = CalcPoint.centroid(f1, n, new double[3]);
+		Point3d expectedCentroid = CalcPoint.centroid(c1);
+		assertEquals(expectedCentroid.x, centroid[0], 1e-9);
+		assertEquals(expectedCentroid.z, centroid[2], 1e-9);
+	}
+
 	@Ignore("test for https://github.com/biojava/biojava/issues/914")
 	@Test
 	public void shouldHandleTwoFoldSymmetry() {
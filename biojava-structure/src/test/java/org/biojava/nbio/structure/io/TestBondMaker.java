@@ -0,0 +1,131 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.io;
+
+import org.biojava.nbio.structure.AminoAcid;
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Bond;
+import org.biojava.nbio.structure.Chain;
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.chem.ChemCompGroupFactory;
+import org.biojava.nbio.structure.chem.ReducedChemCompProvider;
+import org.biojava.nbio.structure.test.util.GlobalsHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the bonds formed by {@link BondMaker} from the chemical component
+ * templates bundled with BioJava, without network access.
+ */
+public class TestBondMaker {
+
+	@Before
+	public void setUp() {
+		GlobalsHelper.pushState();
+		ChemCompGroupFactory.setChemCompProvider(new ReducedChemCompProvider());
+	}
+
+	@After
+	public void tearDown() {
+		GlobalsHelper.restoreState();
+	}
+
+	private static Structure read(String resource) throws IOException {
+		FileParsingParameters params = new FileParsingParameters();
+		params.setCreateAtomBonds(true);
+		PDBFileParser parser = new PDBFileParser();
+		parser.setFileParsingParameters(params);
+		InputStream in = TestBondMaker.class.getResourceAsStream(resource);
+		if (resource.endsWith(".gz")) {
+			in = new GZIPInputStream(in);
+		}
+		try (InputStream is = in) {
+			return parser.parsePDBFile(is);
+		}
+	}
+
+	private static boolean isBonded(Atom a1, Atom a2) {
+		if (a1.getBonds() == null)
+			return false;
+		for (Bond b : a1.getBonds()) {
+			if (b.getOther(a1) == a2)
+				return true;
+		}
+		return false;
+	}
+
+	@Test
+	public void testTemplateAndPeptideBonds() throws IOException {
+		Structure s = read("/4hhb.pdb.gz");
+		for (Chain chain : s.getPolyChains()) {
+			List<Group> groups = chain.getAtomGroups();
+			for (int i = 0; i < groups.size(); i++) {
+				Group g = groups.get(i);
+				if (!(g instanceof AminoAcid))
+					continue;
+				Atom ca = g.getAtom("CA");
+				assertTrue(g.toString(), isBonded(ca, g.getAtom("N")));
+				assertTrue(g.toString(), isBonded(ca, g.getAtom("C")));
+				assertTrue(g.toString(), isBonded(g.getAtom("C"), g.getAtom("O")));
+				// no duplicate bonds
+				assertEquals(ca.getBonds().size(), ca.getBonds().stream().map(b -> b.getOther(ca)).distinct().count());
+				if (i + 1 < groups.size() && groups.get(i + 1) instanceof AminoAcid) {
+					assertTrue(g.toString(), isBonded(g.getAtom("C"), groups.get(i + 1).getAtom("N")));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testNoBondsBetweenAltLocs() throws IOException {
+		Structure s = read("/3cdl.pdb");
+		int altLocGroups = 0;
+		for (Chain chain : s.getChains()) {
+			for (Group g : chain.getAtomGroups()) {
+				if (!g.hasAltLoc())
+					continue;
+				altLocGroups++;
+				for (Group alt : g.getAltLocs()) {
+					for (Atom a : alt.getAtoms()) {
+						if (a.getBonds() == null)
+							continue;
+						for (Bond b : a.getBonds()) {
+							// default atoms bond to all alt locs, named alt locs only to the same alt loc
+							Character altLoc = a.getAltLoc();
+							Character other = b.getOther(a).getAltLoc();
+							assertTrue(a + " " + b, altLoc.equals(' ') || other.equals(' ') || other.equals(altLoc));
+						}
+					}
+				}
+			}
+		}
+		assertTrue(altLocGroups > 0);
+	}
+}
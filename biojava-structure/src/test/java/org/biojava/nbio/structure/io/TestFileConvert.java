@@ -0,0 +1,123 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.io;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Structure;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests the PDB and mmCIF output of {@link FileConvert}.
+ */
+public class TestFileConvert {
+
+	private static Structure structure;
+
+	@BeforeClass
+	public static void setUp() throws IOException {
+		PDBFileParser parser = new PDBFileParser();
+		structure = parser.parsePDBFile(new GZIPInputStream(
+				TestFileConvert.class.getResourceAsStream("/4hhb.pdb.gz")));
+	}
+
+	@Test
+	public void testStreamedPDB() throws IOException {
+		FileConvert convert = new FileConvert(structure);
+		String pdb = convert.toPDB();
+
+		StringWriter writer = new StringWriter();
+		convert.toPDB(writer);
+		assertEquals(pdb, writer.toString());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		convert.toPDB(out);
+		assertEquals(pdb, new String(out.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testStreamedMMCIF() throws IOException {
+		FileConvert convert = new FileConvert(structure);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		convert.toMMCIF(out);
+		assertEquals(convert.toMMCIF(), new String(out.toByteArray()));
+	}
+
+	/**
+	 * The coordinates must be formatted as the DecimalFormat did, including
+	 * its rounding of ties and truncation of large values.
+	 */
+	@Test
+	public void testAtomRecord() {
+		Atom atom = structure.getChains().get(0).getAtomGroup(0).getAtom(0);
+		Atom a = (Atom) atom.clone();
+		a.setGroup(atom.getGroup());
+
+		double[] values = { 0.0, -0.0001, 0.0005, 0.0625, -0.0625, 0.1875,
+				12.3456, -123.4564, 9999.9995, 12345.678, Double.NaN };
+		for (double v : values) {
+			a.setX(v);
+			a.setY(-v);
+			a.setZ(v / 3);
+			a.setOccupancy((float) (v / 7));
+			a.setTempFactor((float) v);
+			String line = FileConvert.toPDB(a);
+			String expected = String.format("%8s%8s%8s%6s%6s",
+					FileConvert.d3.format(v), FileConvert.d3.format(-v), FileConvert.d3.format(v / 3),
+					FileConvert.d2.format((float) (v / 7)), FileConvert.d2.format((float) v));
+			assertEquals(expected, line.substring(30, 30 + expected.length()));
+		}
+	}
+
+	@Test
+	public void testConcurrentWriting() throws Exception {
+		String pdb = new FileConvert(structure).toPDB();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<String>> futures = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				futures.add(executor.submit(() -> {
+					StringWriter writer = new StringWriter();
+					new FileConvert(structure).toPDB(writer);
+					return writer.toString();
+				}));
+			}
+			for (Future<String> future : futures) {
+				assertEquals(pdb, future.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.io;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.biojava.nbio.structure.PdbId;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.io.LocalPDBDirectory.FetchBehavior;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the index of local PDB files and the bulk download from a local stand-in of the PDB server.
+ */
+public class TestLocalPDBIndex {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private File server;
+	private CifFileReader reader;
+
+	@Before
+	public void setUp() throws IOException {
+		// a copy of the archive layout, served through file: URLs
+		server = tmp.newFolder("server");
+		copyResource("/4hhb.cif.gz", new File(server, "pub/pdb/data/structures/divided/mmCIF/hh/4hhb.cif.gz"));
+		copyResource("/1hh0_4char.cif.gz", new File(server, "pub/pdb/data/structures/divided/mmCIF/hh/1hh0.cif.gz"));
+
+		reader = new CifFileReader(tmp.newFolder("local").getPath());
+		reader.setFileServer(server.toURI().toString().replaceAll("/$", ""));
+		reader.setFetchBehavior(FetchBehavior.FETCH_FILES);
+	}
+
+	private static void copyResource(String resource, File file) throws IOException {
+		file.getParentFile().mkdirs();
+		try (InputStream in = TestLocalPDBIndex.class.getResourceAsStream(resource)) {
+			Files.copy(in, file.toPath());
+		}
+	}
+
+	@Test
+	public void testPrefetch() throws IOException {
+		reader.setPrefetchThreads(2);
+		try {
+			reader.prefetch(Arrays.asList(new PdbId("4hhb"), new PdbId("1abc"), new PdbId("1hh0")));
+			fail("1abc is not on the server");
+		} catch (IOException e) {
+			assertEquals(0, e.getSuppressed().length);
+		}
+		// the other structures are downloaded anyway
+		assertNotNull(reader.getLocalFile(new PdbId("4hhb")));
+		assertNotNull(reader.getLocalFile(new PdbId("1hh0")));
+		assertNull(reader.getLocalFile(new PdbId("1abc")));
+
+		Structure s = reader.getStructureById(new PdbId("4hhb"));
+		assertEquals(4, s.getPolyChains().size());
+	}
+
+	@Test
+	public void testIndex() throws IOException {
+		reader.prefetch(Arrays.asList(new PdbId("4hhb"), new PdbId("1hh0")));
+		File expected = reader.getLocalFile(new PdbId("4hhb"));
+
+		Path indexFile = tmp.getRoot().toPath().resolve("index/cif.idx");
+		reader.useIndex(indexFile);
+		assertTrue(Files.exists(indexFile));
+		assertEquals(2, reader.getIndex().size());
+
+		// another reader maps the saved index
+		CifFileReader other = new CifFileReader(reader.getPath());
+		other.useIndex(indexFile);
+		LocalPDBIndex index = other.getIndex();
+		LocalPDBIndex.Entry entry = index.get(new PdbId("4hhb"), false);
+		assertEquals(expected, entry.getFile());
+		assertEquals(expected.length(), entry.getSize());
+		assertEquals(expected.lastModified(), entry.getLastModified());
+		assertEquals(".cif.gz", entry.getExtension());
+		assertNull(index.get(new PdbId("4hhb"), true));
+		assertNull(index.get(new PdbId("1abc"), false));
+		assertEquals(expected, other.getLocalFile(new PdbId("4hhb")));
+
+		// an index of another format is not used
+		PDBFileReader pdbReader = new PDBFileReader(reader.getPath());
+		assertNull(LocalPDBIndex.load(pdbReader, indexFile));
+	}
+
+	@Test
+	public void testIndexUpdates() throws IOException {
+		Path indexFile = tmp.getRoot().toPath().resolve("cif.idx");
+		reader.useIndex(indexFile);
+		assertEquals(0, reader.getIndex().size());
+
+		// downloads are recorded
+		reader.prefetch(Arrays.asList(new PdbId("4hhb"), new PdbId("1hh0")));
+		assertNotNull(reader.getIndex().get(new PdbId("1hh0"), false));
+		assertTrue(reader.deleteStructure("1hh0"));
+		assertNull(reader.getIndex().get(new PdbId("1hh0"), false));
+		assertNull(reader.getLocalFile(new PdbId("1hh0")));
+
+		reader.getIndex().write(indexFile);
+		LocalPDBIndex index = LocalPDBIndex.load(reader, indexFile);
+		assertEquals(1, index.size());
+		assertNotNull(index.get(new PdbId("4hhb"), false));
+		assertNull(index.get(new PdbId("1hh0"), false));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoExtensions() throws IOException {
+		reader.clearExtensions();
+		LocalPDBIndex.scan(reader);
+	}
+}
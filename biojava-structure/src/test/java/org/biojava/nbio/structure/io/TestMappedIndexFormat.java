@@ -0,0 +1,95 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.io;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the tables of {@link MappedIndexFormat}.
+ */
+public class TestMappedIndexFormat {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void testTables() throws IOException {
+		List<String> strings = Arrays.asList("", "4hhb.A", "4hhb.B", "P69905", "été");
+		List<String> keys = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			keys.add("key" + i);
+		}
+		int capacity = MappedIndexFormat.getCapacity(keys.size());
+		assertEquals(256, capacity);
+		assertEquals(32, MappedIndexFormat.getCapacity(0));
+
+		byte[] table = MappedIndexFormat.toStringTable(strings);
+		byte[] keyTable = MappedIndexFormat.toStringTable(keys);
+		int[] slots = MappedIndexFormat.toHashTable(keys, capacity);
+
+		// a mapped file with a header, two string tables and a hash table
+		Path file = tmp.getRoot().toPath().resolve("tables.bin");
+		MappedIndexFormat.writeAtomically(file, out -> {
+			out.writeInt(42);
+			out.write(table);
+			out.write(keyTable);
+			for (int slot : slots) {
+				out.writeInt(slot);
+			}
+		});
+		// the temporary file was moved
+		try (Stream<Path> files = Files.list(tmp.getRoot().toPath())) {
+			assertEquals(1, files.count());
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+
+		int stringsPos = 4;
+		assertEquals(table.length, MappedIndexFormat.getStringTableSize(buffer, stringsPos));
+		assertEquals(strings.size(), MappedIndexFormat.getStringCount(buffer, stringsPos));
+		for (int i = 0; i < strings.size(); i++) {
+			assertEquals(strings.get(i), MappedIndexFormat.getString(buffer, stringsPos, i));
+			assertTrue(MappedIndexFormat.stringEquals(buffer, stringsPos, i, strings.get(i).getBytes(StandardCharsets.UTF_8)));
+		}
+		assertFalse(MappedIndexFormat.stringEquals(buffer, stringsPos, 1, "4hhb.B".getBytes(StandardCharsets.UTF_8)));
+
+		int keysPos = stringsPos + table.length;
+		int slotsPos = keysPos + keyTable.length;
+		for (int i = 0; i < keys.size(); i++) {
+			byte[] key = keys.get(i).getBytes(StandardCharsets.UTF_8);
+			assertEquals(i, MappedIndexFormat.find(buffer, slotsPos, capacity, keysPos, 0, key));
+		}
+		assertEquals(-1, MappedIndexFormat.find(buffer, slotsPos, capacity, keysPos, 0, "key100".getBytes(StandardCharsets.UTF_8)));
+	}
+}
@@ -0,0 +1,162 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.io;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureTools;
+import org.biojava.nbio.structure.chem.ChemCompGroupFactory;
+import org.biojava.nbio.structure.chem.ReducedChemCompProvider;
+import org.biojava.nbio.structure.test.util.GlobalsHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests reading the models of a PDB file as coordinate frames.
+ */
+public class TestPDBFrameReader {
+
+	private static final String NMR_FILE = "/org/biojava/nbio/structure/io/4b19_raw.pdb.gz";
+
+	@Before
+	public void setUp() {
+		GlobalsHelper.pushState();
+		ChemCompGroupFactory.setChemCompProvider(new ReducedChemCompProvider());
+	}
+
+	@After
+	public void tearDown() {
+		GlobalsHelper.restoreState();
+	}
+
+	private static InputStream open(String resource) throws IOException {
+		return new GZIPInputStream(TestPDBFrameReader.class.getResourceAsStream(resource));
+	}
+
+	@Test
+	public void testFramesMatchModels() throws IOException {
+		Structure full;
+		try (InputStream is = open(NMR_FILE)) {
+			full = new PDBFileParser().parsePDBFile(is);
+		}
+		assertEquals(5, full.nrModels());
+
+		try (PDBFrameReader reader = new PDBFrameReader(open(NMR_FILE))) {
+			assertEquals(1, reader.getTopology().nrModels());
+			Atom[] atoms = reader.getAtoms();
+			assertEquals(StructureTools.getAllAtomArray(full, 0).length, atoms.length);
+
+			double[] coords = new double[3 * atoms.length];
+			int model = 0;
+			while (reader.nextFrame(coords)) {
+				Atom[] expected = StructureTools.getAllAtomArray(full, model);
+				assertEquals(expected.length, atoms.length);
+				for (int i = 0; i < atoms.length; i++) {
+					assertEquals(expected[i].getName(), atoms[i].getName());
+					// parsed to the same doubles
+					assertEquals(expected[i].getX(), coords[3 * i], 0);
+					assertEquals(expected[i].getY(), coords[3 * i + 1], 0);
+					assertEquals(expected[i].getZ(), coords[3 * i + 2], 0);
+				}
+				model++;
+			}
+			assertEquals(5, model);
+			assertEquals(5, reader.getFrameCount());
+			assertFalse(reader.nextFrame(coords));
+		}
+	}
+
+	@Test
+	public void testSkippedAtoms() throws IOException {
+		FileParsingParameters params = new FileParsingParameters();
+		params.setParseCAOnly(true);
+		try (PDBFrameReader reader = new PDBFrameReader(open(NMR_FILE), params)) {
+			Atom[] atoms = reader.getAtoms();
+			assertEquals(30, atoms.length);
+			double[] coords = new double[3 * atoms.length];
+			int frames = 0;
+			while (reader.nextFrame(coords)) {
+				frames++;
+			}
+			assertEquals(5, frames);
+			for (Atom atom : atoms) {
+				assertEquals(StructureTools.CA_ATOM_NAME, atom.getName());
+			}
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testMismatchedModel() throws IOException {
+		String pdb = "MODEL        1\n"
+				+ "ATOM      1  N   GLY A   1      11.104   6.134  -6.504  1.00  0.00           N\n"
+				+ "ATOM      2  CA  GLY A   1      11.639   6.071  -5.147  1.00  0.00           C\n"
+				+ "ENDMDL\n"
+				+ "MODEL        2\n"
+				+ "ATOM      1  N   GLY A   1      11.104   6.134  -6.504  1.00  0.00           N\n"
+				+ "ENDMDL\n";
+		try (PDBFrameReader reader = new PDBFrameReader(new ByteArrayInputStream(pdb.getBytes(StandardCharsets.US_ASCII)))) {
+			double[] coords = new double[6];
+			assertTrue(reader.nextFrame(coords));
+			reader.nextFrame(coords);
+		}
+	}
+
+	@Test
+	public void testInvalidSerials() {
+		String[] records = {
+				// overflowed and hybrid-36 serials
+				"ATOM  *****  N   GLY A   1      11.104   6.134  -6.504  1.00  0.00           N\n",
+				"ATOM  A0000  N   GLY A   1      11.104   6.134  -6.504  1.00  0.00           N\n",
+				"ATOM  \n" };
+		for (String record : records) {
+			try (PDBFrameReader reader = new PDBFrameReader(new ByteArrayInputStream(record.getBytes(StandardCharsets.US_ASCII)))) {
+				fail("Invalid serial accepted: " + record);
+			} catch (IOException e) {
+				assertTrue(e.getMessage(), e.getMessage().contains(record.trim()));
+			}
+		}
+	}
+
+	@Test
+	public void testParseCoordinate() {
+		String[] fields = { "  11.104", " -6.504 ", "   0.000", "  -0.000", "-999.999", "9999.999", "   1.5  ",
+				"    -0.1", "   12   ", " 1.0E+01" };
+		for (String field : fields) {
+			String line = "ATOM  " + field;
+			assertEquals(field, Double.parseDouble(field.trim()),
+					PDBFrameReader.parseCoordinate(line, 6, 6 + field.length()), 0);
+		}
+		// every 3 decimal value in a range parses to the same double
+		for (int v = -100000; v <= 100000; v += 7) {
+			String field = String.format("%8.3f", v / 1000.0);
+			assertEquals(field, Double.parseDouble(field.trim()), PDBFrameReader.parseCoordinate(field, 0, 8), 0);
+		}
+	}
+}
@@ -0,0 +1,60 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+
+import org.biojava.nbio.core.alignment.matrices.SubstitutionMatrixHelper;
+import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
+import org.biojava.nbio.core.sequence.DNASequence;
+import org.biojava.nbio.core.sequence.ProteinSequence;
+import org.junit.Test;
+
+public class TestSeqRes2AtomAligner {
+
+	@Test
+	public void testExactProteinMatch() throws CompoundNotFoundException {
+		int[] matches = SeqRes2AtomAligner.findExactMatch(new ProteinSequence("MKVLAAGIW"),
+				new ProteinSequence("VLAA"), SubstitutionMatrixHelper.getBlosum65());
+		assertArrayEquals(new int[] { 2, 0, 3, 1, 4, 2, 5, 3 }, matches);
+	}
+
+	@Test
+	public void testNoExactProteinMatch() throws CompoundNotFoundException {
+		// not found, repeated, or with a compound not scoring best against itself
+		assertNull(SeqRes2AtomAligner.findExactMatch(new ProteinSequence("MKVLAAGIW"),
+				new ProteinSequence("VLGA"), SubstitutionMatrixHelper.getBlosum65()));
+		assertNull(SeqRes2AtomAligner.findExactMatch(new ProteinSequence("GSAGSAG"),
+				new ProteinSequence("GSA"), SubstitutionMatrixHelper.getBlosum65()));
+		assertNull(SeqRes2AtomAligner.findExactMatch(new ProteinSequence("MKXLAAGIW"),
+				new ProteinSequence("KXLA"), SubstitutionMatrixHelper.getBlosum65()));
+	}
+
+	@Test
+	public void testExactNucleotideMatch() throws CompoundNotFoundException {
+		int[] matches = SeqRes2AtomAligner.findExactMatch(new DNASequence("GCGATCGC"),
+				new DNASequence("GATC"), SubstitutionMatrixHelper.getNuc4_4());
+		assertArrayEquals(new int[] { 2, 0, 3, 1, 4, 2, 5, 3 }, matches);
+		assertNull(SeqRes2AtomAligner.findExactMatch(new DNASequence("GCGANCGC"),
+				new DNASequence("GANC"), SubstitutionMatrixHelper.getNuc4_4()));
+	}
+}
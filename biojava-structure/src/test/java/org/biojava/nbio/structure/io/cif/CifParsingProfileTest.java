@@ -0,0 +1,131 @@
+package org.biojava.nbio.structure.io.cif;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Chain;
+import org.biojava.nbio.structure.EntityInfo;
+import org.biojava.nbio.structure.EntityType;
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureTools;
+import org.biojava.nbio.structure.io.FileParsingParameters;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.rcsb.cif.CifIO;
+import org.rcsb.cif.model.CifFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the parsing of a subset of the categories and atoms of mmCIF files.
+ */
+public class CifParsingProfileTest {
+    private static CifFile cifFile;
+
+    @BeforeClass
+    public static void setUp() throws IOException {
+        cifFile = CifIO.readFromInputStream(new GZIPInputStream(
+                CifParsingProfileTest.class.getResourceAsStream("/4hhb.cif.gz")));
+    }
+
+    private static FileParsingParameters getCaProfile() {
+        FileParsingParameters params = new FileParsingParameters();
+        params.setAcceptedAtomNames(new String[] { StructureTools.CA_ATOM_NAME });
+        params.setParseFirstModelOnly(true);
+        params.setParsePolymerOnly(true);
+        params.setCifCategories(FileParsingParameters.ENTITY_CIF_CATEGORIES);
+        return params;
+    }
+
+    @Test
+    public void testCaProfile() {
+        Structure structure = CifStructureConverter.fromCifFile(cifFile, getCaProfile());
+
+        // only the 4 protein chains, without any group of the ligands and waters
+        assertEquals(4, structure.getChains().size());
+        assertEquals(574, StructureTools.getNrAtoms(structure));
+        for (Chain chain : structure.getChains()) {
+            for (Group group : chain.getAtomGroups()) {
+                assertEquals(1, group.size());
+                assertEquals(StructureTools.CA_ATOM_NAME, group.getAtom(0).getName());
+            }
+        }
+
+        // entity information is still available
+        int polymers = 0;
+        for (EntityInfo entityInfo : structure.getEntityInfos()) {
+            if (entityInfo.getType() == EntityType.POLYMER) {
+                polymers++;
+                assertFalse(entityInfo.getDescription().isEmpty());
+            }
+        }
+        assertEquals(2, polymers);
+
+        // the header categories were not read
+        assertNull(structure.getPDBHeader().getTitle());
+        assertNull(structure.getPDBHeader().getCrystallographicInfo().getSpaceGroup());
+    }
+
+    @Test
+    public void testCaProfileMatchesFullParsing() throws IOException {
+        Structure full = CifStructureConverter.fromCifFile(cifFile);
+        Atom[] expected = StructureTools.getAtomCAArray(full);
+
+        // the same atoms from text and binary files
+        byte[] binary = CifIO.writeBinary(CifIO.readFromInputStream(new GZIPInputStream(
+                CifParsingProfileTest.class.getResourceAsStream("/4hhb.cif.gz"))));
+        Structure binaryStructure = CifStructureConverter.fromInputStream(new ByteArrayInputStream(binary), getCaProfile());
+        for (Structure structure : new Structure[] { CifStructureConverter.fromCifFile(cifFile, getCaProfile()), binaryStructure }) {
+            Atom[] cas = StructureTools.getAtomCAArray(structure);
+            assertEquals(expected.length, cas.length);
+            for (int i = 0; i < cas.length; i++) {
+                assertEquals(expected[i].getGroup().getResidueNumber(), cas[i].getGroup().getResidueNumber());
+                assertArrayEquals(expected[i].getCoordsAsPoint3d().toString(), expected[i].getCoords(), cas[i].getCoords(), 1e-6);
+            }
+        }
+    }
+
+    @Test
+    public void testFirstModelOnly() throws IOException {
+        Structure structure = CifStructureConverter.fromCifFile(cifFile);
+        List<Chain> model = new ArrayList<>();
+        for (Chain chain : structure.getChains()) {
+            model.add((Chain) chain.clone());
+        }
+        structure.addModel(model);
+        byte[] twoModels = CifIO.writeText(CifStructureConverter.toCifFile(structure));
+
+        Structure all = CifStructureConverter.fromInputStream(new ByteArrayInputStream(twoModels), new FileParsingParameters());
+        assertEquals(2, all.nrModels());
+
+        FileParsingParameters params = new FileParsingParameters();
+        params.setParseFirstModelOnly(true);
+        Structure first = CifStructureConverter.fromInputStream(new ByteArrayInputStream(twoModels), params);
+        assertEquals(1, first.nrModels());
+        assertEquals(StructureTools.getNrAtoms(all), 2 * StructureTools.getNrAtoms(first));
+    }
+
+    @Test
+    public void testParameters() {
+        FileParsingParameters params = getCaProfile();
+        assertEquals(params, new FileParsingParameters(params));
+        assertEquals(params.hashCode(), new FileParsingParameters(params).hashCode());
+        assertTrue(params.isCifCategoryParsed("entity"));
+        assertFalse(params.isCifCategoryParsed("struct_conn"));
+
+        FileParsingParameters other = new FileParsingParameters(params);
+        other.setCifCategories(Collections.singleton("entity"));
+        assertNotEquals(params, other);
+
+        params.setDefault();
+        assertTrue(params.isCifCategoryParsed("struct_conn"));
+        assertFalse(params.isParseFirstModelOnly());
+        assertFalse(params.isParsePolymerOnly());
+    }
+}
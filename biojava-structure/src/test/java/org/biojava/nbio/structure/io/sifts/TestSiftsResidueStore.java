@@ -0,0 +1,171 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.io.sifts;
+
+import org.biojava.nbio.structure.ResidueNumber;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link SiftsResidueStore}.
+ */
+public class TestSiftsResidueStore {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private static List<SiftsEntity> parse4dou() throws IOException {
+		SiftsXMLParser parser = new SiftsXMLParser();
+		try (InputStream is = new GZIPInputStream(TestSiftsResidueStore.class.getResourceAsStream("/org/biojava/nbio/structure/io/4dou.sifts.xml.gz"))) {
+			parser.parseXmlFile(is);
+		}
+		return parser.getEntities();
+	}
+
+	private SiftsResidueStore write(SiftsResidueStore.Builder builder) throws IOException {
+		Path file = tmp.getRoot().toPath().resolve("sifts.store");
+		builder.write(file);
+		return SiftsResidueStore.open(file);
+	}
+
+	@Test
+	public void testXmlRoundTrip() throws IOException {
+		List<SiftsEntity> entities = parse4dou();
+		SiftsResidueStore store = write(new SiftsResidueStore.Builder().addEntities("4DOU", entities));
+
+		List<SiftsResidue> expected = new ArrayList<>();
+		for (SiftsEntity entity : entities) {
+			for (SiftsSegment segment : entity.getSegments()) {
+				expected.addAll(segment.getResidues());
+			}
+		}
+		expected.sort(Comparator.comparing(SiftsResidue::getNaturalPos));
+		assertFalse(expected.isEmpty());
+
+		assertEquals(1, store.getChainCount());
+		assertEquals(expected.size(), store.getResidueCount());
+		assertEquals(expected, store.getResidues("4dou", "A"));
+		assertTrue(store.getResidues("4dou", "B").isEmpty());
+		assertEquals(-1, store.findChain("1abc", "A"));
+
+		int chain = store.findChain("4DOU", "A");
+		assertEquals("4dou", store.getPdbId(chain));
+		assertEquals("A", store.getChainName(chain));
+		for (int i = 0; i < expected.size(); i++) {
+			int residue = store.getFirstResidue(chain) + i;
+			assertEquals(chain, store.getChain(residue));
+			assertEquals(expected.get(i), store.getResidue(residue));
+			assertEquals(residue, store.findResidueBySeqResPosition(chain, expected.get(i).getNaturalPos()));
+		}
+	}
+
+	@Test
+	public void testLookups() throws IOException {
+		List<SiftsEntity> entities = parse4dou();
+		SiftsResidueStore store = write(new SiftsResidueStore.Builder().addEntities("4dou", entities));
+
+		// the first observed residue mapped to UniProt
+		SiftsResidue first = null;
+		for (SiftsSegment segment : entities.get(0).getSegments()) {
+			for (SiftsResidue residue : segment.getResidues()) {
+				if (first == null && !residue.getNotObserved() && residue.getUniProtPos() != null) {
+					first = residue;
+				}
+			}
+		}
+		assertNotNull(first);
+		ResidueNumber number = ResidueNumber.fromString(first.getPdbResNum());
+		number.setChainName("A");
+		assertEquals(first, store.getResidue("4dou", number));
+
+		int residue = store.findResidue(store.findChain("4dou", "A"), number);
+		assertEquals(first.getUniProtPos().intValue(), store.getUniProtPosition(residue));
+		assertEquals(first.getUniProtAccessionId(), store.getUniProtAccession(residue));
+		assertEquals(number.getSeqNum(), store.getResidueNumber(residue).getSeqNum());
+		assertEquals(-1, store.findResidue(store.findChain("4dou", "A"), -1000, '\0'));
+
+		// all chains mapped to the UniProt position
+		assertEquals(1, store.getAccessionCount());
+		List<SiftsResidue> byUniProt = store.getResiduesByUniProt(first.getUniProtAccessionId(), first.getUniProtPos());
+		assertEquals(1, byUniProt.size());
+		assertEquals(first, byUniProt.get(0));
+		assertEquals(0, store.findUniProtResidues("P00000", 1).length);
+
+		// batch mapping
+		ResidueNumber[] numbers = { number, new ResidueNumber("A", -1000, null) };
+		int[] positions = new int[numbers.length];
+		assertEquals(1, store.getUniProtPositions("4dou", "A", numbers, positions));
+		assertArrayEquals(new int[] { first.getUniProtPos(), -1 }, positions);
+	}
+
+	@Test
+	public void testChainMappings() throws IOException {
+		SiftsResidueStore.Builder builder = new SiftsResidueStore.Builder();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+				TestSiftsResidueStore.class.getResourceAsStream("/org/biojava/nbio/structure/io/sifts/mock_sifts.tsv"), StandardCharsets.UTF_8))) {
+			builder.addChainMappings(reader);
+		}
+		SiftsResidueStore store = write(builder);
+
+		int chain = store.findChain("101m", "A");
+		assertEquals(154, store.getResidueCount(chain));
+		int residue = store.findResidueBySeqResPosition(chain, 1);
+		assertEquals(1, store.getUniProtPosition(residue));
+		assertEquals("P02185", store.getUniProtAccession(residue));
+		assertNull(store.getResidueNumber(residue));
+
+		// two segments, SEQRES position 41 is not mapped
+		chain = store.findChain("102l", "A");
+		assertEquals(164, store.getResidueCount(chain));
+		assertEquals(-1, store.findResidueBySeqResPosition(chain, 41));
+		assertEquals(41, store.getUniProtPosition(store.findResidueBySeqResPosition(chain, 42)));
+
+		// the same UniProt position in all the chains of the accession
+		int[] residues = store.findUniProtResidues("P02185", 10);
+		assertTrue(residues.length >= 3);
+		for (int r : residues) {
+			assertEquals(10, store.getUniProtPosition(r));
+			assertEquals("P02185", store.getUniProtAccession(r));
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidFile() throws IOException {
+		Path file = tmp.newFile("invalid.store").toPath();
+		Files.write(file, new byte[64]);
+		SiftsResidueStore.open(file);
+	}
+}
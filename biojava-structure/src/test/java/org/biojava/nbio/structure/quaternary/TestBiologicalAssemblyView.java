@@ -0,0 +1,217 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.quaternary;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Chain;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureTools;
+import org.biojava.nbio.structure.chem.ChemCompGroupFactory;
+import org.biojava.nbio.structure.chem.ReducedChemCompProvider;
+import org.biojava.nbio.structure.cluster.SubunitClustererParameters;
+import org.biojava.nbio.structure.contact.Grid;
+import org.biojava.nbio.structure.io.FileParsingParameters;
+import org.biojava.nbio.structure.io.cif.CifStructureConverter;
+import org.biojava.nbio.structure.symmetry.core.QuatSymmetryDetector;
+import org.biojava.nbio.structure.symmetry.core.QuatSymmetryParameters;
+import org.biojava.nbio.structure.symmetry.core.QuatSymmetryResults;
+import org.biojava.nbio.structure.test.util.GlobalsHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.vecmath.AxisAngle4d;
+import javax.vecmath.Matrix4d;
+import javax.vecmath.Vector3d;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that a view of a biological assembly gives the same coordinates,
+ * contacts and symmetry as the assembly built with copies of the chains.
+ */
+public class TestBiologicalAssemblyView {
+
+	private static final double CUTOFF = 5.0;
+
+	private Structure asymUnit;
+
+	@Before
+	public void setUp() throws IOException {
+		GlobalsHelper.pushState();
+		ChemCompGroupFactory.setChemCompProvider(new ReducedChemCompProvider());
+		FileParsingParameters params = new FileParsingParameters();
+		params.setParseBioAssembly(true);
+		asymUnit = CifStructureConverter.fromInputStream(new GZIPInputStream(
+				TestBiologicalAssemblyView.class.getResourceAsStream("/4hhb.cif.gz")), params);
+	}
+
+	@After
+	public void tearDown() {
+		GlobalsHelper.restoreState();
+	}
+
+	/**
+	 * The identity and a two-fold rotation about an axis close to the
+	 * tetramer, applied to all chains: an octamer with contacts between the
+	 * two tetramers.
+	 */
+	private List<BiologicalAssemblyTransformation> getTransformations() {
+		Matrix4d rotation = new Matrix4d();
+		rotation.setIdentity();
+		rotation.setRotation(new AxisAngle4d(new Vector3d(0, 0, 1), Math.PI));
+		rotation.setTranslation(new Vector3d(50, 0, 0));
+
+		Matrix4d identity = new Matrix4d();
+		identity.setIdentity();
+
+		List<BiologicalAssemblyTransformation> transformations = new ArrayList<>();
+		for (Chain c : asymUnit.getChains()) {
+			String[] ids = { "1", "2" };
+			Matrix4d[] matrices = { identity, rotation };
+			for (int i = 0; i < ids.length; i++) {
+				BiologicalAssemblyTransformation t = new BiologicalAssemblyTransformation();
+				t.setId(ids[i]);
+				t.setChainId(c.getId());
+				t.setTransformationMatrix(matrices[i]);
+				transformations.add(t);
+			}
+		}
+		return transformations;
+	}
+
+	@Test
+	public void testCoordinates() {
+		BiologicalAssemblyBuilder builder = new BiologicalAssemblyBuilder();
+		BiologicalAssemblyView view = builder.buildAssemblyView(asymUnit, getTransformations(), true);
+		Structure assembly = view.toStructure(false);
+
+		assertEquals(2 * asymUnit.getChains().size(), view.getChainCount());
+		assertEquals(assembly.getChains().size(), view.getChainCount());
+
+		double[] coords = null;
+		int atomCount = 0;
+		for (int i = 0; i < view.getChainCount(); i++) {
+			Chain chain = assembly.getChain(view.getChainId(i));
+			assertEquals(chain.getId(), view.getChainId(i));
+			assertEquals(chain.getName(), view.getChainName(i));
+
+			Atom[] expected = StructureTools.getAllAtomArray(chain);
+			Atom[] atoms = view.getAtoms(i);
+			atomCount += atoms.length;
+			coords = view.getCoordinates(i, coords);
+			assertEquals(expected.length, atoms.length);
+			for (int j = 0; j < expected.length; j++) {
+				assertArrayEquals(expected[j].getCoords(), atoms[j].getCoords(), 0);
+				assertArrayEquals(expected[j].getCoords(), new double[] { coords[3 * j], coords[3 * j + 1], coords[3 * j + 2] }, 0);
+				assertEquals(expected[j].getName(), atoms[j].getName());
+			}
+
+			Atom[] ca = StructureTools.getRepresentativeAtomArray(chain);
+			double[] caCoords = view.getRepresentativeCoordinates(i, null);
+			assertEquals(ca.length, view.getRepresentativeAtoms(i).length);
+			for (int j = 0; j < ca.length; j++) {
+				assertEquals(ca[j].getX(), caCoords[3 * j], 0);
+			}
+		}
+
+		assertEquals(atomCount, view.getAtomCount());
+
+		// the asymmetric unit is not modified
+		assertSame(asymUnit.getChains().get(0), view.getOriginalChain(0));
+		assertFalse(asymUnit.isBiologicalAssembly());
+		assertTrue(assembly.isBiologicalAssembly());
+	}
+
+	@Test
+	public void testMultiModel() {
+		BiologicalAssemblyView view = new BiologicalAssemblyBuilder().buildAssemblyView(asymUnit, getTransformations(), true);
+		Structure assembly = view.toStructure(true);
+		assertEquals(2, assembly.nrModels());
+		assertEquals(asymUnit.getChains().size(), assembly.getChains(1).size());
+	}
+
+	@Test
+	public void testContacts() {
+		BiologicalAssemblyView view = new BiologicalAssemblyBuilder().buildAssemblyView(asymUnit, getTransformations(), true);
+		Structure assembly = view.toStructure(false);
+		List<Chain> chains = new ArrayList<>();
+		for (int i = 0; i < view.getChainCount(); i++) {
+			chains.add(assembly.getChain(view.getChainId(i)));
+		}
+
+		List<OrderedPair<Integer>> contacting = view.getContactingCopies(CUTOFF);
+		int k = 0;
+		for (int i = 0; i < chains.size(); i++) {
+			for (int j = i + 1; j < chains.size(); j++) {
+				Atom[] atoms1 = StructureTools.getAllAtomArray(chains.get(i));
+				Atom[] atoms2 = StructureTools.getAllAtomArray(chains.get(j));
+				int expected = 0;
+				// water chains have no atoms
+				if (atoms1.length > 0 && atoms2.length > 0) {
+					Grid grid = new Grid(CUTOFF);
+					grid.addAtoms(atoms1, atoms2);
+					expected = grid.getContactCount();
+				}
+
+				int[] count = new int[1];
+				view.visitContacts(i, j, CUTOFF, (a, b, distance) -> count[0]++);
+				assertEquals(expected, count[0]);
+
+				if (expected > 0) {
+					OrderedPair<Integer> pair = contacting.get(k++);
+					assertEquals(i, (int) pair.getElement1());
+					assertEquals(j, (int) pair.getElement2());
+				}
+			}
+		}
+		assertEquals(k, contacting.size());
+		// there are contacts between the two tetramers
+		assertTrue(contacting.stream().anyMatch(p ->
+				!view.getTransformation(p.getElement1()).getId().equals(view.getTransformation(p.getElement2()).getId())));
+	}
+
+	@Test
+	public void testSymmetry() {
+		BiologicalAssemblyView view = new BiologicalAssemblyBuilder().buildAssemblyView(asymUnit, getTransformations(), true);
+		QuatSymmetryParameters symmParams = new QuatSymmetryParameters();
+		SubunitClustererParameters clusterParams = new SubunitClustererParameters();
+
+		QuatSymmetryResults expected = QuatSymmetryDetector.calcGlobalSymmetry(view.toStructure(false), symmParams, clusterParams);
+		QuatSymmetryResults results = QuatSymmetryDetector.calcGlobalSymmetry(view, symmParams, clusterParams);
+
+		assertEquals(expected.getSymmetry(), results.getSymmetry());
+		assertEquals(expected.getStoichiometry().toString(), results.getStoichiometry().toString());
+		assertEquals(expected.getSubunitCount(), results.getSubunitCount());
+		assertEquals(expected.getRotationGroup().getOrder(), results.getRotationGroup().getOrder());
+		assertEquals(expected.getScores().getRmsd(), results.getScores().getRmsd(), 1e-6);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testReadOnlyAtoms() {
+		BiologicalAssemblyView view = new BiologicalAssemblyBuilder().buildAssemblyView(asymUnit, getTransformations(), true);
+		view.getAtoms(0)[0].setX(0);
+	}
+}
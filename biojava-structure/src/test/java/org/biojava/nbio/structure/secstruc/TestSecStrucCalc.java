@@ -28,6 +28,7 @@ import java.util.zip.GZIPInputStream;
 import org.biojava.nbio.structure.Structure;
 import org.biojava.nbio.structure.StructureException;
 import org.biojava.nbio.structure.align.util.AtomCache;
+import org.biojava.nbio.structure.io.cif.CifStructureConverter;
 import org.junit.Test;
 
 import static org.junit.Assert.*;
@@ -118,4 +119,30 @@ public class TestSecStrucCalc {
 					biojava.get(i), dssp.get(i));
 		}
 	}
+
+	/**
+	 * Test the prediction against the original DSSP output for a structure
+	 * read from a local file.
+	 * @throws StructureException
+	 * @throws IOException
+	 */
+	@Test
+	public void testSecStrucPredLocalFile() throws StructureException, IOException {
+
+		Structure structure = CifStructureConverter.fromInputStream(new GZIPInputStream(
+				this.getClass().getResourceAsStream("/4hhb.cif.gz")));
+
+		List<SecStrucState> biojava = new SecStrucCalc().calculate(structure, true);
+
+		List<SecStrucState> dssp = DSSPParser.parseInputStream(new GZIPInputStream(
+				this.getClass().getResourceAsStream("/org/biojava/nbio/structure/secstruc/4hhb.dssp.gz")), structure, false);
+
+		assertEquals("SS assignment lengths do not match",
+				biojava.size(), dssp.size());
+
+		for (int i=0; i<dssp.size(); i++){
+			assertEquals("SS assignment position "+(i+1)+" does not match",
+					biojava.get(i), dssp.get(i));
+		}
+	}
 }
@@ -0,0 +1,107 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.symmetry.core;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.GZIPInputStream;
+
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.cluster.SubunitClusterer;
+import org.biojava.nbio.structure.cluster.SubunitClustererParameters;
+import org.biojava.nbio.structure.io.CifFileReader;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests that the quaternary symmetry solvers give the same results
+ * regardless of the pool they run in.
+ */
+public class TestQuatSymmetrySolvers {
+
+	private static QuatSymmetrySubunits subunits;
+
+	@BeforeClass
+	public static void setUp() throws IOException {
+		Structure s = new CifFileReader().getStructure(
+				new GZIPInputStream(TestQuatSymmetrySolvers.class.getResourceAsStream("/4hhb.cif.gz")));
+		SubunitClustererParameters clusterParams = new SubunitClustererParameters();
+		clusterParams.setSequenceIdentityThreshold(0.3);
+		Stoichiometry composition = SubunitClusterer.cluster(s, clusterParams);
+		subunits = new QuatSymmetrySubunits(composition.getClusters());
+	}
+
+	private static List<List<Integer>> getPermutations(RotationGroup group) {
+		List<List<Integer>> permutations = new ArrayList<>();
+		for (int i = 0; i < group.getOrder(); i++) {
+			permutations.add(group.getRotation(i).getPermutation());
+		}
+		return permutations;
+	}
+
+	@Test
+	public void testRotationSolver() {
+		QuatSymmetryParameters params = new QuatSymmetryParameters();
+		RotationGroup group = new RotationSolver(subunits, params).getSymmetryOperations();
+		assertEquals("D2", group.getPointGroup());
+
+		ForkJoinPool pool = new ForkJoinPool(1);
+		try {
+			params.setPool(pool);
+			RotationGroup serial = new RotationSolver(subunits, params).getSymmetryOperations();
+			assertEquals(getPermutations(group), getPermutations(serial));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testSystematicSolver() {
+		QuatSymmetryParameters params = new QuatSymmetryParameters();
+		RotationGroup group = new SystematicSolver(subunits, params).getSymmetryOperations();
+		assertEquals("D2", group.getPointGroup());
+		assertEquals(4, group.getOrder());
+
+		ForkJoinPool pool = new ForkJoinPool(1);
+		try {
+			params.setPool(pool);
+			RotationGroup serial = new SystematicSolver(subunits, params).getSymmetryOperations();
+			assertEquals(getPermutations(group), getPermutations(serial));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testSolverTimeLimit() {
+		QuatSymmetryParameters params = new QuatSymmetryParameters();
+		params.setSolverTimeLimit(0);
+		// the identity operation is always found, even without time to search
+		RotationGroup group = new RotationSolver(subunits, params).getSymmetryOperations();
+		assertTrue(group.getOrder() >= 1);
+		assertEquals(Arrays.asList(0, 1, 2, 3), group.getRotation(0).getPermutation());
+	}
+}
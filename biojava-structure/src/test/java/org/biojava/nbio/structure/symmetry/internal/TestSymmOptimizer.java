@@ -0,0 +1,79 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.symmetry.internal;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureException;
+import org.biojava.nbio.structure.StructureTools;
+import org.biojava.nbio.structure.align.multiple.MultipleAlignment;
+import org.biojava.nbio.structure.align.multiple.util.MultipleAlignmentScorer;
+import org.biojava.nbio.structure.io.PDBFileParser;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test the multi-start optimization of the symmetry alignment.
+ */
+public class TestSymmOptimizer {
+
+	private static Atom[] atoms;
+
+	@BeforeClass
+	public static void setUp() throws IOException {
+		PDBFileParser parser = new PDBFileParser();
+		Structure s = parser.parsePDBFile(TestSymmOptimizer.class.getResourceAsStream("/2gox.pdb"));
+		atoms = StructureTools.getRepresentativeAtomArray(s.getPolyChains().get(0));
+	}
+
+	private static CeSymmResult getRefinedResult() throws StructureException {
+		CESymmParameters params = new CESymmParameters();
+		params.setRndSeed(42);
+		params.setOptimization(false);
+		params.setOptimizationSteps(2000);
+		CeSymmResult result = CeSymm.analyzeLevel(atoms, params);
+		assertTrue(result.isRefined());
+		return result;
+	}
+
+	@Test
+	public void testMultiStart() throws StructureException, RefinerFailedException {
+
+		MultipleAlignment single = SymmOptimizer.optimize(getRefinedResult(), 1);
+		double singleScore = single.getScore(MultipleAlignmentScorer.MC_SCORE);
+
+		// the first trajectory is the single one, so the best can not be worse
+		CeSymmResult result = getRefinedResult();
+		MultipleAlignment multi = SymmOptimizer.optimize(result, 3);
+		double multiScore = multi.getScore(MultipleAlignmentScorer.MC_SCORE);
+		assertTrue(multiScore >= singleScore);
+		assertEquals(3, result.getAxes().getNumRepeats());
+
+		// reproducible for the same seed
+		MultipleAlignment again = SymmOptimizer.optimize(getRefinedResult(), 3);
+		assertEquals(multiScore, again.getScore(MultipleAlignmentScorer.MC_SCORE), 0.0);
+		assertEquals(multi.getBlock(0).getAlignRes(), again.getBlock(0).getAlignRes());
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.xtal;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.contact.StructureInterface;
+import org.biojava.nbio.structure.contact.StructureInterfaceList;
+import org.biojava.nbio.structure.io.PDBFileReader;
+import org.junit.Test;
+
+public class TestCrystalBuilder {
+
+	private static StructureInterfaceList getInterfaces(Structure structure, int nThreads) {
+		CrystalBuilder cb = new CrystalBuilder(structure);
+		ForkJoinPool pool = new ForkJoinPool(nThreads);
+		try {
+			cb.setPool(pool);
+			return cb.getUniqueInterfaces();
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * The interfaces and their order must not depend on the number of threads.
+	 */
+	@Test
+	public void testDeterministicOrder() throws IOException {
+		Structure structure = new PDBFileReader().getStructure(TestCrystalBuilder.class.getResourceAsStream("/3cdl.pdb"));
+
+		StructureInterfaceList serial = getInterfaces(structure, 1);
+		StructureInterfaceList parallel = getInterfaces(structure, 4);
+
+		assertEquals(14, serial.size());
+		assertEquals(serial.size(), parallel.size());
+		for (int i = 0; i < serial.size(); i++) {
+			StructureInterface expected = serial.getList().get(i);
+			StructureInterface actual = parallel.getList().get(i);
+			assertEquals(expected.getMoleculeIds(), actual.getMoleculeIds());
+			assertEquals(expected.getTransforms().getSecond().toString(), actual.getTransforms().getSecond().toString());
+			assertEquals(expected.getContacts().size(), actual.getContacts().size());
+		}
+	}
+}